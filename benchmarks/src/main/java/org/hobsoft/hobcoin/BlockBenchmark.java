@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Benchmarks sequentially mining and hashing a {@code Block}.
+ */
+@State(Scope.Thread)
+public class BlockBenchmark
+{
+	/**
+	 * The difficulty to mine blocks to.
+	 */
+	@State(Scope.Benchmark)
+	public static class Difficulty
+	{
+		@Param({"8", "12", "16"})
+		private int leadingZeroBits;
+		
+		private Target target;
+		
+		@Setup
+		public void setUp()
+		{
+			target = Target.ofLeadingZeroBits(leadingZeroBits);
+		}
+	}
+	
+	private Transaction transaction;
+	
+	private Block block;
+	
+	private int nonce;
+	
+	@Setup
+	public void setUp()
+	{
+		TransactionInput input = new TransactionInput(new TransactionOutputPoint(Hash256.ZERO, 0));
+		TransactionOutput output = new TransactionOutput(new Wallet().address(), 100);
+		transaction = new Transaction(singletonList(input), singletonList(output));
+		block = new Block(transaction, Hash256.ZERO);
+	}
+	
+	@Benchmark
+	public Block mine(Difficulty difficulty)
+	{
+		return new Block(transaction, Hash256.ZERO).mine(difficulty.target);
+	}
+	
+	@Benchmark
+	public Hash256 calculateHash()
+	{
+		block.setNonce(nonce++);
+		return block.hash();
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Benchmarks encoding and decoding blocks with {@code BlockCodec} against JSON.
+ */
+@State(Scope.Thread)
+public class BlockCodecBenchmark
+{
+	/**
+	 * JSON representation of a block including its transaction, serialized by field.
+	 */
+	public static class JsonBlock
+	{
+		private byte[] previousHash;
+		
+		private long timestamp;
+		
+		private int nonce;
+		
+		private List<JsonInput> inputs;
+		
+		private List<JsonOutput> outputs;
+	}
+	
+	/**
+	 * JSON representation of a transaction input.
+	 */
+	public static class JsonInput
+	{
+		private byte[] transactionId;
+		
+		private int transactionOutputIndex;
+		
+		private byte[] signature;
+	}
+	
+	/**
+	 * JSON representation of a transaction output.
+	 */
+	public static class JsonOutput
+	{
+		private byte[] recipient;
+		
+		private long amount;
+	}
+	
+	@Param({"1", "10"})
+	private int inputs;
+	
+	private final ObjectMapper objectMapper = new ObjectMapper()
+		.setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+	
+	private Block block;
+	
+	private ByteBuffer buffer;
+	
+	private byte[] encodedBlock;
+	
+	private byte[] jsonBlock;
+	
+	@Setup
+	public void setUp() throws IOException
+	{
+		Wallet wallet = new Wallet();
+		Blockchain blockchain = new Blockchain(wallet.address(), 100, Target.ofLeadingZeroBits(0));
+		
+		for (int index = 1; index < inputs; index++)
+		{
+			Transaction transaction = wallet.transfer(blockchain, wallet.address(), 1);
+			blockchain.add(new Block(transaction, blockchain.tail().hash()));
+		}
+		
+		Transaction transaction = wallet.transfer(blockchain, new Wallet().address(), 100);
+		block = new Block(transaction, blockchain.tail().hash());
+		
+		buffer = ByteBuffer.allocate(BlockCodec.encodedLength(block));
+		encodedBlock = BlockCodec.encode(block);
+		jsonBlock = objectMapper.writeValueAsBytes(toJson(block));
+	}
+	
+	@Benchmark
+	public ByteBuffer encodeBinary()
+	{
+		buffer.clear();
+		return BlockCodec.encode(block, buffer);
+	}
+	
+	@Benchmark
+	public Block decodeBinary()
+	{
+		return BlockCodec.decodeBlock(ByteBuffer.wrap(encodedBlock));
+	}
+	
+	@Benchmark
+	public byte[] encodeJson() throws IOException
+	{
+		return objectMapper.writeValueAsBytes(toJson(block));
+	}
+	
+	@Benchmark
+	public Block decodeJson() throws IOException, GeneralSecurityException
+	{
+		return fromJson(objectMapper.readValue(jsonBlock, JsonBlock.class));
+	}
+	
+	private static JsonBlock toJson(Block block)
+	{
+		JsonBlock json = new JsonBlock();
+		json.previousHash = block.previousHash().toBytes();
+		json.timestamp = block.timestamp();
+		json.nonce = block.nonce();
+		json.inputs = block.transactions().get(0).inputs().stream()
+			.map(BlockCodecBenchmark::toJson)
+			.collect(toList());
+		json.outputs = block.transactions().get(0).outputs().stream()
+			.map(BlockCodecBenchmark::toJson)
+			.collect(toList());
+		return json;
+	}
+	
+	private static JsonInput toJson(TransactionInput input)
+	{
+		JsonInput json = new JsonInput();
+		json.transactionId = input.transactionOutputPoint().transactionId().toBytes();
+		json.transactionOutputIndex = input.transactionOutputPoint().transactionOutputIndex();
+		json.signature = input.signature();
+		return json;
+	}
+	
+	private static JsonOutput toJson(TransactionOutput output)
+	{
+		JsonOutput json = new JsonOutput();
+		json.recipient = output.recipient().getEncoded();
+		json.amount = output.amount();
+		return json;
+	}
+	
+	private static Block fromJson(JsonBlock json) throws GeneralSecurityException
+	{
+		List<TransactionInput> inputs = json.inputs.stream()
+			.map(input -> new TransactionInput(new TransactionOutputPoint(Hash256.of(input.transactionId),
+				input.transactionOutputIndex), input.signature))
+			.collect(toList());
+		
+		KeyFactory keyFactory = KeyFactory.getInstance("EC");
+		List<TransactionOutput> outputs = new ArrayList<>();
+		
+		for (JsonOutput output : json.outputs)
+		{
+			outputs.add(new TransactionOutput(keyFactory.generatePublic(new X509EncodedKeySpec(output.recipient)),
+				output.amount));
+		}
+		
+		return new Block(singletonList(new Transaction(inputs, outputs)), Hash256.of(json.previousHash), json.timestamp,
+			json.nonce);
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.common.hash.Hashing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Benchmarks hashing a block header per nonce using the midstate against rehashing the whole header as hex strings.
+ */
+@State(Scope.Thread)
+public class BlockHeaderBenchmark
+{
+	private static final Hash256 PREVIOUS_HASH = sha256("previous");
+	
+	private static final Hash256 TRANSACTION_ID = sha256("transaction");
+	
+	private static final long TIMESTAMP = 1538352000000L;
+	
+	private BlockHeader header;
+	
+	private long nonce;
+	
+	@Setup
+	public void setUp()
+	{
+		header = new BlockHeader(PREVIOUS_HASH, TRANSACTION_ID, TIMESTAMP);
+	}
+	
+	@Benchmark
+	public byte[] midstate()
+	{
+		return header.hash(nonce++);
+	}
+	
+	@Benchmark
+	public String rehash()
+	{
+		return Hashing.sha256().newHasher()
+			.putString(PREVIOUS_HASH.toString(), UTF_8)
+			.putLong(TIMESTAMP)
+			.putLong(nonce++)
+			.putString(TRANSACTION_ID.toString(), UTF_8)
+			.hash()
+			.toString();
+	}
+	
+	private static Hash256 sha256(String string)
+	{
+		return Hash256.of(Hashing.sha256().hashString(string, UTF_8).asBytes());
+	}
+}
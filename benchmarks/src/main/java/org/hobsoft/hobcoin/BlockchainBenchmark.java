@@ -0,0 +1,60 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks validating and adding a block to the end of a long {@code Blockchain}.
+ * <p>
+ * Each block is a signed transfer from a wallet back to itself, prepared and mined before it is measured, so that the
+ * chain keeps growing from its initial height.
+ */
+@State(Scope.Thread)
+public class BlockchainBenchmark
+{
+	@Param({"10000", "100000"})
+	private int height;
+	
+	private Wallet wallet;
+	
+	private Blockchain blockchain;
+	
+	private Block block;
+	
+	@Setup
+	public void setUpBlockchain()
+	{
+		wallet = new Wallet();
+		blockchain = Chains.newBlockchain(wallet.address(), 100, height);
+	}
+	
+	@Setup(Level.Invocation)
+	public void setUpBlock()
+	{
+		block = new Block(wallet.transfer(blockchain, wallet.address(), 1), blockchain.tail().hash())
+			.mine(blockchain.difficulty());
+	}
+	
+	@Benchmark
+	public Blockchain add()
+	{
+		return blockchain.add(block);
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.util.Optional;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks looking up blocks and transactions within a long {@code Blockchain}.
+ * <p>
+ * Lookups target the block in the middle of the chain, so that their cost would grow with the height if they scanned
+ * the blocks rather than used the hash and transaction indexes.
+ */
+@State(Scope.Thread)
+public class BlockchainLookupBenchmark
+{
+	@Param({"10000", "100000"})
+	private int height;
+	
+	private Blockchain blockchain;
+	
+	private Hash256 blockHash;
+	
+	private Hash256 transactionId;
+	
+	@Setup
+	public void setUp()
+	{
+		blockchain = Chains.newBlockchain(new Wallet().address(), 100, height);
+		
+		Block block = blockchain.block(height / 2).get();
+		blockHash = block.hash();
+		transactionId = block.transactions().get(0).id();
+	}
+	
+	@Benchmark
+	public Optional<Block> blockByHash()
+	{
+		return blockchain.block(blockHash);
+	}
+	
+	@Benchmark
+	public Optional<Block> blockByHeight()
+	{
+		return blockchain.block(height / 2);
+	}
+	
+	@Benchmark
+	public Optional<Transaction> transaction()
+	{
+		return blockchain.transaction(transactionId);
+	}
+}
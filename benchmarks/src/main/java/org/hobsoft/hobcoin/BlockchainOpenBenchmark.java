@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.PublicKey;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import static java.util.Comparator.reverseOrder;
+
+/**
+ * Benchmarks reopening a long {@code Blockchain} from memory-mapped block storage, with and without a snapshot of its
+ * unspent transaction outputs.
+ * <p>
+ * The snapshot is taken at the tip, so reopening with it decodes and replays no blocks, whereas reopening without it
+ * decodes and replays every block. Every block of the benchmark chain leaves an unspent output, so the snapshot itself
+ * grows with the height, unlike a typical chain whose outputs are mostly spent.
+ */
+@State(Scope.Benchmark)
+public class BlockchainOpenBenchmark
+{
+	@Param({"10000", "100000"})
+	private int height;
+	
+	@Param({"false", "true"})
+	private boolean snapshot;
+	
+	private PublicKey recipient;
+	
+	private SnapshotStore snapshots;
+	
+	private SignatureVerifier signatureVerifier;
+	
+	private Path directory;
+	
+	@Setup
+	public void setUp() throws IOException
+	{
+		recipient = new Wallet().address();
+		signatureVerifier = new SignatureVerifier(1);
+		directory = Files.createTempDirectory("blockchain");
+		
+		try (MappedBlockStore blocks = new MappedBlockStore(directory.resolve("blocks")))
+		{
+			Chains.newBlockStore(recipient, 100, height).forEach(blocks::append);
+		}
+		
+		if (snapshot)
+		{
+			snapshots = new FileSnapshotStore(directory.resolve("snapshots"), height);
+			open().close();
+		}
+		else
+		{
+			snapshots = new NoSnapshotStore();
+		}
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException
+	{
+		signatureVerifier.close();
+		
+		try (Stream<Path> paths = Files.walk(directory))
+		{
+			for (Path path : (Iterable<Path>) paths.sorted(reverseOrder())::iterator)
+			{
+				Files.delete(path);
+			}
+		}
+	}
+	
+	@Benchmark
+	public BlockStore open()
+	{
+		BlockStore blocks = new MappedBlockStore(directory.resolve("blocks"));
+		new Blockchain(blocks, snapshots, signatureVerifier, recipient, 100, Chains.DIFFICULTY);
+		return blocks;
+	}
+}
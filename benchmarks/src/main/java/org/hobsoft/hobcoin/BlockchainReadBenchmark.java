@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks reading a {@code Blockchain} while a writer validates and adds blocks to it.
+ * <p>
+ * The writer signs, mines and adds a block per operation, so the reader throughput shows how far reads are held up by
+ * block validation.
+ */
+@State(Scope.Group)
+public class BlockchainReadBenchmark
+{
+	private Wallet wallet;
+	
+	private Blockchain blockchain;
+	
+	@Setup
+	public void setUp()
+	{
+		wallet = new Wallet();
+		blockchain = Chains.newBlockchain(wallet.address(), 1_000_000, 10_000);
+	}
+	
+	@Benchmark
+	@Group("readWhileAdding")
+	@GroupThreads(1)
+	public Blockchain add()
+	{
+		Block block = new Block(wallet.transfer(blockchain, wallet.address(), 1), blockchain.tail().hash())
+			.mine(blockchain.difficulty());
+		
+		return blockchain.add(block);
+	}
+	
+	@Benchmark
+	@Group("readWhileAdding")
+	@GroupThreads(3)
+	public long balance()
+	{
+		return blockchain.balance(wallet.address());
+	}
+	
+	@Benchmark
+	@Group("readWhileAdding")
+	@GroupThreads(3)
+	public Block tail()
+	{
+		return blockchain.tail();
+	}
+}
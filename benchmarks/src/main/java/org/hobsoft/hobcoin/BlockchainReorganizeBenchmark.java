@@ -0,0 +1,108 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks reorganizing a long {@code Blockchain} to a side branch that forks a number of blocks below its tail.
+ * <p>
+ * The side branch is one block longer than the blocks that it replaces, and every block but its last has already been
+ * added as a side block, so the measured add undoes {@code depth} blocks and validates and applies {@code depth + 1}.
+ * The replaced blocks are undone from their undo records, so the time should grow with the depth but not the height.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BlockchainReorganizeBenchmark
+{
+	private static final long GENESIS_AMOUNT = Long.MAX_VALUE;
+	
+	@Param({"1000", "100000"})
+	private int height;
+	
+	@Param({"1", "10", "100"})
+	private int depth;
+	
+	private Wallet wallet;
+	
+	private BlockStore baseBlocks;
+	
+	private Blockchain blockchain;
+	
+	private Block lastSideBlock;
+	
+	@Setup
+	public void setUp()
+	{
+		wallet = new Wallet();
+		baseBlocks = Chains.newBlockStore(wallet.address(), GENESIS_AMOUNT, height);
+	}
+	
+	@Setup(Level.Iteration)
+	public void setUpBranches()
+	{
+		blockchain = newBlockchain();
+		Blockchain branch = newBlockchain();
+		PublicKey recipient = new Wallet().address();
+		
+		for (int index = 0; index < depth; index++)
+		{
+			blockchain.add(newBlock(blockchain, wallet.address()));
+		}
+		
+		List<Block> sideBlocks = new ArrayList<>();
+		
+		for (int index = 0; index <= depth; index++)
+		{
+			Block sideBlock = newBlock(branch, recipient);
+			branch.add(sideBlock);
+			sideBlocks.add(sideBlock);
+		}
+		
+		lastSideBlock = sideBlocks.remove(depth);
+		sideBlocks.forEach(blockchain::add);
+	}
+	
+	@Benchmark
+	public Blockchain reorganize()
+	{
+		return blockchain.add(lastSideBlock);
+	}
+	
+	private Blockchain newBlockchain()
+	{
+		BlockStore blocks = new MemoryBlockStore();
+		baseBlocks.forEach(blocks::append);
+		return new Blockchain(blocks, wallet.address(), GENESIS_AMOUNT, Chains.DIFFICULTY);
+	}
+	
+	private Block newBlock(Blockchain blockchain, PublicKey recipient)
+	{
+		return new Block(wallet.transfer(blockchain, recipient, 1), blockchain.tail().hash());
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import org.hobsoft.hobcoin.node.BlockchainView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Benchmarks creating a {@code BlockchainView} and serializing it to JSON as the node does for {@code GET /blocks}.
+ */
+@State(Scope.Thread)
+public class BlockchainViewBenchmark
+{
+	@Param({"1000", "10000"})
+	private int height;
+	
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	
+	private Blockchain blockchain;
+	
+	@Setup
+	public void setUp()
+	{
+		blockchain = Chains.newBlockchain(new Wallet().address(), 100, height);
+	}
+	
+	@Benchmark
+	public BlockchainView of()
+	{
+		return BlockchainView.of(blockchain);
+	}
+	
+	@Benchmark
+	public byte[] serialize() throws JsonProcessingException
+	{
+		return objectMapper.writeValueAsBytes(BlockchainView.of(blockchain));
+	}
+}
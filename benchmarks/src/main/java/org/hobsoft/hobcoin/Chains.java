@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.security.PublicKey;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Builds long blockchains for benchmarks without signing or validating every block.
+ */
+final class Chains
+{
+	static final Target DIFFICULTY = Target.ofLeadingZeroBits(0);
+	
+	private Chains()
+	{
+		throw new AssertionError();
+	}
+	
+	/**
+	 * Creates a blockchain of the specified height whose genesis block credits the recipient with the amount.
+	 * 
+	 * @param recipient the recipient of the genesis block
+	 * @param amount the amount of the genesis block
+	 * @param height the number of blocks in the blockchain
+	 * @return the blockchain
+	 * @see #newBlockStore(PublicKey, long, int)
+	 */
+	static Blockchain newBlockchain(PublicKey recipient, long amount, int height)
+	{
+		return new Blockchain(newBlockStore(recipient, amount, height), recipient, amount, DIFFICULTY);
+	}
+	
+	/**
+	 * Creates block storage that holds a blockchain of the specified height whose genesis block credits the recipient
+	 * with the amount.
+	 * <p>
+	 * Blocks after the genesis block each spend an unsigned input that does not exist and pay a single unit to a
+	 * throwaway address. They are appended straight to the block store, which is far quicker than adding them through
+	 * validation but leaves the same blocks and unspent outputs in place once replayed.
+	 * 
+	 * @param recipient the recipient of the genesis block
+	 * @param amount the amount of the genesis block
+	 * @param height the number of blocks in the blockchain
+	 * @return the block storage
+	 */
+	static BlockStore newBlockStore(PublicKey recipient, long amount, int height)
+	{
+		BlockStore blocks = new MemoryBlockStore();
+		new Blockchain(blocks, recipient, amount, DIFFICULTY);
+		
+		PublicKey throwaway = new Wallet().address();
+		
+		for (int index = 1; index < height; index++)
+		{
+			TransactionInput input = new TransactionInput(new TransactionOutputPoint(Hash256.ZERO, index));
+			TransactionOutput output = new TransactionOutput(throwaway, 1);
+			Transaction transaction = new Transaction(singletonList(input), singletonList(output));
+			blocks.append(new Block(transaction, blocks.get(blocks.height() - 1).hash()));
+		}
+		
+		return blocks;
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static java.util.Comparator.comparingLong;
+
+/**
+ * Benchmarks selecting unspent transaction outputs with each {@code StandardCoinSelector}.
+ * <p>
+ * An owner holds outputs of random amounts, ordered as {@link Blockchain#unspentTransactionOutputs(PublicKey)}
+ * provides them, and each operation selects a random amount from them. The number of inputs and the change that each
+ * selection leaves are reported as counters, since every input costs a signature to verify.
+ */
+@State(Scope.Thread)
+public class CoinSelectorBenchmark
+{
+	/**
+	 * Counts the inputs selected and change left per benchmark operation.
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class SelectionCounter
+	{
+		// SUPPRESS CHECKSTYLE VisibilityModifier
+		public long inputs;
+		
+		// SUPPRESS CHECKSTYLE VisibilityModifier
+		public long change;
+		
+		@Setup(Level.Iteration)
+		public void reset()
+		{
+			inputs = 0;
+			change = 0;
+		}
+	}
+	
+	private static final int MAXIMUM_OUTPUT_AMOUNT = 1000;
+	
+	@Param({"LARGEST_FIRST", "FEWEST_INPUTS", "BRANCH_AND_BOUND"})
+	private StandardCoinSelector coinSelector;
+	
+	@Param({"100", "1000"})
+	private int size;
+	
+	private List<UnspentTransactionOutput> unspentOutputs;
+	
+	private long[] amounts;
+	
+	private int index;
+	
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(0);
+		PublicKey owner = new Wallet().address();
+		unspentOutputs = new ArrayList<>();
+		
+		for (int index = 0; index < size; index++)
+		{
+			TransactionOutputPoint outputPoint = new TransactionOutputPoint(Hash256.ZERO, index);
+			long amount = 1 + random.nextInt(MAXIMUM_OUTPUT_AMOUNT);
+			unspentOutputs.add(new UnspentTransactionOutput(outputPoint, owner, amount));
+		}
+		
+		unspentOutputs.sort(comparingLong(UnspentTransactionOutput::amount).reversed());
+		
+		amounts = random.longs(1024, 1, 10L * MAXIMUM_OUTPUT_AMOUNT).toArray();
+	}
+	
+	@Benchmark
+	public List<UnspentTransactionOutput> select(SelectionCounter counter)
+	{
+		long amount = amounts[index++ % amounts.length];
+		List<UnspentTransactionOutput> selected = coinSelector.select(unspentOutputs, amount).get();
+		
+		counter.inputs += selected.size();
+		counter.change += selected.stream().mapToLong(UnspentTransactionOutput::amount).sum() - amount;
+		
+		return selected;
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.time.Duration;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks deriving the difficulty of the next block from the previous block's cached difficulty against rebuilding
+ * it from the timestamps of the blocks below it.
+ */
+@State(Scope.Thread)
+public class DifficultyBenchmark
+{
+	private static final Duration SPACING = Duration.ofMinutes(1);
+	
+	@Param({"1000", "100000"})
+	private int height;
+	
+	private DifficultyAdjustment adjustment;
+	
+	private long[] timestamps;
+	
+	private Difficulty difficulty;
+	
+	@Setup
+	public void setUp()
+	{
+		adjustment = DifficultyAdjustment.of(Target.ofLeadingZeroBits(20), 100, SPACING);
+		timestamps = new long[height + 1];
+		Random random = new Random(0);
+		
+		for (int index = 1; index < timestamps.length; index++)
+		{
+			timestamps[index] = timestamps[index - 1] + random.nextInt((int) SPACING.toMillis() * 2);
+		}
+		
+		difficulty = adjustment.difficulty(height, index -> timestamps[index]);
+	}
+	
+	@Benchmark
+	public Difficulty next()
+	{
+		return difficulty.next(timestamps[height]);
+	}
+	
+	@Benchmark
+	public Difficulty rebuild()
+	{
+		return adjustment.difficulty(height + 1, index -> timestamps[index]);
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Benchmarks parallel mining with {@code Miner} to show how the hash rate scales with the number of threads, and how
+ * promptly mining stops once cancelled.
+ */
+@State(Scope.Benchmark)
+public class MinerBenchmark
+{
+	/**
+	 * Counts the hashes calculated per benchmark operation.
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class HashCounter
+	{
+		// SUPPRESS CHECKSTYLE VisibilityModifier
+		public long hashes;
+		
+		@Setup(Level.Iteration)
+		public void reset()
+		{
+			hashes = 0;
+		}
+	}
+	
+	private static final long CANCEL_MICROSECONDS = 1000;
+	
+	@Param({"1", "2", "4", "8"})
+	private int threads;
+	
+	@Param("16")
+	private int leadingZeroBits;
+	
+	private Miner miner;
+	
+	private Transaction transaction;
+	
+	@Setup
+	public void setUp()
+	{
+		miner = new Miner(threads);
+		
+		TransactionInput input = new TransactionInput(new TransactionOutputPoint(Hash256.ZERO, 0));
+		TransactionOutput output = new TransactionOutput(new Wallet().address(), 100);
+		transaction = new Transaction(singletonList(input), singletonList(output));
+	}
+	
+	@TearDown
+	public void tearDown()
+	{
+		miner.close();
+	}
+	
+	@Benchmark
+	public Block mine(HashCounter counter)
+	{
+		long hashes = miner.hashes();
+		
+		Block block = miner.mine(new Block(transaction, Hash256.ZERO), Target.ofLeadingZeroBits(leadingZeroBits));
+		
+		counter.hashes += miner.hashes() - hashes;
+		
+		return block;
+	}
+	
+	/**
+	 * Mines to an unreachable target until cancelled after {@value #CANCEL_MICROSECONDS}us, so that the time taken
+	 * beyond that is the delay before every worker has stopped.
+	 * 
+	 * @return empty
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Optional<Block> cancel()
+	{
+		long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(CANCEL_MICROSECONDS);
+		
+		return miner.mine(new Block(transaction, Hash256.ZERO), Target.ofLeadingZeroBits(64),
+			() -> System.nanoTime() >= deadline);
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import org.hobsoft.hobcoin.node.BlockchainHandler;
+import org.hobsoft.hobcoin.node.BlockchainRouter;
+import org.hobsoft.hobcoin.node.PeerHandler;
+import org.hobsoft.hobcoin.node.PeerRouter;
+import org.hobsoft.hobcoin.node.PeerService;
+import org.hobsoft.hobcoin.node.SyncMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import reactor.ipc.netty.NettyContext;
+import reactor.ipc.netty.http.server.HttpServer;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Benchmarks propagating blocks between nodes that listen on local ports.
+ * <p>
+ * Propagation latency is the time from one node publishing a block until it reaches the far end of a line of nodes,
+ * each of which only knows its neighbours. Sync throughput is the time for a node at the genesis block to fetch and add
+ * a chain of signed blocks from one or more peers, either in whole blocks or headers first.
+ */
+public class PeerBenchmark
+{
+	/**
+	 * A node that serves the blockchain and peer endpoints on a local port.
+	 */
+	private static final class Node implements AutoCloseable
+	{
+		private final Blockchain blockchain;
+		
+		private final PeerService peerService;
+		
+		private final NettyContext server;
+		
+		Node(Wallet genesisWallet, int batchSize, int maxInFlight, String... peerUrls)
+		{
+			this(genesisWallet, batchSize, maxInFlight, SyncMode.BLOCKS, peerUrls);
+		}
+		
+		Node(Wallet genesisWallet, int batchSize, int maxInFlight, SyncMode syncMode, String... peerUrls)
+		{
+			int port = freePort();
+			
+			blockchain = new Blockchain(genesisWallet.address(), GENESIS_AMOUNT, Chains.DIFFICULTY);
+			peerService = new PeerService(blockchain, new TransactionPool(blockchain, Long.MAX_VALUE),
+				"http://localhost:" + port, asList(peerUrls), batchSize, maxInFlight, syncMode);
+			
+			RouterFunction<ServerResponse> route = new BlockchainRouter().route(new BlockchainHandler(blockchain))
+				.and(new PeerRouter().route(new PeerHandler(peerService)));
+			
+			server = HttpServer.create("localhost", port)
+				.newHandler(new ReactorHttpHandlerAdapter(RouterFunctions.toHttpHandler(route)))
+				.block();
+		}
+		
+		@Override
+		public void close()
+		{
+			server.dispose();
+			peerService.close();
+		}
+	}
+	
+	/**
+	 * A line of nodes that each know their neighbours.
+	 */
+	@State(Scope.Benchmark)
+	public static class Line
+	{
+		@Param("3")
+		private int nodes;
+		
+		private Wallet wallet;
+		
+		private Node[] nodesInLine;
+		
+		private Block block;
+		
+		@Setup
+		public void setUp()
+		{
+			wallet = new Wallet();
+			nodesInLine = new Node[nodes];
+			nodesInLine[0] = new Node(wallet, BATCH_SIZE, MAX_IN_FLIGHT);
+			
+			for (int index = 1; index < nodes; index++)
+			{
+				String previousUrl = nodesInLine[index - 1].peerService.url();
+				nodesInLine[index] = new Node(wallet, BATCH_SIZE, MAX_IN_FLIGHT, previousUrl);
+				nodesInLine[index].peerService.start().block();
+			}
+		}
+		
+		@Setup(Level.Invocation)
+		public void setUpBlock()
+		{
+			block = newBlock(wallet, nodesInLine[0].blockchain);
+		}
+		
+		@TearDown
+		public void tearDown()
+		{
+			asList(nodesInLine).forEach(Node::close);
+		}
+	}
+	
+	/**
+	 * Nodes with the same long blockchain and a peer service at the genesis block to sync from them.
+	 */
+	@State(Scope.Benchmark)
+	public static class Sync
+	{
+		@Param("1000")
+		private int height;
+		
+		@Param({"100", "500"})
+		private int batchSize;
+		
+		@Param({"1", "4"})
+		private int maxInFlight;
+		
+		@Param({"BLOCKS", "HEADERS_FIRST"})
+		private SyncMode syncMode;
+		
+		@Param({"1", "3"})
+		private int sources;
+		
+		private Wallet wallet;
+		
+		private Node[] sourceNodes;
+		
+		private PeerService peerService;
+		
+		@Setup
+		public void setUp()
+		{
+			wallet = new Wallet();
+			sourceNodes = new Node[sources];
+			
+			for (int index = 0; index < sources; index++)
+			{
+				sourceNodes[index] = new Node(wallet, batchSize, maxInFlight);
+			}
+			
+			Blockchain chain = sourceNodes[0].blockchain;
+			
+			while (chain.height() < height)
+			{
+				Block block = newBlock(wallet, chain);
+				asList(sourceNodes).forEach(node -> node.blockchain.add(block));
+			}
+		}
+		
+		@Setup(Level.Invocation)
+		public void setUpPeerService()
+		{
+			Blockchain blockchain = new Blockchain(wallet.address(), GENESIS_AMOUNT, Chains.DIFFICULTY);
+			List<String> peerUrls = Stream.of(sourceNodes)
+				.map(node -> node.peerService.url())
+				.collect(toList());
+			peerService = new PeerService(blockchain, new TransactionPool(blockchain, Long.MAX_VALUE), "", peerUrls,
+				batchSize, maxInFlight, syncMode);
+		}
+		
+		@TearDown(Level.Invocation)
+		public void tearDownPeerService()
+		{
+			peerService.close();
+		}
+		
+		@TearDown
+		public void tearDown()
+		{
+			asList(sourceNodes).forEach(Node::close);
+		}
+	}
+	
+	private static final long GENESIS_AMOUNT = Long.MAX_VALUE;
+	
+	private static final int BATCH_SIZE = 100;
+	
+	private static final int MAX_IN_FLIGHT = 4;
+	
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Block propagate(Line line)
+	{
+		line.nodesInLine[0].peerService.publish(line.block).block();
+		
+		Blockchain far = line.nodesInLine[line.nodes - 1].blockchain;
+		
+		while (!far.tail().hash().equals(line.block.hash()))
+		{
+			LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+		}
+		
+		return far.tail();
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public int sync(Sync sync)
+	{
+		return sync.peerService.sync(sync.sourceNodes[0].peerService.url()).block();
+	}
+	
+	private static Block newBlock(Wallet wallet, Blockchain blockchain)
+	{
+		return new Block(wallet.transfer(blockchain, wallet.address(), 1), blockchain.tail().hash());
+	}
+	
+	private static int freePort()
+	{
+		try (ServerSocket socket = new ServerSocket(0))
+		{
+			return socket.getLocalPort();
+		}
+		catch (IOException exception)
+		{
+			throw new IllegalStateException(exception);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import static java.util.Collections.nCopies;
+
+/**
+ * Benchmarks verifying the input signatures of a transaction with {@code SignatureVerifier}.
+ */
+@State(Scope.Benchmark)
+public class SignatureVerifierBenchmark
+{
+	private static final int INPUTS = 64;
+	
+	@Param({"1", "2", "4", "8"})
+	private int threads;
+	
+	private SignatureVerifier verifier;
+	
+	private List<TransactionInput> inputs;
+	
+	private List<PublicKey> addresses;
+	
+	@Setup
+	public void setUp()
+	{
+		verifier = new SignatureVerifier(threads);
+		
+		Wallet wallet = new Wallet();
+		Blockchain blockchain = new Blockchain(wallet.address(), INPUTS, Target.ofLeadingZeroBits(0));
+		
+		List<TransactionOutput> outputs = new ArrayList<>(nCopies(INPUTS, new TransactionOutput(wallet.address(), 1)));
+		Transaction split = wallet.transfer(blockchain, wallet.address(), INPUTS);
+		blockchain.add(new Block(new Transaction(split.inputs(), outputs), blockchain.tail().hash()));
+		
+		inputs = wallet.transfer(blockchain, wallet.address(), INPUTS).inputs();
+		addresses = nCopies(inputs.size(), wallet.address());
+	}
+	
+	@Benchmark
+	public boolean verify()
+	{
+		return verifier.verify(inputs, addresses);
+	}
+	
+	@TearDown
+	public void tearDown()
+	{
+		verifier.close();
+	}
+}
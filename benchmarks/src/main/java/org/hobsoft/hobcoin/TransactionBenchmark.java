@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks constructing a {@code Transaction}, which hashes each input and output and then the transaction id.
+ */
+@State(Scope.Thread)
+public class TransactionBenchmark
+{
+	@Param({"1", "10", "100"})
+	private int size;
+	
+	private PublicKey recipient;
+	
+	private Transaction transaction;
+	
+	@Setup
+	public void setUp()
+	{
+		recipient = new Wallet().address();
+		transaction = construct();
+	}
+	
+	@Benchmark
+	public Transaction construct()
+	{
+		List<TransactionInput> inputs = new ArrayList<>(size);
+		List<TransactionOutput> outputs = new ArrayList<>(size);
+		
+		for (int index = 0; index < size; index++)
+		{
+			inputs.add(new TransactionInput(new TransactionOutputPoint(Hash256.ZERO, index)));
+			outputs.add(new TransactionOutput(recipient, index));
+		}
+		
+		return new Transaction(inputs, outputs);
+	}
+	
+	@Benchmark
+	public Transaction hash()
+	{
+		return new Transaction(transaction.inputs(), transaction.outputs());
+	}
+}
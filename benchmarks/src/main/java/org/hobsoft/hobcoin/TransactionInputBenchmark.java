@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.common.base.Strings;
+
+/**
+ * Benchmarks signing and verifying transaction inputs against looking up a {@code Signature} and serializing the
+ * signing payload on every call.
+ */
+@State(Scope.Thread)
+public class TransactionInputBenchmark
+{
+	private KeyPair keyPair;
+	
+	private TransactionInput input;
+	
+	private TransactionInput signedInput;
+	
+	@Setup
+	public void setUp() throws GeneralSecurityException
+	{
+		KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+		keyPairGenerator.initialize(new ECGenParameterSpec("secp256k1"), new SecureRandom());
+		keyPair = keyPairGenerator.generateKeyPair();
+		
+		Hash256 transactionId = Hash256.fromString(Strings.padStart("123", 2 * Hash256.LENGTH, '0'));
+		input = new TransactionInput(new TransactionOutputPoint(transactionId, 0));
+		signedInput = input.sign(keyPair.getPrivate());
+	}
+	
+	@Benchmark
+	public TransactionInput sign()
+	{
+		return input.sign(keyPair.getPrivate());
+	}
+	
+	@Benchmark
+	public byte[] signUncached() throws GeneralSecurityException, IOException
+	{
+		Signature signer = Signature.getInstance("SHA256withECDSA");
+		signer.initSign(keyPair.getPrivate());
+		signer.update(data(input));
+		return signer.sign();
+	}
+	
+	@Benchmark
+	public boolean verify()
+	{
+		return signedInput.verify(keyPair.getPublic());
+	}
+	
+	@Benchmark
+	public boolean verifyUncached() throws GeneralSecurityException, IOException
+	{
+		Signature verifier = Signature.getInstance("SHA256withECDSA");
+		verifier.initVerify(keyPair.getPublic());
+		verifier.update(data(signedInput));
+		return verifier.verify(signedInput.signature());
+	}
+	
+	private static byte[] data(TransactionInput input) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.write(input.transactionOutputPoint().transactionId().toBytes());
+		return bytes.toByteArray();
+	}
+}
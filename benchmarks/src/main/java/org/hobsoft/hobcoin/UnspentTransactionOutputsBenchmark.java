@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Benchmarks applying transactions to, and finding outputs within, {@code UnspentTransactionOutputs} in each
+ * storage.
+ * <p>
+ * Each iteration starts from a fresh set of unspent outputs spread evenly across a number of owners. Applying is
+ * measured in batches of transactions that each spend the previous transaction's output, since a transaction can only
+ * be applied once.
+ */
+@State(Scope.Thread)
+public class UnspentTransactionOutputsBenchmark
+{
+	private static final int OWNERS = 100;
+	
+	private static final int BATCH_SIZE = 1000;
+	
+	@Param({"HEAP", "OFF_HEAP"})
+	private UnspentTransactionOutputsStorage storage;
+	
+	@Param({"10000", "100000"})
+	private int size;
+	
+	private List<PublicKey> owners;
+	
+	private UnspentTransactionOutputs unspentOutputs;
+	
+	private List<TransactionOutputPoint> outputPoints;
+	
+	private List<Transaction> spends;
+	
+	private int index;
+	
+	@Setup
+	public void setUpOwners()
+	{
+		owners = new ArrayList<>();
+		
+		for (int index = 0; index < OWNERS; index++)
+		{
+			owners.add(new Wallet().address());
+		}
+	}
+	
+	@Setup(Level.Iteration)
+	public void setUp()
+	{
+		unspentOutputs = storage.newUnspentTransactionOutputs();
+		outputPoints = new ArrayList<>();
+		
+		for (int index = 0; index < size; index++)
+		{
+			Transaction transaction = newTransaction(new TransactionOutputPoint(Hash256.ZERO, index), owner(index));
+			unspentOutputs.apply(transaction);
+			outputPoints.addAll(transaction.outputPoints());
+		}
+		
+		spends = new ArrayList<>();
+		TransactionOutputPoint outputPoint = outputPoints.get(0);
+		
+		for (int index = 0; index < BATCH_SIZE; index++)
+		{
+			Transaction transaction = newTransaction(outputPoint, owner(index));
+			spends.add(transaction);
+			outputPoint = transaction.outputPoints().get(0);
+		}
+		
+		index = 0;
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(batchSize = BATCH_SIZE)
+	@Measurement(batchSize = BATCH_SIZE)
+	public UnspentTransactionOutputs apply()
+	{
+		unspentOutputs.apply(spends.get(index++));
+		return unspentOutputs;
+	}
+	
+	@Benchmark
+	public Optional<UnspentTransactionOutput> findByOutputPoint()
+	{
+		return unspentOutputs.find(outputPoints.get(index++ % outputPoints.size()));
+	}
+	
+	@Benchmark
+	public List<UnspentTransactionOutput> findByOwner()
+	{
+		return unspentOutputs.find(owner(index++));
+	}
+	
+	@Benchmark
+	public long balance()
+	{
+		return unspentOutputs.balance(owner(index++));
+	}
+	
+	private PublicKey owner(int index)
+	{
+		return owners.get(index % OWNERS);
+	}
+	
+	private static Transaction newTransaction(TransactionOutputPoint inputPoint, PublicKey recipient)
+	{
+		TransactionInput input = new TransactionInput(inputPoint);
+		TransactionOutput output = new TransactionOutput(recipient, 1);
+		return new Transaction(singletonList(input), singletonList(output));
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the memory footprint of {@code UnspentTransactionOutputs} in each storage.
+ * <p>
+ * Each operation fills a fresh set with unspent outputs spread evenly across a number of owners, and reports the
+ * retained heap and direct memory as counters measured after a full garbage collection either side of filling it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UnspentTransactionOutputsFootprintBenchmark
+{
+	/**
+	 * Counts the bytes retained by the unspent outputs filled per benchmark operation.
+	 */
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Footprint
+	{
+		// SUPPRESS CHECKSTYLE VisibilityModifier
+		public long heapBytes;
+		
+		// SUPPRESS CHECKSTYLE VisibilityModifier
+		public long directBytes;
+		
+		@Setup(Level.Iteration)
+		public void reset()
+		{
+			heapBytes = 0;
+			directBytes = 0;
+		}
+	}
+	
+	private static final int OWNERS = 100;
+	
+	@Param({"HEAP", "OFF_HEAP"})
+	private UnspentTransactionOutputsStorage storage;
+	
+	@Param({"100000", "1000000"})
+	private int size;
+	
+	private List<PublicKey> owners;
+	
+	private MemoryMXBean memory;
+	
+	private BufferPoolMXBean directBuffers;
+	
+	@Setup
+	public void setUp()
+	{
+		owners = new ArrayList<>();
+		
+		for (int index = 0; index < OWNERS; index++)
+		{
+			owners.add(new Wallet().address());
+		}
+		
+		memory = ManagementFactory.getMemoryMXBean();
+		directBuffers = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+			.filter(bufferPool -> "direct".equals(bufferPool.getName()))
+			.findFirst()
+			.orElseThrow(IllegalStateException::new);
+	}
+	
+	@Benchmark
+	public UnspentTransactionOutputs fill(Footprint footprint)
+	{
+		long heapBefore = usedHeap();
+		long directBefore = directBuffers.getMemoryUsed();
+		
+		UnspentTransactionOutputs unspentOutputs = storage.newUnspentTransactionOutputs();
+		
+		for (int index = 0; index < size; index++)
+		{
+			TransactionOutputPoint outputPoint = new TransactionOutputPoint(Hash256.of(0, 0, 0, index), 0);
+			unspentOutputs.add(new UnspentTransactionOutput(outputPoint, owners.get(index % OWNERS), 1));
+		}
+		
+		footprint.heapBytes = usedHeap() - heapBefore;
+		footprint.directBytes = directBuffers.getMemoryUsed() - directBefore;
+		
+		return unspentOutputs;
+	}
+	
+	private long usedHeap()
+	{
+		System.gc();
+		
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+}
@@ -14,42 +14,60 @@
 package org.hobsoft.hobcoin;
 
 import java.util.Date;
+import java.util.List;
 import java.util.logging.Logger;
 
-import com.google.common.base.Strings;
-import com.google.common.hash.Hashing;
-
-import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
 import static java.util.logging.Level.INFO;
+import static java.util.stream.Collectors.toList;
+
+import static com.google.common.base.Preconditions.checkArgument;
 
 /**
  * A block of data in the blockchain.
+ * <p>
+ * A block holds an ordered list of transactions that its header commits to through their Merkle root.
  */
 public class Block
 {
 	private static final Logger LOG = Logger.getLogger(Block.class.getName());
 	
-	private final String previousHash;
+	private final Hash256 previousHash;
 	
 	private final long timestamp;
 	
-	private final Transaction transaction;
+	private final List<Transaction> transactions;
+	
+	private final Hash256 merkleRoot;
 	
 	private int nonce;
 	
-	private String hash;
+	private Hash256 hash;
+	
+	public Block(Transaction transaction, Hash256 previousHash)
+	{
+		this(singletonList(transaction), previousHash);
+	}
+	
+	public Block(List<Transaction> transactions, Hash256 previousHash)
+	{
+		this(transactions, previousHash, new Date().getTime(), 0);
+	}
 	
-	public Block(Transaction transaction, String previousHash)
+	Block(List<Transaction> transactions, Hash256 previousHash, long timestamp, int nonce)
 	{
-		this.transaction = transaction;
+		checkArgument(!transactions.isEmpty(), "No block transactions");
+		
+		this.transactions = transactions;
 		this.previousHash = previousHash;
+		this.timestamp = timestamp;
+		this.nonce = nonce;
 		
-		timestamp = new Date().getTime();
-		nonce = 0;
+		merkleRoot = calculateMerkleRoot();
 		hash = calculateHash();
 	}
 	
-	public String previousHash()
+	public Hash256 previousHash()
 	{
 		return previousHash;
 	}
@@ -59,9 +77,14 @@ public class Block
 		return timestamp;
 	}
 	
-	public Transaction transaction()
+	public List<Transaction> transactions()
 	{
-		return transaction;
+		return transactions;
+	}
+	
+	public Hash256 merkleRoot()
+	{
+		return merkleRoot;
 	}
 	
 	public int nonce()
@@ -69,7 +92,7 @@ public class Block
 		return nonce;
 	}
 	
-	public String hash()
+	public Hash256 hash()
 	{
 		return hash;
 	}
@@ -79,38 +102,51 @@ public class Block
 		return previous.hash().equals(previousHash);
 	}
 	
-	public Block mine(int difficulty)
+	public Block mine(Target target)
 	{
-		LOG.log(INFO, "Mining to difficulty {0}...", difficulty);
+		LOG.log(INFO, "Mining to target {0}...", target);
 		long start = System.currentTimeMillis();
 		
-		while (!isMined(difficulty))
+		BlockHeader header = header();
+		
+		while (!target.isMetBy(header.hash(nonce)))
 		{
 			nonce++;
-			hash = calculateHash();
 		}
 		
+		hash = calculateHash();
+		
 		LOG.log(INFO, "Mined block {0} in {1}ms", new Object[] {hash, System.currentTimeMillis() - start});
 		
 		return this;
 	}
 	
-	public boolean isMined(int difficulty)
+	public boolean isMined(Target target)
 	{
-		String targetHashPrefix = Strings.repeat("0", difficulty);
-		
-		return hash.startsWith(targetHashPrefix);
+		return target.isMetBy(hash);
+	}
+	
+	void setNonce(int nonce)
+	{
+		this.nonce = nonce;
+		hash = calculateHash();
+	}
+	
+	BlockHeader header()
+	{
+		return new BlockHeader(previousHash, merkleRoot, timestamp);
+	}
+	
+	private Hash256 calculateMerkleRoot()
+	{
+		return MerkleTree.root(transactions.stream()
+			.map(Transaction::id)
+			.collect(toList())
+		);
 	}
 	
-	private String calculateHash()
+	private Hash256 calculateHash()
 	{
-		return Hashing.sha256()
-			.hashObject(this, (from, into) -> into
-				.putString(from.previousHash, UTF_8)
-				.putLong(from.timestamp)
-				.putLong(from.nonce)
-				.putString(from.transaction.id(), UTF_8)
-			)
-			.toString();
+		return Hash256.of(header().hash(nonce));
 	}
 }
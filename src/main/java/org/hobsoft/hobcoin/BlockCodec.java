@@ -0,0 +1,626 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECFieldFp;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import static java.util.Collections.singletonList;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Versioned binary encoding of blocks and transactions.
+ * <p>
+ * A block or transaction is encoded as a version byte and a varint length followed by that many bytes of body, so that
+ * records can be streamed back to back through a buffer and skipped without being decoded. Within a body, hashes are
+ * raw 32 bytes, counts, indexes, amounts and timestamps are unsigned LEB128 varints, and public keys are 33-byte
+ * compressed secp256k1 points.
+ * <p>
+ * A block body is the previous hash, timestamp, nonce and a count of transaction bodies followed by the bodies. A
+ * transaction body is the inputs, each a transaction output point and signature, followed by the outputs, each a
+ * recipient and amount. Version 1 blocks, which held exactly one transaction body and no count, can still be decoded.
+ * An unspent transaction output is its transaction output point, recipient and amount, without a version or length.
+ * A header is the previous hash, Merkle root, timestamp and nonce at fixed widths, without a version or length, so that
+ * every header is {@value #HEADER_LENGTH} bytes.
+ * <p>
+ * Decompressing a public key costs a modular square root, so recently decoded keys are cached by their compressed
+ * form. Recipients recur across the blocks of a chain, hence most keys are decoded from the cache.
+ */
+public final class BlockCodec
+{
+	public static final int VERSION = 2;
+	
+	public static final int HEADER_LENGTH = 2 * Hash256.LENGTH + Long.BYTES + Integer.BYTES;
+	
+	private static final int SINGLE_TRANSACTION_VERSION = 1;
+	
+	private static final int NONCE_LENGTH = Integer.BYTES;
+	
+	private static final int PUBLIC_KEY_LENGTH = 33;
+	
+	private static final int COORDINATE_LENGTH = PUBLIC_KEY_LENGTH - 1;
+	
+	private static final byte EVEN_Y_PREFIX = 0x02;
+	
+	private static final byte ODD_Y_PREFIX = 0x03;
+	
+	private static final int MAX_VARINT_LENGTH = 10;
+	
+	private static final int MIN_TRANSACTION_BODY_LENGTH = 2;
+	
+	private static final int MIN_INPUT_LENGTH = Hash256.LENGTH + 2;
+	
+	private static final int MIN_OUTPUT_LENGTH = PUBLIC_KEY_LENGTH + 1;
+	
+	private static final int PUBLIC_KEY_CACHE_SIZE = 4096;
+	
+	private static final ECParameterSpec CURVE = secp256k1();
+	
+	private static final Cache<HashCode, PublicKey> PUBLIC_KEYS = CacheBuilder.newBuilder()
+		.maximumSize(PUBLIC_KEY_CACHE_SIZE)
+		.build();
+	
+	private BlockCodec()
+	{
+		throw new AssertionError();
+	}
+	
+	public static int encodedLength(Block block)
+	{
+		return recordLength(blockBodyLength(block));
+	}
+	
+	public static int encodedLength(Transaction transaction)
+	{
+		return recordLength(transactionBodyLength(transaction));
+	}
+	
+	public static byte[] encode(Block block)
+	{
+		return encode(block, ByteBuffer.allocate(encodedLength(block))).array();
+	}
+	
+	public static byte[] encode(Transaction transaction)
+	{
+		return encode(transaction, ByteBuffer.allocate(encodedLength(transaction))).array();
+	}
+	
+	/**
+	 * Encodes the specified block into the specified buffer.
+	 * 
+	 * @param block the block to encode
+	 * @param buffer the buffer to encode into from its position, which must have {@link #encodedLength(Block)} bytes
+	 * remaining
+	 * @return the buffer, positioned after the encoded block
+	 */
+	public static ByteBuffer encode(Block block, ByteBuffer buffer)
+	{
+		buffer.put((byte) VERSION);
+		writeVarint(buffer, blockBodyLength(block));
+		
+		block.previousHash().writeTo(buffer);
+		writeVarint(buffer, block.timestamp());
+		buffer.putInt(block.nonce());
+		writeVarint(buffer, block.transactions().size());
+		
+		for (Transaction transaction : block.transactions())
+		{
+			writeTransactionBody(buffer, transaction);
+		}
+		
+		return buffer;
+	}
+	
+	/**
+	 * Encodes the specified transaction into the specified buffer.
+	 * 
+	 * @param transaction the transaction to encode
+	 * @param buffer the buffer to encode into from its position, which must have {@link #encodedLength(Transaction)}
+	 * bytes remaining
+	 * @return the buffer, positioned after the encoded transaction
+	 */
+	public static ByteBuffer encode(Transaction transaction, ByteBuffer buffer)
+	{
+		buffer.put((byte) VERSION);
+		writeVarint(buffer, transactionBodyLength(transaction));
+		
+		writeTransactionBody(buffer, transaction);
+		
+		return buffer;
+	}
+	
+	/**
+	 * Encodes the specified header into the specified buffer.
+	 * 
+	 * @param header the header to encode
+	 * @param buffer the buffer to encode into from its position, with at least {@value #HEADER_LENGTH} bytes remaining
+	 * @return the buffer, positioned after the encoded header
+	 */
+	public static ByteBuffer encode(Header header, ByteBuffer buffer)
+	{
+		header.previousHash().writeTo(buffer);
+		header.merkleRoot().writeTo(buffer);
+		buffer.putLong(header.timestamp());
+		buffer.putInt(header.nonce());
+		
+		return buffer;
+	}
+	
+	/**
+	 * Decodes a block from the specified buffer.
+	 * 
+	 * @param buffer the buffer to decode from its position
+	 * @return the block, with the buffer positioned after its encoding
+	 * @throws HobcoinException if the encoding has an unsupported version or is malformed
+	 */
+	public static Block decodeBlock(ByteBuffer buffer)
+	{
+		try
+		{
+			int version = readVersion(buffer);
+			ByteBuffer body = readBody(buffer);
+			
+			Hash256 previousHash = Hash256.readFrom(body);
+			long timestamp = readVarint(body);
+			int nonce = body.getInt();
+			List<Transaction> transactions = version == SINGLE_TRANSACTION_VERSION
+				? singletonList(readTransactionBody(body))
+				: readTransactionBodies(body);
+			
+			return new Block(transactions, previousHash, timestamp, nonce);
+		}
+		catch (BufferUnderflowException | IllegalArgumentException exception)
+		{
+			throw new HobcoinException("Malformed block", exception);
+		}
+	}
+	
+	/**
+	 * Decodes the header of a block from the specified buffer, without decoding the block's transactions.
+	 * 
+	 * @param buffer the buffer to decode the block from its position
+	 * @param merkleRoot the Merkle root of the block's transactions
+	 * @return the header, with the buffer positioned after the block's encoding
+	 * @throws HobcoinException if the encoding has an unsupported version or is malformed
+	 */
+	public static Header decodeBlockHeader(ByteBuffer buffer, Hash256 merkleRoot)
+	{
+		try
+		{
+			readVersion(buffer);
+			ByteBuffer body = readBody(buffer);
+			
+			Hash256 previousHash = Hash256.readFrom(body);
+			long timestamp = readVarint(body);
+			int nonce = body.getInt();
+			
+			return new Header(previousHash, merkleRoot, timestamp, nonce);
+		}
+		catch (BufferUnderflowException | IllegalArgumentException exception)
+		{
+			throw new HobcoinException("Malformed block", exception);
+		}
+	}
+	
+	/**
+	 * Decodes a header from the specified buffer.
+	 * 
+	 * @param buffer the buffer to decode from its position
+	 * @return the header, with the buffer positioned after its encoding
+	 * @throws HobcoinException if fewer than {@value #HEADER_LENGTH} bytes remain
+	 */
+	public static Header decodeHeader(ByteBuffer buffer)
+	{
+		try
+		{
+			Hash256 previousHash = Hash256.readFrom(buffer);
+			Hash256 merkleRoot = Hash256.readFrom(buffer);
+			long timestamp = buffer.getLong();
+			int nonce = buffer.getInt();
+			
+			return new Header(previousHash, merkleRoot, timestamp, nonce);
+		}
+		catch (BufferUnderflowException exception)
+		{
+			throw new HobcoinException("Malformed header", exception);
+		}
+	}
+	
+	/**
+	 * Decodes a transaction from the specified buffer.
+	 * 
+	 * @param buffer the buffer to decode from its position
+	 * @return the transaction, with the buffer positioned after its encoding
+	 * @throws HobcoinException if the encoding has an unsupported version or is malformed
+	 */
+	public static Transaction decodeTransaction(ByteBuffer buffer)
+	{
+		try
+		{
+			readVersion(buffer);
+			return readTransactionBody(readBody(buffer));
+		}
+		catch (BufferUnderflowException | IllegalArgumentException exception)
+		{
+			throw new HobcoinException("Malformed transaction", exception);
+		}
+	}
+	
+	static int encodedLength(UnspentTransactionOutput unspentOutput)
+	{
+		return Hash256.LENGTH
+			+ varintLength(unspentOutput.transactionOutputPoint().transactionOutputIndex())
+			+ PUBLIC_KEY_LENGTH
+			+ varintLength(unspentOutput.amount());
+	}
+	
+	/**
+	 * Encodes the specified unspent transaction output into the specified buffer.
+	 * <p>
+	 * Unspent outputs are encoded without a version or length, since they are only held within snapshots that are
+	 * themselves versioned.
+	 * 
+	 * @param unspentOutput the unspent transaction output to encode
+	 * @param buffer the buffer to encode into from its position
+	 * @return the buffer, positioned after the encoded unspent transaction output
+	 */
+	static ByteBuffer encode(UnspentTransactionOutput unspentOutput, ByteBuffer buffer)
+	{
+		unspentOutput.transactionOutputPoint().transactionId().writeTo(buffer);
+		writeVarint(buffer, unspentOutput.transactionOutputPoint().transactionOutputIndex());
+		writePublicKey(buffer, unspentOutput.recipient());
+		writeVarint(buffer, unspentOutput.amount());
+		
+		return buffer;
+	}
+	
+	static UnspentTransactionOutput decodeUnspentTransactionOutput(ByteBuffer buffer)
+	{
+		try
+		{
+			Hash256 transactionId = Hash256.readFrom(buffer);
+			int transactionOutputIndex = readTransactionOutputIndex(buffer);
+			PublicKey recipient = readPublicKey(buffer);
+			long amount = readVarint(buffer);
+			
+			return new UnspentTransactionOutput(new TransactionOutputPoint(transactionId, transactionOutputIndex),
+				recipient, amount);
+		}
+		catch (BufferUnderflowException | IllegalArgumentException exception)
+		{
+			throw new HobcoinException("Malformed unspent transaction output", exception);
+		}
+	}
+	
+	private static int recordLength(int bodyLength)
+	{
+		return 1 + varintLength(bodyLength) + bodyLength;
+	}
+	
+	private static int blockBodyLength(Block block)
+	{
+		return Hash256.LENGTH
+			+ varintLength(block.timestamp())
+			+ NONCE_LENGTH
+			+ varintLength(block.transactions().size())
+			+ block.transactions().stream()
+				.mapToInt(BlockCodec::transactionBodyLength)
+				.sum();
+	}
+	
+	private static int transactionBodyLength(Transaction transaction)
+	{
+		int length = varintLength(transaction.inputs().size()) + varintLength(transaction.outputs().size());
+		
+		for (TransactionInput input : transaction.inputs())
+		{
+			int signatureLength = input.signed() ? input.signature().length : 0;
+			
+			length += Hash256.LENGTH
+				+ varintLength(input.transactionOutputPoint().transactionOutputIndex())
+				+ varintLength(signatureLength)
+				+ signatureLength;
+		}
+		
+		for (TransactionOutput output : transaction.outputs())
+		{
+			length += PUBLIC_KEY_LENGTH + varintLength(output.amount());
+		}
+		
+		return length;
+	}
+	
+	private static int readVersion(ByteBuffer buffer)
+	{
+		int version = buffer.get();
+		
+		if (version < SINGLE_TRANSACTION_VERSION || version > VERSION)
+		{
+			throw new HobcoinException("Unsupported encoding version: " + version);
+		}
+		
+		return version;
+	}
+	
+	private static ByteBuffer readBody(ByteBuffer buffer)
+	{
+		long length = readVarint(buffer);
+		checkArgument(length >= 0 && length <= buffer.remaining(), "Invalid body length: %s", length);
+		
+		ByteBuffer body = buffer.slice();
+		body.limit((int) length);
+		buffer.position(buffer.position() + (int) length);
+		return body;
+	}
+	
+	private static void writeTransactionBody(ByteBuffer buffer, Transaction transaction)
+	{
+		writeVarint(buffer, transaction.inputs().size());
+		
+		for (TransactionInput input : transaction.inputs())
+		{
+			input.transactionOutputPoint().transactionId().writeTo(buffer);
+			writeVarint(buffer, input.transactionOutputPoint().transactionOutputIndex());
+			writeSignature(buffer, input.signature());
+		}
+		
+		writeVarint(buffer, transaction.outputs().size());
+		
+		for (TransactionOutput output : transaction.outputs())
+		{
+			writePublicKey(buffer, output.recipient());
+			writeVarint(buffer, output.amount());
+		}
+	}
+	
+	private static List<Transaction> readTransactionBodies(ByteBuffer buffer)
+	{
+		int transactionCount = readCount(buffer, MIN_TRANSACTION_BODY_LENGTH);
+		checkArgument(transactionCount > 0, "No block transactions");
+		List<Transaction> transactions = new ArrayList<>(transactionCount);
+		
+		for (int index = 0; index < transactionCount; index++)
+		{
+			transactions.add(readTransactionBody(buffer));
+		}
+		
+		return transactions;
+	}
+	
+	private static Transaction readTransactionBody(ByteBuffer buffer)
+	{
+		int inputCount = readCount(buffer, MIN_INPUT_LENGTH);
+		List<TransactionInput> inputs = new ArrayList<>(inputCount);
+		
+		for (int index = 0; index < inputCount; index++)
+		{
+			Hash256 transactionId = Hash256.readFrom(buffer);
+			int transactionOutputIndex = readTransactionOutputIndex(buffer);
+			TransactionOutputPoint outputPoint = new TransactionOutputPoint(transactionId, transactionOutputIndex);
+			inputs.add(new TransactionInput(outputPoint, readSignature(buffer)));
+		}
+		
+		int outputCount = readCount(buffer, MIN_OUTPUT_LENGTH);
+		List<TransactionOutput> outputs = new ArrayList<>(outputCount);
+		
+		for (int index = 0; index < outputCount; index++)
+		{
+			PublicKey recipient = readPublicKey(buffer);
+			outputs.add(new TransactionOutput(recipient, readVarint(buffer)));
+		}
+		
+		return new Transaction(inputs, outputs);
+	}
+	
+	private static void writeSignature(ByteBuffer buffer, byte[] signature)
+	{
+		if (signature == null)
+		{
+			writeVarint(buffer, 0);
+			return;
+		}
+		
+		writeVarint(buffer, signature.length);
+		buffer.put(signature);
+	}
+	
+	private static byte[] readSignature(ByteBuffer buffer)
+	{
+		int length = readCount(buffer);
+		
+		if (length == 0)
+		{
+			return null;
+		}
+		
+		checkArgument(length <= buffer.remaining(), "Invalid signature length: %s", length);
+		byte[] signature = new byte[length];
+		buffer.get(signature);
+		return signature;
+	}
+	
+	private static void writePublicKey(ByteBuffer buffer, PublicKey publicKey)
+	{
+		checkArgument(publicKey instanceof ECPublicKey, "Unsupported public key: %s", publicKey.getAlgorithm());
+		ECPublicKey ecPublicKey = (ECPublicKey) publicKey;
+		checkArgument(ecPublicKey.getParams().getCurve().equals(CURVE.getCurve()), "Unsupported public key curve");
+		
+		ECPoint point = ecPublicKey.getW();
+		
+		buffer.put(point.getAffineY().testBit(0) ? ODD_Y_PREFIX : EVEN_Y_PREFIX);
+		buffer.put(toUnsignedBytes(point.getAffineX(), COORDINATE_LENGTH));
+	}
+	
+	private static PublicKey readPublicKey(ByteBuffer buffer)
+	{
+		byte[] encoded = new byte[PUBLIC_KEY_LENGTH];
+		buffer.get(encoded);
+		
+		try
+		{
+			return PUBLIC_KEYS.get(HashCode.fromBytes(encoded), () -> decompressPublicKey(encoded));
+		}
+		catch (ExecutionException exception)
+		{
+			throw new HobcoinException("Error decoding public key", exception.getCause());
+		}
+		catch (UncheckedExecutionException exception)
+		{
+			Throwables.throwIfUnchecked(exception.getCause());
+			throw exception;
+		}
+	}
+	
+	private static PublicKey decompressPublicKey(byte[] encoded) throws GeneralSecurityException
+	{
+		byte prefix = encoded[0];
+		checkArgument(prefix == EVEN_Y_PREFIX || prefix == ODD_Y_PREFIX, "Invalid public key prefix: %s", prefix);
+		
+		BigInteger x = new BigInteger(1, Arrays.copyOfRange(encoded, 1, PUBLIC_KEY_LENGTH));
+		
+		BigInteger p = ((ECFieldFp) CURVE.getCurve().getField()).getP();
+		BigInteger ySquared = x.pow(3)
+			.add(CURVE.getCurve().getA().multiply(x))
+			.add(CURVE.getCurve().getB())
+			.mod(p);
+		BigInteger y = ySquared.modPow(p.add(BigInteger.ONE).shiftRight(2), p);
+		checkArgument(y.multiply(y).mod(p).equals(ySquared), "Invalid public key point");
+		
+		if (y.testBit(0) != (prefix == ODD_Y_PREFIX))
+		{
+			y = p.subtract(y);
+		}
+		
+		return KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(new ECPoint(x, y), CURVE));
+	}
+	
+	private static byte[] toUnsignedBytes(BigInteger value, int length)
+	{
+		byte[] signedBytes = value.toByteArray();
+		byte[] bytes = new byte[length];
+		int copyLength = Math.min(signedBytes.length, length);
+		System.arraycopy(signedBytes, signedBytes.length - copyLength, bytes, length - copyLength, copyLength);
+		return bytes;
+	}
+	
+	private static int varintLength(long value)
+	{
+		int length = 1;
+		
+		for (long remaining = value >>> 7; remaining != 0; remaining >>>= 7)
+		{
+			length++;
+		}
+		
+		return length;
+	}
+	
+	private static void writeVarint(ByteBuffer buffer, long value)
+	{
+		long remaining = value;
+		
+		while ((remaining & ~0x7fL) != 0)
+		{
+			buffer.put((byte) (remaining & 0x7f | 0x80));
+			remaining >>>= 7;
+		}
+		
+		buffer.put((byte) remaining);
+	}
+	
+	private static long readVarint(ByteBuffer buffer)
+	{
+		long value = 0;
+		
+		for (int index = 0; index < MAX_VARINT_LENGTH; index++)
+		{
+			byte next = buffer.get();
+			value |= (long) (next & 0x7f) << (7 * index);
+			
+			if ((next & 0x80) == 0)
+			{
+				return value;
+			}
+		}
+		
+		throw new IllegalArgumentException("Malformed varint");
+	}
+	
+	private static int readCount(ByteBuffer buffer)
+	{
+		long count = readVarint(buffer);
+		checkArgument(count >= 0 && count <= Integer.MAX_VALUE, "Invalid count: %s", count);
+		return (int) count;
+	}
+	
+	/**
+	 * Reads a count of elements that follow in the specified buffer.
+	 * <p>
+	 * The count is untrusted, so it is checked against the number of elements that the remaining bytes could possibly
+	 * hold before anything is allocated for them.
+	 * 
+	 * @param buffer the buffer to read from its position
+	 * @param minimumElementLength the minimum encoded length of each element
+	 * @return the count
+	 */
+	private static int readCount(ByteBuffer buffer, int minimumElementLength)
+	{
+		int count = readCount(buffer);
+		checkArgument(count <= buffer.remaining() / minimumElementLength, "Invalid count: %s", count);
+		return count;
+	}
+	
+	private static int readTransactionOutputIndex(ByteBuffer buffer)
+	{
+		long index = readVarint(buffer);
+		checkArgument(index >= 0 && index < Integer.MAX_VALUE, "Invalid transaction output index: %s", index);
+		return (int) index;
+	}
+	
+	private static ECParameterSpec secp256k1()
+	{
+		try
+		{
+			AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+			parameters.init(new ECGenParameterSpec("secp256k1"));
+			return parameters.getParameterSpec(ECParameterSpec.class);
+		}
+		catch (GeneralSecurityException exception)
+		{
+			throw new HobcoinException("Error getting secp256k1 curve parameters", exception);
+		}
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary encoding of a block header used to calculate block hashes.
+ * <p>
+ * The header is the 32-byte previous block hash, the 32-byte Merkle root of the transactions and the timestamp,
+ * followed by the nonce.
+ * Everything but the nonce is fixed for a block, so the header prefix is hashed once and only the nonce is hashed per
+ * attempt. The two hashes fill exactly one SHA-256 block, so each attempt compresses a single block. Not thread-safe.
+ */
+final class BlockHeader
+{
+	private final Sha256 sha256;
+	
+	BlockHeader(Hash256 previousHash, Hash256 merkleRoot, long timestamp)
+	{
+		sha256 = new Sha256(encodePrefix(previousHash, merkleRoot, timestamp));
+	}
+	
+	/**
+	 * Calculates the hash of this header with the specified nonce.
+	 * 
+	 * @param nonce the nonce
+	 * @return the hash, which is overwritten by the next call to this method
+	 */
+	byte[] hash(long nonce)
+	{
+		return sha256.digest(nonce);
+	}
+	
+	private static byte[] encodePrefix(Hash256 previousHash, Hash256 merkleRoot, long timestamp)
+	{
+		ByteBuffer prefix = ByteBuffer.allocate(2 * Hash256.LENGTH + Long.BYTES);
+		previousHash.writeTo(prefix);
+		merkleRoot.writeTo(prefix);
+		prefix.putLong(timestamp);
+		return prefix.array();
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.stream.IntStream;
+
+/**
+ * Storage for the blocks of a blockchain.
+ * <p>
+ * Implementations allow a single thread to append or truncate blocks while any number of threads read them. A block is
+ * only visible to readers, by height or by hash, once it is completely stored and the height includes it.
+ */
+public interface BlockStore extends Iterable<Block>, AutoCloseable
+{
+	int height();
+	
+	/**
+	 * Gets the block at the specified height.
+	 * 
+	 * @param height the zero-based height of the block
+	 * @return the block
+	 * @throws IndexOutOfBoundsException if no block exists at the height
+	 */
+	Block get(int height);
+	
+	/**
+	 * Gets the header of the block at the specified height.
+	 * <p>
+	 * Implementations that decode blocks should read the header without decoding the block's transactions.
+	 * 
+	 * @param height the zero-based height of the block
+	 * @return the block's header
+	 * @throws IndexOutOfBoundsException if no block exists at the height
+	 */
+	default Header header(int height)
+	{
+		return Header.of(get(height));
+	}
+	
+	/**
+	 * Gets the block with the specified hash.
+	 * 
+	 * @param hash the block hash
+	 * @return the block, or empty if no block has the hash
+	 */
+	default Optional<Block> get(Hash256 hash)
+	{
+		OptionalInt height = heightOf(hash);
+		
+		return height.isPresent() ? Optional.of(get(height.getAsInt())) : Optional.empty();
+	}
+	
+	/**
+	 * Gets the height of the block with the specified hash.
+	 * 
+	 * @param hash the block hash
+	 * @return the zero-based height of the block, or empty if no block has the hash
+	 */
+	OptionalInt heightOf(Hash256 hash);
+	
+	void append(Block block);
+	
+	/**
+	 * Removes every block at and above the specified height, such as when a blockchain reorganizes to another branch.
+	 * <p>
+	 * Readers that are already reading a removed block may see it fail or be replaced by a block appended later.
+	 * 
+	 * @param height the zero-based height of the first block to remove
+	 * @throws IndexOutOfBoundsException if the height is beyond this store's height
+	 */
+	void truncate(int height);
+	
+	/**
+	 * Iterates over the blocks that are stored when this method is called, in order of height.
+	 * 
+	 * @return an iterator over the blocks
+	 */
+	@Override
+	default Iterator<Block> iterator()
+	{
+		return IntStream.range(0, height())
+			.mapToObj(this::get)
+			.iterator();
+	}
+	
+	@Override
+	void close();
+}
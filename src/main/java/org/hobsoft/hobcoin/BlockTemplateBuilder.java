@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Builds the next block to mine from the transactions waiting in a transaction pool.
+ * <p>
+ * Transactions are taken in descending order of fee rate. A transaction that would take the block over its maximum
+ * encoded size is skipped in favour of smaller transactions further down, so that the block holds as many transactions
+ * as fit. Pooled transactions only spend outputs that are already in the blockchain and never conflict with each other,
+ * hence any selection of them forms a valid block.
+ */
+public class BlockTemplateBuilder
+{
+	public static final int DEFAULT_MAXIMUM_SIZE = 1024 * 1024;
+	
+	// version, body length, previous hash, timestamp, nonce and transaction count at their largest
+	private static final int BLOCK_OVERHEAD = 1 + 5 + Hash256.LENGTH + 10 + Integer.BYTES + 5;
+	
+	private final Blockchain blockchain;
+	
+	private final TransactionPool transactionPool;
+	
+	private int maximumSize;
+	
+	public BlockTemplateBuilder(Blockchain blockchain, TransactionPool transactionPool)
+	{
+		this.blockchain = blockchain;
+		this.transactionPool = transactionPool;
+		maximumSize = DEFAULT_MAXIMUM_SIZE;
+	}
+	
+	public BlockTemplateBuilder maximumSize(int maximumSize)
+	{
+		checkArgument(maximumSize > BLOCK_OVERHEAD, "Invalid maximum size: %s", maximumSize);
+		
+		this.maximumSize = maximumSize;
+		return this;
+	}
+	
+	/**
+	 * Builds an unmined block that follows the tail of the blockchain.
+	 * 
+	 * @return the block, or empty if no pooled transaction fits into a block
+	 */
+	public Optional<Block> build()
+	{
+		List<Transaction> transactions = new ArrayList<>();
+		int remainingSize = maximumSize - BLOCK_OVERHEAD;
+		
+		for (Transaction transaction : transactionPool.transactions())
+		{
+			int transactionSize = BlockCodec.encodedLength(transaction);
+			
+			if (transactionSize <= remainingSize)
+			{
+				transactions.add(transaction);
+				remainingSize -= transactionSize;
+			}
+		}
+		
+		return transactions.isEmpty()
+			? Optional.empty()
+			: Optional.of(new Block(transactions, blockchain.tail().hash()));
+	}
+}
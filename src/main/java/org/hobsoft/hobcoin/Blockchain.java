@@ -13,109 +13,896 @@
  */
 package org.hobsoft.hobcoin;
 
+import java.math.BigInteger;
 import java.security.PublicKey;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import static java.util.Collections.singletonList;
+import static java.util.Comparator.comparingLong;
+import static java.util.logging.Level.INFO;
+import static java.util.logging.Level.WARNING;
 
-import static org.hobsoft.hobcoin.UnspentTransactionOutput.atLeast;
+import static com.google.common.base.Preconditions.checkArgument;
 
 /**
  * A linked list of blocks.
+ * <p>
+ * Blocks are added by a single writer at a time while any number of threads read. The height and tail block are
+ * published together as an immutable tip, so readers get a consistent view of them without locking, and iteration
+ * covers the blocks up to the tip when it starts. Unspent transaction outputs, blocks by height or hash, and confirmed
+ * transactions together with their blocks, are read under a read stamp, which only waits while an added block's
+ * transactions are applied or a reorganization replaces blocks, and never during validation or mining.
+ * <p>
+ * Unspent transaction outputs are periodically saved to snapshot storage, if any, so that reopening a long blockchain
+ * only replays the blocks since the latest snapshot. A snapshot also saves the undo records of the blocks before it, so
+ * that a reopened blockchain can still reorganize as deep as one that was never closed. The transaction index is not
+ * snapshotted, so after reopening it is caught up on a background thread, one block at a time under a read stamp so
+ * that adding blocks is never held up.
+ * Until then, a lookup of a transaction that is not yet indexed catches the index up itself.
+ * <p>
+ * A block that follows an earlier block, rather than the tail, starts or extends a side branch. Side branches are held
+ * in memory, and once a side branch has more work than the blocks that it would replace, the blockchain reorganizes to
+ * it. Reorganizing undoes the replaced blocks with the undo records of the last {@value #MAX_REORGANIZATION_DEPTH}
+ * blocks, rather than rebuilding the unspent transaction outputs, and then validates and applies the side branch.
+ * Readers wait while a reorganization applies its blocks, so that they never see the outputs or blocks of both
+ * branches.
+ * <p>
+ * The target that each block must be mined to is adjusted from the timestamps of earlier blocks by a
+ * {@link DifficultyAdjustment}. The difficulty of the next block is published with the tip and kept in each undo record
+ * and side block, so that validating a block derives its difficulty from its previous block's in constant time.
  */
 public class Blockchain implements Iterable<Block>
 {
-	private final List<Block> blocks;
+	/**
+	 * The height and tail block of a blockchain, together with the difficulty of the next block.
+	 */
+	private static final class Tip
+	{
+		private final int height;
+		
+		private final Block block;
+		
+		private final Difficulty difficulty;
+		
+		Tip(int height, Block block, Difficulty difficulty)
+		{
+			this.height = height;
+			this.block = block;
+			this.difficulty = difficulty;
+		}
+	}
+	
+	/**
+	 * A block that is not in the main branch, together with its height and difficulty.
+	 */
+	private static final class SideBlock
+	{
+		private final Block block;
+		
+		private final int height;
+		
+		private final Difficulty difficulty;
+		
+		SideBlock(Block block, int height, Difficulty difficulty)
+		{
+			this.block = block;
+			this.height = height;
+			this.difficulty = difficulty;
+		}
+	}
+	
+	/**
+	 * The unspent transaction outputs that a block in the main branch spent, together with the block's difficulty.
+	 */
+	private static final class UndoRecord
+	{
+		private final List<UnspentTransactionOutput> spentOutputs;
+		
+		private final Difficulty difficulty;
+		
+		UndoRecord(List<UnspentTransactionOutput> spentOutputs, Difficulty difficulty)
+		{
+			this.spentOutputs = spentOutputs;
+			this.difficulty = difficulty;
+		}
+	}
+	
+	/**
+	 * Iterates over a range of blocks, failing rather than mixing branches if a reorganization replaces the blocks.
+	 */
+	private final class RangeIterator<T> implements Iterator<T>
+	{
+		private final IntFunction<T> reader;
+		
+		private final BiPredicate<T, T> follows;
+		
+		private final int to;
+		
+		private int height;
+		
+		private T previous;
+		
+		RangeIterator(IntFunction<T> reader, BiPredicate<T, T> follows, int from, int to)
+		{
+			this.reader = reader;
+			this.follows = follows;
+			this.to = to;
+			height = from;
+		}
+		
+		@Override
+		public boolean hasNext()
+		{
+			return height < to;
+		}
+		
+		@Override
+		public T next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			
+			T next = read(() -> height < tip.height ? reader.apply(height) : null);
+			
+			if (next == null || previous != null && !follows.test(next, previous))
+			{
+				throw new HobcoinException("Blocks reorganized during iteration at height " + height);
+			}
+			
+			previous = next;
+			height++;
+			return next;
+		}
+	}
+	
+	/**
+	 * The maximum number of blocks that a reorganization can replace.
+	 */
+	public static final int MAX_REORGANIZATION_DEPTH = 100;
+	
+	/**
+	 * The maximum number of milliseconds that a block's timestamp can be ahead of the current time.
+	 */
+	public static final long MAX_TIMESTAMP_DRIFT = TimeUnit.HOURS.toMillis(2);
+	
+	private static final Logger LOG = Logger.getLogger(Blockchain.class.getName());
+	
+	private static final SignatureVerifier DEFAULT_SIGNATURE_VERIFIER = new SignatureVerifier();
+	
+	private static final long GENESIS_TIMESTAMP = 0;
+	
+	private final BlockStore blocks;
+	
+	private final SnapshotStore snapshots;
+	
+	private final SignatureVerifier signatureVerifier;
 	
 	private final UnspentTransactionOutputs unspentTransactionOutputs;
 	
-	private final int difficulty;
+	private final StampedLock unspentTransactionOutputsLock;
+	
+	private final TransactionIndex transactionIndex;
+	
+	private final DifficultyAdjustment difficultyAdjustment;
+	
+	private final List<BlockchainListener> listeners;
+	
+	private final Map<Hash256, SideBlock> sideBlocks;
+	
+	private final Deque<UndoRecord> undoRecords;
+	
+	private volatile Tip tip;
+	
+	public Blockchain(PublicKey recipient, long amount, Target difficulty)
+	{
+		this(new MemoryBlockStore(), recipient, amount, difficulty);
+	}
+	
+	/**
+	 * Creates a blockchain over the specified block storage.
+	 * <p>
+	 * If the storage is empty then a genesis block that credits the recipient with the amount is added, otherwise the
+	 * stored blocks are reopened and the recipient and amount are ignored. The genesis block has a fixed timestamp, so
+	 * that blockchains created with the same recipient and amount share the same genesis block.
+	 * 
+	 * @param blocks the block storage
+	 * @param recipient the recipient of the genesis block
+	 * @param amount the amount of the genesis block
+	 * @param difficulty the target that blocks must be mined to
+	 */
+	public Blockchain(BlockStore blocks, PublicKey recipient, long amount, Target difficulty)
+	{
+		this(blocks, DEFAULT_SIGNATURE_VERIFIER, recipient, amount, difficulty);
+	}
+	
+	/**
+	 * Creates a blockchain over the specified block storage that verifies signatures with the specified verifier.
+	 * 
+	 * @param blocks the block storage
+	 * @param signatureVerifier the verifier of transaction input signatures
+	 * @param recipient the recipient of the genesis block
+	 * @param amount the amount of the genesis block
+	 * @param difficulty the target that blocks must be mined to
+	 * @see #Blockchain(BlockStore, PublicKey, long, Target)
+	 */
+	public Blockchain(BlockStore blocks, SignatureVerifier signatureVerifier, PublicKey recipient, long amount,
+		Target difficulty)
+	{
+		this(blocks, new NoSnapshotStore(), signatureVerifier, recipient, amount, difficulty);
+	}
 	
-	public Blockchain(PublicKey recipient, long amount, int difficulty)
+	/**
+	 * Creates a blockchain over the specified block storage that snapshots its unspent transaction outputs to the
+	 * specified snapshot storage.
+	 * <p>
+	 * Reopening the stored blocks restores the latest snapshot whose block is within the storage and only replays the
+	 * blocks after it, so the time taken does not grow with the height of the blockchain.
+	 * 
+	 * @param blocks the block storage
+	 * @param snapshots the snapshot storage
+	 * @param signatureVerifier the verifier of transaction input signatures
+	 * @param recipient the recipient of the genesis block
+	 * @param amount the amount of the genesis block
+	 * @param difficulty the target that blocks must be mined to
+	 * @see #Blockchain(BlockStore, PublicKey, long, Target)
+	 */
+	public Blockchain(BlockStore blocks, SnapshotStore snapshots, SignatureVerifier signatureVerifier,
+		PublicKey recipient, long amount, Target difficulty)
 	{
-		blocks = new ArrayList<>();
-		unspentTransactionOutputs = new UnspentTransactionOutputs();
-		this.difficulty = difficulty;
+		this(blocks, snapshots, UnspentTransactionOutputsStorage.HEAP, signatureVerifier, recipient, amount,
+			DifficultyAdjustment.fixed(difficulty));
+	}
+	
+	/**
+	 * Creates a blockchain over the specified block storage that holds its unspent transaction outputs in the specified
+	 * storage and adjusts the target that blocks must be mined to.
+	 * 
+	 * @param blocks the block storage
+	 * @param snapshots the snapshot storage
+	 * @param storage the storage of unspent transaction outputs
+	 * @param signatureVerifier the verifier of transaction input signatures
+	 * @param recipient the recipient of the genesis block
+	 * @param amount the amount of the genesis block
+	 * @param difficultyAdjustment the rules that adjust the target that blocks must be mined to
+	 * @see #Blockchain(BlockStore, SnapshotStore, SignatureVerifier, PublicKey, long, Target)
+	 */
+	public Blockchain(BlockStore blocks, SnapshotStore snapshots, UnspentTransactionOutputsStorage storage,
+		SignatureVerifier signatureVerifier, PublicKey recipient, long amount,
+		DifficultyAdjustment difficultyAdjustment)
+	{
+		this.blocks = blocks;
+		this.snapshots = snapshots;
+		this.signatureVerifier = signatureVerifier;
+		unspentTransactionOutputs = storage.newUnspentTransactionOutputs();
+		unspentTransactionOutputsLock = new StampedLock();
+		transactionIndex = new TransactionIndex();
+		this.difficultyAdjustment = difficultyAdjustment;
+		listeners = new CopyOnWriteArrayList<>();
+		sideBlocks = new ConcurrentHashMap<>();
+		undoRecords = new ArrayDeque<>();
 		
-		addQuietly(newGenesisBlock(recipient, amount));
+		if (blocks.height() == 0)
+		{
+			addQuietly(newGenesisBlock(recipient, amount), difficultyAdjustment.difficulty(0, this::timestamp));
+		}
+		else
+		{
+			reopen();
+			catchUpTransactionIndexInBackground();
+		}
 	}
 	
 	@Override
 	public Iterator<Block> iterator()
 	{
-		return blocks.iterator();
+		return blocks(0, Integer.MAX_VALUE).iterator();
+	}
+	
+	/**
+	 * Gets a range of blocks by height.
+	 * <p>
+	 * The range ends at the tip when this method is called. Blocks are fetched from storage as they are iterated over,
+	 * so iterating over a long range does not hold every block in memory. Each block is fetched under a read stamp and
+	 * checked to follow the block before it, so that iteration fails rather than mixing the blocks of two branches if a
+	 * reorganization replaces blocks in the range while it is being iterated over.
+	 * 
+	 * @param from the zero-based height of the first block
+	 * @param limit the maximum number of blocks
+	 * @return the blocks from the height, in order of height, whose iterator throws {@link HobcoinException} if a
+	 * reorganization replaces the remaining blocks of the range
+	 */
+	public Iterable<Block> blocks(int from, int limit)
+	{
+		return range(from, limit, blocks::get, Block::follows);
+	}
+	
+	/**
+	 * Gets the headers of a range of blocks by height.
+	 * <p>
+	 * Headers are read from storage without decoding the blocks' transactions, and are otherwise iterated over like
+	 * {@link #blocks(int, int)}.
+	 * 
+	 * @param from the zero-based height of the first block
+	 * @param limit the maximum number of blocks
+	 * @return the headers of the blocks from the height, in order of height, whose iterator throws
+	 * {@link HobcoinException} if a reorganization replaces the remaining blocks of the range
+	 */
+	public Iterable<Header> headers(int from, int limit)
+	{
+		return range(from, limit, blocks::header, Header::follows);
+	}
+	
+	/**
+	 * Gets the block at the specified height.
+	 * 
+	 * @param height the zero-based height of the block
+	 * @return the block, or empty if the height is beyond the tip
+	 */
+	public Optional<Block> block(int height)
+	{
+		checkArgument(height >= 0, "Invalid height: %s", height);
+		
+		return read(() -> height < tip.height ? Optional.of(blocks.get(height)) : Optional.empty());
+	}
+	
+	/**
+	 * Gets the block with the specified hash.
+	 * <p>
+	 * The block is found through the block storage's hash index rather than by iterating over the blocks.
+	 * 
+	 * @param hash the block hash
+	 * @return the block, or empty if no block up to the tip has the hash
+	 */
+	public Optional<Block> block(Hash256 hash)
+	{
+		return read(() ->
+		{
+			OptionalInt height = blocks.heightOf(hash);
+			
+			return height.isPresent() && height.getAsInt() < tip.height
+				? Optional.of(blocks.get(height.getAsInt()))
+				: Optional.empty();
+		});
+	}
+	
+	/**
+	 * Gets whether this blockchain has the block with the specified hash, either up to the tip or in a side branch.
+	 * 
+	 * @param hash the block hash
+	 * @return {@code true} if the block is known
+	 */
+	public boolean contains(Hash256 hash)
+	{
+		OptionalInt height = blocks.heightOf(hash);
+		
+		return height.isPresent() && height.getAsInt() < tip.height || sideBlocks.containsKey(hash);
+	}
+	
+	/**
+	 * Gets the location of the confirmed transaction with the specified id.
+	 * 
+	 * @param transactionId the transaction id
+	 * @return the location, or empty if no block up to the tip contains the transaction
+	 */
+	public Optional<TransactionLocation> transactionLocation(Hash256 transactionId)
+	{
+		return transaction(transactionId, (block, location) -> location);
+	}
+	
+	/**
+	 * Gets the confirmed transaction with the specified id.
+	 * 
+	 * @param transactionId the transaction id
+	 * @return the transaction, or empty if no block up to the tip contains the transaction
+	 * @see #transactionLocation(Hash256)
+	 */
+	public Optional<Transaction> transaction(Hash256 transactionId)
+	{
+		return transaction(transactionId, (block, location) -> block.transactions().get(location.position()));
+	}
+	
+	/**
+	 * Reads the confirmed transaction with the specified id from the block that contains it.
+	 * <p>
+	 * The transaction is located and its block read under a single read lock, so that a reorganization cannot remove
+	 * or replace the block in between.
+	 * 
+	 * @param transactionId the transaction id
+	 * @param reader the function to read the transaction from its block and location
+	 * @param <T> the type of value read
+	 * @return the value read, or empty if no block up to the tip contains the transaction
+	 */
+	public <T> Optional<T> transaction(Hash256 transactionId, BiFunction<Block, TransactionLocation, T> reader)
+	{
+		Optional<T> value = read(() -> readTransaction(transactionId, reader));
+		
+		if (!value.isPresent() && transactionIndex.height() < tip.height)
+		{
+			catchUpTransactionIndex();
+			value = read(() -> readTransaction(transactionId, reader));
+		}
+		
+		return value;
 	}
 	
 	public int height()
 	{
-		return blocks.size();
+		return tip.height;
 	}
 	
 	public Block tail()
 	{
-		return blocks.isEmpty()
-			? null
-			: blocks.get(blocks.size() - 1);
+		return tip.block;
 	}
 	
 	/**
-	 * Adds the specified block to the end of this blockchain.
+	 * Adds the specified block to this blockchain.
+	 * <p>
+	 * A block that follows the tail block is added to the end of this blockchain. A block that follows any other known
+	 * block is added to a side branch, and this blockchain reorganizes to the side branch if it then has more work
+	 * than the blocks since the fork. The transactions of a side branch are only validated when reorganizing to it.
 	 * 
 	 * @param block the block to add
 	 * @return this blockchain
-	 * @throws InvalidBlockException if the block's previous hash does not match the tail block's hash, or the block is
-	 * not mined to the current difficultly
-	 * @throws InvalidTransactionException if a transaction input within the block has already been spent, or a
-	 * transaction input has not been signed, or a transaction input signature cannot be verified, or a transaction's
-	 * inputs do not balance its outputs
+	 * @throws InvalidBlockException if the block is already known, or its previous block is not known, or it forks
+	 * more than {@value #MAX_REORGANIZATION_DEPTH} blocks below the tail, or its timestamp is before the median of the
+	 * previous blocks' or more than {@value #MAX_TIMESTAMP_DRIFT} milliseconds ahead of the current time, or it is not
+	 * mined to its difficulty
+	 * @throws InvalidTransactionException if a transaction input within the block, or within a side branch being
+	 * reorganized to, has already been spent, or is spent by more than one transaction input within the block, or a
+	 * transaction input has not been signed, or a transaction input signature cannot be verified, or a transaction has
+	 * an output amount that is not positive, or its outputs exceed its inputs, or its amounts overflow
+	 * @throws HobcoinException if the block's outputs do not fit the unspent transaction outputs' storage, in which
+	 * case the blockchain is left unchanged
 	 */
-	public Blockchain add(Block block)
+	public synchronized Blockchain add(Block block)
 	{
-		validateBlock(block);
+		if (!block.follows(tail()))
+		{
+			return addSideBlock(block);
+		}
+		
+		Difficulty difficulty = tip.difficulty;
+		validateBlock(block, difficulty);
+		addQuietly(block, difficulty);
+		saveSnapshotIfDue();
+		pruneSideBlocks();
 		
-		return addQuietly(block);
+		listeners.forEach(listener -> listener.blockAdded(block));
+		
+		return this;
 	}
 	
-	public int difficulty()
+	/**
+	 * Validates the specified transaction against the unspent transaction outputs at the end of this blockchain.
+	 * 
+	 * @param transaction the transaction to validate
+	 * @return the transaction's fee, being the amount by which its inputs exceed its outputs
+	 * @throws InvalidTransactionException if a transaction input has already been spent, or is spent more than once
+	 * within the transaction, or has not been signed, or its signature cannot be verified, or the transaction has an
+	 * output amount that is not positive, or its outputs exceed its inputs, or its amounts overflow
+	 */
+	public long validate(Transaction transaction)
 	{
-		return difficulty;
+		List<PublicKey> addresses;
+		long fee;
+		long stamp = unspentTransactionOutputsLock.readLock();
+		
+		try
+		{
+			addresses = validateTransactionInputs(transaction, new HashSet<>());
+			fee = validateTransactionAmount(transaction);
+		}
+		finally
+		{
+			unspentTransactionOutputsLock.unlockRead(stamp);
+		}
+		
+		verifySignatures(transaction.inputs(), addresses);
+		return fee;
 	}
 	
-	public List<UnspentTransactionOutput> unspentTransactionOutputs(PublicKey owner, long minimumAmount)
+	public void addListener(BlockchainListener listener)
 	{
-		return atLeast(unspentTransactionOutputs.find(owner), minimumAmount);
+		listeners.add(listener);
 	}
 	
-	private void validateBlock(Block block)
+	public void removeListener(BlockchainListener listener)
 	{
-		// TODO: validate block hash
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * Gets the target that the next block added to the tail must be mined to.
+	 * 
+	 * @return the target
+	 */
+	public Target difficulty()
+	{
+		return tip.difficulty.target();
+	}
+	
+	/**
+	 * Gets the difficulty of the block at the specified height, as determined by the blocks below it.
+	 * <p>
+	 * The difficulty of the next block is held with the tip, whereas the difficulty of an earlier block is rebuilt from
+	 * the timestamps of the blocks at each window's boundaries.
+	 * 
+	 * @param height the zero-based height of the block, which can be the height of the next block
+	 * @return the difficulty
+	 */
+	public Difficulty difficultyAt(int height)
+	{
+		Tip tip = this.tip;
 		
-		// TODO: validate block timestamp
+		checkArgument(height >= 0 && height <= tip.height, "Invalid height: %s", height);
 		
-		if (!block.follows(tail()))
+		return height == tip.height
+			? tip.difficulty
+			: difficultyAdjustment.difficulty(height, this::timestamp);
+	}
+	
+	/**
+	 * Gets the unspent transaction outputs of the specified owner ordered for a {@link CoinSelector}.
+	 * 
+	 * @param owner the owner
+	 * @return the owner's unspent transaction outputs, largest amount first and then in the order that they were
+	 * received
+	 */
+	public List<UnspentTransactionOutput> unspentTransactionOutputs(PublicKey owner)
+	{
+		List<UnspentTransactionOutput> unspentOutputs = new ArrayList<>(
+			read(() -> unspentTransactionOutputs.find(owner))
+		);
+		
+		unspentOutputs.sort(comparingLong(UnspentTransactionOutput::amount).reversed());
+		
+		return unspentOutputs;
+	}
+	
+	public Optional<UnspentTransactionOutput> unspentTransactionOutput(TransactionOutputPoint outputPoint)
+	{
+		return read(() -> unspentTransactionOutputs.find(outputPoint));
+	}
+	
+	public long balance(PublicKey owner)
+	{
+		return read(() -> unspentTransactionOutputs.balance(owner));
+	}
+	
+	private Blockchain addSideBlock(Block block)
+	{
+		if (contains(block.hash()))
+		{
+			throw new InvalidBlockException("Duplicate block: " + block.hash());
+		}
+		
+		int height = heightOfPrevious(block) + 1;
+		List<Block> branch = branch(block);
+		int forkHeight = height - branch.size() + 1;
+		int depth = tip.height - forkHeight;
+		
+		if (depth > Math.min(MAX_REORGANIZATION_DEPTH, undoRecords.size()))
+		{
+			throw new InvalidBlockException("Fork is too deep: " + depth);
+		}
+		
+		Difficulty difficulty = sideBlockDifficulty(block, height);
+		validateTimestamp(block, difficulty);
+		validateMined(block, difficulty);
+		sideBlocks.put(block.hash(), new SideBlock(block, height, difficulty));
+		
+		BigInteger branchWork = work(branch.stream()
+			.map(branchBlock -> sideBlocks.get(branchBlock.hash()).difficulty));
+		BigInteger mainWork = work(undoRecords.stream()
+			.skip(undoRecords.size() - depth)
+			.map(undoRecord -> undoRecord.difficulty));
+		
+		if (branchWork.compareTo(mainWork) > 0)
+		{
+			reorganize(forkHeight, branch);
+		}
+		
+		return this;
+	}
+	
+	private Difficulty sideBlockDifficulty(Block block, int height)
+	{
+		SideBlock previous = sideBlocks.get(block.previousHash());
+		
+		if (previous != null)
+		{
+			return previous.difficulty.next(previous.block.timestamp());
+		}
+		
+		// the block forks from the main branch, so it has the difficulty of the main branch block at its height
+		Iterator<UndoRecord> records = undoRecords.descendingIterator();
+		
+		for (int recordHeight = tip.height - 1; recordHeight > height; recordHeight--)
+		{
+			records.next();
+		}
+		
+		return records.next().difficulty;
+	}
+	
+	private int heightOfPrevious(Block block)
+	{
+		OptionalInt mainHeight = blocks.heightOf(block.previousHash());
+		
+		if (mainHeight.isPresent() && mainHeight.getAsInt() < tip.height)
+		{
+			return mainHeight.getAsInt();
+		}
+		
+		SideBlock previous = sideBlocks.get(block.previousHash());
+		
+		if (previous == null)
+		{
+			throw new InvalidBlockException("Unknown previous block: " + block.previousHash());
+		}
+		
+		return previous.height;
+	}
+	
+	/**
+	 * Gets the side branch that ends with the specified block.
+	 * 
+	 * @param block the last block of the side branch
+	 * @return the blocks of the side branch after the fork, in order of height
+	 */
+	private List<Block> branch(Block block)
+	{
+		List<Block> branch = new ArrayList<>();
+		branch.add(block);
+		
+		for (SideBlock previous = sideBlocks.get(block.previousHash()); previous != null;
+			previous = sideBlocks.get(previous.block.previousHash()))
+		{
+			branch.add(previous.block);
+		}
+		
+		Collections.reverse(branch);
+		return branch;
+	}
+	
+	/**
+	 * Replaces the blocks at and above the specified height with the specified side branch.
+	 * <p>
+	 * If a block of the side branch is invalid, or its outputs do not fit the unspent transaction outputs, then it and
+	 * the blocks after it are discarded, the replaced blocks are restored, and the exception is thrown.
+	 */
+	private void reorganize(int forkHeight, List<Block> branch)
+	{
+		LOG.log(INFO, "Reorganizing {0} blocks to {1} blocks from height {2}",
+			new Object[] {tip.height - forkHeight, branch.size(), forkHeight});
+		
+		List<Block> removedBlocks = new ArrayList<>();
+		long stamp = unspentTransactionOutputsLock.writeLock();
+		
+		try
+		{
+			while (tip.height > forkHeight)
+			{
+				Block removedBlock = tip.block;
+				UndoRecord undoRecord = undoRecords.removeLast();
+				unspentTransactionOutputs.undo(removedBlock, undoRecord.spentOutputs);
+				removedBlocks.add(removedBlock);
+				sideBlocks.put(removedBlock.hash(), new SideBlock(removedBlock, tip.height - 1, undoRecord.difficulty));
+				tip = new Tip(tip.height - 1, blocks.get(tip.height - 2), undoRecord.difficulty);
+			}
+			
+			truncate(forkHeight);
+			Difficulty difficulty = tip.difficulty;
+			
+			for (int index = 0; index < branch.size(); index++)
+			{
+				try
+				{
+					validateTransactions(branch.get(index).transactions());
+					difficulty = connect(branch.get(index), difficulty);
+				}
+				catch (HobcoinException exception)
+				{
+					branch.subList(index, branch.size()).forEach(block -> sideBlocks.remove(block.hash()));
+					restore(forkHeight, branch.subList(0, index), removedBlocks);
+					throw exception;
+				}
+			}
+			
+			tip = new Tip(blocks.height(), blocks.get(blocks.height() - 1), difficulty);
+		}
+		finally
+		{
+			unspentTransactionOutputsLock.unlockWrite(stamp);
+		}
+		
+		saveSnapshotIfDue();
+		pruneSideBlocks();
+		
+		removedBlocks.forEach(block -> listeners.forEach(listener -> listener.blockRemoved(block)));
+		branch.forEach(block -> listeners.forEach(listener -> listener.blockAdded(block)));
+	}
+	
+	// undoes the connected blocks of an invalid side branch and reconnects the blocks that it replaced
+	private void restore(int forkHeight, List<Block> connectedBlocks, List<Block> removedBlocks)
+	{
+		for (int index = connectedBlocks.size() - 1; index >= 0; index--)
+		{
+			Block connectedBlock = connectedBlocks.get(index);
+			UndoRecord undoRecord = undoRecords.removeLast();
+			unspentTransactionOutputs.undo(connectedBlock, undoRecord.spentOutputs);
+			sideBlocks.put(connectedBlock.hash(), new SideBlock(connectedBlock, forkHeight + index,
+				undoRecord.difficulty));
+		}
+		
+		truncate(forkHeight);
+		Difficulty difficulty = tip.difficulty;
+		
+		for (int index = removedBlocks.size() - 1; index >= 0; index--)
+		{
+			difficulty = connect(removedBlocks.get(index), difficulty);
+		}
+		
+		tip = new Tip(blocks.height(), blocks.get(blocks.height() - 1), difficulty);
+	}
+	
+	private void truncate(int height)
+	{
+		transactionIndex.truncate(height, blocks);
+		blocks.truncate(height);
+	}
+	
+	// connects a block without publishing a new tip, for the writer to do once the unspent outputs are consistent
+	private Difficulty connect(Block block, Difficulty difficulty)
+	{
+		sideBlocks.remove(block.hash());
+		blocks.append(block);
+		transactionIndex.add(blocks.height() - 1, block);
+		pushUndoRecord(new UndoRecord(unspentTransactionOutputs.apply(block), difficulty));
+		return difficulty.next(block.timestamp());
+	}
+	
+	private void pushUndoRecord(UndoRecord undoRecord)
+	{
+		undoRecords.addLast(undoRecord);
+		
+		if (undoRecords.size() > MAX_REORGANIZATION_DEPTH)
+		{
+			undoRecords.removeFirst();
+		}
+	}
+	
+	// side blocks that fork further below the tail than a reorganization can replace can never be reorganized to
+	private void pruneSideBlocks()
+	{
+		if (!sideBlocks.isEmpty())
+		{
+			sideBlocks.values().removeIf(sideBlock -> sideBlock.height < tip.height - MAX_REORGANIZATION_DEPTH);
+		}
+	}
+	
+	private void validateBlock(Block block, Difficulty difficulty)
+	{
+		// TODO: validate block hash
+		
+		validateTimestamp(block, difficulty);
+		validateMined(block, difficulty);
+		validateTransactions(block.transactions());
+	}
+	
+	private static void validateTimestamp(Block block, Difficulty difficulty)
+	{
+		if (block.timestamp() < difficulty.minimumTimestamp())
 		{
-			throw new InvalidBlockException("Previous hash does not match tail block");
+			throw new InvalidBlockException("Block timestamp is too early: " + block.timestamp());
 		}
 		
-		if (!block.isMined(difficulty()))
+		if (block.timestamp() > System.currentTimeMillis() + MAX_TIMESTAMP_DRIFT)
+		{
+			throw new InvalidBlockException("Block timestamp is too late: " + block.timestamp());
+		}
+	}
+	
+	private static void validateMined(Block block, Difficulty difficulty)
+	{
+		if (!block.isMined(difficulty.target()))
 		{
 			throw new InvalidBlockException("Unmined block");
 		}
+	}
+	
+	// only called by the writer, which is the only thread to change unspent transaction outputs, hence no read stamp
+	private void validateTransactions(List<Transaction> transactions)
+	{
+		Set<TransactionOutputPoint> spentOutputPoints = new HashSet<>();
+		List<TransactionInput> inputs = new ArrayList<>();
+		List<PublicKey> addresses = new ArrayList<>();
+		
+		for (Transaction transaction : transactions)
+		{
+			addresses.addAll(validateTransactionInputs(transaction, spentOutputPoints));
+			inputs.addAll(transaction.inputs());
+			validateTransactionAmount(transaction);
+		}
 		
-		validateTransaction(block.transaction());
+		verifySignatures(inputs, addresses);
 	}
 	
-	private void validateTransaction(Transaction transaction)
+	private List<PublicKey> validateTransactionInputs(Transaction transaction,
+		Set<TransactionOutputPoint> spentOutputPoints)
 	{
 		// TODO: validate transaction id
 		
-		transaction.inputs().forEach(this::validateTransactionInput);
+		List<PublicKey> addresses = new ArrayList<>(transaction.inputs().size());
 		
-		if (getInputsAmount(transaction) != transaction.amount())
+		for (TransactionInput input : transaction.inputs())
 		{
-			throw new InvalidTransactionException("Non-zero net amount");
+			addresses.add(validateTransactionInput(input));
+			
+			if (!spentOutputPoints.add(input.transactionOutputPoint()))
+			{
+				throw new InvalidTransactionException("Double-spent transaction input: " + input);
+			}
+		}
+		
+		return addresses;
+	}
+	
+	private long validateTransactionAmount(Transaction transaction)
+	{
+		long outputsAmount = 0;
+		
+		for (TransactionOutput output : transaction.outputs())
+		{
+			if (output.amount() <= 0)
+			{
+				throw new InvalidTransactionException("Non-positive transaction output amount: " + output.amount());
+			}
+			
+			outputsAmount = addAmounts(outputsAmount, output.amount());
+		}
+		
+		long fee = getInputsAmount(transaction) - outputsAmount;
+		
+		if (fee < 0)
+		{
+			throw new InvalidTransactionException("Outputs exceed inputs");
+		}
+		
+		return fee;
+	}
+	
+	private void verifySignatures(List<TransactionInput> inputs, List<PublicKey> addresses)
+	{
+		if (!signatureVerifier.verify(inputs, addresses))
+		{
+			throw new InvalidTransactionException("Unverified transaction input signature");
 		}
 	}
 	
@@ -124,10 +911,22 @@ public class Blockchain implements Iterable<Block>
 		return unspentTransactionOutputs.find(transaction.inputPoints())
 			.stream()
 			.mapToLong(UnspentTransactionOutput::amount)
-			.sum();
+			.reduce(0, Blockchain::addAmounts);
+	}
+	
+	private static long addAmounts(long amount1, long amount2)
+	{
+		try
+		{
+			return Math.addExact(amount1, amount2);
+		}
+		catch (ArithmeticException exception)
+		{
+			throw new InvalidTransactionException("Transaction amount overflow");
+		}
 	}
 	
-	private void validateTransactionInput(TransactionInput input)
+	private PublicKey validateTransactionInput(TransactionInput input)
 	{
 		UnspentTransactionOutput unspentOutput = unspentTransactionOutputs.find(input.transactionOutputPoint())
 			.orElseThrow(() -> new InvalidTransactionException("Spent transaction input: " + input));
@@ -136,25 +935,180 @@ public class Blockchain implements Iterable<Block>
 		{
 			throw new InvalidTransactionException("Unsigned transaction input");
 		}
-
-		if (!input.verify(unspentOutput.recipient()))
+		
+		return unspentOutput.recipient();
+	}
+	
+	private void reopen()
+	{
+		int snapshotHeight = latestSnapshot()
+			.map(this::restoreSnapshot)
+			.orElse(0);
+		Difficulty difficulty = difficultyAdjustment.difficulty(snapshotHeight, this::timestamp);
+		
+		for (int height = snapshotHeight; height < blocks.height(); height++)
 		{
-			throw new InvalidTransactionException("Unverified transaction input signature");
+			Block block = blocks.get(height);
+			pushUndoRecord(new UndoRecord(unspentTransactionOutputs.apply(block), difficulty));
+			difficulty = difficulty.next(block.timestamp());
+		}
+		
+		tip = new Tip(blocks.height(), blocks.get(blocks.height() - 1), difficulty);
+		
+		if (snapshots.interval() > 0 && tip.height - snapshotHeight >= snapshots.interval())
+		{
+			saveSnapshot();
 		}
 	}
 	
-	private Blockchain addQuietly(Block block)
+	private void catchUpTransactionIndexInBackground()
 	{
-		blocks.add(block);
-		unspentTransactionOutputs.apply(block.transaction());
-		return this;
+		if (transactionIndex.height() < tip.height)
+		{
+			new ThreadFactoryBuilder()
+				.setNameFormat("transaction-index")
+				.setDaemon(true)
+				.build()
+				.newThread(this::catchUpTransactionIndex)
+				.start();
+		}
+	}
+	
+	// indexes each block under a read stamp, so that the index never sees a block that a reorganization is removing
+	private void catchUpTransactionIndex()
+	{
+		while (read(() -> transactionIndex.indexNext(blocks, tip.height)))
+		{
+			// index the next block
+		}
+	}
+	
+	private <T> Iterable<T> range(int from, int limit, IntFunction<T> reader, BiPredicate<T, T> follows)
+	{
+		checkArgument(from >= 0, "Invalid from height: %s", from);
+		checkArgument(limit >= 0, "Invalid limit: %s", limit);
+		
+		int to = (int) Math.min((long) from + limit, tip.height);
+		
+		return () -> new RangeIterator<>(reader, follows, from, Math.max(from, to));
+	}
+	
+	private <T> Optional<T> readTransaction(Hash256 transactionId, BiFunction<Block, TransactionLocation, T> reader)
+	{
+		return transactionIndex.find(transactionId, tip.height)
+			.flatMap(location ->
+			{
+				Block block = blocks.get(location.height());
+				List<Transaction> transactions = block.transactions();
+				
+				return location.position() < transactions.size()
+					&& transactions.get(location.position()).id().equals(transactionId)
+					? Optional.of(reader.apply(block, location))
+					: Optional.empty();
+			});
+	}
+	
+	private Optional<UnspentTransactionOutputsSnapshot> latestSnapshot()
+	{
+		return snapshots.latest()
+			.filter(snapshot -> blocks.heightOf(snapshot.blockHash()).equals(OptionalInt.of(snapshot.height() - 1)));
+	}
+	
+	private int restoreSnapshot(UnspentTransactionOutputsSnapshot snapshot)
+	{
+		snapshot.unspentTransactionOutputs().forEach(unspentTransactionOutputs::add);
+		
+		int height = snapshot.height() - snapshot.undoRecords().size();
+		Difficulty difficulty = difficultyAdjustment.difficulty(height, this::timestamp);
+		
+		for (List<UnspentTransactionOutput> spentOutputs : snapshot.undoRecords())
+		{
+			pushUndoRecord(new UndoRecord(spentOutputs, difficulty));
+			difficulty = difficulty.next(timestamp(height++));
+		}
+		
+		return snapshot.height();
+	}
+	
+	private void saveSnapshotIfDue()
+	{
+		if (snapshots.interval() > 0 && tip.height % snapshots.interval() == 0)
+		{
+			saveSnapshot();
+		}
+	}
+	
+	private void saveSnapshot()
+	{
+		try
+		{
+			List<List<UnspentTransactionOutput>> spentOutputs = new ArrayList<>();
+			undoRecords.forEach(undoRecord -> spentOutputs.add(undoRecord.spentOutputs));
+			
+			snapshots.save(new UnspentTransactionOutputsSnapshot(tip.height, tip.block.hash(),
+				unspentTransactionOutputs.size(), unspentTransactionOutputs.all(), spentOutputs));
+		}
+		catch (HobcoinException exception)
+		{
+			LOG.log(WARNING, "Error saving snapshot at height " + tip.height, exception);
+		}
+	}
+	
+	private void addQuietly(Block block, Difficulty difficulty)
+	{
+		blocks.append(block);
+		transactionIndex.add(blocks.height() - 1, block);
+		
+		long stamp = unspentTransactionOutputsLock.writeLock();
+		
+		try
+		{
+			pushUndoRecord(new UndoRecord(unspentTransactionOutputs.apply(block), difficulty));
+			tip = new Tip(blocks.height(), block, difficulty.next(block.timestamp()));
+		}
+		catch (HobcoinException exception)
+		{
+			// the unspent outputs reject a block that does not fit before changing any output
+			truncate(blocks.height() - 1);
+			throw exception;
+		}
+		finally
+		{
+			unspentTransactionOutputsLock.unlockWrite(stamp);
+		}
+	}
+	
+	private long timestamp(int height)
+	{
+		return blocks.get(height).timestamp();
+	}
+	
+	private <T> T read(Supplier<T> reader)
+	{
+		long stamp = unspentTransactionOutputsLock.readLock();
+		
+		try
+		{
+			return reader.get();
+		}
+		finally
+		{
+			unspentTransactionOutputsLock.unlockRead(stamp);
+		}
+	}
+	
+	private static BigInteger work(Stream<Difficulty> difficulties)
+	{
+		return difficulties
+			.map(difficulty -> difficulty.target().work())
+			.reduce(BigInteger.ZERO, BigInteger::add);
 	}
 	
 	private static Block newGenesisBlock(PublicKey recipient, long amount)
 	{
-		TransactionInput input = new TransactionInput(new TransactionOutputPoint("0", 0));
+		TransactionInput input = new TransactionInput(new TransactionOutputPoint(Hash256.ZERO, 0));
 		TransactionOutput output = new TransactionOutput(recipient, amount);
 		Transaction transaction = new Transaction(singletonList(input), singletonList(output));
-		return new Block(transaction, "0");
+		return new Block(singletonList(transaction), Hash256.ZERO, GENESIS_TIMESTAMP, 0);
 	}
 }
@@ -0,0 +1,38 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+/**
+ * Listens to blocks being added to and removed from a blockchain.
+ */
+public interface BlockchainListener
+{
+	/**
+	 * Notifies this listener that the specified block has been validated and added to the end of the blockchain.
+	 * 
+	 * @param block the added block
+	 */
+	void blockAdded(Block block);
+	
+	/**
+	 * Notifies this listener that the specified block has been removed from the end of the blockchain, because the
+	 * blockchain has reorganized to a branch with more work. The blocks of the new branch are then notified as added.
+	 * 
+	 * @param block the removed block
+	 */
+	default void blockRemoved(Block block)
+	{
+		// no-op
+	}
+}
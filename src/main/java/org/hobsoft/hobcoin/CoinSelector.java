@@ -0,0 +1,37 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Selects which of an owner's unspent transaction outputs to spend as the inputs of a transaction.
+ * <p>
+ * Every input is a signature for the sender to create and for every node to verify, so selectors aim to spend few
+ * outputs and leave little change.
+ * 
+ * @see StandardCoinSelector
+ */
+public interface CoinSelector
+{
+	/**
+	 * Selects unspent transaction outputs that together amount to at least the specified amount.
+	 * 
+	 * @param unspentOutputs the owner's unspent transaction outputs, largest amount first
+	 * @param amount the amount to select
+	 * @return the selected outputs, or empty if all of the outputs do not amount to enough
+	 */
+	Optional<List<UnspentTransactionOutput>> select(List<UnspentTransactionOutput> unspentOutputs, long amount);
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.util.Arrays;
+
+/**
+ * The target that a block must be mined to and the earliest timestamp that it can have, given the blocks below it.
+ * <p>
+ * Both are derived from the timestamps of earlier blocks by a {@link DifficultyAdjustment}. An instance holds just
+ * enough of those timestamps, being the first of the current window and the last {@value #MEDIAN_TIMESTAMP_SPAN}, to
+ * derive the difficulty of the next block in constant time without reading any earlier blocks.
+ */
+public final class Difficulty
+{
+	/**
+	 * The number of previous blocks whose median timestamp a block's timestamp must not be earlier than.
+	 */
+	public static final int MEDIAN_TIMESTAMP_SPAN = 11;
+	
+	private final DifficultyAdjustment adjustment;
+	
+	private final int height;
+	
+	private final Target target;
+	
+	private final long windowStart;
+	
+	private final long[] recentTimestamps;
+	
+	Difficulty(DifficultyAdjustment adjustment, int height, Target target, long windowStart, long[] recentTimestamps)
+	{
+		this.adjustment = adjustment;
+		this.height = height;
+		this.target = target;
+		this.windowStart = windowStart;
+		this.recentTimestamps = recentTimestamps;
+	}
+	
+	/**
+	 * Gets the zero-based height of the block that this difficulty applies to.
+	 * 
+	 * @return the height
+	 */
+	public int height()
+	{
+		return height;
+	}
+	
+	public Target target()
+	{
+		return target;
+	}
+	
+	/**
+	 * Gets the earliest timestamp that the block can have, being the median timestamp of the last
+	 * {@value #MEDIAN_TIMESTAMP_SPAN} blocks below it.
+	 * 
+	 * @return the earliest timestamp
+	 */
+	public long minimumTimestamp()
+	{
+		if (recentTimestamps.length == 0)
+		{
+			return Long.MIN_VALUE;
+		}
+		
+		long[] sortedTimestamps = recentTimestamps.clone();
+		Arrays.sort(sortedTimestamps);
+		return sortedTimestamps[sortedTimestamps.length / 2];
+	}
+	
+	/**
+	 * Gets the difficulty of the block after the block that this difficulty applies to.
+	 * 
+	 * @param timestamp the timestamp of the block that this difficulty applies to
+	 * @return the difficulty of the next block
+	 */
+	public Difficulty next(long timestamp)
+	{
+		long nextWindowStart = adjustment.isWindowStart(height) ? timestamp : windowStart;
+		Target nextTarget = adjustment.isWindowEnd(height)
+			? adjustment.adjust(target, timestamp - nextWindowStart)
+			: target;
+		
+		long[] nextRecentTimestamps = Arrays.copyOfRange(recentTimestamps,
+			recentTimestamps.length < MEDIAN_TIMESTAMP_SPAN ? 0 : 1, recentTimestamps.length + 1);
+		nextRecentTimestamps[nextRecentTimestamps.length - 1] = timestamp;
+		
+		return new Difficulty(adjustment, height + 1, nextTarget, nextWindowStart, nextRecentTimestamps);
+	}
+}
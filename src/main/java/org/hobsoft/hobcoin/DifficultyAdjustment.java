@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.time.Duration;
+import java.util.function.IntToLongFunction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The rules by which the target that blocks must be mined to is adjusted to keep blocks evenly spaced in time.
+ * <p>
+ * The blocks after the genesis block are grouped into windows of a fixed number of blocks. Every block in the first
+ * window is mined to the initial target, and every block in each later window is mined to the previous window's
+ * target scaled by how long the previous window took, from its first block's timestamp to its last, compared with the
+ * expected spacing between its blocks. The scaling is limited to a factor of {@value #MAX_FACTOR} either way, so that
+ * a few manipulated timestamps cannot swing the target far.
+ */
+public final class DifficultyAdjustment
+{
+	/**
+	 * The maximum factor by which the target can change from one window to the next.
+	 */
+	public static final int MAX_FACTOR = 4;
+	
+	private final Target initialTarget;
+	
+	private final int interval;
+	
+	private final Duration spacing;
+	
+	private DifficultyAdjustment(Target initialTarget, int interval, Duration spacing)
+	{
+		this.initialTarget = initialTarget;
+		this.interval = interval;
+		this.spacing = spacing;
+	}
+	
+	public Target initialTarget()
+	{
+		return initialTarget;
+	}
+	
+	public int interval()
+	{
+		return interval;
+	}
+	
+	public Duration spacing()
+	{
+		return spacing;
+	}
+	
+	/**
+	 * Gets the difficulty of the block at the specified height from the timestamps of the blocks below it.
+	 * <p>
+	 * Only the timestamps of the first and last block of each window and of the last
+	 * {@value Difficulty#MEDIAN_TIMESTAMP_SPAN} blocks are read, so this is used to rebuild the difficulty of an
+	 * existing blockchain, after which each block's difficulty is derived from the previous one with
+	 * {@link Difficulty#next(long)}.
+	 * 
+	 * @param height the zero-based height of the block
+	 * @param timestamps the timestamps of the blocks below the height, by height
+	 * @return the difficulty
+	 */
+	public Difficulty difficulty(int height, IntToLongFunction timestamps)
+	{
+		checkArgument(height >= 0, "Invalid height: %s", height);
+		
+		Target target = initialTarget;
+		long windowStart = 0;
+		
+		if (interval > 0)
+		{
+			for (int end = interval; end < height; end += interval)
+			{
+				target = adjust(target, timestamps.applyAsLong(end) - timestamps.applyAsLong(end - interval + 1));
+			}
+			
+			if (height > 1)
+			{
+				windowStart = timestamps.applyAsLong(height - 1 - (height - 2) % interval);
+			}
+		}
+		
+		long[] recentTimestamps = new long[Math.min(height, Difficulty.MEDIAN_TIMESTAMP_SPAN)];
+		
+		for (int index = 0; index < recentTimestamps.length; index++)
+		{
+			recentTimestamps[index] = timestamps.applyAsLong(height - recentTimestamps.length + index);
+		}
+		
+		return new Difficulty(this, height, target, windowStart, recentTimestamps);
+	}
+	
+	boolean isWindowStart(int height)
+	{
+		return interval > 0 && height % interval == 1;
+	}
+	
+	boolean isWindowEnd(int height)
+	{
+		return interval > 0 && height > 0 && height % interval == 0;
+	}
+	
+	Target adjust(Target target, long timespan)
+	{
+		long expectedTimespan = (interval - 1) * spacing.toMillis();
+		long minTimespan = expectedTimespan / MAX_FACTOR;
+		long maxTimespan = expectedTimespan * MAX_FACTOR;
+		
+		return target.scale(Math.max(minTimespan, Math.min(timespan, maxTimespan)), expectedTimespan);
+	}
+	
+	/**
+	 * Creates rules that keep every block at the same target.
+	 * 
+	 * @param target the target
+	 * @return the rules
+	 */
+	public static DifficultyAdjustment fixed(Target target)
+	{
+		return new DifficultyAdjustment(target, 0, Duration.ZERO);
+	}
+	
+	/**
+	 * Creates rules that adjust the target every number of blocks.
+	 * 
+	 * @param initialTarget the target of the first window
+	 * @param interval the number of blocks in a window
+	 * @param spacing the expected time between blocks
+	 * @return the rules
+	 */
+	public static DifficultyAdjustment of(Target initialTarget, int interval, Duration spacing)
+	{
+		checkArgument(interval >= 2, "Invalid interval: %s", interval);
+		checkArgument(spacing.toMillis() > 0, "Invalid spacing: %s", spacing);
+		
+		return new DifficultyAdjustment(initialTarget, interval, spacing);
+	}
+}
@@ -0,0 +1,302 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Collections.emptyList;
+import static java.util.Comparator.naturalOrder;
+import static java.util.logging.Level.INFO;
+import static java.util.logging.Level.WARNING;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Snapshot storage that writes each snapshot to a file.
+ * <p>
+ * A snapshot file is a version byte, the block hash, the height and the count of unspent transaction outputs, followed
+ * by the count of undo records, each being a count of spent outputs followed by the outputs, then the unspent outputs,
+ * all encoded by {@link BlockCodec}, and finally a CRC-32 of everything before it. Snapshots of the earlier version,
+ * without undo records, are still read. Each snapshot is written to a
+ * temporary file that is then atomically renamed, so that a crash while saving leaves the previous snapshot in place.
+ * A snapshot file that fails its checksum or has an unsupported version is ignored. Unspent transaction outputs are
+ * only decoded as a restored snapshot is iterated over.
+ */
+public class FileSnapshotStore implements SnapshotStore
+{
+	public static final int DEFAULT_INTERVAL = 1000;
+	
+	private static final Logger LOG = Logger.getLogger(FileSnapshotStore.class.getName());
+	
+	private static final int VERSION = 2;
+	
+	private static final int NO_UNDO_RECORDS_VERSION = 1;
+	
+	private static final String SNAPSHOT_FILE_FORMAT = "utxos-%010d.dat";
+	
+	private static final String SNAPSHOT_FILE_GLOB = "utxos-*.dat";
+	
+	private static final String TEMPORARY_FILE_NAME = "utxos.tmp";
+	
+	private static final int HEADER_LENGTH = 1 + Hash256.LENGTH + Integer.BYTES + Integer.BYTES;
+	
+	private static final int CHECKSUM_LENGTH = Integer.BYTES;
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private final Path directory;
+	
+	private final int interval;
+	
+	public FileSnapshotStore(Path directory)
+	{
+		this(directory, DEFAULT_INTERVAL);
+	}
+	
+	public FileSnapshotStore(Path directory, int interval)
+	{
+		checkArgument(interval > 0, "Invalid interval: %s", interval);
+		
+		this.directory = directory;
+		this.interval = interval;
+		
+		try
+		{
+			Files.createDirectories(directory);
+		}
+		catch (IOException exception)
+		{
+			throw new HobcoinException("Error creating snapshot store directory: " + directory, exception);
+		}
+	}
+	
+	@Override
+	public int interval()
+	{
+		return interval;
+	}
+	
+	@Override
+	public Optional<UnspentTransactionOutputsSnapshot> latest()
+	{
+		return snapshotPaths().stream()
+			.max(naturalOrder())
+			.flatMap(FileSnapshotStore::read);
+	}
+	
+	@Override
+	public void save(UnspentTransactionOutputsSnapshot snapshot)
+	{
+		Path temporaryPath = directory.resolve(TEMPORARY_FILE_NAME);
+		Path path = directory.resolve(String.format(SNAPSHOT_FILE_FORMAT, snapshot.height()));
+		
+		try
+		{
+			write(temporaryPath, snapshot);
+			Files.move(temporaryPath, path, ATOMIC_MOVE);
+			
+			for (Path previousPath : snapshotPaths())
+			{
+				if (!previousPath.equals(path))
+				{
+					Files.delete(previousPath);
+				}
+			}
+		}
+		catch (IOException exception)
+		{
+			throw new HobcoinException("Error saving snapshot: " + path, exception);
+		}
+		
+		LOG.log(INFO, "Saved snapshot at height {0}", snapshot.height());
+	}
+	
+	private List<Path> snapshotPaths()
+	{
+		List<Path> paths = new ArrayList<>();
+		
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SNAPSHOT_FILE_GLOB))
+		{
+			stream.forEach(paths::add);
+		}
+		catch (IOException exception)
+		{
+			throw new HobcoinException("Error listing snapshots: " + directory, exception);
+		}
+		
+		return paths;
+	}
+	
+	private static void write(Path path, UnspentTransactionOutputsSnapshot snapshot) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		CRC32 checksum = new CRC32();
+		
+		try (FileChannel channel = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING))
+		{
+			buffer.put((byte) VERSION);
+			snapshot.blockHash().writeTo(buffer);
+			buffer.putInt(snapshot.height());
+			buffer.putInt(snapshot.size());
+			buffer.putInt(snapshot.undoRecords().size());
+			
+			for (List<UnspentTransactionOutput> spentOutputs : snapshot.undoRecords())
+			{
+				if (buffer.remaining() < Integer.BYTES)
+				{
+					flush(channel, buffer, checksum);
+				}
+				
+				buffer.putInt(spentOutputs.size());
+				write(channel, buffer, checksum, spentOutputs);
+			}
+			
+			write(channel, buffer, checksum, snapshot.unspentTransactionOutputs());
+			
+			flush(channel, buffer, checksum);
+			buffer.putInt((int) checksum.getValue());
+			flush(channel, buffer, checksum);
+			channel.force(true);
+		}
+	}
+	
+	private static void write(FileChannel channel, ByteBuffer buffer, CRC32 checksum,
+		Iterable<UnspentTransactionOutput> unspentOutputs) throws IOException
+	{
+		for (UnspentTransactionOutput unspentOutput : unspentOutputs)
+		{
+			if (buffer.remaining() < BlockCodec.encodedLength(unspentOutput))
+			{
+				flush(channel, buffer, checksum);
+			}
+			
+			BlockCodec.encode(unspentOutput, buffer);
+		}
+	}
+	
+	private static void flush(FileChannel channel, ByteBuffer buffer, CRC32 checksum) throws IOException
+	{
+		buffer.flip();
+		checksum.update(buffer.array(), 0, buffer.limit());
+		
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+		
+		buffer.clear();
+	}
+	
+	private static Optional<UnspentTransactionOutputsSnapshot> read(Path path)
+	{
+		try
+		{
+			return Optional.of(decode(ByteBuffer.wrap(Files.readAllBytes(path))));
+		}
+		catch (IOException | HobcoinException | IllegalArgumentException | BufferUnderflowException exception)
+		{
+			LOG.log(WARNING, "Ignoring unreadable snapshot: " + path, exception);
+			return Optional.empty();
+		}
+	}
+	
+	private static UnspentTransactionOutputsSnapshot decode(ByteBuffer buffer)
+	{
+		int checksumOffset = buffer.limit() - CHECKSUM_LENGTH;
+		
+		if (checksumOffset < HEADER_LENGTH)
+		{
+			throw new HobcoinException("Truncated snapshot");
+		}
+		
+		CRC32 checksum = new CRC32();
+		checksum.update(buffer.array(), 0, checksumOffset);
+		
+		if ((int) checksum.getValue() != buffer.getInt(checksumOffset))
+		{
+			throw new HobcoinException("Invalid snapshot checksum");
+		}
+		
+		buffer.limit(checksumOffset);
+		
+		int version = buffer.get();
+		
+		if (version != VERSION && version != NO_UNDO_RECORDS_VERSION)
+		{
+			throw new HobcoinException("Unsupported snapshot version: " + version);
+		}
+		
+		Hash256 blockHash = Hash256.readFrom(buffer);
+		int height = buffer.getInt();
+		int size = buffer.getInt();
+		List<List<UnspentTransactionOutput>> undoRecords = version == NO_UNDO_RECORDS_VERSION
+			? emptyList()
+			: readUndoRecords(buffer);
+		ByteBuffer unspentOutputs = buffer.slice();
+		
+		return new UnspentTransactionOutputsSnapshot(height, blockHash, size, () ->
+		{
+			ByteBuffer unspentOutputsBuffer = unspentOutputs.duplicate();
+			
+			return Stream.generate(() -> BlockCodec.decodeUnspentTransactionOutput(unspentOutputsBuffer))
+				.limit(size)
+				.iterator();
+		}, undoRecords);
+	}
+	
+	private static List<List<UnspentTransactionOutput>> readUndoRecords(ByteBuffer buffer)
+	{
+		int count = readCount(buffer);
+		List<List<UnspentTransactionOutput>> undoRecords = new ArrayList<>(count);
+		
+		for (int index = 0; index < count; index++)
+		{
+			int spentCount = readCount(buffer);
+			List<UnspentTransactionOutput> spentOutputs = new ArrayList<>(spentCount);
+			
+			for (int spentIndex = 0; spentIndex < spentCount; spentIndex++)
+			{
+				spentOutputs.add(BlockCodec.decodeUnspentTransactionOutput(buffer));
+			}
+			
+			undoRecords.add(spentOutputs);
+		}
+		
+		return undoRecords;
+	}
+	
+	// each count is checked against the remaining bytes before anything is allocated for it
+	private static int readCount(ByteBuffer buffer)
+	{
+		int count = buffer.getInt();
+		checkArgument(count >= 0 && count <= buffer.remaining(), "Invalid count: %s", count);
+		return count;
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.nio.ByteBuffer;
+
+import com.google.common.hash.HashCode;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * An immutable 256-bit hash, such as a block hash or transaction id.
+ * <p>
+ * The hash is held as four big-endian 64-bit words rather than as hex so that it occupies 32 bytes and compares with
+ * four word comparisons. Hex is only produced by {@link #toString()}.
+ */
+public final class Hash256 implements Comparable<Hash256>
+{
+	public static final int LENGTH = 32;
+	
+	public static final Hash256 ZERO = new Hash256(0, 0, 0, 0);
+	
+	private final long word0;
+	
+	private final long word1;
+	
+	private final long word2;
+	
+	private final long word3;
+	
+	private final int hashCode;
+	
+	private Hash256(long word0, long word1, long word2, long word3)
+	{
+		this.word0 = word0;
+		this.word1 = word1;
+		this.word2 = word2;
+		this.word3 = word3;
+		
+		hashCode = calculateHashCode();
+	}
+	
+	public byte[] toBytes()
+	{
+		return writeTo(ByteBuffer.allocate(LENGTH)).array();
+	}
+	
+	public ByteBuffer writeTo(ByteBuffer buffer)
+	{
+		return buffer
+			.putLong(word0)
+			.putLong(word1)
+			.putLong(word2)
+			.putLong(word3);
+	}
+	
+	@Override
+	public int compareTo(Hash256 hash)
+	{
+		int comparison = Long.compareUnsigned(word0, hash.word0);
+		
+		if (comparison == 0)
+		{
+			comparison = Long.compareUnsigned(word1, hash.word1);
+		}
+		
+		if (comparison == 0)
+		{
+			comparison = Long.compareUnsigned(word2, hash.word2);
+		}
+		
+		if (comparison == 0)
+		{
+			comparison = Long.compareUnsigned(word3, hash.word3);
+		}
+		
+		return comparison;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return hashCode;
+	}
+	
+	@Override
+	public boolean equals(Object object)
+	{
+		if (!(object instanceof Hash256))
+		{
+			return false;
+		}
+		
+		Hash256 hash = (Hash256) object;
+		
+		return hashCode == hash.hashCode
+			&& word0 == hash.word0
+			&& word1 == hash.word1
+			&& word2 == hash.word2
+			&& word3 == hash.word3;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return HashCode.fromBytes(toBytes()).toString();
+	}
+	
+	long word(int index)
+	{
+		switch (index)
+		{
+			case 0:
+				return word0;
+			
+			case 1:
+				return word1;
+			
+			case 2:
+				return word2;
+			
+			case 3:
+				return word3;
+			
+			default:
+				throw new IndexOutOfBoundsException("Invalid word index: " + index);
+		}
+	}
+	
+	public static Hash256 of(byte[] bytes)
+	{
+		checkArgument(bytes.length == LENGTH, "Invalid hash length: %s", bytes.length);
+		
+		return readFrom(ByteBuffer.wrap(bytes));
+	}
+	
+	public static Hash256 readFrom(ByteBuffer buffer)
+	{
+		return new Hash256(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+	}
+	
+	static Hash256 of(long word0, long word1, long word2, long word3)
+	{
+		return new Hash256(word0, word1, word2, word3);
+	}
+	
+	public static Hash256 fromString(String hex)
+	{
+		return of(HashCode.fromString(hex).asBytes());
+	}
+	
+	private int calculateHashCode()
+	{
+		return Long.hashCode(word0 ^ word1 ^ word2 ^ word3);
+	}
+}
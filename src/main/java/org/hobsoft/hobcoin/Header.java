@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+/**
+ * The header of a block, being everything that its hash covers without its transactions.
+ * <p>
+ * A chain of headers can be checked for linkage and proof of work without downloading any transactions, and a block
+ * downloaded later can be checked against its header by hash, since the hash covers the Merkle root of its
+ * transactions.
+ */
+public final class Header
+{
+	private final Hash256 previousHash;
+	
+	private final Hash256 merkleRoot;
+	
+	private final long timestamp;
+	
+	private final int nonce;
+	
+	private final Hash256 hash;
+	
+	Header(Hash256 previousHash, Hash256 merkleRoot, long timestamp, int nonce)
+	{
+		this.previousHash = previousHash;
+		this.merkleRoot = merkleRoot;
+		this.timestamp = timestamp;
+		this.nonce = nonce;
+		
+		hash = Hash256.of(new BlockHeader(previousHash, merkleRoot, timestamp).hash(nonce));
+	}
+	
+	public Hash256 previousHash()
+	{
+		return previousHash;
+	}
+	
+	public Hash256 merkleRoot()
+	{
+		return merkleRoot;
+	}
+	
+	public long timestamp()
+	{
+		return timestamp;
+	}
+	
+	public int nonce()
+	{
+		return nonce;
+	}
+	
+	public Hash256 hash()
+	{
+		return hash;
+	}
+	
+	public boolean follows(Header previous)
+	{
+		return previous.hash().equals(previousHash);
+	}
+	
+	public boolean isMined(Target target)
+	{
+		return target.isMetBy(hash);
+	}
+	
+	/**
+	 * Gets whether the specified block is the one that this header belongs to.
+	 * 
+	 * @param block the block
+	 * @return {@code true} if the block's hash is this header's hash
+	 */
+	public boolean isHeaderOf(Block block)
+	{
+		return hash.equals(block.hash());
+	}
+	
+	public static Header of(Block block)
+	{
+		return new Header(block.previousHash(), block.merkleRoot(), block.timestamp(), block.nonce());
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Unspent transaction outputs held on the heap in hash maps.
+ * <p>
+ * Outputs are also indexed by owner together with a running balance, so that finding an owner's outputs or balance
+ * costs time in proportion to that owner's outputs rather than to all outputs. Not thread-safe; {@link Blockchain}
+ * guards access to its instance.
+ */
+class HeapUnspentTransactionOutputs implements UnspentTransactionOutputs
+{
+	/**
+	 * The unspent transaction outputs and balance of a single owner.
+	 */
+	private static class OwnerUnspentOutputs
+	{
+		private final Map<TransactionOutputPoint, UnspentTransactionOutput> unspentOutputs = new LinkedHashMap<>();
+		
+		private long balance;
+		
+		void add(UnspentTransactionOutput unspentOutput)
+		{
+			unspentOutputs.put(unspentOutput.transactionOutputPoint(), unspentOutput);
+			balance += unspentOutput.amount();
+		}
+		
+		void remove(UnspentTransactionOutput unspentOutput)
+		{
+			unspentOutputs.remove(unspentOutput.transactionOutputPoint());
+			balance -= unspentOutput.amount();
+		}
+		
+		boolean isEmpty()
+		{
+			return unspentOutputs.isEmpty();
+		}
+	}
+	
+	private final Map<TransactionOutputPoint, UnspentTransactionOutput> unspentOutputs;
+	
+	private final Map<PublicKey, OwnerUnspentOutputs> unspentOutputsByOwner;
+	
+	HeapUnspentTransactionOutputs()
+	{
+		unspentOutputs = new HashMap<>();
+		unspentOutputsByOwner = new HashMap<>();
+	}
+	
+	@Override
+	public Optional<UnspentTransactionOutput> find(TransactionOutputPoint outputPoint)
+	{
+		return Optional.ofNullable(unspentOutputs.get(outputPoint));
+	}
+	
+	@Override
+	public List<UnspentTransactionOutput> find(PublicKey owner)
+	{
+		OwnerUnspentOutputs ownerUnspentOutputs = unspentOutputsByOwner.get(owner);
+		
+		return ownerUnspentOutputs != null
+			? new ArrayList<>(ownerUnspentOutputs.unspentOutputs.values())
+			: emptyList();
+	}
+	
+	@Override
+	public long balance(PublicKey owner)
+	{
+		OwnerUnspentOutputs ownerUnspentOutputs = unspentOutputsByOwner.get(owner);
+		
+		return ownerUnspentOutputs != null
+			? ownerUnspentOutputs.balance
+			: 0;
+	}
+	
+	@Override
+	public int size()
+	{
+		return unspentOutputs.size();
+	}
+	
+	@Override
+	public Iterable<UnspentTransactionOutput> all()
+	{
+		return () -> unspentOutputsByOwner.values().stream()
+			.flatMap(ownerUnspentOutputs -> ownerUnspentOutputs.unspentOutputs.values().stream())
+			.iterator();
+	}
+	
+	@Override
+	public void add(UnspentTransactionOutput unspentOutput)
+	{
+		unspentOutputs.put(unspentOutput.transactionOutputPoint(), unspentOutput);
+		addToOwner(unspentOutput);
+	}
+	
+	@Override
+	public boolean remove(TransactionOutputPoint outputPoint)
+	{
+		UnspentTransactionOutput unspentOutput = unspentOutputs.remove(outputPoint);
+		
+		if (unspentOutput == null)
+		{
+			return false;
+		}
+		
+		removeFromOwner(unspentOutput);
+		return true;
+	}
+	
+	private void addToOwner(UnspentTransactionOutput unspentOutput)
+	{
+		unspentOutputsByOwner.computeIfAbsent(unspentOutput.recipient(), owner -> new OwnerUnspentOutputs())
+			.add(unspentOutput);
+	}
+	
+	private void removeFromOwner(UnspentTransactionOutput unspentOutput)
+	{
+		OwnerUnspentOutputs ownerUnspentOutputs = unspentOutputsByOwner.get(unspentOutput.recipient());
+		ownerUnspentOutputs.remove(unspentOutput);
+		
+		if (ownerUnspentOutputs.isEmpty())
+		{
+			unspentOutputsByOwner.remove(unspentOutput.recipient());
+		}
+	}
+}
@@ -0,0 +1,300 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+
+/**
+ * Block storage that appends blocks to memory-mapped segment files.
+ * <p>
+ * Each segment is a fixed-size file of records, where a record is the length of the encoded block, the block hash, the
+ * Merkle root of its transactions and then the block encoded by {@link BlockCodec}. A record's length is written last
+ * so that a partially written record is ignored, and a zero length marks the end of the segment. Reopening the store
+ * scans the record headers to rebuild the height and hash indexes without decoding any blocks. Blocks are encoded into
+ * and decoded directly from the mapped segments, and a block's header is read from the Merkle root and the start of the
+ * encoded block without decoding its transactions. A record never spans segments, so a block whose record is longer
+ * than a segment is rejected.
+ * <p>
+ * Truncating writes a zero length over the first removed record and over the start of any later segments, which are
+ * reused by later appends. Every record is followed by a zero length before its own length is written, so that the
+ * stale records beyond a shorter replacement are never scanned.
+ * <p>
+ * The writer stores a record before publishing its position through a volatile height and only then indexes its hash,
+ * so readers never see a partially written block.
+ */
+public class MappedBlockStore implements BlockStore
+{
+	private static final String SEGMENT_FILE_FORMAT = "blocks-%05d.dat";
+	
+	private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+	
+	private static final int RECORD_HEADER_LENGTH = Integer.BYTES + 2 * Hash256.LENGTH;
+	
+	private static final int SEGMENT_SHIFT = 32;
+	
+	private final Path directory;
+	
+	private final int segmentSize;
+	
+	private final List<MappedByteBuffer> segments;
+	
+	private final Map<Hash256, Integer> heightsByHash;
+	
+	private volatile long[] positions;
+	
+	private volatile int height;
+	
+	private int writeOffset;
+	
+	public MappedBlockStore(Path directory)
+	{
+		this(directory, DEFAULT_SEGMENT_SIZE);
+	}
+	
+	public MappedBlockStore(Path directory, int segmentSize)
+	{
+		checkArgument(segmentSize > RECORD_HEADER_LENGTH, "Invalid segment size: %s", segmentSize);
+		
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		
+		segments = new CopyOnWriteArrayList<>();
+		heightsByHash = new ConcurrentHashMap<>();
+		positions = new long[16];
+		
+		open();
+	}
+	
+	@Override
+	public int height()
+	{
+		return height;
+	}
+	
+	@Override
+	public Block get(int height)
+	{
+		checkElementIndex(height, this.height, "height");
+		
+		return BlockCodec.decodeBlock(record(positions[height]));
+	}
+	
+	@Override
+	public Header header(int height)
+	{
+		checkElementIndex(height, this.height, "height");
+		
+		long position = positions[height];
+		ByteBuffer recordHeader = segments.get((int) (position >>> SEGMENT_SHIFT)).duplicate();
+		recordHeader.position((int) position + Integer.BYTES + Hash256.LENGTH);
+		Hash256 merkleRoot = Hash256.readFrom(recordHeader);
+		
+		return BlockCodec.decodeBlockHeader(record(position), merkleRoot);
+	}
+	
+	@Override
+	public OptionalInt heightOf(Hash256 hash)
+	{
+		Integer height = heightsByHash.get(hash);
+		
+		return height != null ? OptionalInt.of(height) : OptionalInt.empty();
+	}
+	
+	@Override
+	public void append(Block block)
+	{
+		int encodedLength = BlockCodec.encodedLength(block);
+		int recordLength = RECORD_HEADER_LENGTH + encodedLength;
+		checkArgument(recordLength <= segmentSize, "Block too large for segment: %s", block.hash());
+		
+		if (writeOffset + recordLength > currentSegment().capacity())
+		{
+			newSegment();
+		}
+		
+		ByteBuffer record = currentSegment().duplicate();
+		record.position(writeOffset + Integer.BYTES);
+		block.hash().writeTo(record);
+		block.merkleRoot().writeTo(record);
+		BlockCodec.encode(block, record);
+		terminate(writeOffset + recordLength);
+		currentSegment().putInt(writeOffset, encodedLength);
+		
+		index(block.hash(), segments.size() - 1, writeOffset);
+		writeOffset += recordLength;
+	}
+	
+	@Override
+	public void truncate(int height)
+	{
+		checkPositionIndex(height, this.height, "height");
+		
+		if (height == this.height)
+		{
+			return;
+		}
+		
+		int previousHeight = this.height;
+		this.height = height;
+		
+		for (int index = height; index < previousHeight; index++)
+		{
+			heightsByHash.remove(recordHash(positions[index]), index);
+		}
+		
+		int segmentIndex = (int) (positions[height] >>> SEGMENT_SHIFT);
+		
+		while (segments.size() > segmentIndex + 1)
+		{
+			segments.remove(segments.size() - 1).putInt(0, 0);
+		}
+		
+		writeOffset = (int) positions[height];
+		currentSegment().putInt(writeOffset, 0);
+	}
+	
+	@Override
+	public void close()
+	{
+		segments.forEach(MappedByteBuffer::force);
+	}
+	
+	private void open()
+	{
+		try
+		{
+			Files.createDirectories(directory);
+		}
+		catch (IOException exception)
+		{
+			throw new HobcoinException("Error creating block store directory: " + directory, exception);
+		}
+		
+		while (Files.exists(segmentPath(segments.size())))
+		{
+			segments.add(mapSegment(segmentPath(segments.size())));
+			writeOffset = scanSegment(segments.size() - 1);
+		}
+		
+		if (segments.isEmpty())
+		{
+			newSegment();
+		}
+	}
+	
+	private int scanSegment(int segmentIndex)
+	{
+		MappedByteBuffer segment = segments.get(segmentIndex);
+		int offset = 0;
+		
+		while (offset + RECORD_HEADER_LENGTH <= segment.capacity() && segment.getInt(offset) > 0)
+		{
+			ByteBuffer recordHeader = segment.duplicate();
+			recordHeader.position(offset + Integer.BYTES);
+			index(Hash256.readFrom(recordHeader), segmentIndex, offset);
+			
+			offset += RECORD_HEADER_LENGTH + segment.getInt(offset);
+		}
+		
+		return offset;
+	}
+	
+	private void newSegment()
+	{
+		segments.add(mapSegment(segmentPath(segments.size())));
+		writeOffset = 0;
+	}
+	
+	private MappedByteBuffer currentSegment()
+	{
+		return segments.get(segments.size() - 1);
+	}
+	
+	private MappedByteBuffer mapSegment(Path path)
+	{
+		try (FileChannel channel = FileChannel.open(path, CREATE, READ, WRITE))
+		{
+			return channel.map(READ_WRITE, 0, Math.max(channel.size(), segmentSize));
+		}
+		catch (IOException exception)
+		{
+			throw new HobcoinException("Error mapping block store segment: " + path, exception);
+		}
+	}
+	
+	private Path segmentPath(int segmentIndex)
+	{
+		return directory.resolve(String.format(SEGMENT_FILE_FORMAT, segmentIndex));
+	}
+	
+	private void index(Hash256 hash, int segmentIndex, int offset)
+	{
+		int index = height;
+		
+		if (index == positions.length)
+		{
+			positions = Arrays.copyOf(positions, 2 * positions.length);
+		}
+		
+		positions[index] = (long) segmentIndex << SEGMENT_SHIFT | offset;
+		height = index + 1;
+		heightsByHash.put(hash, index);
+	}
+	
+	private void terminate(int offset)
+	{
+		if (offset + Integer.BYTES <= currentSegment().capacity())
+		{
+			currentSegment().putInt(offset, 0);
+		}
+	}
+	
+	private Hash256 recordHash(long position)
+	{
+		ByteBuffer recordHeader = segments.get((int) (position >>> SEGMENT_SHIFT)).duplicate();
+		recordHeader.position((int) position + Integer.BYTES);
+		return Hash256.readFrom(recordHeader);
+	}
+	
+	private ByteBuffer record(long position)
+	{
+		MappedByteBuffer segment = segments.get((int) (position >>> SEGMENT_SHIFT));
+		int offset = (int) position;
+		
+		ByteBuffer record = segment.duplicate();
+		record.position(offset + RECORD_HEADER_LENGTH);
+		record.limit(offset + RECORD_HEADER_LENGTH + segment.getInt(offset));
+		return record;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+
+/**
+ * Block storage that holds blocks in memory.
+ * <p>
+ * Blocks are held in an array that the writer grows by copying. The array and then the height are published through
+ * volatile writes, so a reader that sees a height also sees every block below it. Truncating lowers the height before
+ * clearing the removed blocks.
+ */
+public class MemoryBlockStore implements BlockStore
+{
+	private final Map<Hash256, Integer> heightsByHash;
+	
+	private volatile Block[] blocks;
+	
+	private volatile int height;
+	
+	public MemoryBlockStore()
+	{
+		heightsByHash = new ConcurrentHashMap<>();
+		blocks = new Block[16];
+	}
+	
+	@Override
+	public int height()
+	{
+		return height;
+	}
+	
+	@Override
+	public Block get(int height)
+	{
+		checkElementIndex(height, this.height, "height");
+		
+		return blocks[height];
+	}
+	
+	@Override
+	public OptionalInt heightOf(Hash256 hash)
+	{
+		Integer height = heightsByHash.get(hash);
+		
+		return height != null ? OptionalInt.of(height) : OptionalInt.empty();
+	}
+	
+	@Override
+	public void append(Block block)
+	{
+		int index = height;
+		
+		if (index == blocks.length)
+		{
+			blocks = Arrays.copyOf(blocks, 2 * blocks.length);
+		}
+		
+		blocks[index] = block;
+		height = index + 1;
+		heightsByHash.put(block.hash(), index);
+	}
+	
+	@Override
+	public void truncate(int height)
+	{
+		checkPositionIndex(height, this.height, "height");
+		
+		int previousHeight = this.height;
+		this.height = height;
+		
+		for (int index = height; index < previousHeight; index++)
+		{
+			heightsByHash.remove(blocks[index].hash(), index);
+			blocks[index] = null;
+		}
+	}
+	
+	@Override
+	public void close()
+	{
+		// no-op
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.hash.Hashing;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Calculates the Merkle root that commits a block header to the block's ordered list of transactions.
+ * <p>
+ * Leaves are transaction ids. Each level hashes adjacent pairs of the level below, repeating the last hash when a level
+ * has an odd number of hashes, until a single root remains. The root of a single transaction is its id, so a block of
+ * one transaction hashes as it did before blocks held more than one.
+ */
+final class MerkleTree
+{
+	private MerkleTree()
+	{
+		throw new AssertionError();
+	}
+	
+	static Hash256 root(List<Hash256> leaves)
+	{
+		checkArgument(!leaves.isEmpty(), "No Merkle tree leaves");
+		
+		List<Hash256> level = leaves;
+		
+		while (level.size() > 1)
+		{
+			List<Hash256> parents = new ArrayList<>((level.size() + 1) / 2);
+			
+			for (int index = 0; index < level.size(); index += 2)
+			{
+				Hash256 left = level.get(index);
+				Hash256 right = index + 1 < level.size() ? level.get(index + 1) : left;
+				parents.add(parent(left, right));
+			}
+			
+			level = parents;
+		}
+		
+		return level.get(0);
+	}
+	
+	private static Hash256 parent(Hash256 left, Hash256 right)
+	{
+		return Hash256.of(Hashing.sha256()
+			.newHasher(2 * Hash256.LENGTH)
+			.putBytes(left.toBytes())
+			.putBytes(right.toBytes())
+			.hash()
+			.asBytes()
+		);
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import static java.util.logging.Level.INFO;
+import static java.util.stream.Collectors.toList;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Mines blocks by searching the nonce space in parallel across a pool of worker threads.
+ * <p>
+ * Workers claim consecutive batches of nonces in ascending order and every worker keeps searching until no unclaimed
+ * nonce lower than the best one found remains. The winning nonce is therefore always the lowest valid nonce, which is
+ * the same nonce that {@link Block#mine(Target)} finds sequentially.
+ * <p>
+ * Mining can be cancelled, in which case workers stop at the end of their current batch, and the number of hashes
+ * calculated is counted per batch so that a hash rate can be sampled while mining.
+ */
+public class Miner implements AutoCloseable
+{
+	private static final Logger LOG = Logger.getLogger(Miner.class.getName());
+	
+	private static final int BATCH_SIZE = 1024;
+	
+	private static final long NOT_FOUND = Long.MAX_VALUE;
+	
+	private final int threads;
+	
+	private final ExecutorService executor;
+	
+	private final LongAdder hashes;
+	
+	public Miner()
+	{
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	public Miner(int threads)
+	{
+		checkArgument(threads > 0, "Invalid thread count: %s", threads);
+		
+		this.threads = threads;
+		
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+			.setNameFormat("miner-%d")
+			.setDaemon(true)
+			.build()
+		);
+		hashes = new LongAdder();
+	}
+	
+	public int threads()
+	{
+		return threads;
+	}
+	
+	/**
+	 * Gets the number of hashes that this miner has calculated.
+	 * 
+	 * @return the number of hashes, counted at the end of each worker's batch
+	 */
+	public long hashes()
+	{
+		return hashes.sum();
+	}
+	
+	/**
+	 * Mines the specified block to the specified target.
+	 * 
+	 * @param block the block to mine
+	 * @param target the target that the block's hash must meet
+	 * @return the mined block
+	 * @throws HobcoinException if no nonce meets the target, or mining is interrupted
+	 */
+	public Block mine(Block block, Target target)
+	{
+		return mine(block, target, () -> false)
+			.orElseThrow(() -> new IllegalStateException("Mining cancelled"));
+	}
+	
+	/**
+	 * Mines the specified block to the specified target unless cancelled.
+	 * 
+	 * @param block the block to mine
+	 * @param target the target that the block's hash must meet
+	 * @param cancelled whether mining has been cancelled, which is checked before each batch of nonces
+	 * @return the mined block, or empty if mining was cancelled before a nonce was found
+	 * @throws HobcoinException if no nonce meets the target, or mining is interrupted
+	 */
+	public Optional<Block> mine(Block block, Target target, BooleanSupplier cancelled)
+	{
+		LOG.log(INFO, "Mining to target {0} with {1} threads...", new Object[] {target, threads});
+		long start = System.currentTimeMillis();
+		
+		AtomicLong nextNonce = new AtomicLong();
+		AtomicLong foundNonce = new AtomicLong(NOT_FOUND);
+		
+		List<Callable<Void>> workers = IntStream.range(0, threads)
+			.mapToObj(index -> worker(block, target, nextNonce, foundNonce, cancelled, hashes))
+			.collect(toList());
+		
+		await(workers);
+		
+		if (foundNonce.get() == NOT_FOUND)
+		{
+			if (cancelled.getAsBoolean())
+			{
+				LOG.log(INFO, "Mining cancelled after {0}ms", System.currentTimeMillis() - start);
+				return Optional.empty();
+			}
+			
+			throw new HobcoinException("Nonce space exhausted");
+		}
+		
+		block.setNonce((int) foundNonce.get());
+		
+		LOG.log(INFO, "Mined block {0} in {1}ms", new Object[] {block.hash(), System.currentTimeMillis() - start});
+		
+		return Optional.of(block);
+	}
+	
+	@Override
+	public void close()
+	{
+		executor.shutdownNow();
+	}
+	
+	private void await(List<Callable<Void>> workers)
+	{
+		try
+		{
+			for (Future<Void> future : executor.invokeAll(workers))
+			{
+				future.get();
+			}
+		}
+		catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+			throw new HobcoinException("Mining interrupted", exception);
+		}
+		catch (ExecutionException exception)
+		{
+			throw new HobcoinException("Error mining block", exception.getCause());
+		}
+	}
+	
+	private static Callable<Void> worker(Block block, Target target, AtomicLong nextNonce, AtomicLong foundNonce,
+		BooleanSupplier cancelled, LongAdder hashes)
+	{
+		return () ->
+		{
+			BlockHeader header = block.header();
+			long batchStart = nextNonce.getAndAdd(BATCH_SIZE);
+			
+			while (batchStart < foundNonce.get() && batchStart <= Integer.MAX_VALUE && !cancelled.getAsBoolean())
+			{
+				long batchEnd = Math.min(batchStart + BATCH_SIZE, Integer.MAX_VALUE + 1L);
+				long nonce = batchStart;
+				
+				while (nonce < batchEnd && nonce < foundNonce.get())
+				{
+					if (target.isMetBy(header.hash(nonce)))
+					{
+						foundNonce.accumulateAndGet(nonce, Math::min);
+					}
+					
+					nonce++;
+				}
+				
+				hashes.add(nonce - batchStart);
+				batchStart = nextNonce.getAndAdd(BATCH_SIZE);
+			}
+			
+			return null;
+		};
+	}
+}
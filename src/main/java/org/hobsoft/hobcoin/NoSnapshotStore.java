@@ -0,0 +1,40 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.util.Optional;
+
+/**
+ * Snapshot storage that never saves snapshots, so that a reopened blockchain replays every block.
+ */
+public class NoSnapshotStore implements SnapshotStore
+{
+	@Override
+	public int interval()
+	{
+		return 0;
+	}
+	
+	@Override
+	public Optional<UnspentTransactionOutputsSnapshot> latest()
+	{
+		return Optional.empty();
+	}
+	
+	@Override
+	public void save(UnspentTransactionOutputsSnapshot snapshot)
+	{
+		// no-op
+	}
+}
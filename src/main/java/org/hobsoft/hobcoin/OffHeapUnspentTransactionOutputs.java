@@ -0,0 +1,451 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.PublicKey;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Unspent transaction outputs held off-heap in an open-addressing hash table.
+ * <p>
+ * Each output occupies a 64-byte slot of a direct buffer that holds its transaction id as four 64-bit words, output
+ * index, owner number, amount and the previous and next slots of its owner's outputs. Slots are found by linear probing
+ * from a hash of the transaction id and output index, and removed outputs leave tombstones until the table is next
+ * rebuilt. Owners are few compared to outputs and are held on the heap together with their balance and first and last
+ * slots, so that each owner's outputs are linked through the table in the order that they were received. Outputs are
+ * only created as objects when they are found.
+ * <p>
+ * The table holds at most {@value #MAXIMUM_CAPACITY} slots, and so at most half as many outputs, so that it can
+ * always be rebuilt in place to clear its tombstones. Applying a block checks that its outputs fit before changing any
+ * output, so that a block that would exceed the table is rejected rather than partly applied. Not thread-safe;
+ * {@link Blockchain} guards access to its instance.
+ */
+class OffHeapUnspentTransactionOutputs implements UnspentTransactionOutputs
+{
+	/**
+	 * The balance and linked outputs of a single owner.
+	 */
+	private static final class Owner
+	{
+		private final PublicKey key;
+		
+		private final int number;
+		
+		private long balance;
+		
+		private int head = NONE;
+		
+		private int tail = NONE;
+		
+		Owner(PublicKey key, int number)
+		{
+			this.key = key;
+			this.number = number;
+		}
+	}
+	
+	private static final int MAXIMUM_CAPACITY = 1 << 24;
+	
+	private static final int INITIAL_CAPACITY = 1 << 10;
+	
+	private static final int SLOT_SIZE = 64;
+	
+	private static final int TRANSACTION_OUTPUT_INDEX_OFFSET = Hash256.LENGTH;
+	
+	private static final int OWNER_OFFSET = TRANSACTION_OUTPUT_INDEX_OFFSET + Integer.BYTES;
+	
+	private static final int AMOUNT_OFFSET = OWNER_OFFSET + Integer.BYTES;
+	
+	private static final int PREVIOUS_OFFSET = AMOUNT_OFFSET + Long.BYTES;
+	
+	private static final int NEXT_OFFSET = PREVIOUS_OFFSET + Integer.BYTES;
+	
+	private static final int STATE_OFFSET = NEXT_OFFSET + Integer.BYTES;
+	
+	private static final int EMPTY = 0;
+	
+	private static final int FULL = 1;
+	
+	private static final int REMOVED = 2;
+	
+	private static final int NONE = -1;
+	
+	private final int maximumCapacity;
+	
+	private final Map<PublicKey, Owner> ownersByKey;
+	
+	private final List<Owner> owners;
+	
+	private final Deque<Integer> freeOwnerNumbers;
+	
+	private ByteBuffer slots;
+	
+	private int capacity;
+	
+	private int size;
+	
+	private int removed;
+	
+	OffHeapUnspentTransactionOutputs()
+	{
+		this(MAXIMUM_CAPACITY);
+	}
+	
+	OffHeapUnspentTransactionOutputs(int maximumCapacity)
+	{
+		this.maximumCapacity = maximumCapacity;
+		ownersByKey = new HashMap<>();
+		owners = new ArrayList<>();
+		freeOwnerNumbers = new ArrayDeque<>();
+		capacity = Math.min(INITIAL_CAPACITY, maximumCapacity);
+		slots = allocate(capacity);
+	}
+	
+	@Override
+	public Optional<UnspentTransactionOutput> find(TransactionOutputPoint outputPoint)
+	{
+		int slot = slotOf(outputPoint);
+		
+		return slot != NONE ? Optional.of(read(slot)) : Optional.empty();
+	}
+	
+	@Override
+	public List<UnspentTransactionOutput> find(PublicKey owner)
+	{
+		Owner ownerEntry = ownersByKey.get(owner);
+		
+		if (ownerEntry == null)
+		{
+			return emptyList();
+		}
+		
+		List<UnspentTransactionOutput> unspentOutputs = new ArrayList<>();
+		
+		for (int slot = ownerEntry.head; slot != NONE; slot = slots.getInt(offset(slot) + NEXT_OFFSET))
+		{
+			unspentOutputs.add(read(slot));
+		}
+		
+		return unspentOutputs;
+	}
+	
+	@Override
+	public long balance(PublicKey owner)
+	{
+		Owner ownerEntry = ownersByKey.get(owner);
+		
+		return ownerEntry != null
+			? ownerEntry.balance
+			: 0;
+	}
+	
+	@Override
+	public int size()
+	{
+		return size;
+	}
+	
+	@Override
+	public Iterable<UnspentTransactionOutput> all()
+	{
+		return () -> owners.stream()
+			.filter(Objects::nonNull)
+			.flatMap(owner -> find(owner.key).stream())
+			.iterator();
+	}
+	
+	@Override
+	public List<UnspentTransactionOutput> apply(Block block)
+	{
+		checkFits(block.transactions().stream()
+			.mapToInt(transaction -> transaction.outputs().size())
+			.sum());
+		
+		return UnspentTransactionOutputs.super.apply(block);
+	}
+	
+	@Override
+	public void add(UnspentTransactionOutput unspentOutput)
+	{
+		checkFits(1);
+		remove(unspentOutput.transactionOutputPoint());
+		
+		if (size + removed + 1 > capacity / 4 * 3)
+		{
+			rebuild(size + 1 > capacity / 2 ? 2 * capacity : capacity);
+		}
+		
+		Owner owner = ownersByKey.computeIfAbsent(unspentOutput.recipient(), this::newOwner);
+		TransactionOutputPoint outputPoint = unspentOutput.transactionOutputPoint();
+		int slot = freeSlot(outputPoint.transactionId(), outputPoint.transactionOutputIndex());
+		int offset = offset(slot);
+		
+		for (int index = 0; index < Hash256.LENGTH / Long.BYTES; index++)
+		{
+			slots.putLong(offset + index * Long.BYTES, outputPoint.transactionId().word(index));
+		}
+		
+		slots.putInt(offset + TRANSACTION_OUTPUT_INDEX_OFFSET, outputPoint.transactionOutputIndex());
+		slots.putInt(offset + OWNER_OFFSET, owner.number);
+		slots.putLong(offset + AMOUNT_OFFSET, unspentOutput.amount());
+		occupy(slot, owner);
+		
+		owner.balance += unspentOutput.amount();
+		size++;
+	}
+	
+	@Override
+	public boolean remove(TransactionOutputPoint outputPoint)
+	{
+		int slot = slotOf(outputPoint);
+		
+		if (slot == NONE)
+		{
+			return false;
+		}
+		
+		int offset = offset(slot);
+		Owner owner = owners.get(slots.getInt(offset + OWNER_OFFSET));
+		int previous = slots.getInt(offset + PREVIOUS_OFFSET);
+		int next = slots.getInt(offset + NEXT_OFFSET);
+		
+		link(owner, previous, next);
+		owner.balance -= slots.getLong(offset + AMOUNT_OFFSET);
+		slots.putInt(offset + STATE_OFFSET, REMOVED);
+		size--;
+		removed++;
+		
+		if (owner.head == NONE)
+		{
+			ownersByKey.remove(owner.key);
+			owners.set(owner.number, null);
+			freeOwnerNumbers.push(owner.number);
+		}
+		
+		return true;
+	}
+	
+	private void checkFits(int count)
+	{
+		if ((long) size + count > maximumCapacity / 2)
+		{
+			throw new HobcoinException("Too many unspent transaction outputs: " + size + " + " + count);
+		}
+	}
+	
+	private Owner newOwner(PublicKey key)
+	{
+		if (freeOwnerNumbers.isEmpty())
+		{
+			Owner owner = new Owner(key, owners.size());
+			owners.add(owner);
+			return owner;
+		}
+		
+		Owner owner = new Owner(key, freeOwnerNumbers.pop());
+		owners.set(owner.number, owner);
+		return owner;
+	}
+	
+	private int slotOf(TransactionOutputPoint outputPoint)
+	{
+		Hash256 transactionId = outputPoint.transactionId();
+		int transactionOutputIndex = outputPoint.transactionOutputIndex();
+		int slot = firstSlot(transactionId, transactionOutputIndex);
+		
+		while (true)
+		{
+			int offset = offset(slot);
+			int state = slots.getInt(offset + STATE_OFFSET);
+			
+			if (state == EMPTY)
+			{
+				return NONE;
+			}
+			
+			if (state == FULL && matches(offset, transactionId, transactionOutputIndex))
+			{
+				return slot;
+			}
+			
+			slot = (slot + 1) & (capacity - 1);
+		}
+	}
+	
+	private int freeSlot(Hash256 transactionId, int transactionOutputIndex)
+	{
+		int slot = firstSlot(transactionId, transactionOutputIndex);
+		
+		while (slots.getInt(offset(slot) + STATE_OFFSET) == FULL)
+		{
+			slot = (slot + 1) & (capacity - 1);
+		}
+		
+		if (slots.getInt(offset(slot) + STATE_OFFSET) == REMOVED)
+		{
+			removed--;
+		}
+		
+		return slot;
+	}
+	
+	private int firstSlot(Hash256 transactionId, int transactionOutputIndex)
+	{
+		int hash = (transactionId.hashCode() * 31 + transactionOutputIndex) * 0x9e3779b9;
+		
+		return (hash ^ hash >>> 16) & (capacity - 1);
+	}
+	
+	private boolean matches(int offset, Hash256 transactionId, int transactionOutputIndex)
+	{
+		if (slots.getInt(offset + TRANSACTION_OUTPUT_INDEX_OFFSET) != transactionOutputIndex)
+		{
+			return false;
+		}
+		
+		for (int index = 0; index < Hash256.LENGTH / Long.BYTES; index++)
+		{
+			if (slots.getLong(offset + index * Long.BYTES) != transactionId.word(index))
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	private void occupy(int slot, Owner owner)
+	{
+		int offset = offset(slot);
+		slots.putInt(offset + PREVIOUS_OFFSET, owner.tail);
+		slots.putInt(offset + NEXT_OFFSET, NONE);
+		slots.putInt(offset + STATE_OFFSET, FULL);
+		
+		if (owner.tail == NONE)
+		{
+			owner.head = slot;
+		}
+		else
+		{
+			slots.putInt(offset(owner.tail) + NEXT_OFFSET, slot);
+		}
+		
+		owner.tail = slot;
+	}
+	
+	private void link(Owner owner, int previous, int next)
+	{
+		if (previous == NONE)
+		{
+			owner.head = next;
+		}
+		else
+		{
+			slots.putInt(offset(previous) + NEXT_OFFSET, next);
+		}
+		
+		if (next == NONE)
+		{
+			owner.tail = previous;
+		}
+		else
+		{
+			slots.putInt(offset(next) + PREVIOUS_OFFSET, previous);
+		}
+	}
+	
+	private void rebuild(int newCapacity)
+	{
+		ByteBuffer oldSlots = slots;
+		slots = allocate(newCapacity);
+		capacity = newCapacity;
+		removed = 0;
+		
+		for (Owner owner : owners)
+		{
+			if (owner != null)
+			{
+				int oldSlot = owner.head;
+				owner.head = NONE;
+				owner.tail = NONE;
+				
+				while (oldSlot != NONE)
+				{
+					oldSlot = move(oldSlots, oldSlot, owner);
+				}
+			}
+		}
+	}
+	
+	private int move(ByteBuffer oldSlots, int oldSlot, Owner owner)
+	{
+		int oldOffset = offset(oldSlot);
+		Hash256 transactionId = readTransactionId(oldSlots, oldOffset);
+		int transactionOutputIndex = oldSlots.getInt(oldOffset + TRANSACTION_OUTPUT_INDEX_OFFSET);
+		int slot = freeSlot(transactionId, transactionOutputIndex);
+		
+		ByteBuffer slotContents = oldSlots.duplicate();
+		slotContents.limit(oldOffset + PREVIOUS_OFFSET).position(oldOffset);
+		slots.position(offset(slot));
+		slots.put(slotContents);
+		occupy(slot, owner);
+		
+		return oldSlots.getInt(oldOffset + NEXT_OFFSET);
+	}
+	
+	private UnspentTransactionOutput read(int slot)
+	{
+		int offset = offset(slot);
+		Hash256 transactionId = readTransactionId(slots, offset);
+		int transactionOutputIndex = slots.getInt(offset + TRANSACTION_OUTPUT_INDEX_OFFSET);
+		PublicKey recipient = owners.get(slots.getInt(offset + OWNER_OFFSET)).key;
+		long amount = slots.getLong(offset + AMOUNT_OFFSET);
+		
+		TransactionOutputPoint outputPoint = new TransactionOutputPoint(transactionId, transactionOutputIndex);
+		
+		return new UnspentTransactionOutput(outputPoint, recipient, amount);
+	}
+	
+	private static Hash256 readTransactionId(ByteBuffer slots, int offset)
+	{
+		return Hash256.of(
+			slots.getLong(offset),
+			slots.getLong(offset + Long.BYTES),
+			slots.getLong(offset + 2 * Long.BYTES),
+			slots.getLong(offset + 3 * Long.BYTES)
+		);
+	}
+	
+	private static int offset(int slot)
+	{
+		return slot * SLOT_SIZE;
+	}
+	
+	private static ByteBuffer allocate(int capacity)
+	{
+		return ByteBuffer.allocateDirect(capacity * SLOT_SIZE)
+			.order(ByteOrder.nativeOrder());
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+/**
+ * SHA-256 of a fixed prefix followed by a variable 64-bit suffix.
+ * <p>
+ * The complete 64-byte blocks of the prefix are compressed once into a midstate when constructed, so that each digest
+ * only compresses the final one or two blocks that contain the suffix. Digests are written into buffers owned by this
+ * instance and no memory is allocated per digest, hence instances are not thread-safe.
+ */
+final class Sha256
+{
+	static final int DIGEST_LENGTH = 32;
+	
+	private static final int BLOCK_LENGTH = 64;
+	
+	private static final int SUFFIX_LENGTH = Long.BYTES;
+	
+	private static final int[] K = {
+		0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+		0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+		0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+		0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+		0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+		0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+		0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+		0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2,
+	};
+	
+	private static final int[] INITIAL_STATE = {
+		0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19,
+	};
+	
+	private final int[] midstate;
+	
+	private final byte[] tail;
+	
+	private final int suffixOffset;
+	
+	private final int[] state;
+	
+	private final int[] schedule;
+	
+	private final byte[] digest;
+	
+	Sha256(byte[] prefix)
+	{
+		midstate = INITIAL_STATE.clone();
+		schedule = new int[BLOCK_LENGTH];
+		
+		int midstateLength = prefix.length - prefix.length % BLOCK_LENGTH;
+		
+		for (int offset = 0; offset < midstateLength; offset += BLOCK_LENGTH)
+		{
+			compress(midstate, prefix, offset, schedule);
+		}
+		
+		int remainderLength = prefix.length - midstateLength;
+		int tailLength = remainderLength + SUFFIX_LENGTH + 1 + Long.BYTES <= BLOCK_LENGTH
+			? BLOCK_LENGTH
+			: 2 * BLOCK_LENGTH;
+		
+		tail = new byte[tailLength];
+		System.arraycopy(prefix, midstateLength, tail, 0, remainderLength);
+		suffixOffset = remainderLength;
+		tail[suffixOffset + SUFFIX_LENGTH] = (byte) 0x80;
+		writeLong(tail, tailLength - Long.BYTES, (prefix.length + SUFFIX_LENGTH) * 8L);
+		
+		state = new int[INITIAL_STATE.length];
+		digest = new byte[DIGEST_LENGTH];
+	}
+	
+	/**
+	 * Calculates the SHA-256 digest of this instance's prefix followed by the specified suffix.
+	 * 
+	 * @param suffix the suffix to hash as 8 big-endian bytes
+	 * @return the digest, which is overwritten by the next call to this method
+	 */
+	byte[] digest(long suffix)
+	{
+		writeLong(tail, suffixOffset, suffix);
+		System.arraycopy(midstate, 0, state, 0, state.length);
+		
+		for (int offset = 0; offset < tail.length; offset += BLOCK_LENGTH)
+		{
+			compress(state, tail, offset, schedule);
+		}
+		
+		for (int index = 0; index < state.length; index++)
+		{
+			writeInt(digest, index * Integer.BYTES, state[index]);
+		}
+		
+		return digest;
+	}
+	
+	private static void compress(int[] state, byte[] block, int offset, int[] w)
+	{
+		expand(block, offset, w);
+		
+		int a = state[0];
+		int b = state[1];
+		int c = state[2];
+		int d = state[3];
+		int e = state[4];
+		int f = state[5];
+		int g = state[6];
+		int h = state[7];
+		
+		for (int t = 0; t < BLOCK_LENGTH; t++)
+		{
+			int t1 = h + bigSigma1(e) + choose(e, f, g) + K[t] + w[t];
+			int t2 = bigSigma0(a) + majority(a, b, c);
+			
+			h = g;
+			g = f;
+			f = e;
+			e = d + t1;
+			d = c;
+			c = b;
+			b = a;
+			a = t1 + t2;
+		}
+		
+		state[0] += a;
+		state[1] += b;
+		state[2] += c;
+		state[3] += d;
+		state[4] += e;
+		state[5] += f;
+		state[6] += g;
+		state[7] += h;
+	}
+	
+	private static void expand(byte[] block, int offset, int[] w)
+	{
+		for (int t = 0; t < 16; t++)
+		{
+			w[t] = readInt(block, offset + t * Integer.BYTES);
+		}
+		
+		for (int t = 16; t < BLOCK_LENGTH; t++)
+		{
+			int s0 = Integer.rotateRight(w[t - 15], 7) ^ Integer.rotateRight(w[t - 15], 18) ^ (w[t - 15] >>> 3);
+			int s1 = Integer.rotateRight(w[t - 2], 17) ^ Integer.rotateRight(w[t - 2], 19) ^ (w[t - 2] >>> 10);
+			w[t] = w[t - 16] + s0 + w[t - 7] + s1;
+		}
+	}
+	
+	private static int bigSigma0(int x)
+	{
+		return Integer.rotateRight(x, 2) ^ Integer.rotateRight(x, 13) ^ Integer.rotateRight(x, 22);
+	}
+	
+	private static int bigSigma1(int x)
+	{
+		return Integer.rotateRight(x, 6) ^ Integer.rotateRight(x, 11) ^ Integer.rotateRight(x, 25);
+	}
+	
+	private static int choose(int x, int y, int z)
+	{
+		return (x & y) ^ (~x & z);
+	}
+	
+	private static int majority(int x, int y, int z)
+	{
+		return (x & y) ^ (x & z) ^ (y & z);
+	}
+	
+	private static int readInt(byte[] bytes, int offset)
+	{
+		return (bytes[offset] << 24)
+			| ((bytes[offset + 1] & 0xff) << 16)
+			| ((bytes[offset + 2] & 0xff) << 8)
+			| (bytes[offset + 3] & 0xff);
+	}
+	
+	private static void writeInt(byte[] bytes, int offset, int value)
+	{
+		bytes[offset] = (byte) (value >>> 24);
+		bytes[offset + 1] = (byte) (value >>> 16);
+		bytes[offset + 2] = (byte) (value >>> 8);
+		bytes[offset + 3] = (byte) value;
+	}
+	
+	private static void writeLong(byte[] bytes, int offset, long value)
+	{
+		writeInt(bytes, offset, (int) (value >>> 32));
+		writeInt(bytes, offset + Integer.BYTES, (int) value);
+	}
+}
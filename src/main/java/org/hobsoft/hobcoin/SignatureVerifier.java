@@ -0,0 +1,142 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Verifies transaction input signatures in parallel across a bounded pool of worker threads.
+ * <p>
+ * The pool has a fixed number of threads and a bounded queue. When the queue is full the calling thread verifies the
+ * signature itself, so that a large block slows its submitter rather than growing the queue without limit.
+ */
+public class SignatureVerifier implements AutoCloseable
+{
+	private static final int QUEUE_CAPACITY_PER_THREAD = 64;
+	
+	private final int threads;
+	
+	private final ExecutorService executor;
+	
+	public SignatureVerifier()
+	{
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	public SignatureVerifier(int threads)
+	{
+		checkArgument(threads > 0, "Invalid thread count: %s", threads);
+		
+		this.threads = threads;
+		
+		executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(threads * QUEUE_CAPACITY_PER_THREAD),
+			new ThreadFactoryBuilder()
+				.setNameFormat("verifier-%d")
+				.setDaemon(true)
+				.build(),
+			new ThreadPoolExecutor.CallerRunsPolicy()
+		);
+	}
+	
+	public int threads()
+	{
+		return threads;
+	}
+	
+	/**
+	 * Verifies the signatures of the specified transaction inputs.
+	 * <p>
+	 * Verification stops at the first signature that cannot be verified and any verifications that have not yet
+	 * started are cancelled.
+	 * 
+	 * @param inputs the signed transaction inputs
+	 * @param addresses the addresses to verify each input's signature against, in the same order as the inputs
+	 * @return {@code true} if every signature was verified
+	 * @throws HobcoinException if verification fails or is interrupted
+	 */
+	public boolean verify(List<TransactionInput> inputs, List<PublicKey> addresses)
+	{
+		checkArgument(inputs.size() == addresses.size(), "Inputs and addresses differ in size");
+		
+		if (inputs.size() == 1)
+		{
+			return inputs.get(0).verify(addresses.get(0));
+		}
+		
+		CompletionService<Boolean> completionService = new ExecutorCompletionService<>(executor);
+		List<Future<Boolean>> futures = new ArrayList<>(inputs.size());
+		
+		try
+		{
+			for (int index = 0; index < inputs.size(); index++)
+			{
+				TransactionInput input = inputs.get(index);
+				PublicKey address = addresses.get(index);
+				futures.add(completionService.submit(() -> input.verify(address)));
+			}
+			
+			return await(completionService, futures.size());
+		}
+		finally
+		{
+			futures.forEach(future -> future.cancel(true));
+		}
+	}
+	
+	@Override
+	public void close()
+	{
+		executor.shutdownNow();
+	}
+	
+	private static boolean await(CompletionService<Boolean> completionService, int count)
+	{
+		try
+		{
+			for (int index = 0; index < count; index++)
+			{
+				if (!completionService.take().get())
+				{
+					return false;
+				}
+			}
+			
+			return true;
+		}
+		catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+			throw new HobcoinException("Signature verification interrupted", exception);
+		}
+		catch (ExecutionException exception)
+		{
+			throw new HobcoinException("Error verifying transaction input signature", exception.getCause());
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+
+/**
+ * Signs and verifies data with ECDSA using a {@code Signature} instance per thread.
+ * <p>
+ * Looking up a {@code Signature} from the security providers is comparatively slow, so each thread reuses its own
+ * instance. Initializing an instance for signing or verification resets any previous state, hence an instance left
+ * part-way through by an exception is safe to reuse.
+ */
+final class Signatures
+{
+	private static final String ALGORITHM = "SHA256withECDSA";
+	
+	private static final ThreadLocal<Signature> SIGNATURE = ThreadLocal.withInitial(Signatures::newSignature);
+	
+	private Signatures()
+	{
+		throw new AssertionError();
+	}
+	
+	static byte[] sign(PrivateKey privateKey, byte[] data) throws GeneralSecurityException
+	{
+		Signature signature = SIGNATURE.get();
+		signature.initSign(privateKey);
+		signature.update(data);
+		return signature.sign();
+	}
+	
+	static boolean verify(PublicKey publicKey, byte[] data, byte[] signatureBytes) throws GeneralSecurityException
+	{
+		Signature signature = SIGNATURE.get();
+		signature.initVerify(publicKey);
+		signature.update(data);
+		return signature.verify(signatureBytes);
+	}
+	
+	private static Signature newSignature()
+	{
+		try
+		{
+			return Signature.getInstance(ALGORITHM);
+		}
+		catch (GeneralSecurityException exception)
+		{
+			throw new HobcoinException("Error creating signature", exception);
+		}
+	}
+}
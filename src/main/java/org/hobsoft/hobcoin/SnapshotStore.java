@@ -0,0 +1,48 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.util.Optional;
+
+/**
+ * Storage for snapshots of the unspent transaction outputs of a blockchain.
+ * <p>
+ * A blockchain saves a snapshot every {@link #interval()} blocks as it grows, and on reopening it restores the latest
+ * snapshot and only replays the blocks after it.
+ */
+public interface SnapshotStore
+{
+	/**
+	 * Gets the number of blocks between snapshots.
+	 * 
+	 * @return the snapshot interval, or zero to never save snapshots
+	 */
+	int interval();
+	
+	/**
+	 * Gets the most recently saved snapshot.
+	 * 
+	 * @return the snapshot, or empty if no usable snapshot has been saved
+	 */
+	Optional<UnspentTransactionOutputsSnapshot> latest();
+	
+	/**
+	 * Saves the specified snapshot, replacing any earlier snapshot.
+	 * <p>
+	 * The snapshot's unspent transaction outputs must not change until this method returns.
+	 * 
+	 * @param snapshot the snapshot to save
+	 */
+	void save(UnspentTransactionOutputsSnapshot snapshot);
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The standard strategies for selecting unspent transaction outputs to spend.
+ * <p>
+ * Each strategy relies upon the outputs being ordered largest amount first, as provided by
+ * {@link Blockchain#unspentTransactionOutputs(java.security.PublicKey)}.
+ */
+public enum StandardCoinSelector implements CoinSelector
+{
+	/**
+	 * Selects the largest outputs until the amount is met.
+	 */
+	LARGEST_FIRST
+	{
+		@Override
+		public Optional<List<UnspentTransactionOutput>> select(List<UnspentTransactionOutput> unspentOutputs,
+			long amount)
+		{
+			int count = minimumCount(unspentOutputs, amount);
+			
+			return count != NONE
+				? Optional.of(new ArrayList<>(unspentOutputs.subList(0, count)))
+				: Optional.empty();
+		}
+	},
+	
+	/**
+	 * Selects as few outputs as possible and, of those, the ones that leave the least change.
+	 * <p>
+	 * The fewest outputs that can meet the amount are always the largest ones, so this starts from them and then
+	 * replaces each selected output, smallest first, with the smallest unselected output that still meets the amount.
+	 */
+	FEWEST_INPUTS
+	{
+		@Override
+		public Optional<List<UnspentTransactionOutput>> select(List<UnspentTransactionOutput> unspentOutputs,
+			long amount)
+		{
+			int count = minimumCount(unspentOutputs, amount);
+			
+			if (count == NONE)
+			{
+				return Optional.empty();
+			}
+			
+			boolean[] selected = new boolean[unspentOutputs.size()];
+			long excess = -amount;
+			
+			for (int index = 0; index < count; index++)
+			{
+				selected[index] = true;
+				excess += unspentOutputs.get(index).amount();
+			}
+			
+			for (int index = count - 1; index >= 0; index--)
+			{
+				long minimumReplacement = unspentOutputs.get(index).amount() - excess;
+				int replacement = smallestUnselected(unspentOutputs, selected, index + 1, minimumReplacement);
+				
+				if (replacement != NONE)
+				{
+					selected[index] = false;
+					selected[replacement] = true;
+					excess -= unspentOutputs.get(index).amount() - unspentOutputs.get(replacement).amount();
+				}
+			}
+			
+			return Optional.of(selected(unspentOutputs, selected));
+		}
+	},
+	
+	/**
+	 * Searches for outputs that exactly match the amount, so that no change is needed, falling back to
+	 * {@link #FEWEST_INPUTS} when there is no exact match.
+	 * <p>
+	 * The search is a depth-first branch-and-bound over whether to include each output, which abandons a branch once
+	 * it exceeds the amount or its remaining outputs cannot reach it. It gives up after {@value #MAXIMUM_TRIES} steps.
+	 */
+	BRANCH_AND_BOUND
+	{
+		@Override
+		public Optional<List<UnspentTransactionOutput>> select(List<UnspentTransactionOutput> unspentOutputs,
+			long amount)
+		{
+			Optional<List<UnspentTransactionOutput>> exactMatch = exactMatch(unspentOutputs, amount);
+			
+			return exactMatch.isPresent()
+				? exactMatch
+				: FEWEST_INPUTS.select(unspentOutputs, amount);
+		}
+	};
+	
+	private static final int NONE = -1;
+	
+	private static final int MAXIMUM_TRIES = 100_000;
+	
+	private static int minimumCount(List<UnspentTransactionOutput> unspentOutputs, long amount)
+	{
+		long total = 0;
+		
+		for (int index = 0; index < unspentOutputs.size(); index++)
+		{
+			if (total >= amount)
+			{
+				return index;
+			}
+			
+			total += unspentOutputs.get(index).amount();
+		}
+		
+		return total >= amount ? unspentOutputs.size() : NONE;
+	}
+	
+	private static int smallestUnselected(List<UnspentTransactionOutput> unspentOutputs, boolean[] selected, int from,
+		long minimumAmount)
+	{
+		int smallest = NONE;
+		
+		for (int index = from; index < unspentOutputs.size(); index++)
+		{
+			if (!selected[index] && unspentOutputs.get(index).amount() >= minimumAmount)
+			{
+				smallest = index;
+			}
+		}
+		
+		return smallest;
+	}
+	
+	private static Optional<List<UnspentTransactionOutput>> exactMatch(List<UnspentTransactionOutput> unspentOutputs,
+		long amount)
+	{
+		int size = unspentOutputs.size();
+		long[] remaining = new long[size + 1];
+		
+		for (int index = size - 1; index >= 0; index--)
+		{
+			remaining[index] = remaining[index + 1] + unspentOutputs.get(index).amount();
+		}
+		
+		Deque<Integer> included = new ArrayDeque<>();
+		int index = 0;
+		long total = 0;
+		
+		for (int tries = 0; tries < MAXIMUM_TRIES; tries++)
+		{
+			if (total == amount && !included.isEmpty())
+			{
+				boolean[] selected = new boolean[size];
+				included.forEach(includedIndex -> selected[includedIndex] = true);
+				return Optional.of(selected(unspentOutputs, selected));
+			}
+			
+			if (total < amount && total + remaining[index] >= amount)
+			{
+				included.push(index);
+				total += unspentOutputs.get(index).amount();
+				index++;
+			}
+			else if (included.isEmpty())
+			{
+				break;
+			}
+			else
+			{
+				int excluded = included.pop();
+				long excludedAmount = unspentOutputs.get(excluded).amount();
+				total -= excludedAmount;
+				
+				// excluding one output of an amount while including an equal one would repeat the same branch
+				index = excluded + 1;
+				while (index < size && unspentOutputs.get(index).amount() == excludedAmount)
+				{
+					index++;
+				}
+			}
+		}
+		
+		return Optional.empty();
+	}
+	
+	private static List<UnspentTransactionOutput> selected(List<UnspentTransactionOutput> unspentOutputs,
+		boolean[] selected)
+	{
+		List<UnspentTransactionOutput> selectedOutputs = new ArrayList<>();
+		
+		for (int index = 0; index < unspentOutputs.size(); index++)
+		{
+			if (selected[index])
+			{
+				selectedOutputs.add(unspentOutputs.get(index));
+			}
+		}
+		
+		return selectedOutputs;
+	}
+}
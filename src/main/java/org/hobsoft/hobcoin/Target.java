@@ -0,0 +1,184 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import com.google.common.base.Strings;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The proof-of-work difficulty that a block hash must meet, expressed as the maximum 256-bit hash value.
+ * <p>
+ * The target is held as four big-endian 64-bit words so that it can be compared directly against raw hash bytes.
+ */
+public final class Target
+{
+	private static final int BITS = 256;
+	
+	private static final int WORDS = BITS / Long.SIZE;
+	
+	private static final BigInteger MAX_VALUE = BigInteger.ONE.shiftLeft(BITS).subtract(BigInteger.ONE);
+	
+	private static final BigInteger WORK_NUMERATOR = BigInteger.ONE.shiftLeft(BITS);
+	
+	private final BigInteger value;
+	
+	private final long[] words;
+	
+	private Target(BigInteger value)
+	{
+		checkArgument(value.signum() >= 0 && value.compareTo(MAX_VALUE) <= 0, "Invalid target: %s", value);
+		
+		this.value = value;
+		
+		words = new long[WORDS];
+		
+		for (int index = 0; index < WORDS; index++)
+		{
+			words[index] = value.shiftRight(BITS - (index + 1) * Long.SIZE).longValue();
+		}
+	}
+	
+	public BigInteger value()
+	{
+		return value;
+	}
+	
+	/**
+	 * Gets the expected number of hashes needed to mine a block to this target.
+	 * <p>
+	 * The work of a chain of blocks is the sum of the work of its blocks, so that chains mined to different targets can
+	 * be compared by the effort that went into them rather than by their length.
+	 * 
+	 * @return the work, being 2<sup>256</sup> divided by one more than this target's value
+	 */
+	public BigInteger work()
+	{
+		return WORK_NUMERATOR.divide(value.add(BigInteger.ONE));
+	}
+	
+	/**
+	 * Gets this target scaled by the specified ratio, such that a larger ratio makes blocks easier to mine.
+	 * 
+	 * @param numerator the numerator of the ratio
+	 * @param denominator the denominator of the ratio
+	 * @return the scaled target, limited to the easiest target
+	 */
+	public Target scale(long numerator, long denominator)
+	{
+		checkArgument(numerator >= 0 && denominator > 0, "Invalid ratio: %s/%s", numerator, denominator);
+		
+		return new Target(value.multiply(BigInteger.valueOf(numerator)).divide(BigInteger.valueOf(denominator))
+			.min(MAX_VALUE));
+	}
+	
+	/**
+	 * Gets whether the specified hash meets this target.
+	 * 
+	 * @param hash the hash
+	 * @return {@code true} if the hash does not exceed this target
+	 */
+	public boolean isMetBy(Hash256 hash)
+	{
+		for (int index = 0; index < WORDS; index++)
+		{
+			int comparison = Long.compareUnsigned(hash.word(index), words[index]);
+			
+			if (comparison != 0)
+			{
+				return comparison < 0;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Gets whether the specified hash meets this target.
+	 * 
+	 * @param hash the 32 hash bytes
+	 * @return {@code true} if the hash, as an unsigned big-endian integer, does not exceed this target
+	 */
+	public boolean isMetBy(byte[] hash)
+	{
+		for (int index = 0; index < WORDS; index++)
+		{
+			int comparison = Long.compareUnsigned(readLong(hash, index * Long.BYTES), words[index]);
+			
+			if (comparison != 0)
+			{
+				return comparison < 0;
+			}
+		}
+		
+		return true;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode(words);
+	}
+	
+	@Override
+	public boolean equals(Object object)
+	{
+		if (!(object instanceof Target))
+		{
+			return false;
+		}
+		
+		Target target = (Target) object;
+		
+		return Arrays.equals(words, target.words);
+	}
+	
+	@Override
+	public String toString()
+	{
+		return Strings.padStart(value.toString(16), BITS / 4, '0');
+	}
+	
+	public static Target of(BigInteger value)
+	{
+		return new Target(value);
+	}
+	
+	public static Target ofLeadingZeroBits(int bits)
+	{
+		checkArgument(bits >= 0 && bits <= BITS, "Invalid leading zero bits: %s", bits);
+		
+		return new Target(MAX_VALUE.shiftRight(bits));
+	}
+	
+	public static Target ofLeadingZeroHexDigits(int digits)
+	{
+		return ofLeadingZeroBits(digits * 4);
+	}
+	
+	private static long readLong(byte[] bytes, int offset)
+	{
+		long value = 0;
+		
+		for (int index = offset; index < offset + Long.BYTES; index++)
+		{
+			value = value << Byte.SIZE | bytes[index] & 0xff;
+		}
+		
+		return value;
+	}
+}
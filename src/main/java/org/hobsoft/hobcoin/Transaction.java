@@ -18,7 +18,6 @@ import java.util.stream.IntStream;
 
 import com.google.common.hash.Hashing;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toList;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -28,7 +27,7 @@ import static com.google.common.base.Preconditions.checkArgument;
  */
 public class Transaction
 {
-	private final String id;
+	private final Hash256 id;
 	
 	private final List<TransactionInput> inputs;
 	
@@ -45,7 +44,7 @@ public class Transaction
 		id = calculateHash();
 	}
 	
-	public String id()
+	public Hash256 id()
 	{
 		return id;
 	}
@@ -88,14 +87,15 @@ public class Transaction
 			.sum();
 	}
 	
-	private String calculateHash()
+	private Hash256 calculateHash()
 	{
-		return Hashing.sha256()
+		return Hash256.of(Hashing.sha256()
 			.hashObject(this, (from, into) ->
 			{
-				inputs.forEach(input -> into.putString(input.hash(), UTF_8));
-				outputs.forEach(output -> into.putString(output.hash(), UTF_8));
+				inputs.forEach(input -> into.putBytes(input.hash().toBytes()));
+				outputs.forEach(output -> into.putBytes(output.hash().toBytes()));
 			})
-			.toString();
+			.asBytes()
+		);
 	}
 }
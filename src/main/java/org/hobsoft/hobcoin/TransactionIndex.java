@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An index of the transactions within a blockchain by id.
+ * <p>
+ * Each transaction id maps to its block height and position packed into a single {@code long}, so that finding a
+ * transaction costs one hash lookup at any chain height. A single writer indexes blocks while any number of threads
+ * look up transactions.
+ * <p>
+ * The index may lag behind the blocks, such as when a stored blockchain is reopened, in which case the lagging blocks
+ * are indexed one at a time by {@link #indexNext(BlockStore, int)}. Reopening therefore does not decode every block,
+ * and the blockchain can interleave indexing the lagging blocks with adding and removing blocks.
+ */
+class TransactionIndex
+{
+	private final Map<Hash256, Long> locationsById;
+	
+	private volatile int height;
+	
+	TransactionIndex()
+	{
+		locationsById = new ConcurrentHashMap<>();
+	}
+	
+	/**
+	 * Gets the number of blocks indexed.
+	 * 
+	 * @return the height of the next block to index
+	 */
+	public int height()
+	{
+		return height;
+	}
+	
+	/**
+	 * Finds the location of the transaction with the specified id within the indexed blocks.
+	 * 
+	 * @param transactionId the transaction id
+	 * @param toHeight the height to find the transaction below
+	 * @return the location, or empty if no indexed block below the height contains the transaction
+	 */
+	public Optional<TransactionLocation> find(Hash256 transactionId, int toHeight)
+	{
+		Long location = locationsById.get(transactionId);
+		
+		return location != null && (int) (location >>> Integer.SIZE) < toHeight
+			? Optional.of(new TransactionLocation((int) (location >>> Integer.SIZE), location.intValue()))
+			: Optional.empty();
+	}
+	
+	/**
+	 * Indexes the next block that lags behind, if any.
+	 * 
+	 * @param blocks the blocks to index from
+	 * @param toHeight the height to index up to
+	 * @return {@code true} if a block was indexed, or {@code false} if every block below the height is indexed
+	 */
+	public synchronized boolean indexNext(BlockStore blocks, int toHeight)
+	{
+		if (height >= toHeight)
+		{
+			return false;
+		}
+		
+		index(blocks.get(height));
+		return true;
+	}
+	
+	/**
+	 * Indexes the specified block if every block below it is already indexed.
+	 * 
+	 * @param blockHeight the height of the block
+	 * @param block the block
+	 */
+	public synchronized void add(int blockHeight, Block block)
+	{
+		if (blockHeight == height)
+		{
+			index(block);
+		}
+	}
+	
+	/**
+	 * Removes the transactions of every indexed block at and above the specified height, which must be called before
+	 * the blocks are removed from storage.
+	 * 
+	 * @param blockHeight the height of the first block to remove
+	 * @param blocks the blocks to find the transactions to remove in
+	 */
+	public synchronized void truncate(int blockHeight, BlockStore blocks)
+	{
+		while (height > blockHeight)
+		{
+			int previousHeight = height - 1;
+			List<Transaction> transactions = blocks.get(previousHeight).transactions();
+			
+			for (int position = 0; position < transactions.size(); position++)
+			{
+				locationsById.remove(transactions.get(position).id(), location(previousHeight, position));
+			}
+			
+			height = previousHeight;
+		}
+	}
+	
+	private void index(Block block)
+	{
+		List<Transaction> transactions = block.transactions();
+		
+		for (int position = 0; position < transactions.size(); position++)
+		{
+			locationsById.put(transactions.get(position).id(), location(height, position));
+		}
+		
+		height++;
+	}
+	
+	private static long location(int blockHeight, int position)
+	{
+		return (long) blockHeight << Integer.SIZE | position;
+	}
+}
@@ -13,18 +13,12 @@
  */
 package org.hobsoft.hobcoin;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
-import java.security.Signature;
 
 import com.google.common.hash.Hashing;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
 /**
  * An input to a transaction that is an output of a previous transaction signed by the sender.
  */
@@ -34,7 +28,9 @@ public class TransactionInput
 	
 	private final byte[] signature;
 	
-	private final String hash;
+	private final byte[] signingPayload;
+	
+	private final Hash256 hash;
 	
 	public TransactionInput(UnspentTransactionOutput unspentTransactionOutput)
 	{
@@ -46,10 +42,16 @@ public class TransactionInput
 		this(transactionOutputPoint, null);
 	}
 	
-	private TransactionInput(TransactionOutputPoint transactionOutputPoint, byte[] signature)
+	TransactionInput(TransactionOutputPoint transactionOutputPoint, byte[] signature)
+	{
+		this(transactionOutputPoint, signature, calculateSigningPayload(transactionOutputPoint));
+	}
+	
+	private TransactionInput(TransactionOutputPoint transactionOutputPoint, byte[] signature, byte[] signingPayload)
 	{
 		this.transactionOutputPoint = transactionOutputPoint;
 		this.signature = signature;
+		this.signingPayload = signingPayload;
 		
 		hash = calculateHash();
 	}
@@ -59,7 +61,7 @@ public class TransactionInput
 		return transactionOutputPoint;
 	}
 	
-	public String hash()
+	public Hash256 hash()
 	{
 		return hash;
 	}
@@ -78,14 +80,11 @@ public class TransactionInput
 	{
 		try
 		{
-			Signature signer = Signature.getInstance("SHA256withECDSA");
-			signer.initSign(privateKey);
-			signer.update(data());
-			byte[] signature = signer.sign();
+			byte[] signature = Signatures.sign(privateKey, signingPayload);
 			
-			return new TransactionInput(transactionOutputPoint, signature);
+			return new TransactionInput(transactionOutputPoint, signature, signingPayload);
 		}
-		catch (GeneralSecurityException | IOException exception)
+		catch (GeneralSecurityException exception)
 		{
 			throw new HobcoinException("Error signing transaction input", exception);
 		}
@@ -95,32 +94,27 @@ public class TransactionInput
 	{
 		try
 		{
-			Signature verifier = Signature.getInstance("SHA256withECDSA");
-			verifier.initVerify(address);
-			verifier.update(data());
-			return verifier.verify(signature);
+			return Signatures.verify(address, signingPayload, signature);
 		}
-		catch (GeneralSecurityException | IOException exception)
+		catch (GeneralSecurityException exception)
 		{
 			throw new HobcoinException("Error verifying transaction input signature", exception);
 		}
 	}
 	
-	private byte[] data() throws IOException
+	private Hash256 calculateHash()
 	{
-		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-		DataOutputStream out = new DataOutputStream(bytes);
-		out.writeUTF(transactionOutputPoint.transactionId());
-		return bytes.toByteArray();
-	}
-
-	private String calculateHash()
-	{
-		return Hashing.sha256()
+		return Hash256.of(Hashing.sha256()
 			.hashObject(this, (from, into) -> into
-				.putString(transactionOutputPoint.transactionId(), UTF_8)
+				.putBytes(transactionOutputPoint.transactionId().toBytes())
 				.putInt(transactionOutputPoint.transactionOutputIndex())
 			)
-			.toString();
+			.asBytes()
+		);
+	}
+	
+	private static byte[] calculateSigningPayload(TransactionOutputPoint transactionOutputPoint)
+	{
+		return transactionOutputPoint.transactionId().toBytes();
 	}
 }
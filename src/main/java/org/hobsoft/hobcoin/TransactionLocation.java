@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * The position of a confirmed transaction within a blockchain.
+ */
+public final class TransactionLocation
+{
+	private final int height;
+	
+	private final int position;
+	
+	public TransactionLocation(int height, int position)
+	{
+		this.height = checkElementIndex(height, Integer.MAX_VALUE, "height");
+		this.position = checkElementIndex(position, Integer.MAX_VALUE, "position");
+	}
+	
+	/**
+	 * Gets the height of the block that contains the transaction.
+	 * 
+	 * @return the zero-based block height
+	 */
+	public int height()
+	{
+		return height;
+	}
+	
+	/**
+	 * Gets the position of the transaction within its block.
+	 * 
+	 * @return the zero-based index into the block's transactions
+	 */
+	public int position()
+	{
+		return position;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return 31 * height + position;
+	}
+	
+	@Override
+	public boolean equals(Object object)
+	{
+		if (!(object instanceof TransactionLocation))
+		{
+			return false;
+		}
+		
+		TransactionLocation location = (TransactionLocation) object;
+		
+		return height == location.height
+			&& position == location.position;
+	}
+}
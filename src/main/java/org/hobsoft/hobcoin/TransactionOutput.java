@@ -19,6 +19,9 @@ import com.google.common.hash.Hashing;
 
 /**
  * An output from a transaction that credits the recipient.
+ * <p>
+ * The hash is only calculated when it is first needed, since encoding the recipient's key is costly and decoded
+ * outputs are often never hashed. Racing threads may each calculate it, but always to an equal immutable value.
  */
 public class TransactionOutput
 {
@@ -26,14 +29,12 @@ public class TransactionOutput
 	
 	private final long amount;
 	
-	private final String hash;
+	private Hash256 hash;
 	
 	public TransactionOutput(PublicKey recipient, long amount)
 	{
 		this.recipient = recipient;
 		this.amount = amount;
-		
-		hash = calculateHash();
 	}
 	
 	public PublicKey recipient()
@@ -46,18 +47,27 @@ public class TransactionOutput
 		return amount;
 	}
 	
-	public String hash()
+	public Hash256 hash()
 	{
+		Hash256 hash = this.hash;
+		
+		if (hash == null)
+		{
+			hash = calculateHash();
+			this.hash = hash;
+		}
+		
 		return hash;
 	}
 	
-	private String calculateHash()
+	private Hash256 calculateHash()
 	{
-		return Hashing.sha256()
+		return Hash256.of(Hashing.sha256()
 			.hashObject(this, (from, into) -> into
 				.putBytes(recipient.getEncoded())
 				.putLong(amount)
 			)
-			.toString();
+			.asBytes()
+		);
 	}
 }
@@ -13,8 +13,6 @@
  */
 package org.hobsoft.hobcoin;
 
-import java.util.Objects;
-
 import static java.util.Objects.requireNonNull;
 
 import static com.google.common.base.Preconditions.checkElementIndex;
@@ -24,18 +22,18 @@ import static com.google.common.base.Preconditions.checkElementIndex;
  */
 public final class TransactionOutputPoint
 {
-	private final String transactionId;
+	private final Hash256 transactionId;
 	
 	private final int transactionOutputIndex;
 	
-	public TransactionOutputPoint(String transactionId, int transactionOutputIndex)
+	public TransactionOutputPoint(Hash256 transactionId, int transactionOutputIndex)
 	{
 		this.transactionId = requireNonNull(transactionId, "transactionId");
 		this.transactionOutputIndex = checkElementIndex(transactionOutputIndex, Integer.MAX_VALUE,
 			"transactionOutputIndex");
 	}
 	
-	public String transactionId()
+	public Hash256 transactionId()
 	{
 		return transactionId;
 	}
@@ -48,7 +46,7 @@ public final class TransactionOutputPoint
 	@Override
 	public int hashCode()
 	{
-		return Objects.hash(transactionId, transactionOutputIndex);
+		return 31 * transactionId.hashCode() + transactionOutputIndex;
 	}
 	
 	@Override
@@ -0,0 +1,263 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A pool of valid transactions waiting to be mined into a block, also known as a mempool.
+ * <p>
+ * Transactions are validated against the blockchain's unspent transaction outputs when they are added, so they only
+ * spend outputs that are already in the blockchain. The first transaction to spend an output wins and any later
+ * transaction that spends the same output is rejected as conflicting. Transactions are ranked by fee rate, being their
+ * fee per byte of {@link BlockCodec} encoding, and the lowest ranked are evicted whenever the total encoded size of the
+ * pool exceeds its maximum. When a block is added to the blockchain, the transactions that it confirms and any that
+ * conflict with them are removed, and when a reorganization removes a block, its transactions are added back. Since
+ * the pool only holds transactions that spend outputs already in the blockchain, a removed transaction that spends an
+ * output of another removed transaction is not added back, unless the new branch confirms that other transaction, and
+ * must be resubmitted once it is.
+ * <p>
+ * Instances are thread-safe.
+ */
+public class TransactionPool implements BlockchainListener
+{
+	/**
+	 * A transaction in the pool together with its fee and encoded size.
+	 */
+	private static final class Entry
+	{
+		private final Transaction transaction;
+		
+		private final long fee;
+		
+		private final int size;
+		
+		private final long sequence;
+		
+		Entry(Transaction transaction, long fee, int size, long sequence)
+		{
+			this.transaction = transaction;
+			this.fee = fee;
+			this.size = size;
+			this.sequence = sequence;
+		}
+	}
+	
+	private static final Comparator<Entry> BY_FEE_RATE_DESCENDING = (entry1, entry2) ->
+	{
+		int comparison = compareFeeRates(entry2.fee, entry2.size, entry1.fee, entry1.size);
+		
+		return comparison != 0
+			? comparison
+			: Long.compare(entry1.sequence, entry2.sequence);
+	};
+	
+	private final Blockchain blockchain;
+	
+	private final long maximumSize;
+	
+	private final Map<Hash256, Entry> entriesById;
+	
+	private final Map<TransactionOutputPoint, Entry> entriesBySpentOutputPoint;
+	
+	private final NavigableSet<Entry> entriesByFeeRate;
+	
+	private long size;
+	
+	private long nextSequence;
+	
+	/**
+	 * Creates a transaction pool for the specified blockchain and registers it to listen to the blockchain.
+	 * 
+	 * @param blockchain the blockchain to validate transactions against
+	 * @param maximumSize the maximum total encoded size of the pooled transactions in bytes
+	 */
+	public TransactionPool(Blockchain blockchain, long maximumSize)
+	{
+		checkArgument(maximumSize > 0, "Invalid maximum size: %s", maximumSize);
+		
+		this.blockchain = blockchain;
+		this.maximumSize = maximumSize;
+		entriesById = new HashMap<>();
+		entriesBySpentOutputPoint = new HashMap<>();
+		entriesByFeeRate = new TreeSet<>(BY_FEE_RATE_DESCENDING);
+		
+		blockchain.addListener(this);
+	}
+	
+	public synchronized int count()
+	{
+		return entriesById.size();
+	}
+	
+	/**
+	 * Gets the total encoded size of the pooled transactions.
+	 * 
+	 * @return the size in bytes
+	 */
+	public synchronized long size()
+	{
+		return size;
+	}
+	
+	public synchronized boolean contains(Hash256 transactionId)
+	{
+		return entriesById.containsKey(transactionId);
+	}
+	
+	/**
+	 * Gets the pooled transactions in descending order of fee rate.
+	 * 
+	 * @return a snapshot of the pooled transactions
+	 */
+	public synchronized List<Transaction> transactions()
+	{
+		List<Transaction> transactions = new ArrayList<>(entriesByFeeRate.size());
+		entriesByFeeRate.forEach(entry -> transactions.add(entry.transaction));
+		return transactions;
+	}
+	
+	/**
+	 * Adds the specified transaction to this pool.
+	 * <p>
+	 * Adding a transaction that is already pooled has no effect. Adding a transaction may evict other transactions, or
+	 * the transaction itself, if the pool would otherwise exceed its maximum size.
+	 * 
+	 * @param transaction the transaction to add
+	 * @return this pool
+	 * @throws InvalidTransactionException if the transaction is not valid against the blockchain, or spends a
+	 * transaction output that a pooled transaction already spends
+	 */
+	public TransactionPool add(Transaction transaction)
+	{
+		long fee = blockchain.validate(transaction);
+		int transactionSize = BlockCodec.encodedLength(transaction);
+		
+		synchronized (this)
+		{
+			if (entriesById.containsKey(transaction.id()))
+			{
+				return this;
+			}
+			
+			for (TransactionOutputPoint inputPoint : transaction.inputPoints())
+			{
+				if (entriesBySpentOutputPoint.containsKey(inputPoint))
+				{
+					throw new InvalidTransactionException("Conflicting transaction input: " + inputPoint);
+				}
+				
+				if (!blockchain.unspentTransactionOutput(inputPoint).isPresent())
+				{
+					throw new InvalidTransactionException("Spent transaction input: " + inputPoint);
+				}
+			}
+			
+			put(new Entry(transaction, fee, transactionSize, nextSequence++));
+			evict();
+		}
+		
+		return this;
+	}
+	
+	@Override
+	public synchronized void blockAdded(Block block)
+	{
+		for (Transaction transaction : block.transactions())
+		{
+			Entry confirmedEntry = entriesById.get(transaction.id());
+			
+			if (confirmedEntry != null)
+			{
+				remove(confirmedEntry);
+			}
+			
+			for (TransactionOutputPoint inputPoint : transaction.inputPoints())
+			{
+				Entry conflictingEntry = entriesBySpentOutputPoint.get(inputPoint);
+				
+				if (conflictingEntry != null)
+				{
+					remove(conflictingEntry);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the transactions of a block that a reorganization removed to this pool, unless the new branch confirms
+	 * them or they conflict with it. Transactions that spend outputs which are not in the new branch, such as outputs
+	 * of other removed transactions, are dropped.
+	 * 
+	 * @param block the removed block
+	 */
+	@Override
+	public void blockRemoved(Block block)
+	{
+		for (Transaction transaction : block.transactions())
+		{
+			try
+			{
+				add(transaction);
+			}
+			catch (InvalidTransactionException exception)
+			{
+				// confirmed, conflicting or spending outputs that are not in the new branch
+			}
+		}
+	}
+	
+	private void put(Entry entry)
+	{
+		entriesById.put(entry.transaction.id(), entry);
+		entry.transaction.inputPoints().forEach(inputPoint -> entriesBySpentOutputPoint.put(inputPoint, entry));
+		entriesByFeeRate.add(entry);
+		size += entry.size;
+	}
+	
+	private void remove(Entry entry)
+	{
+		entriesById.remove(entry.transaction.id());
+		entry.transaction.inputPoints().forEach(entriesBySpentOutputPoint::remove);
+		entriesByFeeRate.remove(entry);
+		size -= entry.size;
+	}
+	
+	private void evict()
+	{
+		while (size > maximumSize)
+		{
+			remove(entriesByFeeRate.last());
+		}
+	}
+	
+	// compares fee1 / size1 with fee2 / size2 by quotient and then by remainder, since multiplying a fee by a size can
+	// overflow whereas a remainder is less than its size
+	private static int compareFeeRates(long fee1, int size1, long fee2, int size2)
+	{
+		int comparison = Long.compare(fee1 / size1, fee2 / size2);
+		
+		return comparison != 0
+			? comparison
+			: Long.compare(fee1 % size1 * size2, fee2 % size2 * size1);
+	}
+}
@@ -14,21 +14,25 @@
 package org.hobsoft.hobcoin;
 
 import java.security.PublicKey;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * An unspent transaction output (UTXO) within a blockchain.
+ * <p>
+ * Unlike {@link TransactionOutput} this is never hashed, so it only holds the output's point, recipient and amount.
  */
-class UnspentTransactionOutput extends TransactionOutput
+class UnspentTransactionOutput
 {
 	private final TransactionOutputPoint transactionOutputPoint;
 	
+	private final PublicKey recipient;
+	
+	private final long amount;
+	
 	UnspentTransactionOutput(TransactionOutputPoint transactionOutputPoint, PublicKey recipient, long amount)
 	{
-		super(recipient, amount);
-		
 		this.transactionOutputPoint = transactionOutputPoint;
+		this.recipient = recipient;
+		this.amount = amount;
 	}
 	
 	public TransactionOutputPoint transactionOutputPoint()
@@ -36,25 +40,34 @@ class UnspentTransactionOutput extends TransactionOutput
 		return transactionOutputPoint;
 	}
 	
-	public static List<UnspentTransactionOutput> atLeast(List<UnspentTransactionOutput> allUnspentOutputs,
-		long minimumAmount)
+	public PublicKey recipient()
+	{
+		return recipient;
+	}
+	
+	public long amount()
 	{
-		if (minimumAmount == 0)
+		return amount;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return transactionOutputPoint.hashCode();
+	}
+	
+	@Override
+	public boolean equals(Object object)
+	{
+		if (!(object instanceof UnspentTransactionOutput))
 		{
-			return allUnspentOutputs;
+			return false;
 		}
 		
-		List<UnspentTransactionOutput> unspentOutputs = new ArrayList<>();
-		long amount = 0;
-		
-		for (int index = 0; index < allUnspentOutputs.size() && amount < minimumAmount; index++)
-		{
-			UnspentTransactionOutput unspentOutput = allUnspentOutputs.get(index);
-			
-			unspentOutputs.add(unspentOutput);
-			amount += unspentOutput.amount();
-		}
+		UnspentTransactionOutput unspentOutput = (UnspentTransactionOutput) object;
 		
-		return unspentOutputs;
+		return transactionOutputPoint.equals(unspentOutput.transactionOutputPoint)
+			&& recipient.equals(unspentOutput.recipient)
+			&& amount == unspentOutput.amount;
 	}
 }
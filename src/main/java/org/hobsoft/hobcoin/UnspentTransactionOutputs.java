@@ -14,66 +14,132 @@
 package org.hobsoft.hobcoin;
 
 import java.security.PublicKey;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 import static java.util.stream.Collectors.toList;
 
 /**
  * A list of unspent transaction outputs (UTXOs) within a blockchain.
+ * <p>
+ * Implementations also index outputs by owner together with a running balance, so that finding an owner's outputs or
+ * balance costs time in proportion to that owner's outputs rather than to all outputs, and return an owner's outputs in
+ * the order that they were received. Implementations need not be thread-safe; {@link Blockchain} guards access to its
+ * instance.
+ * <p>
+ * Applying a block returns an undo record of the outputs that it spent, with which the block can later be reverted
+ * without replaying the blocks before it.
+ * 
+ * @see UnspentTransactionOutputsStorage
  */
-class UnspentTransactionOutputs
+interface UnspentTransactionOutputs
 {
-	private final Map<TransactionOutputPoint, UnspentTransactionOutput> unspentOutputs;
+	Optional<UnspentTransactionOutput> find(TransactionOutputPoint outputPoint);
 	
-	UnspentTransactionOutputs()
-	{
-		unspentOutputs = new HashMap<>();
-	}
-	
-	public Optional<UnspentTransactionOutput> find(TransactionOutputPoint outputPoint)
-	{
-		return Optional.ofNullable(unspentOutputs.get(outputPoint));
-	}
-	
-	public List<UnspentTransactionOutput> find(List<TransactionOutputPoint> outputPoints)
+	/**
+	 * Finds the unspent transaction outputs at the specified output points.
+	 * 
+	 * @param outputPoints the output points
+	 * @return the unspent transaction output at each output point, or {@code null} where an output point is spent
+	 */
+	default List<UnspentTransactionOutput> find(List<TransactionOutputPoint> outputPoints)
 	{
 		return outputPoints.stream()
-			.map(unspentOutputs::get)
+			.map(outputPoint -> find(outputPoint).orElse(null))
 			.collect(toList());
 	}
 	
-	public List<UnspentTransactionOutput> find(PublicKey owner)
-	{
-		return unspentOutputs.values()
-			.stream()
-			.filter(out -> out.recipient().equals(owner))
-			.collect(toList());
-	}
+	List<UnspentTransactionOutput> find(PublicKey owner);
+	
+	long balance(PublicKey owner);
+	
+	int size();
+	
+	/**
+	 * Gets every unspent transaction output, grouped by owner and in the order that each owner received them.
+	 * 
+	 * @return the unspent transaction outputs
+	 */
+	Iterable<UnspentTransactionOutput> all();
+	
+	void add(UnspentTransactionOutput unspentOutput);
 	
-	public void apply(Transaction transaction)
+	/**
+	 * Removes the unspent transaction output at the specified output point.
+	 * 
+	 * @param outputPoint the output point
+	 * @return {@code true} if an unspent transaction output was removed
+	 */
+	boolean remove(TransactionOutputPoint outputPoint);
+	
+	/**
+	 * Applies the transactions of the specified block.
+	 * 
+	 * @param block the block
+	 * @return the block's undo record, being the unspent transaction outputs that it spent in the order that it spent
+	 * them
+	 * @see #undo(Block, List)
+	 */
+	default List<UnspentTransactionOutput> apply(Block block)
 	{
-		removeInputs(transaction);
-		addOutputs(transaction);
+		List<UnspentTransactionOutput> spentOutputs = new ArrayList<>();
+		
+		for (Transaction transaction : block.transactions())
+		{
+			for (TransactionOutputPoint inputPoint : transaction.inputPoints())
+			{
+				find(inputPoint).ifPresent(spentOutputs::add);
+			}
+			
+			apply(transaction);
+		}
+		
+		return spentOutputs;
 	}
 	
-	private void removeInputs(Transaction transaction)
+	/**
+	 * Reverts the transactions of the specified block, which must be the last block applied, by removing the outputs
+	 * that it added and adding back the outputs that it spent.
+	 * <p>
+	 * Transactions are reverted in reverse order, so that an output that is both added and spent within the block is
+	 * added back by the transaction that spent it and then removed by the transaction that added it.
+	 * 
+	 * @param block the block
+	 * @param spentOutputs the block's undo record
+	 * @see #apply(Block)
+	 */
+	default void undo(Block block, List<UnspentTransactionOutput> spentOutputs)
 	{
-		unspentOutputs.keySet().removeAll(transaction.inputPoints());
+		List<Transaction> transactions = block.transactions();
+		int spentIndex = spentOutputs.size();
+		
+		for (int transactionIndex = transactions.size() - 1; transactionIndex >= 0; transactionIndex--)
+		{
+			Transaction transaction = transactions.get(transactionIndex);
+			transaction.outputPoints().forEach(this::remove);
+			
+			List<TransactionOutputPoint> inputPoints = transaction.inputPoints();
+			
+			for (int inputIndex = inputPoints.size() - 1; inputIndex >= 0; inputIndex--)
+			{
+				if (spentIndex > 0
+					&& spentOutputs.get(spentIndex - 1).transactionOutputPoint().equals(inputPoints.get(inputIndex)))
+				{
+					add(spentOutputs.get(--spentIndex));
+				}
+			}
+		}
 	}
-
-	private void addOutputs(Transaction transaction)
+	
+	default void apply(Transaction transaction)
 	{
+		transaction.inputPoints().forEach(this::remove);
+		
 		for (TransactionOutputPoint outputPoint : transaction.outputPoints())
 		{
 			TransactionOutput output = transaction.output(outputPoint);
-			
-			UnspentTransactionOutput unspentOutput = new UnspentTransactionOutput(outputPoint, output.recipient(),
-				output.amount());
-			
-			unspentOutputs.put(outputPoint, unspentOutput);
+			add(new UnspentTransactionOutput(outputPoint, output.recipient(), output.amount()));
 		}
 	}
 }
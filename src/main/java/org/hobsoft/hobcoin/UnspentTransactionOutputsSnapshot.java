@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNull;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The unspent transaction outputs of a blockchain as of a given block.
+ * <p>
+ * A snapshot only refers to the outputs, so that a snapshot being saved is not copied and a snapshot being restored can
+ * be decoded straight into the blockchain's unspent transaction outputs, whichever their storage.
+ * <p>
+ * A snapshot also holds the undo records of the blocks before it, so that a blockchain restored from it can still
+ * reorganize to a side branch that forks below it.
+ */
+public final class UnspentTransactionOutputsSnapshot
+{
+	private final int height;
+	
+	private final Hash256 blockHash;
+	
+	private final int size;
+	
+	private final Iterable<UnspentTransactionOutput> unspentTransactionOutputs;
+	
+	private final List<List<UnspentTransactionOutput>> undoRecords;
+	
+	UnspentTransactionOutputsSnapshot(int height, Hash256 blockHash, int size,
+		Iterable<UnspentTransactionOutput> unspentTransactionOutputs)
+	{
+		this(height, blockHash, size, unspentTransactionOutputs, emptyList());
+	}
+	
+	UnspentTransactionOutputsSnapshot(int height, Hash256 blockHash, int size,
+		Iterable<UnspentTransactionOutput> unspentTransactionOutputs, List<List<UnspentTransactionOutput>> undoRecords)
+	{
+		checkArgument(height > 0, "Invalid height: %s", height);
+		checkArgument(size >= 0, "Invalid size: %s", size);
+		checkArgument(undoRecords.size() <= height, "Invalid undo record count: %s", undoRecords.size());
+		
+		this.height = height;
+		this.blockHash = requireNonNull(blockHash, "blockHash");
+		this.size = size;
+		this.unspentTransactionOutputs = requireNonNull(unspentTransactionOutputs, "unspentTransactionOutputs");
+		this.undoRecords = undoRecords;
+	}
+	
+	/**
+	 * Gets the height of the blockchain that this snapshot was taken at.
+	 * 
+	 * @return the number of blocks whose transactions have been applied
+	 */
+	public int height()
+	{
+		return height;
+	}
+	
+	/**
+	 * Gets the hash of the last block whose transactions have been applied.
+	 * 
+	 * @return the block hash
+	 */
+	public Hash256 blockHash()
+	{
+		return blockHash;
+	}
+	
+	/**
+	 * Gets the number of unspent transaction outputs in this snapshot.
+	 * 
+	 * @return the number of unspent transaction outputs
+	 */
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Gets the unspent transaction outputs in this snapshot, grouped by owner and in the order that each owner received
+	 * them.
+	 * 
+	 * @return the unspent transaction outputs, which may be decoded as they are iterated over
+	 */
+	Iterable<UnspentTransactionOutput> unspentTransactionOutputs()
+	{
+		return unspentTransactionOutputs;
+	}
+	
+	/**
+	 * Gets the undo records of the last blocks before this snapshot, being the unspent transaction outputs that each
+	 * block spent.
+	 * 
+	 * @return the undo records, in order of height and ending with the last block whose transactions have been applied
+	 */
+	List<List<UnspentTransactionOutput>> undoRecords()
+	{
+		return undoRecords;
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+/**
+ * Where a blockchain holds its unspent transaction outputs.
+ */
+public enum UnspentTransactionOutputsStorage
+{
+	/**
+	 * Holds each unspent transaction output as objects within hash maps on the heap.
+	 */
+	HEAP
+	{
+		@Override
+		UnspentTransactionOutputs newUnspentTransactionOutputs()
+		{
+			return new HeapUnspentTransactionOutputs();
+		}
+	},
+	
+	/**
+	 * Holds unspent transaction outputs in an open-addressing hash table outside of the heap, which keeps millions of
+	 * outputs from enlarging the heap and lengthening garbage collection.
+	 */
+	OFF_HEAP
+	{
+		@Override
+		UnspentTransactionOutputs newUnspentTransactionOutputs()
+		{
+			return new OffHeapUnspentTransactionOutputs();
+		}
+	};
+	
+	abstract UnspentTransactionOutputs newUnspentTransactionOutputs();
+}
@@ -43,16 +43,41 @@ public class Wallet
 	
 	public long amount(Blockchain blockchain)
 	{
-		return blockchain.unspentTransactionOutputs(address(), 0)
-			.stream()
-			.mapToLong(TransactionOutput::amount)
-			.sum();
+		return blockchain.balance(address());
 	}
 	
 	public Transaction transfer(Blockchain blockchain, PublicKey recipient, long amount)
 	{
-		List<UnspentTransactionOutput> unspentOutputs = blockchain.unspentTransactionOutputs(address(), amount);
-
+		return transfer(blockchain, recipient, amount, 0);
+	}
+	
+	public Transaction transfer(Blockchain blockchain, PublicKey recipient, long amount, long fee)
+	{
+		return transfer(blockchain, recipient, amount, fee, StandardCoinSelector.BRANCH_AND_BOUND);
+	}
+	
+	/**
+	 * Creates a transaction that transfers the specified amount to the specified recipient and pays the specified fee.
+	 * <p>
+	 * The fee is the amount by which the transaction's inputs exceed its outputs. It is not credited to anyone, but a
+	 * higher fee ranks the transaction ahead of others in a {@link TransactionPool}.
+	 * 
+	 * @param blockchain the blockchain to spend unspent transaction outputs from
+	 * @param recipient the recipient
+	 * @param amount the amount to transfer
+	 * @param fee the fee to pay
+	 * @param coinSelector the selector of unspent transaction outputs to spend
+	 * @return the signed transaction, which only credits the sender with change when the selected outputs exceed the
+	 * amount and fee
+	 * @throws HobcoinException if the sender's unspent transaction outputs do not amount to the amount and fee
+	 */
+	public Transaction transfer(Blockchain blockchain, PublicKey recipient, long amount, long fee,
+		CoinSelector coinSelector)
+	{
+		List<UnspentTransactionOutput> unspentOutputs = coinSelector
+			.select(blockchain.unspentTransactionOutputs(address()), amount + fee)
+			.orElseThrow(() -> new HobcoinException("Insufficient funds: " + (amount + fee)));
+		
 		long unspentOutputsAmount = unspentOutputs.stream()
 			.mapToLong(UnspentTransactionOutput::amount)
 			.sum();
@@ -64,7 +89,12 @@ public class Wallet
 		
 		List<TransactionOutput> outputs = new ArrayList<>();
 		outputs.add(new TransactionOutput(recipient, amount));
-		outputs.add(new TransactionOutput(address(), unspentOutputsAmount - amount));
+		long change = unspentOutputsAmount - amount - fee;
+		
+		if (change > 0)
+		{
+			outputs.add(new TransactionOutput(address(), change));
+		}
 		
 		return new Transaction(inputs, outputs);
 	}
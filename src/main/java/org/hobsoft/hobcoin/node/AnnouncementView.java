@@ -0,0 +1,67 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin.node;
+
+import org.hobsoft.hobcoin.Blockchain;
+
+/**
+ * JSON representation of a peer announcing the tail of its blockchain.
+ */
+public class AnnouncementView
+{
+	private String peer;
+	
+	private String hash;
+	
+	private int height;
+	
+	public String getPeer()
+	{
+		return peer;
+	}
+	
+	public void setPeer(String peer)
+	{
+		this.peer = peer;
+	}
+	
+	public String getHash()
+	{
+		return hash;
+	}
+	
+	public void setHash(String hash)
+	{
+		this.hash = hash;
+	}
+	
+	public int getHeight()
+	{
+		return height;
+	}
+	
+	public void setHeight(int height)
+	{
+		this.height = height;
+	}
+	
+	public static AnnouncementView of(String peer, Blockchain blockchain)
+	{
+		AnnouncementView view = new AnnouncementView();
+		view.setPeer(peer);
+		view.setHash(blockchain.tail().hash().toString());
+		view.setHeight(blockchain.height());
+		return view;
+	}
+}
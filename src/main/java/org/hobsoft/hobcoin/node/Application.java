@@ -13,12 +13,38 @@
  */
 package org.hobsoft.hobcoin.node;
 
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+
+import org.hobsoft.hobcoin.BlockStore;
 import org.hobsoft.hobcoin.Blockchain;
+import org.hobsoft.hobcoin.DifficultyAdjustment;
+import org.hobsoft.hobcoin.FileSnapshotStore;
+import org.hobsoft.hobcoin.HobcoinException;
+import org.hobsoft.hobcoin.MappedBlockStore;
+import org.hobsoft.hobcoin.MemoryBlockStore;
+import org.hobsoft.hobcoin.Miner;
+import org.hobsoft.hobcoin.NoSnapshotStore;
+import org.hobsoft.hobcoin.SignatureVerifier;
+import org.hobsoft.hobcoin.SnapshotStore;
+import org.hobsoft.hobcoin.Target;
+import org.hobsoft.hobcoin.TransactionPool;
+import org.hobsoft.hobcoin.UnspentTransactionOutputsStorage;
 import org.hobsoft.hobcoin.Wallet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 
+import com.google.common.hash.HashCode;
+
+import static java.util.Arrays.asList;
+
 /**
  * Spring Boot application to run a Hobcoin node.
  */
@@ -27,13 +53,100 @@ import org.springframework.context.annotation.Bean;
 public class Application
 {
 	@Bean
-	public Blockchain blockchain()
+	public BlockStore blockStore(@Value("${hobcoin.blocks.directory:}") String directory)
+	{
+		return directory.isEmpty()
+			? new MemoryBlockStore()
+			: new MappedBlockStore(Paths.get(directory));
+	}
+	
+	@Bean
+	public SnapshotStore snapshotStore(@Value("${hobcoin.snapshots.directory:}") String directory,
+		@Value("${hobcoin.snapshots.interval}") int interval)
+	{
+		return directory.isEmpty()
+			? new NoSnapshotStore()
+			: new FileSnapshotStore(Paths.get(directory), interval);
+	}
+	
+	@Bean
+	public SignatureVerifier signatureVerifier()
+	{
+		return new SignatureVerifier();
+	}
+	
+	@Bean
+	public DifficultyAdjustment difficultyAdjustment(
+		@Value("${hobcoin.difficulty.initial-leading-zero-bits}") int initialLeadingZeroBits,
+		@Value("${hobcoin.difficulty.interval}") int interval,
+		@Value("${hobcoin.difficulty.spacing-seconds}") long spacingSeconds)
+	{
+		return DifficultyAdjustment.of(Target.ofLeadingZeroBits(initialLeadingZeroBits), interval,
+			Duration.ofSeconds(spacingSeconds));
+	}
+	
+	@Bean
+	public Blockchain blockchain(BlockStore blockStore, SnapshotStore snapshotStore,
+		@Value("${hobcoin.utxos.storage}") UnspentTransactionOutputsStorage storage,
+		SignatureVerifier signatureVerifier, @Value("${hobcoin.genesis.recipient:}") String genesisRecipient,
+		DifficultyAdjustment difficultyAdjustment)
 	{
-		return new Blockchain(new Wallet().address(), 100, 5);
+		return new Blockchain(blockStore, snapshotStore, storage, signatureVerifier, publicKey(genesisRecipient), 100,
+			difficultyAdjustment);
+	}
+	
+	@Bean
+	public TransactionPool transactionPool(Blockchain blockchain,
+		@Value("${hobcoin.pool.maximum-size}") long maximumSize)
+	{
+		return new TransactionPool(blockchain, maximumSize);
+	}
+	
+	@Bean
+	public PeerService peerService(Blockchain blockchain, TransactionPool transactionPool,
+		@Value("${hobcoin.peers.url}") String url,
+		@Value("${hobcoin.peers.addresses:}") String[] peerUrls,
+		@Value("${hobcoin.peers.batch-size}") int batchSize,
+		@Value("${hobcoin.peers.max-in-flight}") int maxInFlight,
+		@Value("${hobcoin.peers.sync-mode}") SyncMode syncMode)
+	{
+		return new PeerService(blockchain, transactionPool, url, asList(peerUrls), batchSize, maxInFlight, syncMode);
+	}
+	
+	@Bean
+	public MiningService miningService(Blockchain blockchain, TransactionPool transactionPool, PeerService peerService,
+		@Value("${hobcoin.mining.threads}") int threads, @Value("${hobcoin.mining.idle-seconds}") long idleSeconds)
+	{
+		Miner miner = threads > 0 ? new Miner(threads) : new Miner();
+		return new MiningService(blockchain, transactionPool, peerService, miner, Duration.ofSeconds(idleSeconds));
+	}
+	
+	@Bean
+	public ApplicationRunner peerServiceRunner(PeerService peerService)
+	{
+		return args -> peerService.start().subscribe();
 	}
 	
 	public static void main(String[] args)
 	{
 		SpringApplication.run(Application.class, args);
 	}
+	
+	private static PublicKey publicKey(String encoded)
+	{
+		if (encoded.isEmpty())
+		{
+			return new Wallet().address();
+		}
+		
+		try
+		{
+			byte[] bytes = HashCode.fromString(encoded).asBytes();
+			return KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(bytes));
+		}
+		catch (GeneralSecurityException exception)
+		{
+			throw new HobcoinException("Error decoding public key: " + encoded, exception);
+		}
+	}
 }
@@ -26,6 +26,10 @@ public class BlockView
 	
 	private long nonce;
 	
+	private String merkleRoot;
+	
+	private int transactionCount;
+	
 	private String hash;
 	
 	public String getPreviousHash()
@@ -58,6 +62,26 @@ public class BlockView
 		this.nonce = nonce;
 	}
 	
+	public String getMerkleRoot()
+	{
+		return merkleRoot;
+	}
+	
+	public void setMerkleRoot(String merkleRoot)
+	{
+		this.merkleRoot = merkleRoot;
+	}
+	
+	public int getTransactionCount()
+	{
+		return transactionCount;
+	}
+	
+	public void setTransactionCount(int transactionCount)
+	{
+		this.transactionCount = transactionCount;
+	}
+	
 	public String getHash()
 	{
 		return hash;
@@ -71,10 +95,12 @@ public class BlockView
 	public static BlockView of(Block block)
 	{
 		BlockView view = new BlockView();
-		view.setPreviousHash(block.previousHash());
+		view.setPreviousHash(block.previousHash().toString());
 		view.setTimestamp(block.timestamp());
 		view.setNonce(block.nonce());
-		view.setHash(block.hash());
+		view.setMerkleRoot(block.merkleRoot().toString());
+		view.setTransactionCount(block.transactions().size());
+		view.setHash(block.hash().toString());
 		return view;
 	}
 }
@@ -13,22 +13,57 @@
  */
 package org.hobsoft.hobcoin.node;
 
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+import org.hobsoft.hobcoin.Block;
+import org.hobsoft.hobcoin.BlockCodec;
 import org.hobsoft.hobcoin.Blockchain;
+import org.hobsoft.hobcoin.Hash256;
+import org.hobsoft.hobcoin.Header;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
+import static org.springframework.http.MediaType.APPLICATION_STREAM_JSON;
+import static org.springframework.http.MediaType.TEXT_PLAIN;
 
 /**
  * Spring Webflux handler for getting the blockchain.
+ * <p>
+ * Blocks are requested from the {@code from} height for up to {@code limit} blocks. As JSON they are returned as a
+ * single page of at most {@value #MAX_LIMIT} blocks, and of {@value #DEFAULT_LIMIT} blocks when no limit is given, so
+ * a client that wants the whole chain as JSON must page through it by height. As {@code application/stream+json}
+ * they are streamed one block at a time as the client demands them, to the end of the chain when no limit is given,
+ * so that neither response holds a long chain in memory. As {@code application/octet-stream} a page of blocks is
+ * streamed as back-to-back {@link BlockCodec} records for peers to decode, and headers likewise as back-to-back
+ * fixed-width records of up to {@value #MAX_HEADER_LIMIT} headers. Headers are read without decoding the blocks'
+ * transactions, and are read off the event loop. Single blocks are looked up by hash or height, and confirmed
+ * transactions by id, without scanning the chain. A transaction lookup may have to catch up the transaction index
+ * after the blockchain is reopened, so it also runs off the event loop.
  */
 @Component
 public class BlockchainHandler
 {
+	static final int DEFAULT_LIMIT = 100;
+	
+	static final int MAX_LIMIT = 1000;
+	
+	static final int MAX_HEADER_LIMIT = 2000;
+	
+	private static final DataBufferFactory DATA_BUFFERS = new DefaultDataBufferFactory();
+	
 	private final Blockchain blockchain;
 	
 	public BlockchainHandler(Blockchain blockchain)
@@ -38,8 +73,166 @@ public class BlockchainHandler
 	
 	public Mono<ServerResponse> get(ServerRequest request)
 	{
-		return ServerResponse.ok()
-			.contentType(APPLICATION_JSON)
-			.body(BodyInserters.fromObject(BlockchainView.of(blockchain)));
+		return Mono.fromCallable(() -> BlockchainView.of(blockchain, from(request), limit(request)))
+			.flatMap(view -> ServerResponse.ok()
+				.contentType(APPLICATION_JSON)
+				.body(BodyInserters.fromObject(view))
+			)
+			.onErrorResume(ServerWebInputException.class, BlockchainHandler::badRequest);
+	}
+	
+	public Mono<ServerResponse> stream(ServerRequest request)
+	{
+		return Mono.fromCallable(() -> blockchain.blocks(from(request), streamLimit(request)))
+			.flatMap(blocks -> ServerResponse.ok()
+				.contentType(APPLICATION_STREAM_JSON)
+				.body(Flux.fromIterable(blocks).map(BlockView::of), BlockView.class)
+			)
+			.onErrorResume(ServerWebInputException.class, BlockchainHandler::badRequest);
+	}
+	
+	public Mono<ServerResponse> getEncoded(ServerRequest request)
+	{
+		return Mono.fromCallable(() -> blockchain.blocks(from(request), limit(request)))
+			.flatMap(blocks -> ServerResponse.ok()
+				.contentType(APPLICATION_OCTET_STREAM)
+				.body(BodyInserters.fromDataBuffers(Flux.fromIterable(blocks).map(BlockchainHandler::encode)))
+			)
+			.onErrorResume(ServerWebInputException.class, BlockchainHandler::badRequest);
+	}
+	
+	public Mono<ServerResponse> getEncodedHeaders(ServerRequest request)
+	{
+		return Mono.fromCallable(() -> blockchain.headers(from(request), headerLimit(request)))
+			.flatMap(headers -> ServerResponse.ok()
+				.contentType(APPLICATION_OCTET_STREAM)
+				.body(BodyInserters.fromDataBuffers(Flux.fromIterable(headers)
+					.map(BlockchainHandler::encode)
+					.subscribeOn(Schedulers.elastic())))
+			)
+			.onErrorResume(ServerWebInputException.class, BlockchainHandler::badRequest);
+	}
+	
+	public Mono<ServerResponse> getByHash(ServerRequest request)
+	{
+		return Mono.fromCallable(() -> blockchain.block(hash(request, "hash")).map(BlockView::of))
+			.flatMap(BlockchainHandler::okOrNotFound)
+			.onErrorResume(ServerWebInputException.class, BlockchainHandler::badRequest);
+	}
+	
+	public Mono<ServerResponse> getByHeight(ServerRequest request)
+	{
+		return Mono.fromCallable(() -> blockchain.block(height(request)).map(BlockView::of))
+			.flatMap(BlockchainHandler::okOrNotFound)
+			.onErrorResume(ServerWebInputException.class, BlockchainHandler::badRequest);
+	}
+	
+	public Mono<ServerResponse> getTransaction(ServerRequest request)
+	{
+		return Mono.fromCallable(() -> blockchain.transaction(hash(request, "id"), TransactionView::of))
+			.subscribeOn(Schedulers.elastic())
+			.flatMap(BlockchainHandler::okOrNotFound)
+			.onErrorResume(ServerWebInputException.class, BlockchainHandler::badRequest);
+	}
+	
+	private static DataBuffer encode(Block block)
+	{
+		return DATA_BUFFERS.wrap(BlockCodec.encode(block));
+	}
+	
+	private static DataBuffer encode(Header header)
+	{
+		return DATA_BUFFERS.wrap(BlockCodec.encode(header, ByteBuffer.allocate(BlockCodec.HEADER_LENGTH)).array());
+	}
+	
+	private static Mono<ServerResponse> okOrNotFound(Optional<?> view)
+	{
+		return view.map(body -> ServerResponse.ok()
+				.contentType(APPLICATION_JSON)
+				.body(BodyInserters.fromObject(body))
+			)
+			.orElseGet(() -> ServerResponse.notFound().build());
+	}
+	
+	private static Hash256 hash(ServerRequest request, String name)
+	{
+		try
+		{
+			return Hash256.fromString(request.pathVariable(name));
+		}
+		catch (IllegalArgumentException exception)
+		{
+			throw new ServerWebInputException("Invalid parameter: " + name);
+		}
+	}
+	
+	private static int height(ServerRequest request)
+	{
+		return nonNegativeInt("height", request.pathVariable("height"));
+	}
+	
+	private static int from(ServerRequest request)
+	{
+		return intQueryParam(request, "from", 0);
+	}
+	
+	private static int limit(ServerRequest request)
+	{
+		return limit(request, DEFAULT_LIMIT, MAX_LIMIT);
+	}
+	
+	private static int headerLimit(ServerRequest request)
+	{
+		return limit(request, MAX_HEADER_LIMIT, MAX_HEADER_LIMIT);
+	}
+	
+	private static int limit(ServerRequest request, int defaultLimit, int maxLimit)
+	{
+		int limit = intQueryParam(request, "limit", defaultLimit);
+		
+		if (limit > maxLimit)
+		{
+			throw new ServerWebInputException("Limit exceeds maximum: " + maxLimit);
+		}
+		
+		return limit;
+	}
+	
+	private static int streamLimit(ServerRequest request)
+	{
+		return intQueryParam(request, "limit", Integer.MAX_VALUE);
+	}
+	
+	private static int intQueryParam(ServerRequest request, String name, int defaultValue)
+	{
+		return request.queryParam(name)
+			.map(value -> nonNegativeInt(name, value))
+			.orElse(defaultValue);
+	}
+	
+	private static int nonNegativeInt(String name, String value)
+	{
+		try
+		{
+			int result = Integer.parseInt(value);
+			
+			if (result < 0)
+			{
+				throw new ServerWebInputException("Negative parameter: " + name);
+			}
+			
+			return result;
+		}
+		catch (NumberFormatException exception)
+		{
+			throw new ServerWebInputException("Invalid parameter: " + name);
+		}
+	}
+	
+	private static Mono<ServerResponse> badRequest(ServerWebInputException exception)
+	{
+		return ServerResponse.badRequest()
+			.contentType(TEXT_PLAIN)
+			.syncBody(exception.getReason());
 	}
 }
@@ -20,6 +20,8 @@ import org.springframework.web.reactive.function.server.RouterFunctions;
 import org.springframework.web.reactive.function.server.ServerResponse;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
+import static org.springframework.http.MediaType.APPLICATION_STREAM_JSON;
 import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
 import static org.springframework.web.reactive.function.server.RequestPredicates.accept;
 
@@ -32,9 +34,13 @@ public class BlockchainRouter
 	@Bean
 	public RouterFunction<ServerResponse> route(BlockchainHandler blockchainHandler)
 	{
-		return RouterFunctions.route(
-			GET("/blocks").and(accept(APPLICATION_JSON)),
-			blockchainHandler::get
-		);
+		// route JSON first so that requests accepting any media type get a bounded page rather than a stream
+		return RouterFunctions.route(GET("/blocks").and(accept(APPLICATION_JSON)), blockchainHandler::get)
+			.andRoute(GET("/blocks").and(accept(APPLICATION_STREAM_JSON)), blockchainHandler::stream)
+			.andRoute(GET("/blocks").and(accept(APPLICATION_OCTET_STREAM)), blockchainHandler::getEncoded)
+			.andRoute(GET("/headers").and(accept(APPLICATION_OCTET_STREAM)), blockchainHandler::getEncodedHeaders)
+			.andRoute(GET("/blocks/height/{height}").and(accept(APPLICATION_JSON)), blockchainHandler::getByHeight)
+			.andRoute(GET("/blocks/{hash}").and(accept(APPLICATION_JSON)), blockchainHandler::getByHash)
+			.andRoute(GET("/transactions/{id}").and(accept(APPLICATION_JSON)), blockchainHandler::getTransaction);
 	}
 }
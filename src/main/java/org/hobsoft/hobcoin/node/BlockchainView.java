@@ -21,12 +21,24 @@ import org.hobsoft.hobcoin.Blockchain;
 import static java.util.stream.Collectors.toList;
 
 /**
- * JSON representation of a blockchain.
+ * JSON representation of a blockchain, or of a range of its blocks.
  */
 public class BlockchainView
 {
+	private int height;
+	
 	private List<BlockView> blocks;
 	
+	public int getHeight()
+	{
+		return height;
+	}
+	
+	public void setHeight(int height)
+	{
+		this.height = height;
+	}
+	
 	public List<BlockView> getBlocks()
 	{
 		return blocks;
@@ -38,9 +50,15 @@ public class BlockchainView
 	}
 	
 	public static BlockchainView of(Blockchain blockchain)
+	{
+		return of(blockchain, 0, Integer.MAX_VALUE);
+	}
+	
+	public static BlockchainView of(Blockchain blockchain, int from, int limit)
 	{
 		BlockchainView view = new BlockchainView();
-		view.setBlocks(StreamSupport.stream(blockchain.spliterator(), false)
+		view.setHeight(blockchain.height());
+		view.setBlocks(StreamSupport.stream(blockchain.blocks(from, limit).spliterator(), false)
 			.map(BlockView::of)
 			.collect(toList())
 		);
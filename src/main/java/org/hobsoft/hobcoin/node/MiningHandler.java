@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin.node;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import reactor.core.publisher.Mono;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Spring Webflux handler for controlling mining.
+ * <p>
+ * Starting and stopping mining respond with the resulting status, which includes the hash rate sampled over the last
+ * second.
+ */
+@Component
+public class MiningHandler
+{
+	private final MiningService miningService;
+	
+	public MiningHandler(MiningService miningService)
+	{
+		this.miningService = miningService;
+	}
+	
+	public Mono<ServerResponse> get(ServerRequest request)
+	{
+		return status();
+	}
+	
+	public Mono<ServerResponse> start(ServerRequest request)
+	{
+		return Mono.fromRunnable(miningService::start)
+			.then(status());
+	}
+	
+	public Mono<ServerResponse> stop(ServerRequest request)
+	{
+		return Mono.fromRunnable(miningService::stop)
+			.then(status());
+	}
+	
+	private Mono<ServerResponse> status()
+	{
+		return Mono.fromCallable(() -> MiningView.of(miningService))
+			.flatMap(view -> ServerResponse.ok()
+				.contentType(APPLICATION_JSON)
+				.body(BodyInserters.fromObject(view))
+			);
+	}
+}
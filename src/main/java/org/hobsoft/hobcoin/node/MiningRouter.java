@@ -0,0 +1,40 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin.node;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RequestPredicates.accept;
+
+/**
+ * Spring Webflux router for controlling mining.
+ */
+@Configuration
+public class MiningRouter
+{
+	@Bean("miningRoute")
+	public RouterFunction<ServerResponse> route(MiningHandler miningHandler)
+	{
+		return RouterFunctions.route(GET("/mining").and(accept(APPLICATION_JSON)), miningHandler::get)
+			.andRoute(POST("/mining/start").and(accept(APPLICATION_JSON)), miningHandler::start)
+			.andRoute(POST("/mining/stop").and(accept(APPLICATION_JSON)), miningHandler::stop);
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin.node;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import org.hobsoft.hobcoin.Block;
+import org.hobsoft.hobcoin.BlockTemplateBuilder;
+import org.hobsoft.hobcoin.Blockchain;
+import org.hobsoft.hobcoin.HobcoinException;
+import org.hobsoft.hobcoin.Miner;
+import org.hobsoft.hobcoin.Target;
+import org.hobsoft.hobcoin.TransactionPool;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import static java.util.logging.Level.INFO;
+import static java.util.logging.Level.SEVERE;
+import static java.util.logging.Level.WARNING;
+
+/**
+ * Mines blocks on the tail of the blockchain in the background.
+ * <p>
+ * While started, a dedicated thread builds a block template from the transaction pool on the tail and mines it with
+ * the worker threads of a {@link Miner}. Mining is abandoned within a batch of nonces once the tail changes, whether
+ * by a block from a peer or a reorganization, and a new template is built on the new tail. A mined block is submitted
+ * through {@link PeerService#submit(Block)}, which adds it to the blockchain on the same thread as blocks from peers
+ * and pushes it to every peer. When no pooled transaction fits into a block, the thread waits for
+ * {@code idleInterval} before building another template.
+ * <p>
+ * An unexpected error stops mining, as though by {@link #stop()}, so that {@link #isRunning()} reports it.
+ * <p>
+ * Transactions reach the pool through {@link PeerService#receive(org.hobsoft.hobcoin.Transaction, String)}, whether
+ * submitted to this node by a client or relayed by a peer.
+ * <p>
+ * The hash rate is sampled from the miner's hash count every {@value #SAMPLE_SECONDS} second.
+ */
+public class MiningService implements AutoCloseable
+{
+	private static final Logger LOG = Logger.getLogger(MiningService.class.getName());
+	
+	private static final long SAMPLE_SECONDS = 1;
+	
+	private final Blockchain blockchain;
+	
+	private final BlockTemplateBuilder templateBuilder;
+	
+	private final PeerService peerService;
+	
+	private final Miner miner;
+	
+	private final Duration idleInterval;
+	
+	private final ExecutorService executor;
+	
+	private final Disposable sampler;
+	
+	private AtomicBoolean mining;
+	
+	private Future<?> task;
+	
+	private volatile long blocksMined;
+	
+	private volatile long hashRate;
+	
+	private long sampleHashes;
+	
+	private long sampleTime;
+	
+	public MiningService(Blockchain blockchain, TransactionPool transactionPool, PeerService peerService, Miner miner,
+		Duration idleInterval)
+	{
+		this.blockchain = blockchain;
+		templateBuilder = new BlockTemplateBuilder(blockchain, transactionPool);
+		this.peerService = peerService;
+		this.miner = miner;
+		this.idleInterval = idleInterval;
+		
+		executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+			.setNameFormat("mining-service")
+			.setDaemon(true)
+			.build()
+		);
+		
+		sampleHashes = miner.hashes();
+		sampleTime = System.nanoTime();
+		sampler = Flux.interval(Duration.ofSeconds(SAMPLE_SECONDS))
+			.subscribe(tick -> sample());
+	}
+	
+	/**
+	 * Starts mining in the background, unless already started.
+	 */
+	public synchronized void start()
+	{
+		if (mining == null)
+		{
+			AtomicBoolean started = new AtomicBoolean(true);
+			mining = started;
+			task = executor.submit(() -> mine(started));
+			LOG.log(INFO, "Started mining with {0} threads", miner.threads());
+		}
+	}
+	
+	/**
+	 * Stops mining, unless already stopped.
+	 * <p>
+	 * The block being mined is abandoned, and the miner's workers stop at the end of their current batch of nonces.
+	 */
+	public synchronized void stop()
+	{
+		if (mining != null)
+		{
+			mining.set(false);
+			task.cancel(true);
+			mining = null;
+			task = null;
+			LOG.info("Stopped mining");
+		}
+	}
+	
+	public synchronized boolean isRunning()
+	{
+		return mining != null;
+	}
+	
+	public int threads()
+	{
+		return miner.threads();
+	}
+	
+	public long blocksMined()
+	{
+		return blocksMined;
+	}
+	
+	/**
+	 * Gets the number of hashes calculated per second over the last sample.
+	 * 
+	 * @return the hash rate, or zero if mining has stopped for a whole sample
+	 */
+	public long hashRate()
+	{
+		return hashRate;
+	}
+	
+	@Override
+	public void close()
+	{
+		stop();
+		sampler.dispose();
+		executor.shutdownNow();
+		miner.close();
+	}
+	
+	private void mine(AtomicBoolean started)
+	{
+		while (started.get())
+		{
+			try
+			{
+				Optional<Block> template = templateBuilder.build();
+				
+				if (template.isPresent())
+				{
+					Block block = template.get();
+					Target target = blockchain.difficulty();
+					
+					miner.mine(block, target, () -> !started.get() || !block.follows(blockchain.tail()))
+						.ifPresent(this::submit);
+				}
+				else
+				{
+					Thread.sleep(idleInterval.toMillis());
+				}
+			}
+			catch (InterruptedException exception)
+			{
+				Thread.currentThread().interrupt();
+				return;
+			}
+			catch (HobcoinException exception)
+			{
+				if (started.get())
+				{
+					LOG.log(WARNING, "Error mining block", exception);
+				}
+			}
+			catch (RuntimeException exception)
+			{
+				if (started.get())
+				{
+					LOG.log(SEVERE, "Stopped mining after unexpected error", exception);
+					stopped(started);
+				}
+				return;
+			}
+		}
+	}
+	
+	private void submit(Block block)
+	{
+		peerService.submit(block)
+			.block();
+		blocksMined++;
+	}
+	
+	private synchronized void stopped(AtomicBoolean started)
+	{
+		started.set(false);
+		
+		if (mining == started)
+		{
+			mining = null;
+			task = null;
+		}
+	}
+	
+	private void sample()
+	{
+		long hashes = miner.hashes();
+		long time = System.nanoTime();
+		
+		hashRate = (hashes - sampleHashes) * TimeUnit.SECONDS.toNanos(1) / Math.max(time - sampleTime, 1);
+		sampleHashes = hashes;
+		sampleTime = time;
+	}
+}
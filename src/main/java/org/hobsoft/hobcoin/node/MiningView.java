@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin.node;
+
+/**
+ * JSON representation of the status of mining.
+ */
+public class MiningView
+{
+	private boolean running;
+	
+	private int threads;
+	
+	private long hashRate;
+	
+	private long blocksMined;
+	
+	public boolean isRunning()
+	{
+		return running;
+	}
+	
+	public void setRunning(boolean running)
+	{
+		this.running = running;
+	}
+	
+	public int getThreads()
+	{
+		return threads;
+	}
+	
+	public void setThreads(int threads)
+	{
+		this.threads = threads;
+	}
+	
+	public long getHashRate()
+	{
+		return hashRate;
+	}
+	
+	public void setHashRate(long hashRate)
+	{
+		this.hashRate = hashRate;
+	}
+	
+	public long getBlocksMined()
+	{
+		return blocksMined;
+	}
+	
+	public void setBlocksMined(long blocksMined)
+	{
+		this.blocksMined = blocksMined;
+	}
+	
+	public static MiningView of(MiningService miningService)
+	{
+		MiningView view = new MiningView();
+		view.setRunning(miningService.isRunning());
+		view.setThreads(miningService.threads());
+		view.setHashRate(miningService.hashRate());
+		view.setBlocksMined(miningService.blocksMined());
+		return view;
+	}
+}
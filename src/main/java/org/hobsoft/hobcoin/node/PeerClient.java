@@ -0,0 +1,228 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin.node;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hobsoft.hobcoin.Block;
+import org.hobsoft.hobcoin.BlockCodec;
+import org.hobsoft.hobcoin.BlockTemplateBuilder;
+import org.hobsoft.hobcoin.Header;
+import org.hobsoft.hobcoin.HobcoinException;
+import org.hobsoft.hobcoin.Transaction;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
+
+/**
+ * Client for the peer endpoints of another node.
+ * <p>
+ * Blocks and transactions travel in their {@link BlockCodec} encoding rather than as JSON, since the JSON block views
+ * omit the transactions that a peer needs to validate them. Every request times out, so that a peer that stops
+ * responding fails the request rather than stalling a sync, and every response is limited to the length of the blocks
+ * or headers requested, so that a peer cannot exhaust this node's memory.
+ */
+class PeerClient
+{
+	static final String PEER_HEADER = "Hobcoin-Peer";
+	
+	/**
+	 * The maximum encoded length of a block received from a peer, being the largest block that a node mines.
+	 */
+	static final int MAX_BLOCK_LENGTH = BlockTemplateBuilder.DEFAULT_MAXIMUM_SIZE;
+	
+	private static final Duration TIMEOUT = Duration.ofSeconds(30);
+	
+	private final String url;
+	
+	private final WebClient client;
+	
+	PeerClient(String url)
+	{
+		this.url = url;
+		
+		client = WebClient.create(url);
+	}
+	
+	public String url()
+	{
+		return url;
+	}
+	
+	/**
+	 * Fetches a batch of blocks from this peer.
+	 * 
+	 * @param from the height of the first block
+	 * @param limit the maximum number of blocks
+	 * @return the blocks, which are fewer than the limit only when the peer's blockchain has no more
+	 */
+	public Mono<List<Block>> blocks(int from, int limit)
+	{
+		return client.get()
+			.uri("/blocks?from={from}&limit={limit}", from, limit)
+			.accept(APPLICATION_OCTET_STREAM)
+			.retrieve()
+			.bodyToFlux(DataBuffer.class)
+			.as(body -> join(body, (long) limit * MAX_BLOCK_LENGTH))
+			.timeout(TIMEOUT)
+			.map(PeerClient::decodeBlocks);
+	}
+	
+	/**
+	 * Fetches a batch of headers from this peer.
+	 * 
+	 * @param from the height of the first header
+	 * @param limit the maximum number of headers
+	 * @return the headers, which are fewer than the limit only when the peer's blockchain has no more
+	 */
+	public Mono<List<Header>> headers(int from, int limit)
+	{
+		return client.get()
+			.uri("/headers?from={from}&limit={limit}", from, limit)
+			.accept(APPLICATION_OCTET_STREAM)
+			.retrieve()
+			.bodyToFlux(DataBuffer.class)
+			.as(body -> join(body, (long) limit * BlockCodec.HEADER_LENGTH))
+			.timeout(TIMEOUT)
+			.map(PeerClient::decodeHeaders);
+	}
+	
+	/**
+	 * Pushes a block to this peer.
+	 * 
+	 * @param block the block
+	 * @param sender the URL of the node pushing the block, from which the peer can fetch any blocks that it is missing
+	 * @return completes once the peer has received the block
+	 */
+	public Mono<Void> push(Block block, String sender)
+	{
+		return client.post()
+			.uri("/blocks")
+			.contentType(APPLICATION_OCTET_STREAM)
+			.header(PEER_HEADER, sender)
+			.syncBody(BlockCodec.encode(block))
+			.retrieve()
+			.bodyToMono(Void.class)
+			.timeout(TIMEOUT);
+	}
+	
+	/**
+	 * Relays a transaction to this peer.
+	 * 
+	 * @param transaction the transaction
+	 * @param sender the URL of the node relaying the transaction
+	 * @return completes once the peer has received the transaction
+	 */
+	public Mono<Void> relay(Transaction transaction, String sender)
+	{
+		return client.post()
+			.uri("/transactions")
+			.contentType(APPLICATION_OCTET_STREAM)
+			.header(PEER_HEADER, sender)
+			.syncBody(BlockCodec.encode(transaction))
+			.retrieve()
+			.bodyToMono(Void.class)
+			.timeout(TIMEOUT);
+	}
+	
+	/**
+	 * Announces the tail of a blockchain to this peer.
+	 * 
+	 * @param announcement the announcement
+	 * @return completes once the peer has received the announcement
+	 */
+	public Mono<Void> announce(AnnouncementView announcement)
+	{
+		return client.post()
+			.uri("/announcements")
+			.contentType(APPLICATION_JSON)
+			.syncBody(announcement)
+			.retrieve()
+			.bodyToMono(Void.class)
+			.timeout(TIMEOUT);
+	}
+	
+	/**
+	 * Joins the buffers of a message body into an array.
+	 * 
+	 * @param body the buffers of the body
+	 * @param maxLength the maximum length of the body
+	 * @return the body, or an empty array if it has no buffers
+	 * @throws HobcoinException if the body is longer than the maximum length
+	 */
+	static Mono<byte[]> join(Flux<DataBuffer> body, long maxLength)
+	{
+		return body
+			.reduceWith(ByteArrayOutputStream::new, (bytes, buffer) -> append(bytes, buffer, maxLength))
+			.map(ByteArrayOutputStream::toByteArray);
+	}
+	
+	private static ByteArrayOutputStream append(ByteArrayOutputStream bytes, DataBuffer buffer, long maxLength)
+	{
+		try
+		{
+			int length = buffer.readableByteCount();
+			
+			if (bytes.size() + (long) length > maxLength)
+			{
+				throw new HobcoinException("Body is longer than " + maxLength + " bytes");
+			}
+			
+			byte[] chunk = new byte[length];
+			buffer.read(chunk);
+			bytes.write(chunk, 0, length);
+			return bytes;
+		}
+		finally
+		{
+			DataBufferUtils.release(buffer);
+		}
+	}
+	
+	private static List<Block> decodeBlocks(byte[] bytes)
+	{
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		List<Block> blocks = new ArrayList<>();
+		
+		while (buffer.hasRemaining())
+		{
+			blocks.add(BlockCodec.decodeBlock(buffer));
+		}
+		
+		return blocks;
+	}
+	
+	private static List<Header> decodeHeaders(byte[] bytes)
+	{
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		List<Header> headers = new ArrayList<>(bytes.length / BlockCodec.HEADER_LENGTH);
+		
+		while (buffer.hasRemaining())
+		{
+			headers.add(BlockCodec.decodeHeader(buffer));
+		}
+		
+		return headers;
+	}
+}
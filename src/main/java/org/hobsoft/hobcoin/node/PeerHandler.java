@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin.node;
+
+import java.nio.ByteBuffer;
+
+import org.hobsoft.hobcoin.BlockCodec;
+import org.hobsoft.hobcoin.HobcoinException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import reactor.core.publisher.Mono;
+
+import static org.springframework.http.MediaType.TEXT_PLAIN;
+
+/**
+ * Spring Webflux handler for receiving blocks, transactions and announcements from peers.
+ * <p>
+ * A pushed block or transaction is a single {@link BlockCodec} record and names its sender in the
+ * {@value PeerClient#PEER_HEADER} header. A transaction submitted by a client rather than relayed by a peer omits the
+ * header. A record that is longer than {@link PeerClient#MAX_BLOCK_LENGTH}, malformed or invalid, or that names a
+ * sender that is not a valid peer URL, is rejected as a bad request.
+ */
+@Component
+public class PeerHandler
+{
+	private final PeerService peerService;
+	
+	public PeerHandler(PeerService peerService)
+	{
+		this.peerService = peerService;
+	}
+	
+	public Mono<ServerResponse> receiveBlock(ServerRequest request)
+	{
+		String sender = sender(request);
+		
+		return request.bodyToFlux(DataBuffer.class)
+			.as(body -> PeerClient.join(body, PeerClient.MAX_BLOCK_LENGTH))
+			.map(bytes -> BlockCodec.decodeBlock(ByteBuffer.wrap(bytes)))
+			.flatMap(block -> peerService.receive(block, sender))
+			.then(ServerResponse.accepted().build())
+			.onErrorResume(HobcoinException.class, PeerHandler::badRequest)
+			.onErrorResume(IllegalArgumentException.class, PeerHandler::badRequest);
+	}
+	
+	public Mono<ServerResponse> receiveTransaction(ServerRequest request)
+	{
+		String sender = sender(request);
+		
+		return request.bodyToFlux(DataBuffer.class)
+			.as(body -> PeerClient.join(body, PeerClient.MAX_BLOCK_LENGTH))
+			.map(bytes -> BlockCodec.decodeTransaction(ByteBuffer.wrap(bytes)))
+			.flatMap(transaction -> peerService.receive(transaction, sender))
+			.then(ServerResponse.accepted().build())
+			.onErrorResume(HobcoinException.class, PeerHandler::badRequest)
+			.onErrorResume(IllegalArgumentException.class, PeerHandler::badRequest);
+	}
+	
+	public Mono<ServerResponse> receiveAnnouncement(ServerRequest request)
+	{
+		return request.bodyToMono(AnnouncementView.class)
+			.doOnNext(peerService::receive)
+			.then(ServerResponse.accepted().build())
+			.onErrorResume(IllegalArgumentException.class, PeerHandler::badRequest);
+	}
+	
+	private static String sender(ServerRequest request)
+	{
+		return request.headers().header(PeerClient.PEER_HEADER).stream()
+			.findFirst()
+			.orElse(null);
+	}
+	
+	private static Mono<ServerResponse> badRequest(Exception exception)
+	{
+		return ServerResponse.badRequest()
+			.contentType(TEXT_PLAIN)
+			.syncBody(String.valueOf(exception.getMessage()));
+	}
+}
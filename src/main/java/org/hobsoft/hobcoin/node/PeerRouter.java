@@ -0,0 +1,41 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin.node;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+
+/**
+ * Spring Webflux router for receiving blocks, transactions and announcements from peers.
+ */
+@Configuration
+public class PeerRouter
+{
+	@Bean("peerRoute")
+	public RouterFunction<ServerResponse> route(PeerHandler peerHandler)
+	{
+		return RouterFunctions
+			.route(POST("/blocks").and(contentType(APPLICATION_OCTET_STREAM)), peerHandler::receiveBlock)
+			.andRoute(POST("/transactions").and(contentType(APPLICATION_OCTET_STREAM)), peerHandler::receiveTransaction)
+			.andRoute(POST("/announcements").and(contentType(APPLICATION_JSON)), peerHandler::receiveAnnouncement);
+	}
+}
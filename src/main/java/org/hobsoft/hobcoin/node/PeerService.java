@@ -0,0 +1,607 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin.node;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import org.hobsoft.hobcoin.Block;
+import org.hobsoft.hobcoin.Blockchain;
+import org.hobsoft.hobcoin.Difficulty;
+import org.hobsoft.hobcoin.Hash256;
+import org.hobsoft.hobcoin.Header;
+import org.hobsoft.hobcoin.HobcoinException;
+import org.hobsoft.hobcoin.Transaction;
+import org.hobsoft.hobcoin.TransactionPool;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import static java.util.logging.Level.INFO;
+import static java.util.logging.Level.WARNING;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+/**
+ * Propagates blocks and transactions between this node and its peers.
+ * <p>
+ * A block mined by this node is pushed to every peer, and a peer that adds a pushed block relays it to its own peers.
+ * A peer that cannot add a pushed block because it is missing earlier blocks instead syncs from the sender. Syncing
+ * first finds the highest block that this node shares with the peer, by comparing hashes at heights that step back
+ * exponentially from the tail, so that a peer on another branch is synced from the fork. It then fetches batches of
+ * blocks from there, with at most {@code maxInFlight} batches requested ahead of the batch being added, and announces
+ * the new tail so that peers further behind can sync in turn. Peers are configured up front or learnt from the
+ * announcements and pushes of other nodes. A peer URL must be an absolute HTTP or HTTPS URL without a path, query or
+ * user info, and no more than {@value #MAX_PEERS} peers are kept, so that other nodes cannot grow the peer set without
+ * limit or direct pushes at arbitrary endpoints.
+ * <p>
+ * When syncing {@link SyncMode#HEADERS_FIRST headers first}, the peer's headers beyond the fork are fetched and
+ * checked for linkage and proof of work before any block is fetched. The block bodies are then fetched in ranges of
+ * {@code batchSize} spread over every peer, with at most {@code maxInFlight} ranges requested from each peer at once,
+ * and each range is checked against its headers and added in order as soon as the ranges before it have been added. A
+ * range that a peer fails to serve is fetched from the next peer instead.
+ * <p>
+ * A transaction submitted to this node, by a client or a peer, is added to the transaction pool and relayed to every
+ * other peer, so that it reaches whichever node mines the next block. A transaction that is already pooled is not
+ * relayed again, which ends the relay once every node has it.
+ * <p>
+ * Blocks are added to the blockchain, and transactions to the pool, on a single thread, so that validating them never
+ * blocks the network threads and blocks from different peers are added in turn.
+ */
+public class PeerService implements AutoCloseable
+{
+	/**
+	 * The outcome of receiving a block.
+	 */
+	private enum Receipt
+	{
+		KNOWN,
+		ADDED,
+		ORPHAN
+	}
+	
+	/**
+	 * The maximum number of peers that a node keeps.
+	 */
+	public static final int MAX_PEERS = 64;
+	
+	private static final Logger LOG = Logger.getLogger(PeerService.class.getName());
+	
+	private static final int HEADER_BATCH_SIZE = BlockchainHandler.MAX_HEADER_LIMIT;
+	
+	private final Blockchain blockchain;
+	
+	private final TransactionPool transactionPool;
+	
+	private final String url;
+	
+	private final int batchSize;
+	
+	private final int maxInFlight;
+	
+	private final SyncMode syncMode;
+	
+	private final Map<String, PeerClient> peers;
+	
+	private final Set<String> syncingPeers;
+	
+	private final Scheduler scheduler;
+	
+	/**
+	 * Creates a peer service for the specified blockchain.
+	 * 
+	 * @param blockchain the blockchain
+	 * @param transactionPool the pool to add received transactions to
+	 * @param url the URL that peers can reach this node at
+	 * @param peerUrls the URLs of the initial peers
+	 * @param batchSize the number of blocks to fetch per request when syncing
+	 * @param maxInFlight the maximum number of concurrent requests to fetch, push or announce
+	 */
+	public PeerService(Blockchain blockchain, TransactionPool transactionPool, String url, Collection<String> peerUrls,
+		int batchSize, int maxInFlight)
+	{
+		this(blockchain, transactionPool, url, peerUrls, batchSize, maxInFlight, SyncMode.BLOCKS);
+	}
+	
+	/**
+	 * Creates a peer service for the specified blockchain.
+	 * 
+	 * @param blockchain the blockchain
+	 * @param transactionPool the pool to add received transactions to
+	 * @param url the URL that peers can reach this node at
+	 * @param peerUrls the URLs of the initial peers
+	 * @param batchSize the number of blocks to fetch per request when syncing
+	 * @param maxInFlight the maximum number of concurrent requests to fetch, push or announce
+	 * @param syncMode how to fetch blocks when syncing
+	 */
+	public PeerService(Blockchain blockchain, TransactionPool transactionPool, String url, Collection<String> peerUrls,
+		int batchSize, int maxInFlight, SyncMode syncMode)
+	{
+		checkArgument(batchSize > 0, "Invalid batch size: %s", batchSize);
+		checkArgument(maxInFlight > 0, "Invalid maximum in-flight requests: %s", maxInFlight);
+		
+		this.blockchain = blockchain;
+		this.transactionPool = transactionPool;
+		this.url = url;
+		this.batchSize = batchSize;
+		this.maxInFlight = maxInFlight;
+		this.syncMode = syncMode;
+		
+		peers = new ConcurrentHashMap<>();
+		syncingPeers = ConcurrentHashMap.newKeySet();
+		scheduler = Schedulers.newSingle("peers");
+		
+		peerUrls.forEach(this::addPeer);
+	}
+	
+	public String url()
+	{
+		return url;
+	}
+	
+	public Set<String> peers()
+	{
+		return peers.keySet();
+	}
+	
+	/**
+	 * Adds a peer, unless it is this node, is already a peer, or the node already has {@value #MAX_PEERS} peers.
+	 * 
+	 * @param peerUrl the URL of the peer, or {@code null} or empty to add nothing
+	 * @return whether the URL is a peer of this node
+	 * @throws IllegalArgumentException if the URL is not a valid peer URL
+	 */
+	public synchronized boolean addPeer(String peerUrl)
+	{
+		if (peerUrl == null || peerUrl.isEmpty() || peerUrl.equals(url))
+		{
+			return false;
+		}
+		
+		if (peers.containsKey(peerUrl))
+		{
+			return true;
+		}
+		
+		checkArgument(isPeerUrl(peerUrl), "Invalid peer URL: %s", peerUrl);
+		
+		if (peers.size() >= MAX_PEERS)
+		{
+			LOG.log(INFO, "Ignoring peer {0} as already at {1} peers", new Object[] {peerUrl, MAX_PEERS});
+			return false;
+		}
+		
+		peers.put(peerUrl, new PeerClient(peerUrl));
+		return true;
+	}
+	
+	/**
+	 * Syncs from every peer and then announces this node's tail to them.
+	 * 
+	 * @return completes once every peer has been synced from and announced to
+	 */
+	public Mono<Void> start()
+	{
+		return Flux.fromIterable(peers.keySet())
+			.flatMap(this::sync, maxInFlight)
+			.then(announce(null));
+	}
+	
+	/**
+	 * Adds a block mined by this node to the blockchain and pushes it to every peer.
+	 * 
+	 * @param block the mined block
+	 * @return completes once every peer has received the block
+	 */
+	public Mono<Void> publish(Block block)
+	{
+		return Mono.fromRunnable(() -> blockchain.add(block))
+			.subscribeOn(scheduler)
+			.then(push(block, null));
+	}
+	
+	/**
+	 * Adds a block mined by this node to the blockchain and pushes it to every peer in the background.
+	 * <p>
+	 * The block is added on the same thread as blocks received from peers, like {@link #publish(Block)}, but without
+	 * waiting for slow peers to receive it.
+	 * 
+	 * @param block the mined block
+	 * @return completes once the block has been added
+	 */
+	public Mono<Void> submit(Block block)
+	{
+		return Mono.fromRunnable(() -> blockchain.add(block))
+			.subscribeOn(scheduler)
+			.doOnSuccess(ignored -> push(block, null).subscribe())
+			.then();
+	}
+	
+	/**
+	 * Receives a block pushed by a peer.
+	 * <p>
+	 * A block that follows a known block is added, to the main or a side branch, and relayed to every other peer,
+	 * whereas a block that follows an unknown block starts a sync from the sender in the background.
+	 * 
+	 * @param block the block
+	 * @param sender the URL of the peer that pushed the block, if known
+	 * @return completes once the block has been added, or is known to follow an unknown block
+	 * @throws IllegalArgumentException if the sender is not a valid peer URL
+	 * @throws org.hobsoft.hobcoin.InvalidBlockException if the block follows a known block but is invalid
+	 * @throws org.hobsoft.hobcoin.InvalidTransactionException if the block contains an invalid transaction
+	 */
+	public Mono<Void> receive(Block block, String sender)
+	{
+		boolean peer = addPeer(sender);
+		
+		return Mono.fromCallable(() -> receive(block))
+			.subscribeOn(scheduler)
+			.doOnNext(receipt ->
+			{
+				if (receipt == Receipt.ADDED)
+				{
+					push(block, sender).subscribe();
+				}
+				else if (receipt == Receipt.ORPHAN && peer)
+				{
+					sync(sender).subscribe();
+				}
+			})
+			.then();
+	}
+	
+	/**
+	 * Receives a transaction submitted by a client or relayed by a peer.
+	 * <p>
+	 * A transaction that is added to the transaction pool is relayed to every other peer, whereas a transaction that is
+	 * already pooled is ignored.
+	 * 
+	 * @param transaction the transaction
+	 * @param sender the URL of the peer that relayed the transaction, or {@code null} if submitted by a client
+	 * @return completes once the transaction has been pooled
+	 * @throws IllegalArgumentException if the sender is not a valid peer URL
+	 * @throws org.hobsoft.hobcoin.InvalidTransactionException if the transaction is invalid or conflicts with a pooled
+	 * transaction
+	 */
+	public Mono<Void> receive(Transaction transaction, String sender)
+	{
+		addPeer(sender);
+		
+		return Mono.fromCallable(() -> pool(transaction))
+			.subscribeOn(scheduler)
+			.doOnNext(pooled ->
+			{
+				if (pooled)
+				{
+					relay(transaction, sender).subscribe();
+				}
+			})
+			.then();
+	}
+	
+	/**
+	 * Receives the tail announced by a peer, and syncs from the peer in the background if it is ahead of this node.
+	 * <p>
+	 * Only a peer that this node keeps is synced from, so an announcement from a peer that is ignored, because the node
+	 * already has {@value #MAX_PEERS} peers, is itself ignored.
+	 * 
+	 * @param announcement the announcement
+	 * @throws IllegalArgumentException if the announcement is missing its peer or hash, or the announcing peer's URL is
+	 * not a valid peer URL, or the hash is invalid
+	 */
+	public void receive(AnnouncementView announcement)
+	{
+		checkArgument(!isNullOrEmpty(announcement.getPeer()), "Missing announcement peer");
+		checkArgument(!isNullOrEmpty(announcement.getHash()), "Missing announcement hash");
+		
+		Hash256 hash = Hash256.fromString(announcement.getHash());
+		
+		if (addPeer(announcement.getPeer())
+			&& announcement.getHeight() > blockchain.height()
+			&& !blockchain.contains(hash))
+		{
+			sync(announcement.getPeer()).subscribe();
+		}
+	}
+	
+	/**
+	 * Fetches and adds the blocks that the specified peer has beyond the highest block that they share, and then
+	 * announces the new tail to every other peer.
+	 * <p>
+	 * Only one sync runs per peer at a time, and a sync that is requested while another is running is ignored.
+	 * 
+	 * @param peerUrl the URL of the peer to sync from
+	 * @return the number of blocks added
+	 */
+	public Mono<Integer> sync(String peerUrl)
+	{
+		PeerClient peer = peers.get(peerUrl);
+		
+		if (peer == null || !syncingPeers.add(peerUrl))
+		{
+			return Mono.just(0);
+		}
+		
+		return forkHeight(peer)
+			.flatMap(from -> syncMode == SyncMode.HEADERS_FIRST ? syncHeadersFirst(peer, from) : syncBlocks(peer, from))
+			.doOnNext(count -> LOG.log(INFO, "Synced {0} blocks from {1}", new Object[] {count, peerUrl}))
+			.flatMap(count -> count > 0 ? announce(peerUrl).thenReturn(count) : Mono.just(count))
+			.onErrorResume(exception -> syncFailed(peerUrl, exception))
+			.doFinally(signal -> syncingPeers.remove(peerUrl));
+	}
+	
+	@Override
+	public void close()
+	{
+		scheduler.dispose();
+	}
+	
+	private Mono<Integer> forkHeight(PeerClient peer)
+	{
+		return forkHeight(peer, blockchain.height() - 1, 1);
+	}
+	
+	private Mono<Integer> forkHeight(PeerClient peer, int height, int step)
+	{
+		Optional<Hash256> hash = blockchain.block(height).map(Block::hash);
+		
+		return peer.headers(height, 1)
+			.flatMap(headers -> height == 0 || !headers.isEmpty() && Optional.of(headers.get(0).hash()).equals(hash)
+				? Mono.just(height + 1)
+				: forkHeight(peer, Math.max(0, height - step), 2 * step));
+	}
+	
+	private Mono<Integer> syncBlocks(PeerClient peer, int from)
+	{
+		return Flux.range(0, Integer.MAX_VALUE)
+			.flatMapSequential(batch -> peer.blocks(from + batch * batchSize, batchSize), maxInFlight, 1)
+			.takeUntil(blocks -> blocks.size() < batchSize)
+			.publishOn(scheduler, 1)
+			.map(this::receiveAll)
+			.reduce(0, Integer::sum);
+	}
+	
+	private Mono<Integer> syncHeadersFirst(PeerClient peer, int from)
+	{
+		Header tail = Header.of(blockchain.block(from - 1).orElseThrow(() -> new HobcoinException("Fork removed")));
+		Difficulty difficulty = blockchain.difficultyAt(from);
+		
+		return Flux.range(0, Integer.MAX_VALUE)
+			.flatMapSequential(batch -> peer.headers(from + batch * HEADER_BATCH_SIZE, HEADER_BATCH_SIZE), maxInFlight,
+				1)
+			.takeUntil(headers -> headers.size() < HEADER_BATCH_SIZE)
+			.reduceWith(ArrayList::new, PeerService::addAll)
+			.map(headers -> validate(headers, tail, difficulty))
+			.flatMap(headers -> syncBodies(peer, from, headers));
+	}
+	
+	private Mono<Integer> syncBodies(PeerClient peer, int from, List<Header> headers)
+	{
+		List<PeerClient> pool = pool(peer);
+		int ranges = (headers.size() + batchSize - 1) / batchSize;
+		
+		return Flux.range(0, ranges)
+			.flatMapSequential(range -> fetchBodies(pool, range, from, headers), maxInFlight * pool.size(), 1)
+			.publishOn(scheduler, 1)
+			.map(this::receiveAll)
+			.reduce(0, Integer::sum);
+	}
+	
+	private Mono<List<Block>> fetchBodies(List<PeerClient> pool, int range, int from, List<Header> headers)
+	{
+		int start = range * batchSize;
+		List<Header> rangeHeaders = headers.subList(start, Math.min(start + batchSize, headers.size()));
+		
+		return Flux.range(0, pool.size())
+			.map(attempt -> pool.get((range + attempt) % pool.size()))
+			.concatMap(peer -> peer.blocks(from + start, rangeHeaders.size())
+				.filter(blocks -> matches(rangeHeaders, blocks))
+				.onErrorResume(exception -> fetchFailed(peer, exception)), 1)
+			.next()
+			.switchIfEmpty(Mono.defer(() -> Mono.error(new HobcoinException(
+				String.format("No peer served blocks %d to %d", from + start, from + start + rangeHeaders.size() - 1)
+			))));
+	}
+	
+	private List<PeerClient> pool(PeerClient peer)
+	{
+		List<PeerClient> pool = new ArrayList<>();
+		pool.add(peer);
+		
+		peers.values().stream()
+			.filter(other -> other != peer)
+			.forEach(pool::add);
+		
+		return pool;
+	}
+	
+	private Receipt receive(Block block)
+	{
+		if (blockchain.contains(block.hash()))
+		{
+			return Receipt.KNOWN;
+		}
+		
+		if (!blockchain.contains(block.previousHash()))
+		{
+			return Receipt.ORPHAN;
+		}
+		
+		blockchain.add(block);
+		return Receipt.ADDED;
+	}
+	
+	private boolean pool(Transaction transaction)
+	{
+		if (transactionPool.contains(transaction.id()))
+		{
+			return false;
+		}
+		
+		transactionPool.add(transaction);
+		return transactionPool.contains(transaction.id());
+	}
+	
+	private int receiveAll(List<Block> blocks)
+	{
+		int count = 0;
+		
+		for (Block block : blocks)
+		{
+			Receipt receipt = receive(block);
+			
+			if (receipt == Receipt.ORPHAN)
+			{
+				throw new HobcoinException("Unknown previous block: " + block.previousHash());
+			}
+			
+			if (receipt == Receipt.ADDED)
+			{
+				count++;
+			}
+		}
+		
+		return count;
+	}
+	
+	private Mono<Void> push(Block block, String except)
+	{
+		return Flux.fromIterable(peers.values())
+			.filter(peer -> !Objects.equals(peer.url(), except))
+			.flatMap(peer -> peer.push(block, url).onErrorResume(exception -> sendFailed(peer, exception)), maxInFlight)
+			.then();
+	}
+	
+	private Mono<Void> relay(Transaction transaction, String except)
+	{
+		return Flux.fromIterable(peers.values())
+			.filter(peer -> !Objects.equals(peer.url(), except))
+			.flatMap(peer -> peer.relay(transaction, url).onErrorResume(exception -> sendFailed(peer, exception)),
+				maxInFlight)
+			.then();
+	}
+	
+	private Mono<Void> announce(String except)
+	{
+		AnnouncementView announcement = AnnouncementView.of(url, blockchain);
+		
+		return Flux.fromIterable(peers.values())
+			.filter(peer -> !Objects.equals(peer.url(), except))
+			.flatMap(peer -> peer.announce(announcement).onErrorResume(exception -> sendFailed(peer, exception)),
+				maxInFlight)
+			.then();
+	}
+	
+	private static boolean isPeerUrl(String peerUrl)
+	{
+		try
+		{
+			URI uri = new URI(peerUrl);
+			
+			return ("http".equals(uri.getScheme()) || "https".equals(uri.getScheme()))
+				&& uri.getHost() != null
+				&& uri.getRawUserInfo() == null
+				&& (uri.getRawPath().isEmpty() || "/".equals(uri.getRawPath()))
+				&& uri.getRawQuery() == null
+				&& uri.getRawFragment() == null;
+		}
+		catch (URISyntaxException exception)
+		{
+			return false;
+		}
+	}
+	
+	private static ArrayList<Header> addAll(ArrayList<Header> headers, List<Header> batch)
+	{
+		headers.addAll(batch);
+		return headers;
+	}
+	
+	private static List<Header> validate(List<Header> headers, Header tail, Difficulty difficulty)
+	{
+		Header previous = tail;
+		Difficulty headerDifficulty = difficulty;
+		
+		for (Header header : headers)
+		{
+			if (!header.follows(previous))
+			{
+				throw new HobcoinException("Header does not follow previous: " + header.hash());
+			}
+			
+			if (header.timestamp() < headerDifficulty.minimumTimestamp())
+			{
+				throw new HobcoinException("Header timestamp is too early: " + header.hash());
+			}
+			
+			if (!header.isMined(headerDifficulty.target()))
+			{
+				throw new HobcoinException("Header is not mined: " + header.hash());
+			}
+			
+			previous = header;
+			headerDifficulty = headerDifficulty.next(header.timestamp());
+		}
+		
+		return headers;
+	}
+	
+	private static boolean matches(List<Header> headers, List<Block> blocks)
+	{
+		if (blocks.size() != headers.size())
+		{
+			return false;
+		}
+		
+		for (int index = 0; index < blocks.size(); index++)
+		{
+			if (!headers.get(index).isHeaderOf(blocks.get(index)))
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	private static Mono<List<Block>> fetchFailed(PeerClient peer, Throwable exception)
+	{
+		LOG.log(WARNING, "Error fetching blocks from peer " + peer.url(), exception);
+		return Mono.empty();
+	}
+	
+	private static Mono<Void> sendFailed(PeerClient peer, Throwable exception)
+	{
+		LOG.log(WARNING, "Error sending to peer " + peer.url(), exception);
+		return Mono.empty();
+	}
+	
+	private static Mono<Integer> syncFailed(String peerUrl, Throwable exception)
+	{
+		LOG.log(WARNING, "Error syncing from peer " + peerUrl, exception);
+		return Mono.just(0);
+	}
+}
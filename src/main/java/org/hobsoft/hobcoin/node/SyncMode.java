@@ -0,0 +1,31 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin.node;
+
+/**
+ * How a node fetches the blocks that a peer has beyond its tail.
+ */
+public enum SyncMode
+{
+	/**
+	 * Fetches batches of whole blocks from the peer in order.
+	 */
+	BLOCKS,
+	
+	/**
+	 * Fetches and validates the peer's chain of headers first, and then fetches the block bodies in parallel from
+	 * every peer.
+	 */
+	HEADERS_FIRST
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin.node;
+
+import org.hobsoft.hobcoin.TransactionInput;
+
+import com.google.common.hash.HashCode;
+
+/**
+ * JSON representation of a transaction input.
+ */
+public class TransactionInputView
+{
+	private String transactionId;
+	
+	private int transactionOutputIndex;
+	
+	private String signature;
+	
+	public String getTransactionId()
+	{
+		return transactionId;
+	}
+	
+	public void setTransactionId(String transactionId)
+	{
+		this.transactionId = transactionId;
+	}
+	
+	public int getTransactionOutputIndex()
+	{
+		return transactionOutputIndex;
+	}
+	
+	public void setTransactionOutputIndex(int transactionOutputIndex)
+	{
+		this.transactionOutputIndex = transactionOutputIndex;
+	}
+	
+	public String getSignature()
+	{
+		return signature;
+	}
+	
+	public void setSignature(String signature)
+	{
+		this.signature = signature;
+	}
+	
+	public static TransactionInputView of(TransactionInput input)
+	{
+		TransactionInputView view = new TransactionInputView();
+		view.setTransactionId(input.transactionOutputPoint().transactionId().toString());
+		view.setTransactionOutputIndex(input.transactionOutputPoint().transactionOutputIndex());
+		view.setSignature(input.signed() ? HashCode.fromBytes(input.signature()).toString() : null);
+		return view;
+	}
+}
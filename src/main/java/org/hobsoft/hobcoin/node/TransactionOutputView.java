@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin.node;
+
+import org.hobsoft.hobcoin.TransactionOutput;
+
+import com.google.common.hash.HashCode;
+
+/**
+ * JSON representation of a transaction output.
+ */
+public class TransactionOutputView
+{
+	private String recipient;
+	
+	private long amount;
+	
+	public String getRecipient()
+	{
+		return recipient;
+	}
+	
+	public void setRecipient(String recipient)
+	{
+		this.recipient = recipient;
+	}
+	
+	public long getAmount()
+	{
+		return amount;
+	}
+	
+	public void setAmount(long amount)
+	{
+		this.amount = amount;
+	}
+	
+	public static TransactionOutputView of(TransactionOutput output)
+	{
+		TransactionOutputView view = new TransactionOutputView();
+		view.setRecipient(HashCode.fromBytes(output.recipient().getEncoded()).toString());
+		view.setAmount(output.amount());
+		return view;
+	}
+}
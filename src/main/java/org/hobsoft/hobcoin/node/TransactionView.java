@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin.node;
+
+import java.util.List;
+
+import org.hobsoft.hobcoin.Block;
+import org.hobsoft.hobcoin.Transaction;
+import org.hobsoft.hobcoin.TransactionLocation;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * JSON representation of a confirmed transaction.
+ */
+public class TransactionView
+{
+	private String id;
+	
+	private String blockHash;
+	
+	private int blockHeight;
+	
+	private int position;
+	
+	private List<TransactionInputView> inputs;
+	
+	private List<TransactionOutputView> outputs;
+	
+	public String getId()
+	{
+		return id;
+	}
+	
+	public void setId(String id)
+	{
+		this.id = id;
+	}
+	
+	public String getBlockHash()
+	{
+		return blockHash;
+	}
+	
+	public void setBlockHash(String blockHash)
+	{
+		this.blockHash = blockHash;
+	}
+	
+	public int getBlockHeight()
+	{
+		return blockHeight;
+	}
+	
+	public void setBlockHeight(int blockHeight)
+	{
+		this.blockHeight = blockHeight;
+	}
+	
+	public int getPosition()
+	{
+		return position;
+	}
+	
+	public void setPosition(int position)
+	{
+		this.position = position;
+	}
+	
+	public List<TransactionInputView> getInputs()
+	{
+		return inputs;
+	}
+	
+	public void setInputs(List<TransactionInputView> inputs)
+	{
+		this.inputs = inputs;
+	}
+	
+	public List<TransactionOutputView> getOutputs()
+	{
+		return outputs;
+	}
+	
+	public void setOutputs(List<TransactionOutputView> outputs)
+	{
+		this.outputs = outputs;
+	}
+	
+	public static TransactionView of(Block block, TransactionLocation location)
+	{
+		Transaction transaction = block.transactions().get(location.position());
+		
+		TransactionView view = new TransactionView();
+		view.setId(transaction.id().toString());
+		view.setBlockHash(block.hash().toString());
+		view.setBlockHeight(location.height());
+		view.setPosition(location.position());
+		view.setInputs(transaction.inputs().stream()
+			.map(TransactionInputView::of)
+			.collect(toList())
+		);
+		view.setOutputs(transaction.outputs().stream()
+			.map(TransactionOutputView::of)
+			.collect(toList())
+		);
+		return view;
+	}
+}
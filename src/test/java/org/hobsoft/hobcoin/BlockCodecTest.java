@@ -0,0 +1,271 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static java.util.Arrays.asList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code BlockCodec}.
+ */
+public class BlockCodecTest
+{
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+	
+	private Wallet wallet;
+	
+	private Blockchain blockchain;
+	
+	@Before
+	public void setUp()
+	{
+		wallet = new Wallet();
+		blockchain = new Blockchain(wallet.address(), 100, Target.ofLeadingZeroBits(0));
+	}
+	
+	@Test
+	public void canDecodeEncodedBlock()
+	{
+		Block block = someBlock();
+		
+		Block actual = BlockCodec.decodeBlock(ByteBuffer.wrap(BlockCodec.encode(block)));
+		
+		assertThat("hash", actual.hash(), is(block.hash()));
+		assertThat("merkle root", actual.merkleRoot(), is(block.merkleRoot()));
+	}
+	
+	@Test
+	public void canDecodeEncodedBlockWithTransactions()
+	{
+		Block block = new Block(asList(someTransaction(), blockchain.tail().transactions().get(0)),
+			blockchain.tail().hash());
+		
+		Block actual = BlockCodec.decodeBlock(ByteBuffer.wrap(BlockCodec.encode(block)));
+		
+		assertThat("hash", actual.hash(), is(block.hash()));
+		assertThat("transactions", actual.transactions().size(), is(2));
+	}
+	
+	@Test
+	public void canDecodeEncodedTransaction()
+	{
+		Transaction transaction = someTransaction();
+		
+		Transaction actual = BlockCodec.decodeTransaction(ByteBuffer.wrap(BlockCodec.encode(transaction)));
+		
+		assertThat("id", actual.id(), is(transaction.id()));
+		assertThat("signature", actual.inputs().get(0).signature(), is(transaction.inputs().get(0).signature()));
+		assertThat("recipient", actual.outputs().get(0).recipient(), is(transaction.outputs().get(0).recipient()));
+		assertThat("amount", actual.outputs().get(0).amount(), is(transaction.outputs().get(0).amount()));
+	}
+	
+	@Test
+	public void canDecodeEncodedUnsignedTransaction()
+	{
+		Transaction transaction = blockchain.tail().transactions().get(0);
+		
+		Transaction actual = BlockCodec.decodeTransaction(ByteBuffer.wrap(BlockCodec.encode(transaction)));
+		
+		assertThat(actual.inputs().get(0).signature(), is(nullValue()));
+	}
+	
+	@Test
+	public void canDecodeBlocksFromStream()
+	{
+		Block block1 = someBlock();
+		Block block2 = blockchain.tail();
+		ByteBuffer buffer = ByteBuffer.allocate(BlockCodec.encodedLength(block1) + BlockCodec.encodedLength(block2));
+		BlockCodec.encode(block1, buffer);
+		BlockCodec.encode(block2, buffer);
+		buffer.flip();
+		
+		Block actual1 = BlockCodec.decodeBlock(buffer);
+		Block actual2 = BlockCodec.decodeBlock(buffer);
+		
+		assertThat("block1", actual1.hash(), is(block1.hash()));
+		assertThat("block2", actual2.hash(), is(block2.hash()));
+		assertThat("remaining", buffer.remaining(), is(0));
+	}
+	
+	@Test
+	public void canEncodeBlockToEncodedLength()
+	{
+		Block block = someBlock();
+		
+		byte[] actual = BlockCodec.encode(block);
+		
+		assertThat(actual.length, is(BlockCodec.encodedLength(block)));
+	}
+	
+	@Test
+	public void cannotDecodeBlockWithUnsupportedVersion()
+	{
+		byte[] bytes = BlockCodec.encode(someBlock());
+		bytes[0] = (byte) (BlockCodec.VERSION + 1);
+		
+		thrown.expect(HobcoinException.class);
+		thrown.expectMessage("Unsupported encoding version");
+		
+		BlockCodec.decodeBlock(ByteBuffer.wrap(bytes));
+	}
+	
+	@Test
+	public void cannotDecodeTruncatedBlock()
+	{
+		byte[] bytes = BlockCodec.encode(someBlock());
+		ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, bytes.length - 1);
+		
+		thrown.expect(HobcoinException.class);
+		thrown.expectMessage("Malformed block");
+		
+		BlockCodec.decodeBlock(buffer);
+	}
+	
+	@Test
+	public void cannotDecodeBlockWithOversizedTransactionCount()
+	{
+		ByteBuffer buffer = record(new byte[Hash256.LENGTH], varint(0), new byte[4], varint(Integer.MAX_VALUE),
+			new byte[2]);
+		
+		thrown.expect(HobcoinException.class);
+		thrown.expectMessage("Malformed block");
+		
+		BlockCodec.decodeBlock(buffer);
+	}
+	
+	@Test
+	public void cannotDecodeTransactionWithOversizedInputCount()
+	{
+		ByteBuffer buffer = record(varint(Integer.MAX_VALUE), new byte[40]);
+		
+		thrown.expect(HobcoinException.class);
+		thrown.expectMessage("Malformed transaction");
+		
+		BlockCodec.decodeTransaction(buffer);
+	}
+	
+	@Test
+	public void cannotDecodeTransactionWithOversizedOutputCount()
+	{
+		ByteBuffer buffer = record(varint(0), varint(Integer.MAX_VALUE), new byte[40]);
+		
+		thrown.expect(HobcoinException.class);
+		thrown.expectMessage("Malformed transaction");
+		
+		BlockCodec.decodeTransaction(buffer);
+	}
+	
+	@Test
+	public void cannotDecodeTransactionWithOversizedOutputIndex()
+	{
+		ByteBuffer buffer = record(varint(1), new byte[Hash256.LENGTH], varint(Integer.MAX_VALUE), new byte[40]);
+		
+		thrown.expect(HobcoinException.class);
+		thrown.expectMessage("Malformed transaction");
+		
+		BlockCodec.decodeTransaction(buffer);
+	}
+	
+	@Test
+	public void cannotDecodeTransactionWithOversizedSignatureLength()
+	{
+		ByteBuffer buffer = record(varint(1), new byte[Hash256.LENGTH], varint(0), varint(Integer.MAX_VALUE),
+			new byte[40]);
+		
+		thrown.expect(HobcoinException.class);
+		thrown.expectMessage("Malformed transaction");
+		
+		BlockCodec.decodeTransaction(buffer);
+	}
+	
+	@Test
+	public void canDecodeEncodedHeader()
+	{
+		Header header = Header.of(someBlock().mine(blockchain.difficulty()));
+		byte[] bytes = BlockCodec.encode(header, ByteBuffer.allocate(BlockCodec.HEADER_LENGTH)).array();
+		
+		Header actual = BlockCodec.decodeHeader(ByteBuffer.wrap(bytes));
+		
+		assertThat("hash", actual.hash(), is(header.hash()));
+		assertThat("previous hash", actual.previousHash(), is(header.previousHash()));
+		assertThat("merkle root", actual.merkleRoot(), is(header.merkleRoot()));
+		assertThat("timestamp", actual.timestamp(), is(header.timestamp()));
+		assertThat("nonce", actual.nonce(), is(header.nonce()));
+	}
+	
+	@Test
+	public void cannotDecodeTruncatedHeader()
+	{
+		byte[] bytes = BlockCodec.encode(Header.of(someBlock()), ByteBuffer.allocate(BlockCodec.HEADER_LENGTH)).array();
+		ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, bytes.length - 1);
+		
+		thrown.expect(HobcoinException.class);
+		thrown.expectMessage("Malformed header");
+		
+		BlockCodec.decodeHeader(buffer);
+	}
+	
+	private static ByteBuffer record(byte[]... fields)
+	{
+		int bodyLength = Arrays.stream(fields)
+			.mapToInt(field -> field.length)
+			.sum();
+		byte[] length = varint(bodyLength);
+		ByteBuffer buffer = ByteBuffer.allocate(1 + length.length + bodyLength);
+		
+		buffer.put((byte) BlockCodec.VERSION);
+		buffer.put(length);
+		Arrays.stream(fields).forEach(buffer::put);
+		
+		buffer.flip();
+		return buffer;
+	}
+	
+	private static byte[] varint(long value)
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(10);
+		long remaining = value;
+		
+		while ((remaining & ~0x7fL) != 0)
+		{
+			buffer.put((byte) (remaining & 0x7f | 0x80));
+			remaining >>>= 7;
+		}
+		
+		buffer.put((byte) remaining);
+		return Arrays.copyOf(buffer.array(), buffer.position());
+	}
+	
+	private Block someBlock()
+	{
+		return new Block(someTransaction(), blockchain.tail().hash());
+	}
+	
+	private Transaction someTransaction()
+	{
+		return wallet.transfer(blockchain, new Wallet().address(), 40);
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code BlockTemplateBuilder}.
+ */
+public class BlockTemplateBuilderTest
+{
+	private Wallet wallet;
+	
+	private Wallet otherWallet;
+	
+	private Blockchain blockchain;
+	
+	private TransactionPool pool;
+	
+	@Before
+	public void setUp()
+	{
+		wallet = new Wallet();
+		otherWallet = new Wallet();
+		blockchain = new Blockchain(wallet.address(), 100, Target.ofLeadingZeroBits(0));
+		blockchain.add(new Block(wallet.transfer(blockchain, otherWallet.address(), 50), blockchain.tail().hash()));
+		pool = new TransactionPool(blockchain, 1024 * 1024);
+	}
+	
+	@Test
+	public void canBuildBlockOfPooledTransactions()
+	{
+		Transaction lowFeeTransaction = wallet.transfer(blockchain, new Wallet().address(), 10, 1);
+		Transaction highFeeTransaction = otherWallet.transfer(blockchain, new Wallet().address(), 10, 5);
+		pool.add(lowFeeTransaction).add(highFeeTransaction);
+		
+		Block block = new BlockTemplateBuilder(blockchain, pool).build().get();
+		
+		assertThat("previous hash", block.previousHash(), is(blockchain.tail().hash()));
+		assertThat("transactions", block.transactions(), contains(highFeeTransaction, lowFeeTransaction));
+	}
+	
+	@Test
+	public void canBuildBlockThatBlockchainAccepts()
+	{
+		pool.add(wallet.transfer(blockchain, new Wallet().address(), 10, 1));
+		pool.add(otherWallet.transfer(blockchain, new Wallet().address(), 10, 5));
+		Block block = new BlockTemplateBuilder(blockchain, pool).build().get()
+			.mine(blockchain.difficulty());
+		
+		blockchain.add(block);
+		
+		assertThat("height", blockchain.height(), is(3));
+		assertThat("pool", pool.count(), is(0));
+	}
+	
+	@Test
+	public void canBuildBlockWithinMaximumSize()
+	{
+		Transaction lowFeeTransaction = wallet.transfer(blockchain, new Wallet().address(), 10, 1);
+		Transaction highFeeTransaction = otherWallet.transfer(blockchain, new Wallet().address(), 10, 5);
+		pool.add(lowFeeTransaction).add(highFeeTransaction);
+		int maximumSize = BlockCodec.encodedLength(new Block(highFeeTransaction, blockchain.tail().hash())) + 20;
+		
+		Block block = new BlockTemplateBuilder(blockchain, pool).maximumSize(maximumSize).build().get();
+		
+		assertThat("transactions", block.transactions(), contains(highFeeTransaction));
+	}
+	
+	@Test
+	public void canBuildNoBlockWhenPoolEmpty()
+	{
+		Optional<Block> block = new BlockTemplateBuilder(blockchain, pool).build();
+		
+		assertThat(block.isPresent(), is(false));
+	}
+}
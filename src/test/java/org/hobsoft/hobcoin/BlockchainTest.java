@@ -13,19 +13,37 @@
  */
 package org.hobsoft.hobcoin;
 
+import java.nio.file.Path;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
+import com.google.common.base.Strings;
+import com.google.common.collect.Iterables;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -36,6 +54,9 @@ public class BlockchainTest
 	@Rule
 	public ExpectedException thrown = ExpectedException.none();
 	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
 	private Wallet wallet;
 	
 	private Blockchain blockchain;
@@ -44,7 +65,7 @@ public class BlockchainTest
 	public void setUp()
 	{
 		wallet = new Wallet();
-		blockchain = new Blockchain(wallet.address(), 100, 2);
+		blockchain = new Blockchain(wallet.address(), 100, Target.ofLeadingZeroHexDigits(2));
 	}
 	
 	@Test
@@ -58,17 +79,658 @@ public class BlockchainTest
 		assertThat(blockchain.height(), is(2));
 	}
 	
+	@Test
+	public void canAddBlockWithTransactions()
+	{
+		Wallet otherWallet = new Wallet();
+		blockchain.add(new Block(wallet.transfer(blockchain, otherWallet.address(), 40), blockchain.tail().hash())
+			.mine(blockchain.difficulty()));
+		PublicKey recipient = new Wallet().address();
+		List<Transaction> transactions = asList(
+			wallet.transfer(blockchain, recipient, 10),
+			otherWallet.transfer(blockchain, recipient, 20)
+		);
+		
+		blockchain.add(new Block(transactions, blockchain.tail().hash())
+			.mine(blockchain.difficulty()));
+		
+		assertThat(blockchain.balance(recipient), is(30L));
+	}
+	
+	@Test
+	public void canAddBlockWithTransactionFee()
+	{
+		PublicKey recipient = new Wallet().address();
+		Block block = new Block(wallet.transfer(blockchain, recipient, 40, 5), blockchain.tail().hash())
+			.mine(blockchain.difficulty());
+		
+		blockchain.add(block);
+		
+		assertThat("recipient", blockchain.balance(recipient), is(40L));
+		assertThat("sender", blockchain.balance(wallet.address()), is(55L));
+	}
+	
+	@Test
+	public void canReadBlockchainWhileAddingBlocks() throws Exception
+	{
+		Blockchain blockchain = new Blockchain(wallet.address(), 100, Target.ofLeadingZeroBits(0));
+		AtomicBoolean adding = new AtomicBoolean(true);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<?> reader = executor.submit(() ->
+		{
+			while (adding.get())
+			{
+				int height = blockchain.height();
+				assertThat("blocks", Iterables.size(blockchain), is(greaterThanOrEqualTo(height)));
+				assertThat("balance", blockchain.balance(wallet.address()), is(100L));
+			}
+		});
+		
+		for (int index = 0; index < 20; index++)
+		{
+			blockchain.add(new Block(wallet.transfer(blockchain, wallet.address(), 1), blockchain.tail().hash()));
+		}
+		adding.set(false);
+		
+		reader.get();
+		executor.shutdown();
+		assertThat(blockchain.height(), is(21));
+	}
+	
+	@Test
+	public void canGetBlockByHeight()
+	{
+		Block block = new Block(someTransaction(), blockchain.tail().hash())
+			.mine(blockchain.difficulty());
+		blockchain.add(block);
+		
+		assertThat(blockchain.block(1).get().hash(), is(block.hash()));
+	}
+	
+	@Test
+	public void canGetBlockByHash()
+	{
+		Block block = new Block(someTransaction(), blockchain.tail().hash())
+			.mine(blockchain.difficulty());
+		blockchain.add(block);
+		
+		assertThat(blockchain.block(block.hash()).get().hash(), is(block.hash()));
+	}
+	
+	@Test
+	public void canGetBlockByHashFromReopenedBlockchain()
+	{
+		MappedBlockStore blocks = new MappedBlockStore(folder.getRoot().toPath());
+		Blockchain blockchain = new Blockchain(blocks, wallet.address(), 100, Target.ofLeadingZeroHexDigits(2));
+		Block block = new Block(someTransaction(), blockchain.tail().hash())
+			.mine(blockchain.difficulty());
+		blockchain.add(block);
+		blocks.close();
+		
+		Blockchain reopenedBlockchain = new Blockchain(new MappedBlockStore(folder.getRoot().toPath()),
+			new Wallet().address(), 100, Target.ofLeadingZeroHexDigits(2));
+		
+		assertThat(reopenedBlockchain.block(block.hash()).get().hash(), is(block.hash()));
+	}
+	
+	@Test
+	public void cannotGetBlockBeyondTail()
+	{
+		assertThat(blockchain.block(1).isPresent(), is(false));
+	}
+	
+	@Test
+	public void cannotGetBlockByUnknownHash()
+	{
+		assertThat(blockchain.block(someHash()).isPresent(), is(false));
+	}
+	
+	@Test
+	public void canGetTransaction()
+	{
+		Wallet otherWallet = new Wallet();
+		blockchain.add(new Block(wallet.transfer(blockchain, otherWallet.address(), 40), blockchain.tail().hash())
+			.mine(blockchain.difficulty()));
+		Transaction transaction = otherWallet.transfer(blockchain, wallet.address(), 20);
+		blockchain.add(new Block(asList(someTransaction(), transaction), blockchain.tail().hash())
+			.mine(blockchain.difficulty()));
+		
+		Hash256 id = transaction.id();
+		assertThat("location", blockchain.transactionLocation(id).get(), is(new TransactionLocation(2, 1)));
+		assertThat("transaction", blockchain.transaction(id).get().id(), is(id));
+	}
+	
+	@Test
+	public void canGetTransactionFromReopenedBlockchain()
+	{
+		MappedBlockStore blocks = new MappedBlockStore(folder.getRoot().toPath());
+		Blockchain blockchain = new Blockchain(blocks, wallet.address(), 100, Target.ofLeadingZeroHexDigits(2));
+		Transaction transaction = wallet.transfer(blockchain, new Wallet().address(), 40);
+		blockchain.add(new Block(transaction, blockchain.tail().hash())
+			.mine(blockchain.difficulty()));
+		blocks.close();
+		
+		Blockchain reopenedBlockchain = new Blockchain(new MappedBlockStore(folder.getRoot().toPath()),
+			new Wallet().address(), 100, Target.ofLeadingZeroHexDigits(2));
+		
+		assertThat(reopenedBlockchain.transactionLocation(transaction.id()).get(), is(new TransactionLocation(1, 0)));
+	}
+	
+	@Test
+	public void canGetTransactionsAfterAddingBlockToReopenedBlockchain()
+	{
+		MappedBlockStore blocks = new MappedBlockStore(folder.getRoot().toPath());
+		Blockchain blockchain = new Blockchain(blocks, wallet.address(), 100, Target.ofLeadingZeroHexDigits(2));
+		Transaction transaction1 = wallet.transfer(blockchain, new Wallet().address(), 40);
+		blockchain.add(new Block(transaction1, blockchain.tail().hash())
+			.mine(blockchain.difficulty()));
+		blocks.close();
+		Blockchain reopenedBlockchain = new Blockchain(new MappedBlockStore(folder.getRoot().toPath()),
+			new Wallet().address(), 100, Target.ofLeadingZeroHexDigits(2));
+		Transaction transaction2 = wallet.transfer(reopenedBlockchain, new Wallet().address(), 20);
+		
+		reopenedBlockchain.add(new Block(transaction2, reopenedBlockchain.tail().hash())
+			.mine(reopenedBlockchain.difficulty()));
+		
+		assertThat("transaction1", reopenedBlockchain.transactionLocation(transaction1.id()).get(),
+			is(new TransactionLocation(1, 0)));
+		assertThat("transaction2", reopenedBlockchain.transactionLocation(transaction2.id()).get(),
+			is(new TransactionLocation(2, 0)));
+		assertThat("unknown", reopenedBlockchain.transaction(someHash()).isPresent(), is(false));
+	}
+	
+	@Test
+	public void canReadTransactionFromItsBlock()
+	{
+		Transaction transaction = wallet.transfer(blockchain, new Wallet().address(), 40);
+		Block block = new Block(transaction, blockchain.tail().hash()).mine(blockchain.difficulty());
+		blockchain.add(block);
+		
+		Hash256 blockHash = blockchain.transaction(transaction.id(), (transactionBlock, location) ->
+			transactionBlock.hash()).get();
+		
+		assertThat(blockHash, is(block.hash()));
+	}
+	
+	@Test
+	public void cannotGetUnknownTransaction()
+	{
+		assertThat(blockchain.transaction(someHash()).isPresent(), is(false));
+	}
+	
+	@Test
+	public void canReopenBlockchain()
+	{
+		MappedBlockStore blocks = new MappedBlockStore(folder.getRoot().toPath());
+		Blockchain blockchain = new Blockchain(blocks, wallet.address(), 100, Target.ofLeadingZeroHexDigits(2));
+		PublicKey recipient = new Wallet().address();
+		blockchain.add(new Block(wallet.transfer(blockchain, recipient, 40), blockchain.tail().hash())
+			.mine(blockchain.difficulty()));
+		blocks.close();
+		
+		Blockchain reopenedBlockchain = new Blockchain(new MappedBlockStore(folder.getRoot().toPath()),
+			new Wallet().address(), 100, Target.ofLeadingZeroHexDigits(2));
+		
+		assertThat("height", reopenedBlockchain.height(), is(2));
+		assertThat("balance", reopenedBlockchain.balance(recipient), is(40L));
+	}
+	
+	@Test
+	public void canReopenBlockchainFromSnapshot()
+	{
+		Path blocksDirectory = folder.getRoot().toPath().resolve("blocks");
+		MappedBlockStore blocks = new MappedBlockStore(blocksDirectory);
+		SnapshotStore snapshots = new FileSnapshotStore(folder.getRoot().toPath().resolve("snapshots"), 2);
+		Blockchain blockchain = new Blockchain(blocks, snapshots, new SignatureVerifier(), wallet.address(), 100,
+			Target.ofLeadingZeroHexDigits(2));
+		PublicKey recipient = new Wallet().address();
+		for (int index = 0; index < 2; index++)
+		{
+			blockchain.add(new Block(wallet.transfer(blockchain, recipient, 10), blockchain.tail().hash())
+				.mine(blockchain.difficulty()));
+		}
+		blocks.close();
+		
+		Blockchain reopenedBlockchain = new Blockchain(new MappedBlockStore(blocksDirectory),
+			snapshots, new SignatureVerifier(), new Wallet().address(), 100, Target.ofLeadingZeroHexDigits(2));
+		
+		assertThat("snapshot height", snapshots.latest().get().height(), is(2));
+		assertThat("height", reopenedBlockchain.height(), is(3));
+		assertThat("recipient balance", reopenedBlockchain.balance(recipient), is(20L));
+		assertThat("sender balance", reopenedBlockchain.balance(wallet.address()), is(80L));
+	}
+	
+	@Test
+	public void canReorganizeBlockchainReopenedFromSnapshot()
+	{
+		Path blocksDirectory = folder.getRoot().toPath().resolve("blocks");
+		MappedBlockStore blocks = new MappedBlockStore(blocksDirectory);
+		SnapshotStore snapshots = new FileSnapshotStore(folder.getRoot().toPath().resolve("snapshots"), 2);
+		Blockchain blockchain = new Blockchain(blocks, snapshots, new SignatureVerifier(), wallet.address(), 100,
+			Target.ofLeadingZeroHexDigits(2));
+		for (int index = 0; index < 3; index++)
+		{
+			mine(blockchain, new Wallet().address(), 10);
+		}
+		blocks.close();
+		Blockchain reopenedBlockchain = new Blockchain(new MappedBlockStore(blocksDirectory),
+			snapshots, new SignatureVerifier(), new Wallet().address(), 100, Target.ofLeadingZeroHexDigits(2));
+		Blockchain branch = new Blockchain(wallet.address(), 100, Target.ofLeadingZeroHexDigits(2));
+		PublicKey sideRecipient = new Wallet().address();
+		List<Block> sideBlocks = new ArrayList<>();
+		for (int index = 0; index < 4; index++)
+		{
+			sideBlocks.add(mine(branch, sideRecipient, 10));
+		}
+		
+		sideBlocks.forEach(reopenedBlockchain::add);
+		
+		assertThat("snapshot height", snapshots.latest().get().height(), is(4));
+		assertThat("tail", reopenedBlockchain.tail().hash(), is(sideBlocks.get(3).hash()));
+		assertThat("balance", reopenedBlockchain.balance(sideRecipient), is(40L));
+	}
+	
+	@Test
+	public void canReopenBlockchainIgnoringUnknownSnapshot()
+	{
+		Path blocksDirectory = folder.getRoot().toPath().resolve("blocks");
+		MappedBlockStore blocks = new MappedBlockStore(blocksDirectory);
+		Blockchain blockchain = new Blockchain(blocks, wallet.address(), 100, Target.ofLeadingZeroHexDigits(2));
+		PublicKey recipient = new Wallet().address();
+		blockchain.add(new Block(wallet.transfer(blockchain, recipient, 10), blockchain.tail().hash())
+			.mine(blockchain.difficulty()));
+		blocks.close();
+		SnapshotStore snapshots = new FileSnapshotStore(folder.getRoot().toPath().resolve("snapshots"), 10);
+		snapshots.save(new UnspentTransactionOutputsSnapshot(1, someHash(), 0, emptyList()));
+		
+		Blockchain reopenedBlockchain = new Blockchain(new MappedBlockStore(blocksDirectory),
+			snapshots, new SignatureVerifier(), new Wallet().address(), 100, Target.ofLeadingZeroHexDigits(2));
+		
+		assertThat(reopenedBlockchain.balance(recipient), is(10L));
+	}
+	
+	@Test
+	public void canAddBlockToSideBranch()
+	{
+		Block block1 = mine(blockchain, new Wallet().address(), 10);
+		Block sideBlock1 = mine(newBranch(), new Wallet().address(), 20);
+		
+		blockchain.add(sideBlock1);
+		
+		assertThat("tail", blockchain.tail().hash(), is(block1.hash()));
+		assertThat("contains", blockchain.contains(sideBlock1.hash()), is(true));
+	}
+	
+	@Test
+	public void canReorganizeToBranchWithMoreWork()
+	{
+		mine(blockchain, new Wallet().address(), 10);
+		Blockchain branch = newBranch();
+		Block sideBlock1 = mine(branch, new Wallet().address(), 20);
+		Block sideBlock2 = mine(branch, new Wallet().address(), 30);
+		
+		blockchain.add(sideBlock1).add(sideBlock2);
+		
+		assertThat("tail", blockchain.tail().hash(), is(sideBlock2.hash()));
+		assertThat("height", blockchain.height(), is(3));
+	}
+	
+	@Test
+	public void canGetHeadersInRange()
+	{
+		Block block1 = mine(blockchain, new Wallet().address(), 10);
+		Block block2 = mine(blockchain, new Wallet().address(), 10);
+		
+		Iterable<Header> headers = blockchain.headers(1, 5);
+		
+		assertThat(Iterables.transform(headers, Header::hash), contains(block1.hash(), block2.hash()));
+	}
+	
+	@Test
+	public void cannotIterateHeadersAcrossReorganization()
+	{
+		mine(blockchain, new Wallet().address(), 10);
+		mine(blockchain, new Wallet().address(), 10);
+		Blockchain branch = newBranch();
+		Block sideBlock1 = mine(branch, new Wallet().address(), 20);
+		Block sideBlock2 = mine(branch, new Wallet().address(), 20);
+		Block sideBlock3 = mine(branch, new Wallet().address(), 20);
+		Iterator<Header> headers = blockchain.headers(1, 2).iterator();
+		headers.next();
+		
+		blockchain.add(sideBlock1).add(sideBlock2).add(sideBlock3);
+		
+		thrown.expect(HobcoinException.class);
+		thrown.expectMessage("Blocks reorganized during iteration at height 2");
+		
+		headers.next();
+	}
+	
+	@Test
+	public void canIterateBlocksOntoReorganizedBranch()
+	{
+		mine(blockchain, new Wallet().address(), 10);
+		mine(blockchain, new Wallet().address(), 10);
+		Blockchain branch = newBranch();
+		Block sideBlock1 = mine(branch, new Wallet().address(), 20);
+		Block sideBlock2 = mine(branch, new Wallet().address(), 20);
+		Block sideBlock3 = mine(branch, new Wallet().address(), 20);
+		Iterator<Block> blocks = blockchain.blocks(0, 2).iterator();
+		blocks.next();
+		
+		blockchain.add(sideBlock1).add(sideBlock2).add(sideBlock3);
+		
+		assertThat(blocks.next().hash(), is(sideBlock1.hash()));
+	}
+	
+	@Test
+	public void cannotIterateBlocksAcrossReorganization()
+	{
+		mine(blockchain, new Wallet().address(), 10);
+		mine(blockchain, new Wallet().address(), 10);
+		Blockchain branch = newBranch();
+		Block sideBlock1 = mine(branch, new Wallet().address(), 20);
+		Block sideBlock2 = mine(branch, new Wallet().address(), 20);
+		Block sideBlock3 = mine(branch, new Wallet().address(), 20);
+		Iterator<Block> blocks = blockchain.blocks(1, 2).iterator();
+		blocks.next();
+		
+		blockchain.add(sideBlock1).add(sideBlock2).add(sideBlock3);
+		
+		thrown.expect(HobcoinException.class);
+		thrown.expectMessage("Blocks reorganized during iteration at height 2");
+		
+		blocks.next();
+	}
+	
+	@Test
+	public void canUndoUnspentTransactionOutputsWhenReorganizing()
+	{
+		PublicKey recipient = new Wallet().address();
+		mine(blockchain, recipient, 10);
+		Blockchain branch = newBranch();
+		PublicKey sideRecipient = new Wallet().address();
+		Block sideBlock1 = mine(branch, sideRecipient, 20);
+		Block sideBlock2 = mine(branch, sideRecipient, 30);
+		
+		blockchain.add(sideBlock1).add(sideBlock2);
+		
+		assertThat("recipient", blockchain.balance(recipient), is(0L));
+		assertThat("side recipient", blockchain.balance(sideRecipient), is(50L));
+		assertThat("sender", blockchain.balance(wallet.address()), is(50L));
+	}
+	
+	@Test
+	public void canGetTransactionsWhenReorganized()
+	{
+		Block block1 = mine(blockchain, new Wallet().address(), 10);
+		Blockchain branch = newBranch();
+		Block sideBlock1 = mine(branch, new Wallet().address(), 20);
+		Block sideBlock2 = mine(branch, new Wallet().address(), 30);
+		
+		blockchain.add(sideBlock1).add(sideBlock2);
+		
+		assertThat("removed", blockchain.transaction(block1.transactions().get(0).id()).isPresent(), is(false));
+		assertThat("added", blockchain.transaction(sideBlock2.transactions().get(0).id()).isPresent(), is(true));
+	}
+	
+	@Test
+	public void canReorganizeBackToOriginalBranch()
+	{
+		Blockchain branch = newBranch();
+		PublicKey recipient = new Wallet().address();
+		Block block1 = mine(branch, recipient, 10);
+		Block block2 = mine(branch, recipient, 10);
+		Block block3 = mine(branch, recipient, 10);
+		Blockchain sideBranch = newBranch();
+		blockchain.add(block1)
+			.add(mine(sideBranch, new Wallet().address(), 20))
+			.add(mine(sideBranch, new Wallet().address(), 30));
+		
+		blockchain.add(block2).add(block3);
+		
+		assertThat("tail", blockchain.tail().hash(), is(block3.hash()));
+		assertThat("balance", blockchain.balance(recipient), is(30L));
+	}
+	
+	@Test
+	public void canNotifyListenersWhenReorganizing()
+	{
+		Block block1 = mine(blockchain, new Wallet().address(), 10);
+		Blockchain branch = newBranch();
+		Block sideBlock1 = mine(branch, new Wallet().address(), 20);
+		Block sideBlock2 = mine(branch, new Wallet().address(), 30);
+		List<String> events = new ArrayList<>();
+		blockchain.addListener(new BlockchainListener()
+		{
+			@Override
+			public void blockAdded(Block block)
+			{
+				events.add("added " + block.hash());
+			}
+			
+			@Override
+			public void blockRemoved(Block block)
+			{
+				events.add("removed " + block.hash());
+			}
+		});
+		
+		blockchain.add(sideBlock1).add(sideBlock2);
+		
+		assertThat(events, contains("removed " + block1.hash(), "added " + sideBlock1.hash(),
+			"added " + sideBlock2.hash()));
+	}
+	
+	@Test
+	public void canReopenReorganizedBlockchain()
+	{
+		MappedBlockStore blocks = new MappedBlockStore(folder.getRoot().toPath());
+		Blockchain blockchain = new Blockchain(blocks, wallet.address(), 100, Target.ofLeadingZeroHexDigits(2));
+		mine(blockchain, new Wallet().address(), 10);
+		Blockchain branch = newBranch();
+		PublicKey sideRecipient = new Wallet().address();
+		Block sideBlock1 = mine(branch, sideRecipient, 20);
+		Block sideBlock2 = mine(branch, sideRecipient, 30);
+		blockchain.add(sideBlock1).add(sideBlock2);
+		blocks.close();
+		
+		Blockchain reopenedBlockchain = new Blockchain(new MappedBlockStore(folder.getRoot().toPath()),
+			new Wallet().address(), 100, Target.ofLeadingZeroHexDigits(2));
+		
+		assertThat("tail", reopenedBlockchain.tail().hash(), is(sideBlock2.hash()));
+		assertThat("balance", reopenedBlockchain.balance(sideRecipient), is(50L));
+	}
+	
+	@Test
+	public void canKeepBranchWhenReorganizingToInvalidBranch()
+	{
+		PublicKey recipient = new Wallet().address();
+		Block block1 = mine(blockchain, recipient, 10);
+		Block sideBlock1 = mine(newBranch(), new Wallet().address(), 20);
+		Block sideBlock2 = new Block(someInvalidTransaction(), sideBlock1.hash())
+			.mine(blockchain.difficulty());
+		blockchain.add(sideBlock1);
+		
+		try
+		{
+			blockchain.add(sideBlock2);
+		}
+		catch (InvalidTransactionException exception)
+		{
+			// expected
+		}
+		
+		assertThat("tail", blockchain.tail().hash(), is(block1.hash()));
+		assertThat("balance", blockchain.balance(recipient), is(10L));
+		assertThat("transaction", blockchain.transaction(block1.transactions().get(0).id()).isPresent(), is(true));
+		assertThat("side block", blockchain.contains(sideBlock1.hash()), is(true));
+		assertThat("invalid side block", blockchain.contains(sideBlock2.hash()), is(false));
+	}
+	
+	@Test
+	public void cannotReorganizeToBranchWithInvalidTransaction()
+	{
+		mine(blockchain, new Wallet().address(), 10);
+		Block sideBlock1 = mine(newBranch(), new Wallet().address(), 20);
+		Block sideBlock2 = new Block(someInvalidTransaction(), sideBlock1.hash())
+			.mine(blockchain.difficulty());
+		blockchain.add(sideBlock1);
+		
+		thrown.expect(InvalidTransactionException.class);
+		
+		blockchain.add(sideBlock2);
+	}
+	
+	@Test
+	public void cannotAddDuplicateBlock()
+	{
+		Block block = mine(blockchain, new Wallet().address(), 10);
+		
+		thrown.expect(InvalidBlockException.class);
+		thrown.expectMessage("Duplicate block");
+		
+		blockchain.add(block);
+	}
+	
+	@Test
+	public void cannotAddBlockForkingBelowMaximumReorganizationDepth()
+	{
+		Blockchain blockchain = new Blockchain(wallet.address(), 100, Target.ofLeadingZeroBits(0));
+		Block sideBlock1 = mine(newBranch(blockchain), new Wallet().address(), 20);
+		
+		for (int index = 0; index <= Blockchain.MAX_REORGANIZATION_DEPTH; index++)
+		{
+			mine(blockchain, wallet.address(), 1);
+		}
+		
+		thrown.expect(InvalidBlockException.class);
+		thrown.expectMessage("Fork is too deep");
+		
+		blockchain.add(sideBlock1);
+	}
+	
 	// TODO: cannotAddBlockWithInvalidHash
 	
-	// TODO: cannotAddBlockWithPastTimestamp
+	@Test
+	public void canAdjustDifficultyFromBlockTimestamps()
+	{
+		Blockchain blockchain = newAdjustedBlockchain(new MemoryBlockStore());
+		long timestamp = anHourAgo();
+		
+		mine(blockchain, timestamp);
+		mine(blockchain, timestamp);
+		
+		assertThat(blockchain.difficulty(), is(Target.ofLeadingZeroBits(2)));
+	}
+	
+	@Test
+	public void canGetDifficultyAtHeight()
+	{
+		Blockchain blockchain = newAdjustedBlockchain(new MemoryBlockStore());
+		long timestamp = anHourAgo();
+		
+		mine(blockchain, timestamp);
+		mine(blockchain, timestamp);
+		mine(blockchain, timestamp);
+		
+		assertThat(blockchain.difficultyAt(3).target(), is(Target.ofLeadingZeroBits(2)));
+	}
+	
+	@Test
+	public void canReopenBlockchainWithAdjustedDifficulty()
+	{
+		BlockStore blocks = new MemoryBlockStore();
+		Blockchain blockchain = newAdjustedBlockchain(blocks);
+		long timestamp = anHourAgo();
+		mine(blockchain, timestamp);
+		mine(blockchain, timestamp);
+		
+		Blockchain reopenedBlockchain = newAdjustedBlockchain(blocks);
+		
+		assertThat(reopenedBlockchain.difficulty(), is(Target.ofLeadingZeroBits(2)));
+	}
+	
+	@Test
+	public void canReorganizeToShorterBranchWithMoreWork()
+	{
+		Blockchain blockchain = newAdjustedBlockchain(new MemoryBlockStore());
+		Blockchain branch = newAdjustedBlockchain(new MemoryBlockStore());
+		long timestamp = anHourAgo();
+		
+		for (int index = 0; index < 4; index++)
+		{
+			mine(blockchain, timestamp + TimeUnit.MINUTES.toMillis(10 * index));
+		}
+		
+		long sideTimestamp = timestamp + TimeUnit.SECONDS.toMillis(1);
+		Block sideBlock1 = mine(branch, sideTimestamp);
+		Block sideBlock2 = mine(branch, sideTimestamp);
+		Block sideBlock3 = mine(branch, sideTimestamp);
+		
+		blockchain.add(sideBlock1);
+		blockchain.add(sideBlock2);
+		blockchain.add(sideBlock3);
+		
+		assertThat(blockchain.height(), is(4));
+		assertThat(blockchain.tail(), is(sideBlock3));
+	}
+	
+	@Test
+	public void cannotAddBlockWithPastTimestamp()
+	{
+		mine(blockchain, wallet.address(), 1);
+		mine(blockchain, wallet.address(), 1);
+		Block block = new Block(singletonList(someTransaction()), blockchain.tail().hash(), 1, 0)
+			.mine(blockchain.difficulty());
+		
+		thrown.expect(InvalidBlockException.class);
+		thrown.expectMessage("Block timestamp is too early");
+		
+		blockchain.add(block);
+	}
+	
+	@Test
+	public void cannotAddBlockWithFutureTimestamp()
+	{
+		long timestamp = System.currentTimeMillis() + Blockchain.MAX_TIMESTAMP_DRIFT + TimeUnit.HOURS.toMillis(1);
+		Block block = new Block(singletonList(someTransaction()), blockchain.tail().hash(), timestamp, 0)
+			.mine(blockchain.difficulty());
+		
+		thrown.expect(InvalidBlockException.class);
+		thrown.expectMessage("Block timestamp is too late");
+		
+		blockchain.add(block);
+	}
+	
+	@Test
+	public void cannotAddBlockNotMinedToAdjustedDifficulty()
+	{
+		Blockchain blockchain = newAdjustedBlockchain(new MemoryBlockStore());
+		long timestamp = anHourAgo();
+		mine(blockchain, timestamp);
+		mine(blockchain, timestamp);
+		Block block = new Block(wallet.transfer(blockchain, wallet.address(), 1), blockchain.tail().hash());
+		
+		while (block.isMined(blockchain.difficulty()))
+		{
+			block.setNonce(block.nonce() + 1);
+		}
+		
+		thrown.expect(InvalidBlockException.class);
+		thrown.expectMessage("Unmined block");
+		
+		blockchain.add(block);
+	}
 	
 	@Test
 	public void cannotAddBlockWithInvalidPreviousHash()
 	{
-		Block block = new Block(someTransaction(), "123")
+		Block block = new Block(someTransaction(), someHash())
 			.mine(blockchain.difficulty());
 		
 		thrown.expect(InvalidBlockException.class);
+		thrown.expectMessage("Unknown previous block");
 		
 		blockchain.add(block);
 	}
@@ -86,7 +748,7 @@ public class BlockchainTest
 	@Test
 	public void cannotAddBlockWithSpentTransactionInput()
 	{
-		TransactionInput input = new TransactionInput(new TransactionOutputPoint("123", 4));
+		TransactionInput input = new TransactionInput(new TransactionOutputPoint(someHash(), 4));
 		Transaction transaction = new Transaction(singletonList(input), singletonList(someTransactionOutput()));
 		Block block = new Block(transaction, blockchain.tail().hash())
 			.mine(blockchain.difficulty());
@@ -99,7 +761,8 @@ public class BlockchainTest
 	@Test
 	public void cannotAddBlockWithUnsignedTransactionInput()
 	{
-		TransactionInput input = new TransactionInput(blockchain.tail().transaction().outputPoints().iterator().next());
+		TransactionOutputPoint outputPoint = blockchain.tail().transactions().get(0).outputPoints().get(0);
+		TransactionInput input = new TransactionInput(outputPoint);
 		Transaction transaction = new Transaction(singletonList(input), singletonList(someTransactionOutput()));
 		Block block = new Block(transaction, blockchain.tail().hash())
 			.mine(blockchain.difficulty());
@@ -112,7 +775,8 @@ public class BlockchainTest
 	@Test
 	public void cannotAddBlockWithUnverifiedTransactionInput() throws Exception
 	{
-		TransactionInput input = new TransactionInput(blockchain.tail().transaction().outputPoints().iterator().next())
+		TransactionOutputPoint outputPoint = blockchain.tail().transactions().get(0).outputPoints().get(0);
+		TransactionInput input = new TransactionInput(outputPoint)
 			.sign(somePrivateKey());
 		Transaction transaction = new Transaction(singletonList(input), singletonList(someTransactionOutput()));
 		Block block = new Block(transaction, blockchain.tail().hash())
@@ -123,6 +787,22 @@ public class BlockchainTest
 		blockchain.add(block);
 	}
 	
+	@Test
+	public void cannotAddBlockWithDoubleSpentTransactionInput()
+	{
+		List<Transaction> transactions = asList(
+			wallet.transfer(blockchain, new Wallet().address(), 10),
+			wallet.transfer(blockchain, new Wallet().address(), 20)
+		);
+		Block block = new Block(transactions, blockchain.tail().hash())
+			.mine(blockchain.difficulty());
+		
+		thrown.expect(InvalidTransactionException.class);
+		thrown.expectMessage("Double-spent transaction input");
+		
+		blockchain.add(block);
+	}
+	
 	@Test
 	public void cannotAddBlockWithNonZeroTransactionAmount()
 	{
@@ -137,6 +817,77 @@ public class BlockchainTest
 		blockchain.add(block);
 	}
 	
+	@Test
+	public void cannotAddBlockWithNegativeTransactionOutputAmount()
+	{
+		Transaction transaction = wallet.transfer(blockchain, new Wallet().address(), 100);
+		PublicKey recipient = new Wallet().address();
+		List<TransactionOutput> outputs = asList(new TransactionOutput(recipient, 1000),
+			new TransactionOutput(recipient, -900));
+		Block block = new Block(new Transaction(transaction.inputs(), outputs), blockchain.tail().hash())
+			.mine(blockchain.difficulty());
+		
+		thrown.expect(InvalidTransactionException.class);
+		thrown.expectMessage("Non-positive transaction output amount: -900");
+		
+		blockchain.add(block);
+	}
+	
+	@Test
+	public void cannotAddBlockWithOverflowingTransactionOutputAmounts()
+	{
+		Transaction transaction = wallet.transfer(blockchain, new Wallet().address(), 100);
+		PublicKey recipient = new Wallet().address();
+		List<TransactionOutput> outputs = asList(new TransactionOutput(recipient, Long.MAX_VALUE),
+			new TransactionOutput(recipient, Long.MAX_VALUE));
+		Block block = new Block(new Transaction(transaction.inputs(), outputs), blockchain.tail().hash())
+			.mine(blockchain.difficulty());
+		
+		thrown.expect(InvalidTransactionException.class);
+		thrown.expectMessage("Transaction amount overflow");
+		
+		blockchain.add(block);
+	}
+	
+	private Blockchain newBranch()
+	{
+		return newBranch(blockchain);
+	}
+	
+	private Blockchain newBranch(Blockchain blockchain)
+	{
+		return new Blockchain(wallet.address(), 100, blockchain.difficulty());
+	}
+	
+	private Block mine(Blockchain blockchain, PublicKey recipient, long amount)
+	{
+		Block block = new Block(wallet.transfer(blockchain, recipient, amount), blockchain.tail().hash())
+			.mine(blockchain.difficulty());
+		
+		blockchain.add(block);
+		return block;
+	}
+	
+	// blocks are mined to the easiest target until a window of two blocks is mined faster than one a minute
+	private Blockchain newAdjustedBlockchain(BlockStore blocks)
+	{
+		DifficultyAdjustment adjustment = DifficultyAdjustment.of(Target.ofLeadingZeroBits(0), 2,
+			Duration.ofMinutes(1));
+		
+		return new Blockchain(blocks, new NoSnapshotStore(), UnspentTransactionOutputsStorage.HEAP,
+			new SignatureVerifier(), wallet.address(), 100, adjustment);
+	}
+	
+	private Block mine(Blockchain blockchain, long timestamp)
+	{
+		Transaction transaction = wallet.transfer(blockchain, wallet.address(), 1);
+		Block block = new Block(singletonList(transaction), blockchain.tail().hash(), timestamp, 0)
+			.mine(blockchain.difficulty());
+		
+		blockchain.add(block);
+		return block;
+	}
+	
 	private Transaction someTransaction()
 	{
 		PublicKey recipient = new Wallet().address();
@@ -145,6 +896,12 @@ public class BlockchainTest
 		return wallet.transfer(blockchain, recipient, amount);
 	}
 	
+	private static Transaction someInvalidTransaction()
+	{
+		TransactionInput input = new TransactionInput(new TransactionOutputPoint(someHash(), 4));
+		return new Transaction(singletonList(input), singletonList(someTransactionOutput()));
+	}
+	
 	private static TransactionOutput someTransactionOutput()
 	{
 		return new TransactionOutput(new Wallet().address(), 1);
@@ -154,4 +911,14 @@ public class BlockchainTest
 	{
 		return KeyPairGenerator.getInstance("EC").generateKeyPair().getPrivate();
 	}
+	
+	private static long anHourAgo()
+	{
+		return System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+	}
+	
+	private static Hash256 someHash()
+	{
+		return Hash256.fromString(Strings.padStart("123", 2 * Hash256.LENGTH, '0'));
+	}
 }
@@ -0,0 +1,161 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code DifficultyAdjustment}.
+ */
+public class DifficultyAdjustmentTest
+{
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+	
+	@Test
+	public void canGetInitialTargetOfFirstBlock()
+	{
+		DifficultyAdjustment adjustment = someAdjustment();
+		
+		assertThat(difficulty(adjustment, 0).target(), is(target(1_000_000)));
+	}
+	
+	@Test
+	public void canKeepTargetWithinWindow()
+	{
+		DifficultyAdjustment adjustment = someAdjustment();
+		
+		assertThat(difficulty(adjustment, 0, 1000, 1001).target(), is(target(1_000_000)));
+	}
+	
+	@Test
+	public void canRaiseTargetWhenWindowIsSlow()
+	{
+		DifficultyAdjustment adjustment = someAdjustment();
+		
+		assertThat(difficulty(adjustment, 0, 1000, 3000, 5000).target(), is(target(2_000_000)));
+	}
+	
+	@Test
+	public void canLowerTargetWhenWindowIsFast()
+	{
+		DifficultyAdjustment adjustment = someAdjustment();
+		
+		assertThat(difficulty(adjustment, 0, 1000, 1500, 2000).target(), is(target(500_000)));
+	}
+	
+	@Test
+	public void canLimitTargetAdjustment()
+	{
+		DifficultyAdjustment adjustment = someAdjustment();
+		
+		assertThat(difficulty(adjustment, 0, 1000, 1000, 1000).target(), is(target(250_000)));
+	}
+	
+	@Test
+	public void canKeepTargetWithinNextWindow()
+	{
+		DifficultyAdjustment adjustment = someAdjustment();
+		
+		assertThat(difficulty(adjustment, 0, 1000, 3000, 5000, 5000, 5000).target(), is(target(2_000_000)));
+	}
+	
+	@Test
+	public void canKeepTargetWhenFixed()
+	{
+		DifficultyAdjustment adjustment = DifficultyAdjustment.fixed(target(1_000_000));
+		
+		assertThat(difficulty(adjustment, 0, 1000, 1000, 1000, 1000).target(), is(target(1_000_000)));
+	}
+	
+	@Test
+	public void canGetMinimumTimestampAsMedianOfPreviousTimestamps()
+	{
+		DifficultyAdjustment adjustment = DifficultyAdjustment.fixed(target(1_000_000));
+		
+		assertThat(difficulty(adjustment, 0, 5000, 1000, 4000, 3000).minimumTimestamp(), is(3000L));
+	}
+	
+	@Test
+	public void canGetMinimumTimestampAsMedianOfLastTimestamps()
+	{
+		DifficultyAdjustment adjustment = DifficultyAdjustment.fixed(target(1_000_000));
+		long[] timestamps = new long[20];
+		
+		for (int index = 0; index < timestamps.length; index++)
+		{
+			timestamps[index] = index * 1000L;
+		}
+		
+		assertThat(difficulty(adjustment, timestamps).minimumTimestamp(), is(14000L));
+	}
+	
+	@Test
+	public void canGetDifficultyFromTimestamps()
+	{
+		DifficultyAdjustment adjustment = someAdjustment();
+		long[] timestamps = {0, 1000, 1100, 1200, 5000, 9000, 13000, 13100, 13200, 20000, 20500, 21000, 21500, 22000};
+		
+		for (int height = 0; height <= timestamps.length; height++)
+		{
+			Difficulty expected = difficulty(adjustment, Arrays.copyOf(timestamps, height));
+			
+			Difficulty actual = adjustment.difficulty(height, index -> timestamps[index]);
+			
+			assertThat(actual.height(), is(expected.height()));
+			assertThat(actual.target(), is(expected.target()));
+			assertThat(actual.minimumTimestamp(), is(expected.minimumTimestamp()));
+		}
+	}
+	
+	@Test
+	public void cannotCreateWithInvalidInterval()
+	{
+		thrown.expect(IllegalArgumentException.class);
+		thrown.expectMessage("Invalid interval: 1");
+		
+		DifficultyAdjustment.of(target(1_000_000), 1, Duration.ofSeconds(1));
+	}
+	
+	private static DifficultyAdjustment someAdjustment()
+	{
+		return DifficultyAdjustment.of(target(1_000_000), 3, Duration.ofSeconds(1));
+	}
+	
+	private static Target target(long value)
+	{
+		return Target.of(BigInteger.valueOf(value));
+	}
+	
+	private static Difficulty difficulty(DifficultyAdjustment adjustment, long... timestamps)
+	{
+		Difficulty difficulty = adjustment.difficulty(0, height -> 0);
+		
+		for (long timestamp : timestamps)
+		{
+			difficulty = difficulty.next(timestamp);
+		}
+		
+		return difficulty;
+	}
+}
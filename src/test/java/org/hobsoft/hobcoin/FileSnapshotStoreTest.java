@@ -0,0 +1,137 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.PublicKey;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Tests {@code FileSnapshotStore}.
+ */
+public class FileSnapshotStoreTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private Path directory;
+	
+	@Before
+	public void setUp()
+	{
+		directory = folder.getRoot().toPath();
+	}
+	
+	@Test
+	public void canSaveSnapshot()
+	{
+		FileSnapshotStore store = new FileSnapshotStore(directory);
+		PublicKey recipient = new Wallet().address();
+		List<UnspentTransactionOutput> unspentOutputs = asList(
+			new UnspentTransactionOutput(new TransactionOutputPoint(someHash(1), 0), recipient, 3),
+			new UnspentTransactionOutput(new TransactionOutputPoint(someHash(2), 300), recipient, 400)
+		);
+		
+		store.save(new UnspentTransactionOutputsSnapshot(5, someHash(5), unspentOutputs.size(), unspentOutputs));
+		
+		UnspentTransactionOutputsSnapshot snapshot = store.latest().get();
+		assertThat("height", snapshot.height(), is(5));
+		assertThat("block hash", snapshot.blockHash(), is(someHash(5)));
+		assertThat("size", snapshot.size(), is(2));
+		assertThat("outputs", newArrayList(snapshot.unspentTransactionOutputs()), is(unspentOutputs));
+	}
+	
+	@Test
+	public void canSaveSnapshotWithUndoRecords()
+	{
+		FileSnapshotStore store = new FileSnapshotStore(directory);
+		PublicKey recipient = new Wallet().address();
+		List<List<UnspentTransactionOutput>> undoRecords = asList(
+			emptyList(),
+			asList(
+				new UnspentTransactionOutput(new TransactionOutputPoint(someHash(3), 1), recipient, 5),
+				new UnspentTransactionOutput(new TransactionOutputPoint(someHash(4), 0), recipient, 6)
+			)
+		);
+		
+		store.save(new UnspentTransactionOutputsSnapshot(5, someHash(5), 0, emptyList(), undoRecords));
+		
+		assertThat(store.latest().get().undoRecords(), is(undoRecords));
+	}
+	
+	@Test
+	public void canGetLatestSnapshot()
+	{
+		FileSnapshotStore store = new FileSnapshotStore(directory);
+		store.save(emptySnapshot(5));
+		store.save(emptySnapshot(10));
+		
+		assertThat(store.latest().get().height(), is(10));
+	}
+	
+	@Test
+	public void canReopenStore()
+	{
+		new FileSnapshotStore(directory)
+			.save(emptySnapshot(5));
+		
+		assertThat(new FileSnapshotStore(directory).latest().get().height(), is(5));
+	}
+	
+	@Test
+	public void cannotGetSnapshotWhenEmpty()
+	{
+		assertThat(new FileSnapshotStore(directory).latest().isPresent(), is(false));
+	}
+	
+	@Test
+	public void cannotGetCorruptSnapshot() throws IOException
+	{
+		FileSnapshotStore store = new FileSnapshotStore(directory);
+		store.save(emptySnapshot(5));
+		
+		Path path = Files.list(directory).findFirst().get();
+		Files.write(path, new byte[] {1}, StandardOpenOption.APPEND);
+		
+		assertThat(store.latest().isPresent(), is(false));
+	}
+	
+	private static UnspentTransactionOutputsSnapshot emptySnapshot(int height)
+	{
+		return new UnspentTransactionOutputsSnapshot(height, someHash(height), 0, emptyList());
+	}
+	
+	private static Hash256 someHash(int value)
+	{
+		byte[] bytes = new byte[Hash256.LENGTH];
+		bytes[0] = (byte) value;
+		return Hash256.of(bytes);
+	}
+}
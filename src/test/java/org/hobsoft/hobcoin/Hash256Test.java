@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code Hash256}.
+ */
+public class Hash256Test
+{
+	private static final String HEX = "00112233445566778899aabbccddeeff00112233445566778899aabbccddeeff";
+	
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+	
+	@Test
+	public void canConvertToString()
+	{
+		assertThat(Hash256.fromString(HEX).toString(), is(HEX));
+	}
+	
+	@Test
+	public void canConvertToBytes()
+	{
+		Hash256 hash = Hash256.fromString(HEX);
+		
+		assertThat(Hash256.of(hash.toBytes()), is(hash));
+	}
+	
+	@Test
+	public void cannotCreateHashWithInvalidLength()
+	{
+		thrown.expect(IllegalArgumentException.class);
+		
+		Hash256.of(new byte[31]);
+	}
+	
+	@Test
+	public void canCalculateHashcode()
+	{
+		assertThat(Hash256.fromString(HEX).hashCode(), is(Hash256.fromString(HEX).hashCode()));
+	}
+	
+	@Test
+	public void canCompareUnsigned()
+	{
+		Hash256 hash1 = Hash256.fromString("ff" + HEX.substring(2));
+		Hash256 hash2 = Hash256.fromString(HEX);
+		
+		assertThat(hash1.compareTo(hash2), is(greaterThan(0)));
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code Header}.
+ */
+public class HeaderTest
+{
+	private Wallet wallet;
+	
+	private Blockchain blockchain;
+	
+	@Before
+	public void setUp()
+	{
+		wallet = new Wallet();
+		blockchain = new Blockchain(wallet.address(), 100, Target.ofLeadingZeroBits(0));
+	}
+	
+	@Test
+	public void canGetHashOfBlock()
+	{
+		Block block = someBlock();
+		
+		assertThat(Header.of(block).hash(), is(block.hash()));
+	}
+	
+	@Test
+	public void canMatchBlock()
+	{
+		Block block = someBlock();
+		
+		assertThat(Header.of(block).isHeaderOf(block), is(true));
+	}
+	
+	@Test
+	public void cannotMatchOtherBlock()
+	{
+		assertThat(Header.of(someBlock()).isHeaderOf(blockchain.tail()), is(false));
+	}
+	
+	@Test
+	public void canFollowPreviousHeader()
+	{
+		assertThat(Header.of(someBlock()).follows(Header.of(blockchain.tail())), is(true));
+	}
+	
+	@Test
+	public void cannotFollowOtherHeader()
+	{
+		Block block = someBlock();
+		
+		assertThat(Header.of(block).follows(Header.of(block)), is(false));
+	}
+	
+	@Test
+	public void canBeMinedWhenHashMeetsTarget()
+	{
+		Block block = someBlock().mine(Target.ofLeadingZeroBits(8));
+		
+		assertThat(Header.of(block).isMined(Target.ofLeadingZeroBits(8)), is(true));
+	}
+	
+	@Test
+	public void cannotBeMinedWhenHashExceedsTarget()
+	{
+		assertThat(Header.of(someBlock()).isMined(Target.ofLeadingZeroBits(256)), is(false));
+	}
+	
+	private Block someBlock()
+	{
+		return new Block(wallet.transfer(blockchain, new Wallet().address(), 40), blockchain.tail().hash());
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.StreamSupport;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import static java.util.Collections.nCopies;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code MappedBlockStore}.
+ */
+public class MappedBlockStoreTest
+{
+	private static final int SEGMENT_SIZE = 1024;
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+	
+	private Path directory;
+	
+	@Before
+	public void setUp()
+	{
+		directory = folder.getRoot().toPath();
+	}
+	
+	@Test
+	public void canGetBlockByHeight()
+	{
+		MappedBlockStore store = new MappedBlockStore(directory, SEGMENT_SIZE);
+		Block block = someBlock(Hash256.ZERO);
+		
+		store.append(block);
+		
+		assertThat(store.get(0).hash(), is(block.hash()));
+	}
+	
+	@Test
+	public void canGetBlockByHash()
+	{
+		MappedBlockStore store = new MappedBlockStore(directory, SEGMENT_SIZE);
+		Block block = someBlock(Hash256.ZERO);
+		
+		store.append(block);
+		
+		assertThat(store.get(block.hash()).get().hash(), is(block.hash()));
+	}
+	
+	@Test
+	public void cannotGetBlockByInvalidHeight()
+	{
+		MappedBlockStore store = new MappedBlockStore(directory, SEGMENT_SIZE);
+		store.append(someBlock(Hash256.ZERO));
+		
+		thrown.expect(IndexOutOfBoundsException.class);
+		
+		store.get(1);
+	}
+	
+	@Test
+	public void canGetHeaderByHeight()
+	{
+		MappedBlockStore store = new MappedBlockStore(directory, SEGMENT_SIZE);
+		Block block = someBlock(Hash256.ZERO);
+		
+		store.append(block);
+		
+		Header header = store.header(0);
+		assertThat("hash", header.hash(), is(block.hash()));
+		assertThat("merkle root", header.merkleRoot(), is(block.merkleRoot()));
+	}
+	
+	@Test
+	public void canGetHeaderFromReopenedBlocks()
+	{
+		MappedBlockStore store = new MappedBlockStore(directory, SEGMENT_SIZE);
+		List<Hash256> hashes = appendBlocks(store, 10);
+		store.close();
+		
+		MappedBlockStore reopenedStore = new MappedBlockStore(directory, SEGMENT_SIZE);
+		
+		assertThat(reopenedStore.header(9).hash(), is(hashes.get(9)));
+	}
+	
+	@Test
+	public void cannotGetHeaderByInvalidHeight()
+	{
+		MappedBlockStore store = new MappedBlockStore(directory, SEGMENT_SIZE);
+		store.append(someBlock(Hash256.ZERO));
+		
+		thrown.expect(IndexOutOfBoundsException.class);
+		
+		store.header(1);
+	}
+	
+	@Test
+	public void canAppendBlocksAcrossSegments()
+	{
+		MappedBlockStore store = new MappedBlockStore(directory, SEGMENT_SIZE);
+		List<Hash256> hashes = appendBlocks(store, 10);
+		
+		assertThat(hashes(store), is(hashes));
+	}
+	
+	@Test
+	public void canReopenBlocks()
+	{
+		MappedBlockStore store = new MappedBlockStore(directory, SEGMENT_SIZE);
+		List<Hash256> hashes = appendBlocks(store, 10);
+		store.close();
+		
+		MappedBlockStore reopenedStore = new MappedBlockStore(directory, SEGMENT_SIZE);
+		
+		assertThat(hashes(reopenedStore), is(hashes));
+	}
+	
+	@Test
+	public void canAppendBlockAfterReopen()
+	{
+		MappedBlockStore store = new MappedBlockStore(directory, SEGMENT_SIZE);
+		Block block1 = someBlock(Hash256.ZERO);
+		store.append(block1);
+		store.close();
+		MappedBlockStore reopenedStore = new MappedBlockStore(directory, SEGMENT_SIZE);
+		Block block2 = someBlock(block1.hash());
+		
+		reopenedStore.append(block2);
+		
+		assertThat(hashes(reopenedStore), contains(block1.hash(), block2.hash()));
+	}
+	
+	@Test
+	public void cannotAppendBlockLargerThanSegment()
+	{
+		MappedBlockStore store = new MappedBlockStore(directory, SEGMENT_SIZE);
+		store.append(someBlock(Hash256.ZERO));
+		Block block = someBlock(Hash256.ZERO, SEGMENT_SIZE / 16);
+		
+		thrown.expect(IllegalArgumentException.class);
+		thrown.expectMessage("Block too large for segment: " + block.hash());
+		
+		try
+		{
+			store.append(block);
+		}
+		finally
+		{
+			assertThat(store.height(), is(1));
+		}
+	}
+	
+	@Test
+	public void canTruncateBlocks()
+	{
+		MappedBlockStore store = new MappedBlockStore(directory, SEGMENT_SIZE);
+		List<Hash256> hashes = appendBlocks(store, 10);
+		
+		store.truncate(4);
+		
+		assertThat("hashes", hashes(store), is(hashes.subList(0, 4)));
+		assertThat("removed hash", store.heightOf(hashes.get(4)).isPresent(), is(false));
+	}
+	
+	@Test
+	public void canReopenTruncatedBlocks()
+	{
+		MappedBlockStore store = new MappedBlockStore(directory, SEGMENT_SIZE);
+		List<Hash256> hashes = appendBlocks(store, 10);
+		store.truncate(4);
+		store.close();
+		
+		MappedBlockStore reopenedStore = new MappedBlockStore(directory, SEGMENT_SIZE);
+		
+		assertThat(hashes(reopenedStore), is(hashes.subList(0, 4)));
+	}
+	
+	@Test
+	public void canReopenBlocksAppendedAfterTruncate()
+	{
+		MappedBlockStore store = new MappedBlockStore(directory, SEGMENT_SIZE);
+		List<Hash256> hashes = new ArrayList<>(appendBlocks(store, 10).subList(0, 2));
+		store.truncate(2);
+		Block block = someBlock(hashes.get(1));
+		store.append(block);
+		hashes.add(block.hash());
+		store.close();
+		
+		MappedBlockStore reopenedStore = new MappedBlockStore(directory, SEGMENT_SIZE);
+		
+		assertThat(hashes(reopenedStore), is(hashes));
+	}
+	
+	@Test
+	public void cannotTruncateBeyondHeight()
+	{
+		MappedBlockStore store = new MappedBlockStore(directory, SEGMENT_SIZE);
+		appendBlocks(store, 2);
+		
+		thrown.expect(IndexOutOfBoundsException.class);
+		
+		store.truncate(3);
+	}
+	
+	private static List<Hash256> appendBlocks(BlockStore store, int count)
+	{
+		Hash256 previousHash = Hash256.ZERO;
+		
+		for (int index = 0; index < count; index++)
+		{
+			Block block = someBlock(previousHash);
+			store.append(block);
+			previousHash = block.hash();
+		}
+		
+		return hashes(store);
+	}
+	
+	private static List<Hash256> hashes(BlockStore store)
+	{
+		return StreamSupport.stream(store.spliterator(), false)
+			.map(Block::hash)
+			.collect(toList());
+	}
+	
+	private static Block someBlock(Hash256 previousHash)
+	{
+		return someBlock(previousHash, 1);
+	}
+	
+	private static Block someBlock(Hash256 previousHash, int outputCount)
+	{
+		TransactionInput input = new TransactionInput(new TransactionOutputPoint(previousHash, 0));
+		TransactionOutput output = new TransactionOutput(new Wallet().address(), 4);
+		Transaction transaction = new Transaction(singletonList(input), nCopies(outputCount, output));
+		
+		return new Block(transaction, previousHash);
+	}
+}
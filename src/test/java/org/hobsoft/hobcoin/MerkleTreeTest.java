@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code MerkleTree}.
+ */
+public class MerkleTreeTest
+{
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+	
+	@Test
+	public void canCalculateRootOfLeaf()
+	{
+		assertThat(MerkleTree.root(singletonList(someHash(1))), is(someHash(1)));
+	}
+	
+	@Test
+	public void canCalculateRootOfLeaves()
+	{
+		Hash256 actual = MerkleTree.root(asList(someHash(1), someHash(2), someHash(3), someHash(4)));
+		
+		assertThat(actual, is(parent(parent(someHash(1), someHash(2)), parent(someHash(3), someHash(4)))));
+	}
+	
+	@Test
+	public void canCalculateRootOfOddLeavesByRepeatingLast()
+	{
+		Hash256 actual = MerkleTree.root(asList(someHash(1), someHash(2), someHash(3)));
+		
+		assertThat(actual, is(parent(parent(someHash(1), someHash(2)), parent(someHash(3), someHash(3)))));
+	}
+	
+	@Test
+	public void canCalculateRootThatDependsOnLeafOrder()
+	{
+		List<Hash256> leaves = asList(someHash(1), someHash(2));
+		List<Hash256> reversedLeaves = asList(someHash(2), someHash(1));
+		
+		assertThat(MerkleTree.root(leaves), is(not(MerkleTree.root(reversedLeaves))));
+	}
+	
+	@Test
+	public void cannotCalculateRootOfNoLeaves()
+	{
+		thrown.expect(IllegalArgumentException.class);
+		
+		MerkleTree.root(emptyList());
+	}
+	
+	private static Hash256 parent(Hash256 left, Hash256 right)
+	{
+		return Hash256.of(Hashing.sha256().hashBytes(concat(left.toBytes(), right.toBytes())).asBytes());
+	}
+	
+	private static byte[] concat(byte[] left, byte[] right)
+	{
+		byte[] bytes = new byte[left.length + right.length];
+		System.arraycopy(left, 0, bytes, 0, left.length);
+		System.arraycopy(right, 0, bytes, left.length, right.length);
+		return bytes;
+	}
+	
+	private static Hash256 someHash(int value)
+	{
+		return Hash256.fromString(Strings.padStart(Integer.toString(value), 2 * Hash256.LENGTH, '0'));
+	}
+}
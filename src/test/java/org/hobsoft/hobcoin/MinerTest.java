@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.google.common.base.Strings;
+
+import static java.util.Collections.singletonList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code Miner}.
+ */
+public class MinerTest
+{
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+	
+	private Miner miner;
+	
+	@Before
+	public void setUp()
+	{
+		miner = new Miner(4);
+	}
+	
+	@After
+	public void tearDown()
+	{
+		miner.close();
+	}
+	
+	@Test
+	public void canMineBlock()
+	{
+		Block block = miner.mine(someBlock(), someTarget());
+		
+		assertThat(block.isMined(someTarget()), is(true));
+	}
+	
+	@Test
+	public void canMineSameNonceAsSequentialMining()
+	{
+		Block block = someBlock().mine(someTarget());
+		int sequentialNonce = block.nonce();
+		
+		miner.mine(block, someTarget());
+		
+		assertThat(block.nonce(), is(sequentialNonce));
+	}
+	
+	@Test
+	public void canCancelMining()
+	{
+		AtomicBoolean cancelled = new AtomicBoolean();
+		new Thread(() -> cancelled.set(true)).start();
+		
+		Optional<Block> block = miner.mine(someBlock(), Target.ofLeadingZeroBits(64), cancelled::get);
+		
+		assertThat(block.isPresent(), is(false));
+	}
+	
+	@Test
+	public void canCountHashes()
+	{
+		Block block = miner.mine(someBlock(), someTarget());
+		
+		assertThat(miner.hashes(), is(greaterThan((long) block.nonce())));
+	}
+	
+	@Test
+	public void cannotCreateMinerWithNoThreads()
+	{
+		thrown.expect(IllegalArgumentException.class);
+		
+		new Miner(0);
+	}
+	
+	private static Block someBlock()
+	{
+		TransactionInput input = new TransactionInput(new TransactionOutputPoint(someHash(), 4));
+		TransactionOutput output = new TransactionOutput(new Wallet().address(), 4);
+		Transaction transaction = new Transaction(singletonList(input), singletonList(output));
+		
+		return new Block(transaction, Hash256.ZERO);
+	}
+	
+	private static Target someTarget()
+	{
+		return Target.ofLeadingZeroBits(10);
+	}
+	
+	private static Hash256 someHash()
+	{
+		return Hash256.fromString(Strings.padStart("123", 2 * Hash256.LENGTH, '0'));
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static java.util.Collections.nCopies;
+import static java.util.Collections.singletonList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code OffHeapUnspentTransactionOutputs}.
+ */
+public class OffHeapUnspentTransactionOutputsTest
+{
+	private static final int MAXIMUM_CAPACITY = 1 << 10;
+	
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+	
+	private PublicKey owner;
+	
+	private OffHeapUnspentTransactionOutputs unspentOutputs;
+	
+	@Before
+	public void setUp()
+	{
+		owner = new Wallet().address();
+		unspentOutputs = new OffHeapUnspentTransactionOutputs(MAXIMUM_CAPACITY);
+	}
+	
+	@Test
+	public void canFillTable()
+	{
+		unspentOutputs.apply(newTransaction(Hash256.ZERO, MAXIMUM_CAPACITY / 2));
+		
+		assertThat(unspentOutputs.size(), is(MAXIMUM_CAPACITY / 2));
+	}
+	
+	@Test
+	public void cannotApplyBlockBeyondFullTable()
+	{
+		Transaction transaction = newTransaction(Hash256.ZERO, MAXIMUM_CAPACITY / 2 - 1);
+		unspentOutputs.apply(transaction);
+		TransactionOutputPoint spentPoint = new TransactionOutputPoint(transaction.id(), 0);
+		Block block = new Block(newTransaction(transaction.id(), 3), Hash256.ZERO);
+		
+		thrown.expect(HobcoinException.class);
+		thrown.expectMessage("Too many unspent transaction outputs");
+		
+		try
+		{
+			unspentOutputs.apply(block);
+		}
+		finally
+		{
+			assertThat("size", unspentOutputs.size(), is(MAXIMUM_CAPACITY / 2 - 1));
+			assertThat("spent output", unspentOutputs.find(spentPoint).isPresent(), is(true));
+			assertThat("balance", unspentOutputs.balance(owner), is((long) MAXIMUM_CAPACITY / 2 - 1));
+		}
+	}
+	
+	@Test
+	public void canApplyBlockAfterRemovingOutputsFromFullTable()
+	{
+		Transaction transaction = newTransaction(Hash256.ZERO, MAXIMUM_CAPACITY / 2);
+		unspentOutputs.apply(transaction);
+		
+		for (int index = 0; index < 3; index++)
+		{
+			unspentOutputs.remove(new TransactionOutputPoint(transaction.id(), index));
+		}
+		
+		unspentOutputs.apply(new Block(newTransaction(transaction.id(), 3), Hash256.ZERO));
+		
+		assertThat(unspentOutputs.size(), is(MAXIMUM_CAPACITY / 2));
+	}
+	
+	private Transaction newTransaction(Hash256 inputTransactionId, int outputCount)
+	{
+		TransactionInput input = new TransactionInput(new TransactionOutputPoint(inputTransactionId, 0));
+		List<TransactionOutput> outputs = new ArrayList<>(nCopies(outputCount, new TransactionOutput(owner, 1)));
+		
+		return new Transaction(singletonList(input), outputs);
+	}
+}
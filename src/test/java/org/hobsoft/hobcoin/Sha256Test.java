@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.google.common.hash.Hashing;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code Sha256}.
+ */
+public class Sha256Test
+{
+	@Test
+	public void canDigestEmptyPrefix()
+	{
+		assertDigest(0);
+	}
+	
+	@Test
+	public void canDigestPrefixWithSingleFinalBlock()
+	{
+		assertDigest(47);
+	}
+	
+	@Test
+	public void canDigestPrefixWithTwoFinalBlocks()
+	{
+		assertDigest(48);
+	}
+	
+	@Test
+	public void canDigestPrefixWithMidstate()
+	{
+		assertDigest(64);
+	}
+	
+	@Test
+	public void canDigestPrefixWithMidstateAndRemainder()
+	{
+		assertDigest(150);
+	}
+	
+	@Test
+	public void canDigestRepeatedly()
+	{
+		byte[] prefix = somePrefix(80);
+		Sha256 sha256 = new Sha256(prefix);
+		sha256.digest(1);
+		
+		byte[] actual = sha256.digest(2);
+		
+		assertThat(actual, is(expectedDigest(prefix, 2)));
+	}
+	
+	private static void assertDigest(int prefixLength)
+	{
+		byte[] prefix = somePrefix(prefixLength);
+		
+		byte[] actual = new Sha256(prefix).digest(123456789L);
+		
+		assertThat(actual, is(expectedDigest(prefix, 123456789L)));
+	}
+	
+	private static byte[] somePrefix(int length)
+	{
+		byte[] prefix = new byte[length];
+		
+		for (int index = 0; index < length; index++)
+		{
+			prefix[index] = (byte) (index * 31);
+		}
+		
+		return prefix;
+	}
+	
+	private static byte[] expectedDigest(byte[] prefix, long suffix)
+	{
+		byte[] message = ByteBuffer.allocate(prefix.length + Long.BYTES)
+			.put(prefix)
+			.putLong(suffix)
+			.array();
+		
+		return Hashing.sha256().hashBytes(message).asBytes();
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.google.common.base.Strings;
+
+import static java.util.Collections.nCopies;
+import static java.util.Collections.singletonList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code SignatureVerifier}.
+ */
+public class SignatureVerifierTest
+{
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+	
+	private SignatureVerifier verifier;
+	
+	private KeyPair keyPair;
+	
+	@Before
+	public void setUp() throws NoSuchAlgorithmException
+	{
+		verifier = new SignatureVerifier(4);
+		keyPair = KeyPairGenerator.getInstance("EC").generateKeyPair();
+	}
+	
+	@After
+	public void tearDown()
+	{
+		verifier.close();
+	}
+	
+	@Test
+	public void canVerifySignature()
+	{
+		List<TransactionInput> inputs = singletonList(someSignedInput(0));
+		
+		assertThat(verifier.verify(inputs, singletonList(keyPair.getPublic())), is(true));
+	}
+	
+	@Test
+	public void canVerifySignatures()
+	{
+		List<TransactionInput> inputs = someSignedInputs(20);
+		
+		assertThat(verifier.verify(inputs, nCopies(inputs.size(), keyPair.getPublic())), is(true));
+	}
+	
+	@Test
+	public void cannotVerifySignaturesWithUnverifiedSignature() throws NoSuchAlgorithmException
+	{
+		List<TransactionInput> inputs = someSignedInputs(20);
+		List<PublicKey> addresses = new ArrayList<>(nCopies(inputs.size(), keyPair.getPublic()));
+		addresses.set(13, KeyPairGenerator.getInstance("EC").generateKeyPair().getPublic());
+		
+		assertThat(verifier.verify(inputs, addresses), is(false));
+	}
+	
+	@Test
+	public void cannotVerifySignaturesWithMissingAddresses()
+	{
+		thrown.expect(IllegalArgumentException.class);
+		
+		verifier.verify(someSignedInputs(2), singletonList(keyPair.getPublic()));
+	}
+	
+	@Test
+	public void cannotCreateVerifierWithNoThreads()
+	{
+		thrown.expect(IllegalArgumentException.class);
+		
+		new SignatureVerifier(0);
+	}
+	
+	private List<TransactionInput> someSignedInputs(int count)
+	{
+		List<TransactionInput> inputs = new ArrayList<>();
+		
+		for (int index = 0; index < count; index++)
+		{
+			inputs.add(someSignedInput(index));
+		}
+		
+		return inputs;
+	}
+	
+	private TransactionInput someSignedInput(int index)
+	{
+		return new TransactionInput(new TransactionOutputPoint(someHash(), index))
+			.sign(keyPair.getPrivate());
+	}
+	
+	private static Hash256 someHash()
+	{
+		return Hash256.fromString(Strings.padStart("123", 2 * Hash256.LENGTH, '0'));
+	}
+}
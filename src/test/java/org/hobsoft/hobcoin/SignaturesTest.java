@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SignatureException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code Signatures}.
+ */
+public class SignaturesTest
+{
+	private KeyPair keyPair;
+	
+	@Before
+	public void setUp() throws GeneralSecurityException
+	{
+		keyPair = KeyPairGenerator.getInstance("EC").generateKeyPair();
+	}
+	
+	@Test
+	public void canVerifySignature() throws GeneralSecurityException
+	{
+		byte[] signature = Signatures.sign(keyPair.getPrivate(), someData());
+		
+		assertThat(Signatures.verify(keyPair.getPublic(), someData(), signature), is(true));
+	}
+	
+	@Test
+	public void cannotVerifySignatureOfOtherData() throws GeneralSecurityException
+	{
+		byte[] signature = Signatures.sign(keyPair.getPrivate(), someData());
+		
+		assertThat(Signatures.verify(keyPair.getPublic(), new byte[] {4, 5, 6}, signature), is(false));
+	}
+	
+	@Test
+	public void canVerifySignatureAfterMalformedSignature() throws GeneralSecurityException
+	{
+		try
+		{
+			Signatures.verify(keyPair.getPublic(), someData(), new byte[] {7});
+		}
+		catch (SignatureException exception)
+		{
+			// expected
+		}
+		
+		byte[] signature = Signatures.sign(keyPair.getPrivate(), someData());
+		
+		assertThat(Signatures.verify(keyPair.getPublic(), someData(), signature), is(true));
+	}
+	
+	private static byte[] someData()
+	{
+		return new byte[] {1, 2, 3};
+	}
+}
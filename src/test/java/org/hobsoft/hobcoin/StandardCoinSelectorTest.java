@@ -0,0 +1,139 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hobsoft.hobcoin.StandardCoinSelector.BRANCH_AND_BOUND;
+import static org.hobsoft.hobcoin.StandardCoinSelector.FEWEST_INPUTS;
+import static org.hobsoft.hobcoin.StandardCoinSelector.LARGEST_FIRST;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code StandardCoinSelector}.
+ */
+public class StandardCoinSelectorTest
+{
+	private PublicKey owner;
+	
+	@Before
+	public void setUp()
+	{
+		owner = new Wallet().address();
+	}
+	
+	@Test
+	public void canSelectLargestFirst()
+	{
+		List<UnspentTransactionOutput> unspentOutputs = unspentOutputs(50, 30, 20, 10);
+		
+		Optional<List<UnspentTransactionOutput>> actual = LARGEST_FIRST.select(unspentOutputs, 60);
+		
+		assertThat(actual, is(Optional.of(unspentOutputs.subList(0, 2))));
+	}
+	
+	@Test
+	public void cannotSelectLargestFirstWhenInsufficient()
+	{
+		assertThat(LARGEST_FIRST.select(unspentOutputs(50, 30), 81), is(Optional.empty()));
+	}
+	
+	@Test
+	public void canSelectFewestInputsWithLeastChange()
+	{
+		List<UnspentTransactionOutput> unspentOutputs = unspentOutputs(50, 30, 20, 10);
+		
+		Optional<List<UnspentTransactionOutput>> actual = FEWEST_INPUTS.select(unspentOutputs, 55);
+		
+		assertThat(actual, is(Optional.of(asList(unspentOutputs.get(0), unspentOutputs.get(3)))));
+	}
+	
+	@Test
+	public void canSelectFewestInputsWithSingleOutput()
+	{
+		List<UnspentTransactionOutput> unspentOutputs = unspentOutputs(50, 30, 20, 10);
+		
+		Optional<List<UnspentTransactionOutput>> actual = FEWEST_INPUTS.select(unspentOutputs, 15);
+		
+		assertThat(actual, is(Optional.of(asList(unspentOutputs.get(2)))));
+	}
+	
+	@Test
+	public void cannotSelectFewestInputsWhenInsufficient()
+	{
+		assertThat(FEWEST_INPUTS.select(unspentOutputs(50, 30), 81), is(Optional.empty()));
+	}
+	
+	@Test
+	public void canSelectExactMatchByBranchAndBound()
+	{
+		List<UnspentTransactionOutput> unspentOutputs = unspentOutputs(50, 30, 20, 7, 5);
+		
+		Optional<List<UnspentTransactionOutput>> actual = BRANCH_AND_BOUND.select(unspentOutputs, 57);
+		
+		assertThat(actual, is(Optional.of(asList(unspentOutputs.get(0), unspentOutputs.get(3)))));
+	}
+	
+	@Test
+	public void canSelectExactMatchByBranchAndBoundWithEqualAmounts()
+	{
+		List<UnspentTransactionOutput> unspentOutputs = unspentOutputs(9, 9, 9, 4, 4);
+		
+		Optional<List<UnspentTransactionOutput>> actual = BRANCH_AND_BOUND.select(unspentOutputs, 17);
+		
+		assertThat(actual, is(Optional.of(asList(
+			unspentOutputs.get(0),
+			unspentOutputs.get(3),
+			unspentOutputs.get(4)
+		))));
+	}
+	
+	@Test
+	public void canSelectFewestInputsByBranchAndBoundWithoutExactMatch()
+	{
+		List<UnspentTransactionOutput> unspentOutputs = unspentOutputs(50, 30, 20, 10);
+		
+		Optional<List<UnspentTransactionOutput>> actual = BRANCH_AND_BOUND.select(unspentOutputs, 55);
+		
+		assertThat(actual, is(Optional.of(asList(unspentOutputs.get(0), unspentOutputs.get(3)))));
+	}
+	
+	@Test
+	public void cannotSelectByBranchAndBoundWhenInsufficient()
+	{
+		assertThat(BRANCH_AND_BOUND.select(unspentOutputs(50, 30), 81), is(Optional.empty()));
+	}
+	
+	private List<UnspentTransactionOutput> unspentOutputs(long... amounts)
+	{
+		List<UnspentTransactionOutput> unspentOutputs = new ArrayList<>();
+		
+		for (int index = 0; index < amounts.length; index++)
+		{
+			TransactionOutputPoint outputPoint = new TransactionOutputPoint(Hash256.ZERO, index);
+			unspentOutputs.add(new UnspentTransactionOutput(outputPoint, owner, amounts[index]));
+		}
+		
+		return unspentOutputs;
+	}
+}
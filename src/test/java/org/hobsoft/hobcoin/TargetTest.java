@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.math.BigInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.google.common.hash.HashCode;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code Target}.
+ */
+public class TargetTest
+{
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+	
+	@Test
+	public void canMeetTargetWithLeadingZeroBits()
+	{
+		Target target = Target.ofLeadingZeroBits(12);
+		
+		assertThat(target.isMetBy(hash("000fffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff")), is(true));
+	}
+	
+	@Test
+	public void cannotMeetTargetWithTooFewLeadingZeroBits()
+	{
+		Target target = Target.ofLeadingZeroBits(12);
+		
+		assertThat(target.isMetBy(hash("0010000000000000000000000000000000000000000000000000000000000000")), is(false));
+	}
+	
+	@Test
+	public void canMeetTargetWithLeadingZeroHexDigits()
+	{
+		Target target = Target.ofLeadingZeroHexDigits(2);
+		
+		assertThat(target.isMetBy(hash("00ffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff")), is(true));
+	}
+	
+	@Test
+	public void canMeetTargetWithEqualHash()
+	{
+		Target target = Target.of(new BigInteger("123456789abcdef0123456789abcdef", 16));
+		
+		assertThat(target.isMetBy(hash("000000000000000000000000000000000123456789abcdef0123456789abcdef")), is(true));
+	}
+	
+	@Test
+	public void cannotMeetTargetWithGreaterHashInLowWord()
+	{
+		Target target = Target.of(new BigInteger("123456789abcdef0123456789abcdef", 16));
+		
+		assertThat(target.isMetBy(hash("000000000000000000000000000000000123456789abcdef0123456789abcdf0")), is(false));
+	}
+	
+	@Test
+	public void canGetWorkOfTargetWithLeadingZeroBits()
+	{
+		assertThat(Target.ofLeadingZeroBits(12).work(), is(BigInteger.valueOf(4096)));
+	}
+	
+	@Test
+	public void canGetWorkOfMaximumTarget()
+	{
+		assertThat(Target.ofLeadingZeroBits(0).work(), is(BigInteger.ONE));
+	}
+	
+	@Test
+	public void canScaleTarget()
+	{
+		assertThat(Target.ofLeadingZeroBits(12).scale(1, 2), is(Target.ofLeadingZeroBits(13)));
+	}
+	
+	@Test
+	public void canScaleTargetToMaximum()
+	{
+		assertThat(Target.ofLeadingZeroBits(1).scale(4, 1), is(Target.ofLeadingZeroBits(0)));
+	}
+	
+	@Test
+	public void cannotScaleTargetByNegativeRatio()
+	{
+		thrown.expect(IllegalArgumentException.class);
+		thrown.expectMessage("Invalid ratio: -1/2");
+		
+		Target.ofLeadingZeroBits(12).scale(-1, 2);
+	}
+	
+	@Test
+	public void cannotCreateTargetWithNegativeValue()
+	{
+		thrown.expect(IllegalArgumentException.class);
+		
+		Target.of(BigInteger.valueOf(-1));
+	}
+	
+	@Test
+	public void canDetermineEquality()
+	{
+		assertThat(Target.ofLeadingZeroHexDigits(3), is(Target.ofLeadingZeroBits(12)));
+	}
+	
+	private static byte[] hash(String hex)
+	{
+		return HashCode.fromString(hex).asBytes();
+	}
+}
@@ -17,6 +17,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import com.google.common.base.Strings;
+
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
@@ -41,14 +43,14 @@ public class TransactionOutputPointTest
 	{
 		thrown.expect(IndexOutOfBoundsException.class);
 		
-		new TransactionOutputPoint("123", -1);
+		new TransactionOutputPoint(someHash(), -1);
 	}
 	
 	@Test
 	public void canCalculateHashcode()
 	{
-		TransactionOutputPoint outputPoint1 = new TransactionOutputPoint("123", 4);
-		TransactionOutputPoint outputPoint2 = new TransactionOutputPoint("123", 4);
+		TransactionOutputPoint outputPoint1 = new TransactionOutputPoint(someHash(), 4);
+		TransactionOutputPoint outputPoint2 = new TransactionOutputPoint(someHash(), 4);
 		
 		assertThat(outputPoint1.hashCode(), is(outputPoint2.hashCode()));
 	}
@@ -56,9 +58,14 @@ public class TransactionOutputPointTest
 	@Test
 	public void canDetermineEquality()
 	{
-		TransactionOutputPoint outputPoint1 = new TransactionOutputPoint("123", 4);
-		TransactionOutputPoint outputPoint2 = new TransactionOutputPoint("123", 4);
+		TransactionOutputPoint outputPoint1 = new TransactionOutputPoint(someHash(), 4);
+		TransactionOutputPoint outputPoint2 = new TransactionOutputPoint(someHash(), 4);
 		
 		assertThat(outputPoint1, is(outputPoint2));
 	}
+	
+	private static Hash256 someHash()
+	{
+		return Hash256.fromString(Strings.padStart("123", 2 * Hash256.LENGTH, '0'));
+	}
 }
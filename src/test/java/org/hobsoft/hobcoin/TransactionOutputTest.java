@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.security.PublicKey;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code TransactionOutput}.
+ */
+public class TransactionOutputTest
+{
+	private PublicKey recipient;
+	
+	@Before
+	public void setUp()
+	{
+		recipient = new Wallet().address();
+	}
+	
+	@Test
+	public void canCalculateHash()
+	{
+		TransactionOutput output1 = new TransactionOutput(recipient, 3);
+		TransactionOutput output2 = new TransactionOutput(recipient, 3);
+		
+		assertThat(output1.hash(), is(output2.hash()));
+	}
+	
+	@Test
+	public void canCalculateHashByAmount()
+	{
+		TransactionOutput output1 = new TransactionOutput(recipient, 3);
+		TransactionOutput output2 = new TransactionOutput(recipient, 4);
+		
+		assertThat(output1.hash(), is(not(output2.hash())));
+	}
+	
+	@Test
+	public void canCalculateHashByRecipient()
+	{
+		TransactionOutput output1 = new TransactionOutput(recipient, 3);
+		TransactionOutput output2 = new TransactionOutput(new Wallet().address(), 3);
+		
+		assertThat(output1.hash(), is(not(output2.hash())));
+	}
+	
+	@Test
+	public void canGetHashOnce()
+	{
+		TransactionOutput output = new TransactionOutput(recipient, 3);
+		
+		assertThat(output.hash(), is(sameInstance(output.hash())));
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static java.util.Arrays.asList;
+
+import static org.hamcrest.CoreMatchers.both;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@code TransactionPool}.
+ */
+public class TransactionPoolTest
+{
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+	
+	private Wallet wallet;
+	
+	private Wallet otherWallet;
+	
+	private Blockchain blockchain;
+	
+	private TransactionPool pool;
+	
+	@Before
+	public void setUp()
+	{
+		wallet = new Wallet();
+		otherWallet = new Wallet();
+		blockchain = new Blockchain(wallet.address(), 100, Target.ofLeadingZeroBits(0));
+		blockchain.add(new Block(wallet.transfer(blockchain, otherWallet.address(), 50), blockchain.tail().hash()));
+		pool = new TransactionPool(blockchain, 1024 * 1024);
+	}
+	
+	@Test
+	public void canAddTransaction()
+	{
+		Transaction transaction = wallet.transfer(blockchain, new Wallet().address(), 10);
+		
+		pool.add(transaction);
+		
+		assertThat(pool.transactions(), contains(transaction));
+	}
+	
+	@Test
+	public void canAddTransactionTwice()
+	{
+		Transaction transaction = wallet.transfer(blockchain, new Wallet().address(), 10);
+		
+		pool.add(transaction).add(transaction);
+		
+		assertThat(pool.count(), is(1));
+	}
+	
+	@Test
+	public void canOrderTransactionsByFeeRate()
+	{
+		Transaction lowFeeTransaction = wallet.transfer(blockchain, new Wallet().address(), 10, 1);
+		Transaction highFeeTransaction = otherWallet.transfer(blockchain, new Wallet().address(), 10, 5);
+		
+		pool.add(lowFeeTransaction).add(highFeeTransaction);
+		
+		assertThat(pool.transactions(), contains(highFeeTransaction, lowFeeTransaction));
+	}
+	
+	@Test
+	public void canOrderTransactionsByFeeRateWithLargeFees()
+	{
+		Blockchain blockchain = new Blockchain(wallet.address(), Long.MAX_VALUE, Target.ofLeadingZeroBits(0));
+		blockchain.add(new Block(wallet.transfer(blockchain, otherWallet.address(), 1L << 62),
+			blockchain.tail().hash()));
+		TransactionPool pool = new TransactionPool(blockchain, 1024 * 1024);
+		Transaction lowFeeTransaction = wallet.transfer(blockchain, new Wallet().address(), 10, 1L << 50);
+		Transaction highFeeTransaction = otherWallet.transfer(blockchain, new Wallet().address(), 10,
+			Long.MAX_VALUE / 128);
+		
+		pool.add(lowFeeTransaction).add(highFeeTransaction);
+		
+		assertThat("size", BlockCodec.encodedLength(lowFeeTransaction), is(both(greaterThan(128)).and(lessThan(256))));
+		assertThat("transactions", pool.transactions(), contains(highFeeTransaction, lowFeeTransaction));
+	}
+	
+	@Test
+	public void canEvictLowestFeeRateTransactionWhenFull()
+	{
+		Transaction lowFeeTransaction = wallet.transfer(blockchain, new Wallet().address(), 10, 1);
+		Transaction highFeeTransaction = otherWallet.transfer(blockchain, new Wallet().address(), 10, 5);
+		TransactionPool pool = new TransactionPool(blockchain, BlockCodec.encodedLength(highFeeTransaction));
+		
+		pool.add(highFeeTransaction).add(lowFeeTransaction);
+		
+		assertThat(pool.transactions(), contains(highFeeTransaction));
+	}
+	
+	@Test
+	public void canRemoveConfirmedTransactionWhenBlockAdded()
+	{
+		Transaction transaction = wallet.transfer(blockchain, new Wallet().address(), 10);
+		pool.add(transaction);
+		
+		blockchain.add(new Block(transaction, blockchain.tail().hash()));
+		
+		assertThat("transactions", pool.transactions(), is(empty()));
+		assertThat("size", pool.size(), is(0L));
+	}
+	
+	@Test
+	public void canRemoveConflictingTransactionWhenBlockAdded()
+	{
+		pool.add(wallet.transfer(blockchain, new Wallet().address(), 10));
+		
+		blockchain.add(new Block(wallet.transfer(blockchain, new Wallet().address(), 20), blockchain.tail().hash()));
+		
+		assertThat(pool.transactions(), is(empty()));
+	}
+	
+	@Test
+	public void canAddTransactionBackWhenBlockRemoved()
+	{
+		Blockchain branch = new Blockchain(wallet.address(), 100, blockchain.difficulty());
+		branch.add(blockchain.tail());
+		Transaction transaction = wallet.transfer(blockchain, new Wallet().address(), 10);
+		blockchain.add(new Block(transaction, blockchain.tail().hash()));
+		branch.add(new Block(otherWallet.transfer(branch, new Wallet().address(), 10), branch.tail().hash()));
+		branch.add(new Block(otherWallet.transfer(branch, new Wallet().address(), 10), branch.tail().hash()));
+		
+		blockchain.add(branch.block(2).get()).add(branch.block(3).get());
+		
+		assertThat(pool.transactions(), contains(transaction));
+	}
+	
+	@Test
+	public void cannotAddChainedTransactionBackWhenBlocksRemoved()
+	{
+		Blockchain branch = new Blockchain(wallet.address(), 100, blockchain.difficulty());
+		branch.add(blockchain.tail());
+		Transaction transaction = wallet.transfer(blockchain, new Wallet().address(), 10);
+		blockchain.add(new Block(transaction, blockchain.tail().hash()));
+		Transaction chainedTransaction = wallet.transfer(blockchain, new Wallet().address(), 10);
+		blockchain.add(new Block(chainedTransaction, blockchain.tail().hash()));
+		branch.add(new Block(otherWallet.transfer(branch, new Wallet().address(), 10), branch.tail().hash()));
+		branch.add(new Block(otherWallet.transfer(branch, new Wallet().address(), 10), branch.tail().hash()));
+		branch.add(new Block(otherWallet.transfer(branch, new Wallet().address(), 10), branch.tail().hash()));
+		
+		blockchain.add(branch.block(2).get()).add(branch.block(3).get()).add(branch.block(4).get());
+		
+		assertThat(pool.transactions(), contains(transaction));
+	}
+	
+	@Test
+	public void cannotAddConflictingTransaction()
+	{
+		pool.add(wallet.transfer(blockchain, new Wallet().address(), 10));
+		
+		thrown.expect(InvalidTransactionException.class);
+		thrown.expectMessage("Conflicting transaction input");
+		
+		pool.add(wallet.transfer(blockchain, new Wallet().address(), 20));
+	}
+	
+	@Test
+	public void cannotAddTransactionWithOutputsExceedingInputs()
+	{
+		Transaction transaction = wallet.transfer(blockchain, new Wallet().address(), 10);
+		TransactionOutput output = new TransactionOutput(new Wallet().address(), 1000);
+		
+		thrown.expect(InvalidTransactionException.class);
+		
+		pool.add(new Transaction(transaction.inputs(), asList(output)));
+	}
+	
+	@Test
+	public void cannotCreatePoolWithNoMaximumSize()
+	{
+		thrown.expect(IllegalArgumentException.class);
+		
+		new TransactionPool(blockchain, 0);
+	}
+}
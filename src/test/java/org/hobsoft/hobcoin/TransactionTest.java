@@ -17,6 +17,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import com.google.common.base.Strings;
+
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 
@@ -35,12 +37,12 @@ public class TransactionTest
 	@Test
 	public void canCreateTransaction()
 	{
-		TransactionInput input = new TransactionInput(new TransactionOutputPoint("123", 4));
+		TransactionInput input = new TransactionInput(new TransactionOutputPoint(someHash(), 4));
 		TransactionOutput output = new TransactionOutput(new Wallet().address(), 4);
 		
 		Transaction transaction = new Transaction(singletonList(input), singletonList(output));
 		
-		assertThat("id", transaction.id(), notNullValue(String.class));
+		assertThat("id", transaction.id(), notNullValue(Hash256.class));
 		assertThat("inputs", transaction.inputs(), contains(input));
 		assertThat("outputs", transaction.outputs(), contains(output));
 	}
@@ -58,10 +60,15 @@ public class TransactionTest
 	@Test
 	public void cannotCreateTransactionWithNoOutputs()
 	{
-		TransactionInput input = new TransactionInput(new TransactionOutputPoint("123", 4));
+		TransactionInput input = new TransactionInput(new TransactionOutputPoint(someHash(), 4));
 
 		thrown.expect(IllegalArgumentException.class);
 		
 		new Transaction(singletonList(input), emptyList());
 	}
+	
+	private static Hash256 someHash()
+	{
+		return Hash256.fromString(Strings.padStart("123", 2 * Hash256.LENGTH, '0'));
+	}
 }
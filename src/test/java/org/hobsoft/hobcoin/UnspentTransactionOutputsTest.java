@@ -0,0 +1,281 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Tests {@code UnspentTransactionOutputs} in each storage.
+ */
+@RunWith(Parameterized.class)
+public class UnspentTransactionOutputsTest
+{
+	private final UnspentTransactionOutputsStorage storage;
+	
+	private PublicKey alice;
+	
+	private PublicKey bob;
+	
+	private UnspentTransactionOutputs unspentOutputs;
+	
+	public UnspentTransactionOutputsTest(UnspentTransactionOutputsStorage storage)
+	{
+		this.storage = storage;
+	}
+	
+	@Before
+	public void setUp()
+	{
+		alice = new Wallet().address();
+		bob = new Wallet().address();
+		unspentOutputs = storage.newUnspentTransactionOutputs();
+	}
+	
+	@Test
+	public void canFindOutputsByOwner()
+	{
+		Transaction transaction = newTransaction(Hash256.ZERO, new TransactionOutput(alice, 3),
+			new TransactionOutput(bob, 4), new TransactionOutput(alice, 5));
+		
+		unspentOutputs.apply(transaction);
+		
+		assertThat(unspentOutputs.find(alice), contains(
+			unspentOutputs.find(new TransactionOutputPoint(transaction.id(), 0)).get(),
+			unspentOutputs.find(new TransactionOutputPoint(transaction.id(), 2)).get()
+		));
+	}
+	
+	@Test
+	public void canGetBalanceByOwner()
+	{
+		unspentOutputs.apply(newTransaction(Hash256.ZERO, new TransactionOutput(alice, 3),
+			new TransactionOutput(bob, 4), new TransactionOutput(alice, 5)));
+		
+		assertThat(unspentOutputs.balance(alice), is(8L));
+	}
+	
+	@Test
+	public void canGetBalanceByOwnerAfterSpend()
+	{
+		Transaction transaction1 = newTransaction(Hash256.ZERO, new TransactionOutput(alice, 3));
+		Transaction transaction2 = newTransaction(transaction1.id(), new TransactionOutput(bob, 3));
+		unspentOutputs.apply(transaction1);
+		
+		unspentOutputs.apply(transaction2);
+		
+		assertThat("alice", unspentOutputs.balance(alice), is(0L));
+		assertThat("bob", unspentOutputs.balance(bob), is(3L));
+	}
+	
+	@Test
+	public void canFindNoOutputsByOwnerAfterSpend()
+	{
+		Transaction transaction1 = newTransaction(Hash256.ZERO, new TransactionOutput(alice, 3));
+		Transaction transaction2 = newTransaction(transaction1.id(), new TransactionOutput(bob, 3));
+		unspentOutputs.apply(transaction1);
+		
+		unspentOutputs.apply(transaction2);
+		
+		assertThat(unspentOutputs.find(alice), is(empty()));
+	}
+	
+	@Test
+	public void canFindOutputByOutputPoint()
+	{
+		UnspentTransactionOutput unspentOutput = newUnspentOutput(1, alice, 3);
+		
+		unspentOutputs.add(unspentOutput);
+		
+		assertThat(unspentOutputs.find(unspentOutput.transactionOutputPoint()), is(Optional.of(unspentOutput)));
+	}
+	
+	@Test
+	public void canFindNoOutputByOutputPointAfterRemove()
+	{
+		UnspentTransactionOutput unspentOutput = newUnspentOutput(1, alice, 3);
+		unspentOutputs.add(unspentOutput);
+		
+		unspentOutputs.remove(unspentOutput.transactionOutputPoint());
+		
+		assertThat(unspentOutputs.find(unspentOutput.transactionOutputPoint()), is(Optional.empty()));
+	}
+	
+	@Test
+	public void canRemoveOutput()
+	{
+		UnspentTransactionOutput unspentOutput = newUnspentOutput(1, alice, 3);
+		unspentOutputs.add(unspentOutput);
+		
+		assertThat(unspentOutputs.remove(unspentOutput.transactionOutputPoint()), is(true));
+	}
+	
+	@Test
+	public void cannotRemoveUnknownOutput()
+	{
+		assertThat(unspentOutputs.remove(newUnspentOutput(1, alice, 3).transactionOutputPoint()), is(false));
+	}
+	
+	@Test
+	public void canFindOutputsByPointsWithNullWhenSpent()
+	{
+		UnspentTransactionOutput unspentOutput = newUnspentOutput(1, alice, 3);
+		unspentOutputs.add(unspentOutput);
+		
+		List<UnspentTransactionOutput> actual = unspentOutputs.find(asList(
+			unspentOutput.transactionOutputPoint(),
+			newUnspentOutput(2, alice, 3).transactionOutputPoint()
+		));
+		
+		assertThat(actual, contains(unspentOutput, null));
+	}
+	
+	@Test
+	public void canGetAllOutputsAfterGrowing()
+	{
+		List<UnspentTransactionOutput> expected = new ArrayList<>();
+		
+		for (int index = 0; index < 5000; index++)
+		{
+			UnspentTransactionOutput unspentOutput = newUnspentOutput(index, index % 2 == 0 ? alice : bob, index);
+			unspentOutputs.add(unspentOutput);
+			expected.add(unspentOutput);
+		}
+		
+		assertThat("size", unspentOutputs.size(), is(5000));
+		assertThat("outputs", newArrayList(unspentOutputs.all()), containsInAnyOrder(expected.toArray()));
+	}
+	
+	@Test
+	public void canFindOutputsByOwnerInOrderAfterRemovesAndGrowing()
+	{
+		List<UnspentTransactionOutput> expected = new ArrayList<>();
+		
+		for (int index = 0; index < 5000; index++)
+		{
+			UnspentTransactionOutput unspentOutput = newUnspentOutput(index, alice, 1);
+			unspentOutputs.add(unspentOutput);
+			
+			if (index % 3 == 0)
+			{
+				unspentOutputs.remove(unspentOutput.transactionOutputPoint());
+			}
+			else
+			{
+				expected.add(unspentOutput);
+			}
+		}
+		
+		assertThat("outputs", unspentOutputs.find(alice), is(expected));
+		assertThat("balance", unspentOutputs.balance(alice), is((long) expected.size()));
+	}
+	
+	@Test
+	public void canGetSizeAfterRemove()
+	{
+		UnspentTransactionOutput unspentOutput = newUnspentOutput(1, alice, 3);
+		unspentOutputs.add(unspentOutput);
+		unspentOutputs.add(newUnspentOutput(2, bob, 4));
+		
+		unspentOutputs.remove(unspentOutput.transactionOutputPoint());
+		
+		assertThat(unspentOutputs.size(), is(1));
+	}
+	
+	@Test
+	public void canRecordSpentOutputsWhenApplyingBlock()
+	{
+		Transaction transaction1 = newTransaction(Hash256.ZERO, new TransactionOutput(alice, 3));
+		unspentOutputs.apply(transaction1);
+		UnspentTransactionOutput spentOutput = unspentOutputs.find(transaction1.outputPoints().get(0)).get();
+		Transaction transaction2 = newTransaction(transaction1.id(), new TransactionOutput(bob, 3));
+		
+		List<UnspentTransactionOutput> actual = unspentOutputs.apply(new Block(transaction2, Hash256.ZERO));
+		
+		assertThat(actual, contains(spentOutput));
+	}
+	
+	@Test
+	public void canUndoBlock()
+	{
+		Transaction transaction1 = newTransaction(Hash256.ZERO, new TransactionOutput(alice, 3));
+		unspentOutputs.apply(transaction1);
+		Block block = new Block(newTransaction(transaction1.id(), new TransactionOutput(bob, 3)), Hash256.ZERO);
+		List<UnspentTransactionOutput> spentOutputs = unspentOutputs.apply(block);
+		
+		unspentOutputs.undo(block, spentOutputs);
+		
+		assertThat("alice", unspentOutputs.balance(alice), is(3L));
+		assertThat("bob", unspentOutputs.balance(bob), is(0L));
+		assertThat("size", unspentOutputs.size(), is(1));
+	}
+	
+	@Test
+	public void canUndoBlockThatSpendsItsOwnOutput()
+	{
+		Transaction transaction1 = newTransaction(Hash256.ZERO, new TransactionOutput(alice, 3));
+		unspentOutputs.apply(transaction1);
+		Transaction transaction2 = newTransaction(transaction1.id(), new TransactionOutput(bob, 3));
+		Transaction transaction3 = newTransaction(transaction2.id(), new TransactionOutput(alice, 3));
+		Block block = new Block(asList(transaction2, transaction3), Hash256.ZERO);
+		List<UnspentTransactionOutput> spentOutputs = unspentOutputs.apply(block);
+		
+		unspentOutputs.undo(block, spentOutputs);
+		
+		assertThat("alice", unspentOutputs.find(alice), contains(
+			new UnspentTransactionOutput(transaction1.outputPoints().get(0), alice, 3)
+		));
+		assertThat("bob", unspentOutputs.find(bob), is(empty()));
+		assertThat("size", unspentOutputs.size(), is(1));
+	}
+	
+	@Parameters(name = "{0}")
+	public static UnspentTransactionOutputsStorage[] storages()
+	{
+		return UnspentTransactionOutputsStorage.values();
+	}
+	
+	private static UnspentTransactionOutput newUnspentOutput(int transactionId, PublicKey recipient, long amount)
+	{
+		Hash256 id = Hash256.of(0, 0, 0, transactionId);
+		
+		return new UnspentTransactionOutput(new TransactionOutputPoint(id, transactionId % 3), recipient, amount);
+	}
+	
+	private static Transaction newTransaction(Hash256 inputTransactionId, TransactionOutput... outputs)
+	{
+		TransactionInput input = new TransactionInput(new TransactionOutputPoint(inputTransactionId, 0));
+		
+		return new Transaction(singletonList(input), asList(outputs));
+	}
+}
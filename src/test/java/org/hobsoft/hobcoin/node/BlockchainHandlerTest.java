@@ -43,6 +43,6 @@ public class BlockchainHandlerTest
 			.exchange()
 			.expectStatus().isOk()
 			.expectBody()
-			.jsonPath("length($.blocks)").isEqualTo(1);
+			.jsonPath("$.blocks.length()").isEqualTo(1);
 	}
 }
@@ -0,0 +1,318 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin.node;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.hamcrest.Matcher;
+import org.hobsoft.hobcoin.Block;
+import org.hobsoft.hobcoin.BlockCodec;
+import org.hobsoft.hobcoin.Blockchain;
+import org.hobsoft.hobcoin.Target;
+import org.hobsoft.hobcoin.Transaction;
+import org.hobsoft.hobcoin.Wallet;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.google.common.base.Strings;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.junit.Assert.assertThat;
+import static org.springframework.http.MediaType.ALL;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
+import static org.springframework.http.MediaType.APPLICATION_STREAM_JSON;
+
+/**
+ * Tests {@code BlockchainRouter}.
+ */
+public class BlockchainRouterTest
+{
+	private Wallet wallet;
+	
+	private Blockchain blockchain;
+	
+	private WebTestClient client;
+	
+	@Before
+	public void setUp()
+	{
+		wallet = new Wallet();
+		blockchain = new Blockchain(wallet.address(), 100, Target.ofLeadingZeroBits(0));
+		
+		addBlocks(4);
+		
+		client = WebTestClient.bindToRouterFunction(new BlockchainRouter().route(new BlockchainHandler(blockchain)))
+			.build();
+	}
+	
+	@Test
+	public void canGetBlocks()
+	{
+		client.get().uri("/blocks")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.height").isEqualTo(5)
+			.jsonPath("$.blocks.length()").isEqualTo(5);
+	}
+	
+	@Test
+	public void canGetDefaultLimitOfBlocks()
+	{
+		addBlocks(BlockchainHandler.DEFAULT_LIMIT);
+		
+		client.get().uri("/blocks")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.height").isEqualTo(BlockchainHandler.DEFAULT_LIMIT + 5)
+			.jsonPath("$.blocks.length()").isEqualTo(BlockchainHandler.DEFAULT_LIMIT);
+	}
+	
+	@Test
+	public void canGetBlocksAcceptingAnyMediaType()
+	{
+		client.get().uri("/blocks")
+			.accept(ALL)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().contentType(APPLICATION_JSON)
+			.expectBody()
+			.jsonPath("$.height").isEqualTo(5)
+			.jsonPath("$.blocks.length()").isEqualTo(5);
+	}
+	
+	@Test
+	public void canGetBlocksWithoutAccept()
+	{
+		client.get().uri("/blocks")
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().contentType(APPLICATION_JSON)
+			.expectBody()
+			.jsonPath("$.height").isEqualTo(5)
+			.jsonPath("$.blocks.length()").isEqualTo(5);
+	}
+	
+	@Test
+	public void canGetBlocksInRange()
+	{
+		client.get().uri("/blocks?from=1&limit=2")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.blocks.length()").isEqualTo(2)
+			.jsonPath("$.blocks[0].hash").isEqualTo(hash(1))
+			.jsonPath("$.blocks[1].hash").isEqualTo(hash(2));
+	}
+	
+	@Test
+	public void canGetBlocksFromBeyondTail()
+	{
+		client.get().uri("/blocks?from=9")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.blocks.length()").isEqualTo(0);
+	}
+	
+	@Test
+	public void canStreamBlocks()
+	{
+		List<BlockView> blocks = client.get().uri("/blocks?from=3")
+			.accept(APPLICATION_STREAM_JSON)
+			.exchange()
+			.expectStatus().isOk()
+			.returnResult(BlockView.class)
+			.getResponseBody()
+			.collectList()
+			.block();
+		
+		assertThat(blocks, contains(hasHash(hash(3)), hasHash(hash(4))));
+	}
+	
+	@Test
+	public void canGetEncodedBlocks()
+	{
+		byte[] bytes = client.get().uri("/blocks?from=1&limit=2")
+			.accept(APPLICATION_OCTET_STREAM)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody(byte[].class)
+			.returnResult()
+			.getResponseBody();
+		
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		assertThat("block 1", BlockCodec.decodeBlock(buffer).hash().toString(), is(hash(1)));
+		assertThat("block 2", BlockCodec.decodeBlock(buffer).hash().toString(), is(hash(2)));
+		assertThat("remaining", buffer.hasRemaining(), is(false));
+	}
+	
+	@Test
+	public void canGetEncodedHeaders()
+	{
+		byte[] bytes = client.get().uri("/headers?from=1&limit=2")
+			.accept(APPLICATION_OCTET_STREAM)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody(byte[].class)
+			.returnResult()
+			.getResponseBody();
+		
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		assertThat("header 1", BlockCodec.decodeHeader(buffer).hash().toString(), is(hash(1)));
+		assertThat("header 2", BlockCodec.decodeHeader(buffer).hash().toString(), is(hash(2)));
+		assertThat("remaining", buffer.hasRemaining(), is(false));
+	}
+	
+	@Test
+	public void cannotGetHeadersWithLimitExceedingMaximum()
+	{
+		client.get().uri("/headers?limit=" + (BlockchainHandler.MAX_HEADER_LIMIT + 1))
+			.accept(APPLICATION_OCTET_STREAM)
+			.exchange()
+			.expectStatus().isBadRequest();
+	}
+	
+	@Test
+	public void cannotGetBlocksWithLimitExceedingMaximum()
+	{
+		client.get().uri("/blocks?limit=" + (BlockchainHandler.MAX_LIMIT + 1))
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isBadRequest();
+	}
+	
+	@Test
+	public void cannotGetBlocksWithInvalidFrom()
+	{
+		client.get().uri("/blocks?from=x")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isBadRequest();
+	}
+	
+	@Test
+	public void cannotGetBlocksWithNegativeFrom()
+	{
+		client.get().uri("/blocks?from=-1")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isBadRequest();
+	}
+	
+	@Test
+	public void canGetBlockByHash()
+	{
+		client.get().uri("/blocks/{hash}", hash(2))
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.hash").isEqualTo(hash(2))
+			.jsonPath("$.previousHash").isEqualTo(hash(1));
+	}
+	
+	@Test
+	public void canGetBlockByHeight()
+	{
+		client.get().uri("/blocks/height/3")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.hash").isEqualTo(hash(3));
+	}
+	
+	@Test
+	public void cannotGetBlockByUnknownHash()
+	{
+		client.get().uri("/blocks/{hash}", Strings.repeat("0", 64))
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isNotFound();
+	}
+	
+	@Test
+	public void cannotGetBlockByInvalidHash()
+	{
+		client.get().uri("/blocks/x")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isBadRequest();
+	}
+	
+	@Test
+	public void cannotGetBlockBeyondTail()
+	{
+		client.get().uri("/blocks/height/5")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isNotFound();
+	}
+	
+	@Test
+	public void canGetTransaction()
+	{
+		Transaction transaction = blockchain.block(2).get().transactions().get(0);
+		
+		client.get().uri("/transactions/{id}", transaction.id())
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.id").isEqualTo(transaction.id().toString())
+			.jsonPath("$.blockHash").isEqualTo(hash(2))
+			.jsonPath("$.blockHeight").isEqualTo(2)
+			.jsonPath("$.position").isEqualTo(0)
+			.jsonPath("$.inputs.length()").isEqualTo(transaction.inputs().size())
+			.jsonPath("$.outputs[0].amount").isEqualTo(1);
+	}
+	
+	@Test
+	public void cannotGetUnknownTransaction()
+	{
+		client.get().uri("/transactions/{id}", Strings.repeat("0", 64))
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isNotFound();
+	}
+	
+	private void addBlocks(int count)
+	{
+		for (int index = 0; index < count; index++)
+		{
+			blockchain.add(new Block(wallet.transfer(blockchain, wallet.address(), 1), blockchain.tail().hash()));
+		}
+	}
+	
+	private String hash(int height)
+	{
+		return blockchain.blocks(height, 1).iterator().next().hash().toString();
+	}
+	
+	private static Matcher<BlockView> hasHash(String hash)
+	{
+		return hasProperty("hash", is(hash));
+	}
+}
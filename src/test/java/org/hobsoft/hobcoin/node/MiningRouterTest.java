@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin.node;
+
+import java.time.Duration;
+
+import org.hobsoft.hobcoin.Blockchain;
+import org.hobsoft.hobcoin.Miner;
+import org.hobsoft.hobcoin.Target;
+import org.hobsoft.hobcoin.TransactionPool;
+import org.hobsoft.hobcoin.Wallet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static java.util.Collections.emptyList;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Tests {@code MiningRouter}.
+ */
+public class MiningRouterTest
+{
+	private PeerService peerService;
+	
+	private MiningService miningService;
+	
+	private WebTestClient client;
+	
+	@Before
+	public void setUp()
+	{
+		Wallet wallet = new Wallet();
+		Blockchain blockchain = new Blockchain(wallet.address(), 100, Target.ofLeadingZeroBits(0));
+		TransactionPool transactionPool = new TransactionPool(blockchain, Long.MAX_VALUE);
+		peerService = new PeerService(blockchain, transactionPool, "http://localhost", emptyList(), 1, 1);
+		miningService = new MiningService(blockchain, transactionPool, peerService, new Miner(1),
+			Duration.ofMillis(10));
+		
+		client = WebTestClient.bindToRouterFunction(new MiningRouter().route(new MiningHandler(miningService)))
+			.build();
+	}
+	
+	@After
+	public void tearDown()
+	{
+		miningService.close();
+		peerService.close();
+	}
+	
+	@Test
+	public void canGetStatus()
+	{
+		client.get().uri("/mining")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.running").isEqualTo(false)
+			.jsonPath("$.threads").isEqualTo(1)
+			.jsonPath("$.hashRate").isEqualTo(0)
+			.jsonPath("$.blocksMined").isEqualTo(0);
+	}
+	
+	@Test
+	public void canStartMining()
+	{
+		client.post().uri("/mining/start")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.running").isEqualTo(true);
+	}
+	
+	@Test
+	public void canStopMining()
+	{
+		miningService.start();
+		
+		client.post().uri("/mining/stop")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.running").isEqualTo(false);
+	}
+}
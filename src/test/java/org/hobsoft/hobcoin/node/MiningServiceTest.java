@@ -0,0 +1,175 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin.node;
+
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import org.hobsoft.hobcoin.Blockchain;
+import org.hobsoft.hobcoin.Miner;
+import org.hobsoft.hobcoin.Target;
+import org.hobsoft.hobcoin.Transaction;
+import org.hobsoft.hobcoin.TransactionPool;
+import org.hobsoft.hobcoin.Wallet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@code MiningService}.
+ */
+public class MiningServiceTest
+{
+	private static final long TIMEOUT_MILLIS = 10_000;
+	
+	private Wallet wallet;
+	
+	private Miner miner;
+	
+	private Blockchain blockchain;
+	
+	private TransactionPool transactionPool;
+	
+	private PeerService peerService;
+	
+	private MiningService miningService;
+	
+	@Before
+	public void setUp()
+	{
+		wallet = new Wallet();
+		miner = new Miner(2);
+	}
+	
+	@After
+	public void tearDown()
+	{
+		miningService.close();
+		peerService.close();
+	}
+	
+	@Test
+	public void canMineBlockWhenStarted()
+	{
+		newMiningService(Target.ofLeadingZeroBits(0));
+		Transaction transaction = someTransaction();
+		transactionPool.add(transaction);
+		
+		miningService.start();
+		
+		await(() -> blockchain.height() == 2 && miningService.blocksMined() == 1);
+		assertThat(blockchain.tail().transactions().get(0), is(transaction));
+		assertThat(miningService.blocksMined(), is(1L));
+	}
+	
+	@Test
+	public void canMineBlockForTransactionAddedWhileIdle()
+	{
+		newMiningService(Target.ofLeadingZeroBits(0));
+		miningService.start();
+		
+		transactionPool.add(someTransaction());
+		
+		await(() -> blockchain.height() == 2);
+	}
+	
+	@Test
+	public void canStopMining()
+	{
+		newMiningService(Target.ofLeadingZeroBits(64));
+		transactionPool.add(someTransaction());
+		miningService.start();
+		await(() -> miner.hashes() > 0);
+		
+		miningService.stop();
+		
+		assertThat(miningService.isRunning(), is(false));
+		LockSupport.parkNanos(MILLISECONDS.toNanos(100));
+		long hashes = miner.hashes();
+		LockSupport.parkNanos(MILLISECONDS.toNanos(100));
+		assertThat(miner.hashes(), is(hashes));
+	}
+	
+	@Test
+	public void canRestartMining()
+	{
+		newMiningService(Target.ofLeadingZeroBits(0));
+		miningService.start();
+		miningService.stop();
+		
+		miningService.start();
+		transactionPool.add(someTransaction());
+		
+		await(() -> blockchain.height() == 2);
+	}
+	
+	@Test
+	public void canStopMiningAfterUnexpectedError()
+	{
+		newMiningService(Target.ofLeadingZeroBits(0));
+		transactionPool.add(someTransaction());
+		miner.close();
+		
+		miningService.start();
+		
+		await(() -> !miningService.isRunning());
+		assertThat(miningService.isRunning(), is(false));
+	}
+	
+	@Test
+	public void canSampleHashRate()
+	{
+		newMiningService(Target.ofLeadingZeroBits(64));
+		transactionPool.add(someTransaction());
+		
+		miningService.start();
+		
+		await(() -> miningService.hashRate() > 0);
+		assertThat(miningService.hashRate(), is(greaterThan(0L)));
+	}
+	
+	private void newMiningService(Target difficulty)
+	{
+		blockchain = new Blockchain(wallet.address(), 100, difficulty);
+		transactionPool = new TransactionPool(blockchain, Long.MAX_VALUE);
+		peerService = new PeerService(blockchain, transactionPool, "http://localhost", emptyList(), 1, 1);
+		miningService = new MiningService(blockchain, transactionPool, peerService, miner, Duration.ofMillis(10));
+	}
+	
+	private Transaction someTransaction()
+	{
+		return wallet.transfer(blockchain, new Wallet().address(), 1);
+	}
+	
+	private static void await(BooleanSupplier condition)
+	{
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline)
+		{
+			LockSupport.parkNanos(MILLISECONDS.toNanos(10));
+		}
+		
+		assertTrue("Timed out", condition.getAsBoolean());
+	}
+}
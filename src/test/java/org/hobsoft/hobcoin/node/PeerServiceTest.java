@@ -0,0 +1,567 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hobsoft.hobcoin.node;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import org.hobsoft.hobcoin.Block;
+import org.hobsoft.hobcoin.BlockCodec;
+import org.hobsoft.hobcoin.Blockchain;
+import org.hobsoft.hobcoin.Miner;
+import org.hobsoft.hobcoin.Target;
+import org.hobsoft.hobcoin.Transaction;
+import org.hobsoft.hobcoin.TransactionPool;
+import org.hobsoft.hobcoin.Wallet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.google.common.base.Strings;
+
+import reactor.ipc.netty.NettyContext;
+import reactor.ipc.netty.http.server.HttpServer;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
+
+/**
+ * Tests {@code PeerService} between nodes listening on local ports.
+ */
+public class PeerServiceTest
+{
+	/**
+	 * A node that serves the blockchain, peer and mining endpoints on a local port.
+	 */
+	private static final class Node implements AutoCloseable
+	{
+		private final Blockchain blockchain;
+		
+		private final TransactionPool transactionPool;
+		
+		private final PeerService peerService;
+		
+		private final MiningService miningService;
+		
+		private final NettyContext server;
+		
+		Node(Wallet genesisWallet, Target difficulty, SyncMode syncMode, String... peerUrls)
+		{
+			int port = freePort();
+			
+			blockchain = new Blockchain(genesisWallet.address(), 100, difficulty);
+			transactionPool = new TransactionPool(blockchain, Long.MAX_VALUE);
+			peerService = new PeerService(blockchain, transactionPool, "http://localhost:" + port, asList(peerUrls),
+				BATCH_SIZE, 2, syncMode);
+			miningService = new MiningService(blockchain, transactionPool, peerService, new Miner(1),
+				Duration.ofMillis(10));
+			
+			RouterFunction<ServerResponse> route = new BlockchainRouter().route(new BlockchainHandler(blockchain))
+				.and(new PeerRouter().route(new PeerHandler(peerService)))
+				.and(new MiningRouter().route(new MiningHandler(miningService)));
+			
+			server = HttpServer.create("localhost", port)
+				.newHandler(new ReactorHttpHandlerAdapter(RouterFunctions.toHttpHandler(route)))
+				.block();
+		}
+		
+		String url()
+		{
+			return peerService.url();
+		}
+		
+		@Override
+		public void close()
+		{
+			server.dispose();
+			miningService.close();
+			peerService.close();
+		}
+	}
+	
+	private static final int BATCH_SIZE = 2;
+	
+	private static final long TIMEOUT_MILLIS = 10_000;
+	
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+	
+	private Wallet wallet;
+	
+	private List<Node> nodes;
+	
+	@Before
+	public void setUp()
+	{
+		wallet = new Wallet();
+		nodes = new ArrayList<>();
+	}
+	
+	@After
+	public void tearDown()
+	{
+		nodes.forEach(Node::close);
+	}
+	
+	@Test
+	public void canShareGenesisBlock()
+	{
+		Node node1 = newNode();
+		Node node2 = newNode();
+		
+		assertThat(node2.blockchain.tail().hash(), is(node1.blockchain.tail().hash()));
+	}
+	
+	@Test
+	public void canSyncFromPeer()
+	{
+		Node node1 = newNode();
+		addBlocks(node1, 5);
+		Node node2 = newNode(node1.url());
+		
+		int count = node2.peerService.sync(node1.url()).block();
+		
+		assertThat("count", count, is(5));
+		assertThat("tail", node2.blockchain.tail().hash(), is(node1.blockchain.tail().hash()));
+	}
+	
+	@Test
+	public void canSyncNothingFromPeerBehind()
+	{
+		Node node1 = newNode();
+		Node node2 = newNode(node1.url());
+		addBlocks(node2, 3);
+		
+		int count = node2.peerService.sync(node1.url()).block();
+		
+		assertThat("count", count, is(0));
+		assertThat("height", node2.blockchain.height(), is(4));
+	}
+	
+	@Test
+	public void canStartBySyncingFromPeers()
+	{
+		Node node1 = newNode();
+		addBlocks(node1, 3);
+		Node node2 = newNode(node1.url());
+		
+		node2.peerService.start().block();
+		
+		assertThat("tail", node2.blockchain.tail().hash(), is(node1.blockchain.tail().hash()));
+	}
+	
+	@Test
+	public void canStartByAnnouncingToPeers()
+	{
+		Node node1 = newNode();
+		Node node2 = newNode(node1.url());
+		
+		node2.peerService.start().block();
+		
+		assertThat(node1.peerService.peers(), contains(node2.url()));
+	}
+	
+	@Test
+	public void canPublishBlockToPeers()
+	{
+		Node node1 = newNode();
+		Node node2 = newNode(node1.url());
+		node2.peerService.start().block();
+		Block block = newBlock(node1.blockchain);
+		
+		node1.peerService.publish(block).block();
+		
+		assertThat(node2.blockchain.tail().hash(), is(block.hash()));
+	}
+	
+	@Test
+	public void canRelayPublishedBlockThroughPeer()
+	{
+		Node node1 = newNode();
+		Node node2 = newNode(node1.url());
+		Node node3 = newNode(node2.url());
+		node2.peerService.start().block();
+		node3.peerService.start().block();
+		Block block = newBlock(node1.blockchain);
+		
+		node1.peerService.publish(block).block();
+		
+		await(() -> node3.blockchain.tail().hash().equals(block.hash()));
+	}
+	
+	@Test
+	public void canSyncFromSenderOfBlockThatDoesNotFollowTail()
+	{
+		Node node2 = newNode();
+		Node node1 = newNode(node2.url());
+		addBlocks(node1, 4);
+		
+		node1.peerService.publish(newBlock(node1.blockchain)).block();
+		
+		await(() -> node2.blockchain.tail().hash().equals(node1.blockchain.tail().hash()));
+	}
+	
+	@Test
+	public void canSyncFromAnnouncingPeer()
+	{
+		Node node2 = newNode();
+		Node node1 = newNode(node2.url());
+		addBlocks(node1, 3);
+		
+		node1.peerService.start().block();
+		
+		await(() -> node2.blockchain.tail().hash().equals(node1.blockchain.tail().hash()));
+	}
+	
+	@Test
+	public void canSyncHeadersFirstFromPeer()
+	{
+		Node node1 = newNode();
+		addBlocks(node1, 5);
+		Node node2 = newNode(SyncMode.HEADERS_FIRST, node1.url());
+		
+		int count = node2.peerService.sync(node1.url()).block();
+		
+		assertThat("count", count, is(5));
+		assertThat("tail", node2.blockchain.tail().hash(), is(node1.blockchain.tail().hash()));
+	}
+	
+	@Test
+	public void canSyncHeadersFirstFetchingBlocksFromEveryPeer()
+	{
+		Node node1 = newNode();
+		addBlocks(node1, 7);
+		Node node2 = newNode(node1.url());
+		node2.peerService.sync(node1.url()).block();
+		Node node3 = newNode(SyncMode.HEADERS_FIRST, node1.url(), node2.url());
+		
+		int count = node3.peerService.sync(node1.url()).block();
+		
+		assertThat("count", count, is(7));
+		assertThat("tail", node3.blockchain.tail().hash(), is(node1.blockchain.tail().hash()));
+	}
+	
+	@Test
+	public void canSyncHeadersFirstWhenPeerIsMissingBlocks()
+	{
+		Node node1 = newNode();
+		Node node2 = newNode(node1.url());
+		addBlocks(node1, 7);
+		Node node3 = newNode(SyncMode.HEADERS_FIRST, node1.url(), node2.url());
+		
+		int count = node3.peerService.sync(node1.url()).block();
+		
+		assertThat("count", count, is(7));
+		assertThat("tail", node3.blockchain.tail().hash(), is(node1.blockchain.tail().hash()));
+	}
+	
+	@Test
+	public void cannotSyncHeadersFirstFromPeerWithUnminedHeaders()
+	{
+		Node node1 = newNode();
+		addBlocks(node1, 3);
+		Node node2 = newNode(Target.ofLeadingZeroBits(256), SyncMode.HEADERS_FIRST, node1.url());
+		
+		int count = node2.peerService.sync(node1.url()).block();
+		
+		assertThat("count", count, is(0));
+		assertThat("height", node2.blockchain.height(), is(1));
+	}
+	
+	@Test
+	public void canSyncFromPeerOnBranchWithMoreWork()
+	{
+		Node node1 = newNode();
+		addBlocks(node1, 3);
+		Node node2 = newNode(node1.url());
+		addBlocks(node2, 2);
+		
+		int count = node2.peerService.sync(node1.url()).block();
+		
+		assertThat("count", count, is(3));
+		assertThat("tail", node2.blockchain.tail().hash(), is(node1.blockchain.tail().hash()));
+	}
+	
+	@Test
+	public void canSyncHeadersFirstFromPeerOnBranchWithMoreWork()
+	{
+		Node node1 = newNode();
+		addBlocks(node1, 3);
+		Node node2 = newNode(SyncMode.HEADERS_FIRST, node1.url());
+		addBlocks(node2, 2);
+		
+		int count = node2.peerService.sync(node1.url()).block();
+		
+		assertThat("count", count, is(3));
+		assertThat("tail", node2.blockchain.tail().hash(), is(node1.blockchain.tail().hash()));
+	}
+	
+	@Test
+	public void canReorganizeToPublishedBlockOnBranchWithMoreWork()
+	{
+		Node node1 = newNode();
+		Node node2 = newNode(node1.url());
+		node2.peerService.start().block();
+		addBlocks(node1, 2);
+		addBlocks(node2, 2);
+		Block block = newBlock(node1.blockchain);
+		
+		node1.peerService.publish(block).block();
+		
+		await(() -> node2.blockchain.tail().hash().equals(block.hash()));
+	}
+	
+	@Test
+	public void cannotAddInvalidPeer()
+	{
+		Node node = newNode();
+		
+		thrown.expect(IllegalArgumentException.class);
+		thrown.expectMessage("Invalid peer URL: ftp://localhost/blocks");
+		
+		node.peerService.addPeer("ftp://localhost/blocks");
+	}
+	
+	@Test
+	public void cannotAddPeersBeyondMaximum()
+	{
+		Node node = newNode();
+		
+		for (int index = 0; index <= PeerService.MAX_PEERS; index++)
+		{
+			node.peerService.addPeer("http://peer" + index + ":8080");
+		}
+		
+		assertThat(node.peerService.peers().size(), is(PeerService.MAX_PEERS));
+	}
+	
+	@Test
+	public void cannotReceiveBlockFromInvalidSender()
+	{
+		Node node = newNode();
+		
+		ResponseEntity<String> response = post(node, "/blocks", BlockCodec.encode(newBlock(node.blockchain)),
+			"http://localhost/blocks");
+		
+		assertThat("status", response.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+		assertThat("body", response.getBody(), is("Invalid peer URL: http://localhost/blocks"));
+		assertThat("peers", node.peerService.peers(), is(empty()));
+	}
+	
+	@Test
+	public void cannotReceiveBlockLongerThanMaximum()
+	{
+		Node node = newNode();
+		
+		ResponseEntity<String> response = post(node, "/blocks", new byte[PeerClient.MAX_BLOCK_LENGTH + 1], null);
+		
+		assertThat("status", response.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+		assertThat("body", response.getBody(), is("Body is longer than " + PeerClient.MAX_BLOCK_LENGTH + " bytes"));
+		assertThat("height", node.blockchain.height(), is(1));
+	}
+	
+	@Test
+	public void cannotReceiveAnnouncementWithoutPeer()
+	{
+		Node node = newNode();
+		
+		ResponseEntity<String> response = postAnnouncement(node, "{\"hash\": \"" + Strings.repeat("0", 64)
+			+ "\", \"height\": 2}");
+		
+		assertThat("status", response.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+		assertThat("body", response.getBody(), is("Missing announcement peer"));
+	}
+	
+	@Test
+	public void cannotReceiveAnnouncementWithoutHash()
+	{
+		Node node1 = newNode();
+		Node node2 = newNode();
+		
+		ResponseEntity<String> response = postAnnouncement(node2, "{\"peer\": \"" + node1.url()
+			+ "\", \"height\": 2}");
+		
+		assertThat("status", response.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+		assertThat("body", response.getBody(), is("Missing announcement hash"));
+		assertThat("peers", node2.peerService.peers(), is(empty()));
+	}
+	
+	@Test
+	public void canReceiveTransaction()
+	{
+		Node node = newNode();
+		Transaction transaction = wallet.transfer(node.blockchain, wallet.address(), 1);
+		
+		ResponseEntity<String> response = post(node, "/transactions", BlockCodec.encode(transaction), null);
+		
+		assertThat("status", response.getStatusCode(), is(HttpStatus.ACCEPTED));
+		assertTrue("pooled", node.transactionPool.contains(transaction.id()));
+	}
+	
+	@Test
+	public void canRelayTransactionThroughPeer()
+	{
+		Node node1 = newNode();
+		Node node2 = newNode(node1.url());
+		Node node3 = newNode(node2.url());
+		node2.peerService.start().block();
+		node3.peerService.start().block();
+		Transaction transaction = wallet.transfer(node1.blockchain, wallet.address(), 1);
+		
+		post(node1, "/transactions", BlockCodec.encode(transaction), null);
+		
+		await(() -> node3.transactionPool.contains(transaction.id()));
+		assertTrue("node2", node2.transactionPool.contains(transaction.id()));
+	}
+	
+	@Test
+	public void cannotReceiveInvalidTransaction()
+	{
+		Node node = newNode();
+		Transaction transaction = wallet.transfer(node.blockchain, wallet.address(), 1);
+		node.blockchain.add(new Block(transaction, node.blockchain.tail().hash()).mine(node.blockchain.difficulty()));
+		
+		ResponseEntity<String> response = post(node, "/transactions", BlockCodec.encode(transaction), null);
+		
+		assertThat("status", response.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+		assertThat("body", response.getBody(), startsWith("Spent transaction input: "));
+		assertThat("pooled", node.transactionPool.contains(transaction.id()), is(false));
+	}
+	
+	@Test
+	public void canMineTransactionSubmittedToPeerOfStartedNode()
+	{
+		Node node1 = newNode();
+		Node node2 = newNode(node1.url());
+		node2.peerService.start().block();
+		WebClient.create(node1.url()).post()
+			.uri("/mining/start")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.block();
+		Transaction transaction = wallet.transfer(node2.blockchain, wallet.address(), 1);
+		
+		post(node2, "/transactions", BlockCodec.encode(transaction), null);
+		
+		await(() -> node2.blockchain.height() == 2);
+		assertThat("blocks mined", node1.miningService.blocksMined(), is(1L));
+		assertThat("transaction", node2.blockchain.tail().transactions().get(0).id(), is(transaction.id()));
+	}
+	
+	private Node newNode(String... peerUrls)
+	{
+		return newNode(SyncMode.BLOCKS, peerUrls);
+	}
+	
+	private Node newNode(SyncMode syncMode, String... peerUrls)
+	{
+		return newNode(Target.ofLeadingZeroBits(0), syncMode, peerUrls);
+	}
+	
+	private Node newNode(Target difficulty, SyncMode syncMode, String... peerUrls)
+	{
+		Node node = new Node(wallet, difficulty, syncMode, peerUrls);
+		nodes.add(node);
+		return node;
+	}
+	
+	private void addBlocks(Node node, int count)
+	{
+		for (int index = 0; index < count; index++)
+		{
+			node.blockchain.add(newBlock(node.blockchain));
+		}
+	}
+	
+	private Block newBlock(Blockchain blockchain)
+	{
+		return new Block(wallet.transfer(blockchain, wallet.address(), 1), blockchain.tail().hash())
+			.mine(blockchain.difficulty());
+	}
+	
+	private static ResponseEntity<String> post(Node node, String uri, byte[] body, String sender)
+	{
+		WebClient.RequestBodySpec request = WebClient.create(node.url()).post()
+			.uri(uri)
+			.contentType(APPLICATION_OCTET_STREAM);
+		
+		if (sender != null)
+		{
+			request.header(PeerClient.PEER_HEADER, sender);
+		}
+		
+		return request.syncBody(body)
+			.exchange()
+			.flatMap(response -> response.toEntity(String.class))
+			.block();
+	}
+	
+	private static ResponseEntity<String> postAnnouncement(Node node, String json)
+	{
+		return WebClient.create(node.url()).post()
+			.uri("/announcements")
+			.contentType(APPLICATION_JSON)
+			.syncBody(json)
+			.exchange()
+			.flatMap(response -> response.toEntity(String.class))
+			.block();
+	}
+	
+	private static void await(BooleanSupplier condition)
+	{
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline)
+		{
+			LockSupport.parkNanos(MILLISECONDS.toNanos(10));
+		}
+		
+		assertTrue("Timed out", condition.getAsBoolean());
+	}
+	
+	private static int freePort()
+	{
+		try (ServerSocket socket = new ServerSocket(0))
+		{
+			return socket.getLocalPort();
+		}
+		catch (IOException exception)
+		{
+			throw new IllegalStateException(exception);
+		}
+	}
+}